@@ -4,14 +4,16 @@
 (ns mop.cmplx.complex
   {:doc     "(Abstract) simplicial and cell complexes."
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-04-11"}
+   :version "2026-10-18"}
   (:require
-   [clojure.set :as set]
    [mop.commons.string :as mcs])
   (:import
+   [java.util HashMap List Map]
    [mop.java.cmplx
-    Cell CellComplex
-    OneSimplex SimplicialComplex2D TwoSimplex ZeroSimplex]))
+    Cell CellComplex EdgeTable FaceHierarchy FaceSubset HalfEdges
+    IndexedCellComplex
+    IndexedSimplicialComplex2D OneSimplex SimplicialComplex2D
+    SimplicialComplex2D$Builder TopologyReport TwoSimplex ZeroSimplex]))
 
 ;;---------------------------------------------------------------
 
@@ -23,6 +25,16 @@
   (^TwoSimplex [^ZeroSimplex z0 ^ZeroSimplex z1 ^ZeroSimplex z2]
    (TwoSimplex/make z0 z1 z2)))
 
+(defn child-vertex
+  "Return a new vertex generated from 1 or 2 parent vertices,
+  eg, the copy of a vertex on a cut, or the midpoint of an edge.
+  Stores a compact (parent, other, level, slot) tuple rather than a name
+  string; see <code>ZeroSimplex</code>."
+  (^ZeroSimplex [^ZeroSimplex parent ^long slot]
+   (ZeroSimplex/make parent (int slot)))
+  (^ZeroSimplex [^ZeroSimplex z0 ^ZeroSimplex z1 ^long slot]
+   (ZeroSimplex/make z0 z1 (int slot))))
+
 ;;---------------------------------------------------------------
 
 (defn equivalent [^Cell c0 ^Cell c1]
@@ -32,6 +44,14 @@
 (defn vertices [^CellComplex complex] (.vertices complex))
 (defn faces [^CellComplex complex] (.faces complex))
 
+(defn n-faces
+  "Number of faces, without materializing the face objects
+  of an indexed complex."
+  ^long [^CellComplex complex]
+  (if (instance? IndexedCellComplex complex)
+    (.nFaces ^IndexedCellComplex complex)
+    (.size (.faces complex))))
+
 ;;---------------------------------------------------------------
 
 (defmethod mcs/simple-string SimplicialComplex2D [^SimplicialComplex2D this]
@@ -47,6 +67,151 @@
 (defn simplicial-complex-2d [faces]
     (SimplicialComplex2D/make faces))
 
+;;---------------------------------------------------------------
+;; Packed int array faces, for large complexes.
+
+(defmethod mcs/simple-string IndexedSimplicialComplex2D
+  [^IndexedSimplicialComplex2D this]
+  (str "IndexedSimplicialCmplx2D["
+       (.nVertices this) " vertices, "
+       (.nFaces this) " faces]"))
+
+(defmulti indexed-complex-2d
+          "Return an equivalent complex with faces stored as packed
+          vertex indices. The inverse is <code>object-complex-2d</code>."
+          class)
+
+(defmethod indexed-complex-2d IndexedSimplicialComplex2D
+  [^IndexedSimplicialComplex2D c]
+  c)
+
+(defmethod indexed-complex-2d SimplicialComplex2D
+  [^SimplicialComplex2D c]
+  (.indexed c))
+
+(defmulti object-complex-2d
+          "Return an equivalent complex with faces stored as a list of
+          <code>TwoSimplex</code>."
+          class)
+
+(defmethod object-complex-2d SimplicialComplex2D [^SimplicialComplex2D c]
+  c)
+
+(defmethod object-complex-2d IndexedSimplicialComplex2D
+  [^IndexedSimplicialComplex2D c]
+  (.toSimplicialComplex2D c))
+
+;;---------------------------------------------------------------
+;; Adjacency, via a lazily built, cached half-edge index.
+;; See mop.java.cmplx.HalfEdges for the (faster) index-level queries.
+
+(defn half-edges ^HalfEdges [cmplx]
+  (.halfEdges ^IndexedCellComplex (indexed-complex-2d cmplx)))
+
+(defn- vertex-index ^long [^IndexedCellComplex ic ^ZeroSimplex z]
+  (let [i (.indexOf ic z)]
+    (assert (<= 0 i) (str z " not a vertex"))
+    i))
+
+(defn vertex-ring
+  "Return the vertices sharing an edge with <code>z</code>."
+  [cmplx ^ZeroSimplex z]
+  (let [^IndexedCellComplex ic (indexed-complex-2d cmplx)]
+    (mapv #(.vertex ic (int %))
+          (.vertexRing (.halfEdges ic) (vertex-index ic z)))))
+
+(defn edge-faces
+  "Return the faces containing the edge between
+  <code>z0</code> and <code>z1</code>, in either orientation."
+  [cmplx ^ZeroSimplex z0 ^ZeroSimplex z1]
+  (let [^IndexedCellComplex ic (indexed-complex-2d cmplx)
+        ^List faces (.faces ic)]
+    (mapv #(.get faces (int %))
+          (.edgeFaces (.halfEdges ic)
+                      (vertex-index ic z0)
+                      (vertex-index ic z1)))))
+
+(defn boundary-edges
+  "Return the boundary edges as oriented <code>[z0 z1]</code> pairs."
+  [cmplx]
+  (let [^IndexedCellComplex ic (indexed-complex-2d cmplx)
+        ^HalfEdges he (.halfEdges ic)]
+    (mapv (fn [h]
+            [(.vertex ic (.origin he (int h)))
+             (.vertex ic (.target he (int h)))])
+          (.boundaryHalfEdges he))))
+
+;;---------------------------------------------------------------
+;; Face subsets, as bit masks over the faces of an indexed root complex.
+
+(defn face-subset
+  "Return a view of the faces of <code>cmplx</code> satisfying
+  <code>predicate</code>, sharing the vertices and faces of
+  <code>cmplx</code>, or of its root, if it is already a view."
+  ^FaceSubset [cmplx predicate]
+  (FaceSubset/filter cmplx predicate))
+
+(defn without-vertex
+  "Return a view of the faces of <code>cmplx</code> that don't contain
+  <code>z</code>, compared by identity."
+  ^FaceSubset [cmplx ^ZeroSimplex z]
+  (FaceSubset/withoutVertex cmplx z))
+
+(defn without-vertex-named
+  "Return a view of the faces of <code>cmplx</code> that don't contain
+  any vertex named <code>name</code>."
+  ^FaceSubset [cmplx ^String name]
+  (FaceSubset/withoutVertexNamed cmplx name))
+
+(defmethod indexed-complex-2d FaceSubset [^FaceSubset c]
+  (.toIndexed c))
+
+;;---------------------------------------------------------------
+;; Validation
+
+(defn topology
+  "Return a <code>TopologyReport</code>: non-manifold edges and vertices,
+  inconsistently oriented edges, duplicate faces, boundary edges and
+  loops, and the Euler characteristic, found in one parallel pass."
+  ^TopologyReport [cmplx]
+  (TopologyReport/make cmplx))
+
+(defn topology-map
+  "Return the counts in <code>(topology cmplx)</code> as a map."
+  [cmplx]
+  (let [^TopologyReport r (topology cmplx)]
+    {:vertices              (.nVertices r)
+     :edges                 (.nEdges r)
+     :faces                 (.nFaces r)
+     :euler-characteristic  (.eulerCharacteristic r)
+     :boundary-edges        (.boundaryEdges r)
+     :boundary-loops        (.boundaryLoops r)
+     :non-manifold-edges    (.nonManifoldEdges r)
+     :inconsistent-edges    (.inconsistentEdges r)
+     :non-manifold-vertices (.nonManifoldVertices r)
+     :duplicate-faces       (.duplicateFaces r)}))
+
+(defn valid?
+  "Is <code>cmplx</code> manifold, consistently oriented, and free of
+  duplicate faces?"
+  [cmplx]
+  (.isValid (topology cmplx)))
+
+;;---------------------------------------------------------------
+;; multi-resolution
+
+(defn face-hierarchy
+  "Return the base complex and <code>depth</code> levels of midpoint
+  subdivision, with implicit parent/child face indices."
+  ^FaceHierarchy [cmplx ^long depth]
+  (FaceHierarchy/make (indexed-complex-2d cmplx) (int depth)))
+
+(defn hierarchy-cut
+  "Return the mixed resolution complex found by descending from each
+  base face while <code>(refine level face)</code> is truthy."
+  ^IndexedCellComplex [^FaceHierarchy h refine]
+  (.cutComplex h (.cut h refine)))
+
 ;;---------------------------------------------------------------
 ;; Not a simplex. No independent identity.
 ;; Used as a key in temp maps during subdivision and other
@@ -101,7 +266,34 @@
     #{(vertex-pair a b) (vertex-pair b c) (vertex-pair c a)}))
 
 (defmethod vertex-pairs CellComplex [^CellComplex sc]
-  (reduce set/union (map vertex-pairs (.faces sc))))
+  (let [^List faces (.faces sc)
+        ^EdgeTable edges (EdgeTable/make (* 4 (.size faces)))]
+    (doseq [^Cell face faces]
+      (let [^List vs (.vertices face)
+            n (.size vs)]
+        (dotimes [i n]
+          (let [^ZeroSimplex a (.get vs i)
+                ^ZeroSimplex b (.get vs (rem (inc i) n))]
+            (when-not (.get edges a b)
+              (.putIfAbsent edges a b (vertex-pair a b)))))))
+    (set (.values edges))))
+
+;; no face objects, vertex indices as edge table ids
+
+(defmethod vertex-pairs IndexedCellComplex [^IndexedCellComplex ic]
+  (let [arity (.arity ic)
+        ^ints fi (.faceIndices ic)
+        n (alength fi)
+        ^EdgeTable edges (EdgeTable/make n)]
+    (dotimes [h n]
+      (let [a (int (aget fi h))
+            b (int (aget fi (if (== (dec arity) (rem h arity))
+                         (- h (dec arity))
+                         (inc h))))]
+        (when-not (.get edges a b)
+          (.putIfAbsent edges a b (vertex-pair (.vertex ic a)
+                                               (.vertex ic b))))))
+    (set (.values edges))))
 
 ;;---------------------------------------------------------------
 ;; TODO: Incorporate alternate subdivision rules,
@@ -132,37 +324,30 @@
 ;; not so easy to use transients, maybe switch to local mutable java collections
 
 (defmethod midpoint-subdivide-4 SimplicialComplex2D [^SimplicialComplex2D c]
-  (loop [faces (.faces c)
-         child-faces []
-         children {}]
-    (if (empty? faces)
-      {:child  (simplicial-complex-2d child-faces)
-       :parent (set/map-invert children)}
-      ;; else
-      (let [^TwoSimplex face (first faces)
-            ^ZeroSimplex a (.z0 face)
-            ^ZeroSimplex b (.z1 face)
-            ^ZeroSimplex c (.z2 face)
-            eab (vertex-pair a b)
-            ebc (vertex-pair b c)
-            eca (vertex-pair c a)
-            ^ZeroSimplex ab (or (children eab)
-                                (simplex (str (.toString (.z0 eab))
-                                              (.toString (.z1 eab)))))
-            ^ZeroSimplex bc (or (children ebc)
-                                (simplex (str (.toString (.z0 ebc))
-                                              (.toString (.z1 ebc)))))
-            ^ZeroSimplex ca (or (children eca)
-                                (simplex (str (.toString (.z0 eca))
-                                              (.toString (.z1 eca)))))]
-        (recur
-         (rest faces)
-         ;; overflow with concat instead of conj
-         (conj child-faces
-               (simplex a ab ca)
-               (simplex b bc ab)
-               (simplex c ca bc)
-               (simplex ab bc ca))
-         (merge children {a a, b b, c c, eab ab, ebc bc, eca ca}))))))
+  (let [^List faces (.faces c)
+        ^EdgeTable edges (EdgeTable/make (* 3 (.size faces)))
+        ^SimplicialComplex2D$Builder child (SimplicialComplex2D/builder
+                                            (* 4 (.size faces)))
+        ^Map parent (HashMap.)
+        midpoint (fn midpoint [^ZeroSimplex z0 ^ZeroSimplex z1]
+                   (or (.get edges z0 z1)
+                       (let [z (child-vertex z0 z1 0)]
+                         (.putIfAbsent edges z0 z1 z)
+                         (.put parent z (vertex-pair z0 z1))
+                         z)))]
+    (doseq [v (.vertices c)] (.put parent v v))
+    (doseq [^TwoSimplex face faces]
+      (let [a (.z0 face)
+            b (.z1 face)
+            c (.z2 face)
+            ab (midpoint a b)
+            bc (midpoint b c)
+            ca (midpoint c a)]
+        (.add child (simplex a ab ca))
+        (.add child (simplex b bc ab))
+        (.add child (simplex c ca bc))
+        (.add child (simplex ab bc ca))))
+    {:child  (.build child)
+     :parent (into {} parent)}))
 
 ;;---------------------------------------------------------------
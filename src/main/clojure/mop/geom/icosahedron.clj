@@ -11,8 +11,12 @@
             [mop.geom.mesh :as mesh]
             [mop.geom.rn :as rn]
             [mop.geom.s2 :as s2])
-  (:import [mop.java.geom Point2U]
-           [mop.java.geom.mesh TriangleMesh]
+  (:import [clojure.lang IFn]
+           [mop.java.cmplx IndexedCellComplex IndexedSimplicialComplex2D]
+           [mop.java.geom Point2U]
+           [mop.java.geom.mesh
+            GeodesicSphere GeodesicSphere$Projection GeodesicSphere$Result
+            TriangleMesh]
            [org.apache.commons.geometry.spherical.twod Point2S]))
 ;;---------------------------------------------------------------
 ;; Create abstract complex and r3 embedding together
@@ -170,3 +174,34 @@
       )))
 
 ;;---------------------------------------------------------------
+;; Direct generation of subdivided icosahedra.
+
+(def ^:private icosphere-base
+  "Indexed <code>s2-icosahedron</code> complex and embedding,
+  created once, so <code>GeodesicSphere</code> can cache its levels."
+  (delay
+   (let [m (s2-icosahedron)]
+     [(cmplx/indexed-complex-2d (mesh/cmplx m)) (mesh/embedding m)])))
+
+(defn ^TriangleMesh s2-icosphere
+  "Return a level <code>k</code> geodesic icosphere, with
+  <code>20*4^k</code> faces, generated directly from lattice
+  coordinates on the faces of <code>s2-icosahedron</code>.
+  <code>projection</code> is <code>:midpoint</code>, the default,
+  which places vertices as <code>k</code> midpoint subdivisions
+  would, or <code>:gnomonic</code>.
+  Levels are cached; see <code>GeodesicSphere</code>."
+  ([^long k] (s2-icosphere k :midpoint))
+  ([^long k projection]
+   (let [[base embedding] @icosphere-base
+         ^GeodesicSphere$Result r
+         (GeodesicSphere/make
+          ^IndexedCellComplex base
+          ^IFn embedding
+          (int k)
+          (GeodesicSphere$Projection/valueOf
+           (.toUpperCase ^String (name projection))))
+         ^IndexedSimplicialComplex2D c (.cmplx r)]
+     (mesh/triangle-mesh c (zipmap (.vertices c) (.points r))))))
+
+;;------------------------------------------------------------------------------
@@ -4,7 +4,7 @@
 (ns mop.geom.mesh
   {:doc     "Embedded cell complexes."
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-03-06"}
+   :version "2026-10-18"}
 
   (:require
    [mop.cmplx.complex :as cmplx]
@@ -14,15 +14,26 @@
 
   (:import
    [clojure.lang IFn]
-   [java.util List]
+   [java.util BitSet List]
+   [org.apache.commons.geometry.euclidean.threed Vector3D]
+   [org.apache.commons.geometry.euclidean.threed.rotation QuaternionRotation]
+   [org.apache.commons.geometry.euclidean.twod Vector2D]
    [org.apache.commons.geometry.spherical.twod
     GreatArc Point2S]
    [mop.cmplx.complex VertexPair]
    [mop.java.cmplx
-    Cell CellComplex SimplicialComplex2D
+    Cell CellComplex FaceSubset IndexedCellComplex IndexedQuadComplex
+    IndexedSimplicialComplex2D MidpointSubdivision
+    MidpointSubdivision$Result SimplicialComplex2D SubdivisionStream
+    SubdivisionStream$FaceConsumer SubdivisionStream$VertexConsumer
     ZeroSimplex OneSimplex TwoSimplex]
-   [mop.java.geom Point2U]
-   [mop.java.geom.mesh Mesh TriangleMesh]))
+   [mop.java.geom Point2U S2Kernels]
+   [mop.java.geom.mesh
+    DatelineCut DatelineCut$Result FaceLocator FaceLocator$Location
+    Mesh MeshMetrics QuadMesh S2Delaunay S2Delaunay$Result
+    S2Relaxation S2Relaxation$Mode S2Relaxation$Result S2Triangulation
+    S2Triangulation$Result TriangleMesh VertexAttributes
+    VertexAttributes$Column VertexTree]))
 
 ;;---------------------------------------------------------------
 
@@ -32,13 +43,52 @@
 
 ;;---------------------------------------------------------------
 
-(defn triangle-mesh ^TriangleMesh [^SimplicialComplex2D cmplx
+(defn triangle-mesh ^TriangleMesh [^CellComplex cmplx
                                    ^IFn embedding]
   (dorun
-   (map #(assert (not (nil? (embedding %)))
-                 (println %))
+   (map #(assert (not (nil? (embedding %))) (str "no point for " %))
         (.vertices cmplx)))
-  (TriangleMesh/make cmplx embedding))
+  (cond
+    (instance? IndexedSimplicialComplex2D cmplx)
+    (TriangleMesh/make ^IndexedSimplicialComplex2D cmplx embedding)
+    (instance? FaceSubset cmplx)
+    (TriangleMesh/make ^FaceSubset cmplx embedding)
+    :else
+    (TriangleMesh/make ^SimplicialComplex2D cmplx embedding)))
+
+;;---------------------------------------------------------------
+;; Columnar vertex data, carried alongside the embedding.
+;; Rows are indices into the vertices of an indexed complex.
+
+(defn vertex-attributes
+  "Return a <code>VertexAttributes</code> for the vertices of the
+  indexed form of <code>cmplx</code>, with a column of coordinates for
+  each name and embedding in <code>embeddings</code>."
+  ^VertexAttributes [cmplx embeddings]
+  (reduce (fn [^VertexAttributes a [^String name ^IFn embedding]]
+            (.withEmbedding a name embedding))
+          (VertexAttributes/make ^IndexedCellComplex
+                                 (cmplx/indexed-complex-2d cmplx))
+          embeddings))
+
+(defn attributes ^VertexAttributes [^Mesh mesh] (.attributes mesh))
+
+(defn attributed-mesh
+  "Return a triangle or quad mesh over <code>(.cmplx attributes)</code>."
+  ^Mesh [^IFn embedding ^VertexAttributes attributes]
+  (let [c (.cmplx attributes)]
+    (if (instance? IndexedSimplicialComplex2D c)
+      (TriangleMesh/make ^IndexedSimplicialComplex2D c embedding attributes)
+      (QuadMesh/make ^IndexedQuadComplex c embedding attributes))))
+
+(defn update-attribute
+  "Return a mesh with column <code>name</code> replaced by
+  <code>(f column)</code>, eg, <code>#(rn/transform rotation %)</code>."
+  ^Mesh [^Mesh mesh ^String name f]
+  (let [^VertexAttributes a (.attributes mesh)]
+    (attributed-mesh (.embedding mesh)
+                     (.with a name ^VertexAttributes$Column
+                            (f (.column a name))))))
 
 ;;---------------------------------------------------------------
 ;; TODO: defmulti depending on co-domain of embedding
@@ -62,28 +112,103 @@
                                      ^IFn embedding]
   (triangle-mesh complex embedding))
 
+(defmethod mesh IndexedSimplicialComplex2D
+  [^IndexedSimplicialComplex2D complex ^IFn embedding]
+  (triangle-mesh complex embedding))
+
+(defmethod mesh FaceSubset [^FaceSubset complex ^IFn embedding]
+  (if (== 3 (.arity (.root complex)))
+    (triangle-mesh complex embedding)
+    (QuadMesh/make complex embedding)))
+
+;;---------------------------------------------------------------
+;; columnar vertex data, over the flat arrays, in parallel.
+;; Here rather than in mop.geom.rn, which doesn't depend on meshes.
+
+(defmethod rn/transform
+  [Number VertexAttributes$Column]
+  [^Number f ^VertexAttributes$Column x]
+  (.scale x (double f)))
+
+(defmethod rn/transform
+  [Vector2D VertexAttributes$Column]
+  [^Vector2D f ^VertexAttributes$Column x]
+  (.translate x (double-array (rn/coordinates f))))
+
+(defmethod rn/transform
+  [Vector3D VertexAttributes$Column]
+  [^Vector3D f ^VertexAttributes$Column x]
+  (.translate x (double-array (rn/coordinates f))))
+
+(defmethod rn/transform
+  [QuaternionRotation VertexAttributes$Column]
+  [^QuaternionRotation f ^VertexAttributes$Column x]
+  (let [^VertexAttributes$Column y (.affine x (.toArray (.toMatrix f)))]
+    ;; rotations preserve length
+    (if (.isUnit x) (.asUnit y) y)))
+
 ;;---------------------------------------------------------------
-;; just map the transform over the vals of the embedding.
 ;; TODO: require 1st arg of <code>transform</code> to be a function.
 ;; and then <code>transform</code> could just be <code>
 
+(defn transform-mesh
+  "Return a mesh like <code>m</code>, with its points transformed by
+  <code>f</code>. The embedding, any <code>IFn</code>, not just a map,
+  is evaluated once per vertex. The position column of any attributes
+  is transformed over its flat array, and the other columns, and
+  face subset views, are carried through."
+  ^Mesh [f ^Mesh m]
+  (let [c (.cmplx m)
+        e (.embedding m)
+        embedding (persistent!
+                   (reduce (fn [acc z] (assoc! acc z (rn/transform f (e z))))
+                           (transient {})
+                           (.vertices c)))
+        ^VertexAttributes a (.attributes m)
+        ^VertexAttributes a (when a
+                              (if-let [xyz (.column a VertexAttributes/POSITION)]
+                                (.with a VertexAttributes/POSITION
+                                       ^VertexAttributes$Column
+                                       (rn/transform f xyz))
+                                a))]
+    (cond
+      (instance? FaceSubset c)
+      (if (== 3 (.arity (.root ^FaceSubset c)))
+        (TriangleMesh/make ^FaceSubset c ^IFn embedding a)
+        (QuadMesh/make ^FaceSubset c ^IFn embedding a))
+      a (attributed-mesh embedding a)
+      :else (mesh c embedding))))
+
 (defmethod rn/transform [Object TriangleMesh] [^Object f ^TriangleMesh x]
-  (triangle-mesh
-   (.cmplx x)
-   (update-vals (.embedding x) #(rn/transform f %))))
+  (transform-mesh f x))
 
 ;;----------------------------------------------------------------
+;; Views sharing the parent's faces and embedding, not copies.
+;; Filtering a filtered mesh filters the original faces.
+
+(defn- subset-mesh
+  "A view of some of the faces of <code>mesh</code>, with its embedding,
+  which already has a point for every root vertex,
+  so isn't checked again, and its attributes, if any."
+  ^TriangleMesh [^TriangleMesh mesh ^FaceSubset subset]
+  (TriangleMesh/make subset (.embedding mesh) (.attributes mesh)))
+
 (defn ^TriangleMesh filter-mesh [predicate ^TriangleMesh mesh]
-  (triangle-mesh
-   (cmplx/simplicial-complex-2d
-    (filter predicate (cmplx/faces (.cmplx mesh))))
-   (.embedding mesh)))
+  (subset-mesh mesh (cmplx/face-subset (.cmplx mesh) predicate)))
 (defn not-containing-vertex-by-name [^TwoSimplex face name]
   (not (or (= name (.name (.z0 face)))
            (= name (.name (.z1 face)))
            (= name (.name (.z2 face))))))
-(defn ^TriangleMesh remove-faces-w-vtx [^TriangleMesh mesh z]
-  (filter-mesh #(not-containing-vertex-by-name % z) mesh))
+(defn ^TriangleMesh remove-faces-w-vtx
+  "Remove the faces containing <code>z</code>, a vertex,
+  or the faces containing any vertex with that name."
+  [^TriangleMesh mesh z]
+  (let [cmplx (.cmplx mesh)]
+    (subset-mesh
+     mesh
+     (if (instance? ZeroSimplex z)
+       (cmplx/without-vertex cmplx z)
+       (cmplx/without-vertex-named cmplx (str z))))))
 ;;---------------------------------------------------------------
 ;; TODO: force embedding to return points of some kind.
 
@@ -116,6 +241,10 @@ most likely R^3 or S^2."
 (defmethod points SimplicialComplex2D [^IFn embedding ^SimplicialComplex2D x]
   (points embedding (.vertices ^SimplicialComplex2D x)))
 
+(defmethod points IndexedSimplicialComplex2D
+  [^IFn embedding ^IndexedSimplicialComplex2D x]
+  (points embedding (.vertices x)))
+
 ;;---------------------------------------------------------------
 ;; TODO: Incorporate alternate subdivision rules,
 ;; especially with regards to inherited embedding.
@@ -126,17 +255,55 @@ most likely R^3 or S^2."
 ;; as parent,
 ;;
 
+;; Same topology as subdividing the complex,
+;; and embedding the child via the :parent map,
+;; but computed in Java, in parallel, without the intermediate maps.
+
+(defn subdivide-mesh
+  "Midpoint subdivide a triangle or quad mesh, returning a mesh of the
+  same kind, with an indexed complex."
+  [^Mesh m]
+  (let [^MidpointSubdivision$Result result
+        (MidpointSubdivision/subdivide
+         (cmplx/indexed-complex-2d (.cmplx m))
+         (.embedding m)
+         space/midpoint)
+        child (.child result)]
+    (let [embedding (zipmap (.vertices child) (.points result))
+          ^VertexAttributes a (.attributes m)]
+      (if a
+        (attributed-mesh embedding (.subdivide a child))
+        (mesh child embedding)))))
+
 (defmethod cmplx/midpoint-subdivide-4 TriangleMesh [^TriangleMesh m]
-  (let [{^CellComplex child :child parent :parent}
-        (cmplx/midpoint-subdivide-4 (.cmplx m))
-        embedding (.embedding m)]
-    (mesh
-     child
-     (into
-      {}
-      (map
-       (fn [v] [v (apply space/midpoint (points embedding (parent v)))])
-       (.vertices child))))))
+  (subdivide-mesh m))
+
+;; For levels whose complex and embedding may not fit in memory.
+
+(defn subdivision-stream
+  "Return a depth-first traversal of the level <code>k</code>
+  midpoint subdivision of a triangle mesh,
+  without building levels <code>1..k</code>."
+  ^SubdivisionStream [^TriangleMesh m ^long k]
+  (SubdivisionStream/make
+   (cmplx/indexed-complex-2d (.cmplx m))
+   (.embedding m)
+   space/midpoint
+   (int k)))
+
+(defn stream-faces
+  "Call <code>(f face v0 v1 v2 p0 p1 p2)</code> for each face,
+  with long vertex ids and their points."
+  [^SubdivisionStream s f]
+  (.faces s (reify SubdivisionStream$FaceConsumer
+              (accept [_ face v0 v1 v2 p0 p1 p2]
+                (f face v0 v1 v2 p0 p1 p2)))))
+
+(defn stream-vertices
+  "Call <code>(f vertex point)</code> once for each vertex."
+  [^SubdivisionStream s f]
+  (.vertices s (reify SubdivisionStream$VertexConsumer
+                 (accept [_ vertex point] (f vertex point)))))
 
 ;;---------------------------------------------------------------
 
@@ -148,163 +315,275 @@ most likely R^3 or S^2."
 ;;---------------------------------------------------------------
 ;; TODO: generalize to other cutting rules.
 
-(let [TWO_PI (* Math/PI 2)]
-
-  ;; TODO: a bunch of unchecked assumptions hidden here?
-
-  (defn unwrap-1 ^Point2U [^Point2S a ^Point2S b]
-    "Update <code>a</code> so the path
-  from <code>a</code> to <code>b</code> is continuous"
-    (assert (not (nil? a)))
-    (assert (not (nil? b)))
-    (let [aa (.getAzimuth a)
-          ba (.getAzimuth b)]
-      (Point2U/of (if (> aa ba) (- aa TWO_PI) (+ aa TWO_PI))
-                  (.getPolar a))))
-
-  (defn unwrap-2 ^Point2U [^Point2S a ^Point2S b]
-    "Update <code>a</code> so the path
-    from <code>a</code> to <code>b</code> is continuous"
-    (assert (not (nil? a)))
-    (assert (not (nil? b)))
-    (let [aa (.getAzimuth a)
-          ba (.getAzimuth b)
-          [aaa bba] (if (> aa ba)
-                      [(- aa TWO_PI) (+ ba TWO_PI)]
-                      [(+ ba TWO_PI) (- ba TWO_PI)])]
-      [(Point2U/of aaa (.getPolar a))
-       (Point2U/of bba (.getPolar b))]))
-
-  (defn unwrap-3 ^Point2U [^Point2S a ^Point2S b ^Point2S c]
-    "Azimuth a is zero, and b-c intersects dateline"
-    (assert (not (nil? a)))
-    (assert (not (nil? b)))
-    (assert (not (nil? c)))
-    (let [aa (.getAzimuth a)
-          ba (.getAzimuth b)
-          ca (.getAzimuth c)
-          aaa TWO_PI
-          [bba cca] (if (> ba ca)
-                      [(- aa TWO_PI) (+ ca TWO_PI)]
-                      [(+ ba TWO_PI) (- ca TWO_PI)])]
-      (assert (== 0.0 aa)
-              (str "a=" a ", b=" b ", c=" c))
-      [(Point2U/of aaa (.getPolar a))
-       (Point2U/of bba (.getPolar b))
-       (Point2U/of cca (.getPolar c))
-       ])))
-
-(defn- rotate-to-leading-zero-azimuth [^IFn embedding ^TwoSimplex face]
-  "rotate to leading minimum azimuth to reduce assumptions"
-  (let [z0 (.z0 face)
-        z1 (.z1 face)
-        z2 (.z2 face)
-        ^Point2S p0 (embedding z0)
-        ^Point2S p1 (embedding z1)
-        ^Point2S p2 (embedding z2)
-        a0 (.getAzimuth p0)
-        a1 (.getAzimuth p1)
-        a2 (.getAzimuth p2)]
-    (if (<= a0 a1)
-      (if (<= a0 a2)
-        [z0 p0 z1 p1 z2 p2]
-        [z2 p2 z0 p0 z1 p1])
-      (if (<= a1 a2)
-        [z1 p1 z2 p2 z0 p0]
-        [z2 p2 z0 p0 z1 p1]))))
+(defn- dateline-side
+  "Which side of the dateline <code>p</code> is on:
+  <code>:pole</code>, <code>:dateline</code>, <code>:low</code>
+  (azimuth below PI) or <code>:high</code>.
+  Same precision as <code>S2Kernels</code>."
+  [^Point2S p]
+  (cond (S2Kernels/isPolar (.getPolar p)) :pole
+        (S2Kernels/onDateline (.getAzimuth p)) :dateline
+        (< (.getAzimuth p) Math/PI) :low
+        :else :high))
+
+(defn- dateline-wraps
+  "Unwrap direction, -1, 0 or +1, for each corner of each new face:
+  1 vector if the face stays whole, 2 if there's a copy on each side."
+  [sides straddles]
+  (let [n-low (count (filter #{:low} sides))
+        n-high (count (filter #{:high} sides))]
+    (cond
+      (not straddles)
+      ;; dateline vertices join the rest of the face
+      [(mapv #(if (and (= :dateline %) (zero? n-low) (pos? n-high)) 1 0)
+             sides)]
+      ;; lone low vertex unwrapped up
+      (== 2 n-high) [(mapv #(if (= :low %) 1 0) sides)]
+      ;; lone high vertex unwrapped down
+      (== 2 n-low) [(mapv #(if (= :high %) -1 0) sides)]
+      ;; 1 low, 1 high, and a pole or dateline vertex
+      :else [(mapv #(if (#{:low :dateline} %) 1 0) sides)
+             (mapv #(if (= :high %) -1 0) sides)])))
 
 ;; TODO: check orientation of new faces
 (defn dateline-cut-face [^IFn embedding ^TwoSimplex face]
   "Take a face with an <code>PointS2</code> embedding,
   return new face(s) and vertices with a PointU2 embedding that is 'continuous'
-  across the dateline."
-  (let [[a pa b pb c pc] (rotate-to-leading-zero-azimuth embedding face)
-        ab (s2/dateline-crossing pa pb)
-        bc (s2/dateline-crossing pb pc)
-        ca (s2/dateline-crossing pc pa)]
-    (assert (not (nil? pa)))
-    (assert (not (nil? pb)))
-    (assert (not (nil? pc)))
-    (cond
-      ab
-      (cond
-        bc
-        (if ca
-          ;; 3 edges may intersect dateline if a vertex lies on it
-          ;; in that case we need unwrap all 3 vertices
-          (let [aa (cmplx/simplex (str (.toString a) "*"))
-                bb (cmplx/simplex (str (.toString b) "*"))
-                cc (cmplx/simplex (str (.toString c) "*"))
-                [paa pbb pcc] (unwrap-3 pa pb pc)]
-            (assert (not (nil? paa)))
-            (assert (not (nil? pbb)))
-            (assert (not (nil? pcc)))
-            {:new-faces [(cmplx/simplex aa b cc)
-                         (cmplx/simplex a bb c)]
-             :u2 {aa paa bb pbb cc pcc}})
-          ;; else
-          (let [bb (cmplx/simplex (str (.toString b) "*"))
-                pbb (unwrap-1 pb pa)]
-            (assert (not (nil? pbb)))
-            {:new-faces [(cmplx/simplex a bb c)]
-             :u2 {bb pbb}}))
-        ca
-        (let [aa (cmplx/simplex (str (.toString a) "*"))
-              paa (unwrap-1 pa pb)]
-          (assert (not (nil? paa)))
-          {:new-faces [(cmplx/simplex aa b c)]
-           :u2 {aa paa}})
-        :else
-        (let [aa (cmplx/simplex (str (.toString a) "*"))
-              bb (cmplx/simplex (str (.toString b) "*"))
-              [paa pbb] (unwrap-2 pa pb)]
-          (assert (not (nil? paa)))
-          (assert (not (nil? pbb)))
-          {:new-faces [(cmplx/simplex aa b c)
-                       (cmplx/simplex a bb c)]
-           :u2 {aa paa bb pbb}}))
-      bc (if ca
-           (let [cc (cmplx/simplex (str (.toString c) "*"))]
-             {:new-faces [(cmplx/simplex a b cc)]
-              :u2 {cc (unwrap-1 pc pb)}})
-           ;else
-           (let [cc (cmplx/simplex (str (.toString c) "*"))
-                 bb (cmplx/simplex (str (.toString b) "*"))
-                 [pcc pbb] (unwrap-2 pc pb)]
-             (assert (not (nil? pbb)))
-             (assert (not (nil? pcc)))
-             {:new-faces [(cmplx/simplex a b cc)(cmplx/simplex a bb c)]
-              :u2 {cc pcc bb pbb}}))
-      ca (let [aa (cmplx/simplex (str (.toString a) "*"))
-               cc (cmplx/simplex (str (.toString c) "*"))
-               [pcc paa] (unwrap-2 pc pa)]
-           (assert (not (nil? paa)))
-           (assert (not (nil? pcc)))
-           {:new-faces [(cmplx/simplex aa b c)
-                        (cmplx/simplex a b cc)]
-            :u2 {aa paa cc pcc}})
-      :else
-      (do
-        #_(println "falling out of dateline-cut-face")
-        {:u2 {} :new-faces [face]}))))
+  across the dateline.
+  <p>
+  A face straddles the dateline if an edge between 2 vertices off it,
+  and off the poles, crosses it.
+  A lone vertex on one side is unwrapped by <code>+/-2PI</code>
+  towards the other two; otherwise there is a copy of the face on each
+  side.
+  Vertices on the dateline join whichever side the rest of the face
+  is on. Poles are never unwrapped; their azimuth is arbitrary.
+  Copies are <code>(child-vertex z 0)</code> for <code>-2PI</code>
+  and <code>(child-vertex z 1)</code> for <code>+2PI</code>."
+  (let [zs [(.z0 face) (.z1 face) (.z2 face)]
+        ps (mapv embedding zs)
+        _ (assert (every? some? ps) (str face))
+        sides (mapv dateline-side ps)
+        off? #{:low :high}
+        straddles (some (fn [^long k]
+                          (let [k1 (mod (inc k) 3)]
+                            (and (off? (sides k))
+                                 (off? (sides k1))
+                                 (s2/dateline-crossing (ps k) (ps k1)))))
+                        (range 3))
+        wraps (dateline-wraps sides straddles)]
+    (if (every? zero? (apply concat wraps))
+      {:u2 {} :new-faces [face]}
+      (let [corner (fn [^long k ^long w]
+                     (if (zero? w)
+                       [(zs k) nil]
+                       (let [^Point2S p (ps k)
+                             ;; so a dateline vertex unwraps to exactly 2PI
+                             a (if (= :dateline (sides k))
+                                 0.0
+                                 (.getAzimuth p))]
+                         [(cmplx/child-vertex (zs k) (if (pos? w) 1 0))
+                          (Point2U/of (+ a (* w 2.0 Math/PI))
+                                      (.getPolar p))])))
+            corners (mapv #(mapv corner (range 3) %) wraps)]
+        {:new-faces (mapv (fn [cs] (apply cmplx/simplex (map first cs)))
+                          corners)
+         :u2 (into {} (keep (fn [[z p]] (when p [z p])))
+                   (apply concat corners))}))))
 
 ;;---------------------------------------------------------------
 
 (defn dateline-cut [^TriangleMesh mesh]
   "Take a triangle mesh with an <code>PointS2</code> embedding,
   duplicate vertices and faces to enable, create, and return
-  a continuous <code>PointU2</code> embedding."
-  (let [s2-embedding (.embedding mesh)]
-    (loop [remaining (faces mesh)
-           faces nil
-           u2-embedding (update-vals s2-embedding s2/s2-to-u2)]
-      (if (empty? remaining)
-        (triangle-mesh (cmplx/simplicial-complex-2d faces) u2-embedding)
-        (let [{:keys [u2 new-faces]}
-              (dateline-cut-face s2-embedding (first remaining))]
-          (recur (rest remaining)
-                 (concat new-faces faces)
-                 (merge u2-embedding u2)))))))
+  a continuous <code>PointU2</code> embedding.
+  Same cases and copies as <code>dateline-cut-face</code>, but computed
+  in parallel by <code>DatelineCut</code>, with each copy of a vertex
+  shared by all the faces that unwrap it in the same direction."
+  (let [^DatelineCut$Result r (DatelineCut/cut
+                               (cmplx/indexed-complex-2d (.cmplx mesh))
+                               (.embedding mesh))
+        cut (.cut r)]
+    (triangle-mesh cut (zipmap (.vertices cut) (.points r)))))
+
+;;---------------------------------------------------------------
+
+;; Point location
+
+(defn face-locator
+  "Return a face-bucket grid for finding the face of a triangle mesh,
+  with a <code>Point2S</code> embedding, containing a point."
+  ^FaceLocator [^TriangleMesh mesh]
+  (FaceLocator/make mesh))
+
+(defn locate
+  "Return <code>{:face TwoSimplex :barycentric [b0 b1 b2]}</code> for
+  the face containing <code>p</code>, or <code>nil</code>."
+  [^FaceLocator locator ^Point2S p]
+  (when-let [^FaceLocator$Location l (.locate locator p)]
+    {:face (.face l)
+     :barycentric [(.b0 l) (.b1 l) (.b2 l)]}))
+
+(defn locate-all
+  "Locate <code>n</code> packed unit vectors in parallel.
+  Return <code>{:faces int[] :barycentric double[]}</code>,
+  with -1 for points in no face."
+  [^FaceLocator locator ^doubles xyz]
+  (let [n (quot (alength xyz) 3)
+        faces (int-array n)
+        barycentric (double-array (* 3 n))]
+    (.locate locator xyz faces barycentric (int n))
+    {:faces faces :barycentric barycentric}))
+
+;;---------------------------------------------------------------
+
+;; Vertex neighborhoods.
+;; Results are indices into the vertices of
+;; (cmplx/indexed-complex-2d (cmplx mesh)).
+
+(defn vertex-tree
+  "Return a kd-tree over the vertices of a triangle mesh with a
+  <code>Point2S</code> or unit <code>Vector3D</code> embedding."
+  ^VertexTree [^TriangleMesh mesh]
+  (VertexTree/make
+   ^IndexedCellComplex (cmplx/indexed-complex-2d (.cmplx mesh))
+   (.embedding mesh)))
+
+(defn nearest-vertices
+  "Indices of the <code>k</code> vertices nearest <code>p</code>,
+  nearest first."
+  [^VertexTree tree ^Point2S p ^long k]
+  (let [v (.getVector p)
+        neighbors (int-array k)
+        n (.nearest tree (.getX v) (.getY v) (.getZ v)
+                    (int k) neighbors (int 0))]
+    (vec (take n neighbors))))
+
+(defn vertices-within
+  "Indices of the vertices within <code>angle</code> radians of
+  <code>p</code>, in increasing order."
+  [^VertexTree tree ^Point2S p ^double angle]
+  (let [v (.getVector p)]
+    (vec (.within tree (.getX v) (.getY v) (.getZ v) angle))))
+
+(defn coincident-vertices
+  "Return an int array mapping each vertex to the smallest index of
+  the vertices within <code>angle</code> radians of it, transitively."
+  ^ints [^VertexTree tree ^double angle]
+  (.representatives tree angle))
+
+;;---------------------------------------------------------------
+
+;; Quality metrics
+
+(defn metrics
+  "Return per face areas, aspect ratios, min and max angles, and min
+  and max edge lengths, computed in parallel, in the R3, S2, or U2
+  space of the mesh's embedding."
+  ^MeshMetrics [^Mesh mesh]
+  (MeshMetrics/make mesh))
+
+(defn metrics-summary
+  "Return a map from metric to
+  <code>{:moments [count min max mean sd] :quantiles double[]
+  :histogram long[]}</code>, with histogram bins spanning
+  <code>[min,max]</code>, or a single bin if that isn't a finite
+  range."
+  ([^MeshMetrics m] (metrics-summary m 32 [0.0 0.01 0.1 0.5 0.9 0.99 1.0]))
+  ([^MeshMetrics m ^long bins probabilities]
+   (let [p (double-array probabilities)]
+     (into
+      {}
+      (map (fn [[k ^doubles values]]
+             (let [^doubles moments (MeshMetrics/moments values)
+                   lo (aget moments 1)
+                   hi (aget moments 2)]
+               [k {:moments (vec moments)
+                   :quantiles (MeshMetrics/quantiles values p)
+                   :histogram (if (and (< lo hi) (Double/isFinite hi))
+                                (MeshMetrics/histogram
+                                 values lo hi (int bins))
+                                (long-array [(long (aget moments 0))]))}])))
+      {:area (.area m)
+       :aspect-ratio (.aspectRatio m)
+       :min-angle (.minAngle m)
+       :max-angle (.maxAngle m)
+       :min-edge (.minEdge m)
+       :max-edge (.maxEdge m)}))))
+
+;;---------------------------------------------------------------
+
+;; Vertex relaxation
+
+(defn relax
+  "Return a mesh with the same complex, and an S2 embedding with the
+  vertices moved to improve face shape or area uniformity.
+  <code>:mode</code> is <code>:laplacian</code>, <code>:lloyd</code>
+  (approximate centroidal Voronoi), or <code>:area</code>;
+  <code>:pinned</code> is a collection of vertices that don't move;
+  <code>:progress</code> is called with the iteration and maximum
+  move, in radians, and stops the iteration by returning
+  <code>false</code>."
+  [^Mesh m & {:keys [mode iterations step tolerance pinned progress]
+              :or {mode :lloyd iterations 100 step 0.5 tolerance 1.0e-12}}]
+  (let [^IndexedCellComplex c (cmplx/indexed-complex-2d (.cmplx m))
+        bits (BitSet. (.nVertices c))
+        _ (doseq [z pinned]
+            (let [i (.indexOf c z)]
+              (when (<= 0 i) (.set bits i))))
+        ^S2Relaxation$Result r
+        (S2Relaxation/relax
+         c
+         (.embedding m)
+         (S2Relaxation$Mode/valueOf
+          (.toUpperCase ^String (name mode)))
+         (int iterations)
+         (double step)
+         (double tolerance)
+         bits
+         ^IFn progress)
+        embedding (into {}
+                        (map (fn [^long i] [(.vertex c i) (.point r i)]))
+                        (range (.nVertices c)))]
+    (mesh (.cmplx m) embedding)))
+
+;;---------------------------------------------------------------
+;; Delaunay edge flips
+
+(defn non-delaunay-edges
+  "How many interior edges of the S2 triangle mesh <code>m</code> have
+  the opposite vertex of one face inside the circumcircle of the other?"
+  ^long [^TriangleMesh m]
+  (S2Delaunay/nonDelaunayEdges
+   ^IndexedSimplicialComplex2D (cmplx/indexed-complex-2d (.cmplx m))
+   (.embedding m)))
+
+(defn delaunay-flip
+  "Return a triangle mesh with the same vertices and embedding as
+  <code>m</code>, with edges flipped until locally Delaunay.
+  <code>:constrained</code> is a collection of vertex pairs whose
+  edges must not flip."
+  ^TriangleMesh [^TriangleMesh m & {:keys [constrained]}]
+  (let [^IndexedSimplicialComplex2D c
+        (cmplx/indexed-complex-2d (.cmplx m))
+        pairs (int-array
+               (mapcat (fn [[a b]] [(.indexOf c a) (.indexOf c b)])
+                       constrained))
+        ^S2Delaunay$Result r (S2Delaunay/flip c (.embedding m) pairs)]
+    (triangle-mesh (.cmplx r) (.embedding m))))
+
+(defn s2-delaunay
+  "Return the spherical Delaunay triangulation of a collection of
+  <code>Point2S</code>, as a triangle mesh with an S2 embedding.
+  Duplicate points are dropped. If the points lie in a hemisphere,
+  the mesh has a boundary: the spherical convex hull."
+  ^TriangleMesh [points]
+  (let [^objects points (into-array Point2S points)
+        ^S2Triangulation$Result r (S2Triangulation/triangulate points)
+        ^IndexedSimplicialComplex2D c (.cmplx r)]
+    (triangle-mesh
+     c
+     (zipmap (.vertices c) (map #(aget points (int %)) (.index r))))))
 
 ;;---------------------------------------------------------------
 
@@ -313,21 +592,30 @@ most likely R^3 or S^2."
                                          xyz-embedding
                                          rgba-embedding
                                          dual-embedding
-                                         txt-embedding]}]
+                                         txt-embedding
+                                         ^VertexAttributes attributes]}]
   "Return a float array and an int array suitable for passing to GLSL.
-  Don't rely on any ordering of cells and vertices."
-  (let [faces (.faces cmplx)
-        zeros (sort (.vertices cmplx))
-        zindex (into {} (map (fn [z i] [z i])
-                             zeros (range (count zeros))))
-        indices (flatten (map (fn [^Cell face]
-                                (mapv #(zindex %) (.vertices face)))
-                              faces))
-        coordinates (flatten (map #(concat (rn/coordinates (xyz-embedding %))
-                                           (rn/coordinates (rgba-embedding %))
-                                           (rn/coordinates (dual-embedding %))
-                                           (rn/coordinates (txt-embedding %)))
-                                  zeros))]
-    [coordinates indices]))
+  Don't rely on any ordering of cells and vertices.
+  Indexed complexes supply their packed face indices directly,
+  without building any face objects.
+  Given <code>attributes</code>, with xyz, rgba, dual and txt columns,
+  interleave those instead of looking up each vertex in the embeddings."
+  (if attributes
+    [(.interleave attributes (into-array String ["xyz" "rgba" "dual" "txt"]))
+     (.faceIndices (.cmplx attributes))]
+    (let [zeros (sort (.vertices cmplx))
+          indices (if (instance? IndexedSimplicialComplex2D cmplx)
+                    (.faceIndices ^IndexedSimplicialComplex2D cmplx)
+                    (let [zindex (into {} (map (fn [z i] [z i])
+                                               zeros (range (count zeros))))]
+                      (flatten (map (fn [^Cell face]
+                                      (mapv #(zindex %) (.vertices face)))
+                                    (.faces cmplx)))))
+          coordinates (flatten (map #(concat (rn/coordinates (xyz-embedding %))
+                                             (rn/coordinates (rgba-embedding %))
+                                             (rn/coordinates (dual-embedding %))
+                                             (rn/coordinates (txt-embedding %)))
+                                    zeros))]
+      [coordinates indices])))
 
 ;;---------------------------------------------------------------
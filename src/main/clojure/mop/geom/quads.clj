@@ -1,19 +1,22 @@
 (ns mop.geom.quads
   {:doc     "Quadrilateral meshes."
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-03-06"}
+   :version "2026-10-18"}
   (:require
-   [clojure.set :as set]
    [mop.cmplx.complex :as cmplx]
    [mop.commons.string :as mcs]
    [mop.geom.mesh :as mesh]
    [mop.geom.rn :as rn]
-   [mop.geom.s2 :as s2]
-   [mop.geom.space :as space])
+   [mop.geom.s2 :as s2])
   (:import
    [clojure.lang IFn]
-   [mop.java.geom.mesh QuadMesh]
-   [mop.java.cmplx CellComplex QuadComplex ZeroSimplex Quad]))
+   [java.util HashMap List Map]
+   [mop.java.geom.mesh
+    GeodesicSphere GeodesicSphere$Projection GeodesicSphere$Result
+    QuadMesh]
+   [mop.java.cmplx
+    CellComplex EdgeTable IndexedCellComplex IndexedQuadComplex QuadComplex QuadComplex$Builder
+    ZeroSimplex Quad]))
 
 ;;---------------------------------------------------------------
 
@@ -44,6 +47,23 @@
 (defn quad-complex ^QuadComplex [faces]
   (QuadComplex/make faces))
 
+(defmethod mcs/simple-string IndexedQuadComplex [^IndexedQuadComplex this]
+  (str "IndexedQCmplx["
+       (.nVertices this) " vertices, "
+       (.nFaces this) " faces]"))
+
+(defmethod cmplx/indexed-complex-2d QuadComplex [^QuadComplex c]
+  (.indexed c))
+
+(defmethod cmplx/indexed-complex-2d IndexedQuadComplex [^IndexedQuadComplex c]
+  c)
+
+(defmethod cmplx/object-complex-2d QuadComplex [^QuadComplex c]
+  c)
+
+(defmethod cmplx/object-complex-2d IndexedQuadComplex [^IndexedQuadComplex c]
+  (.toQuadComplex c))
+
 ;;---------------------------------------------------------------
 
 (defmethod cmplx/vertex-pairs Quad [^Quad q]
@@ -56,39 +76,35 @@
 ;;---------------------------------------------------------------
 
 (defmethod cmplx/midpoint-subdivide-4 QuadComplex [^QuadComplex qc]
-  (loop [faces (.faces qc)
-         child-faces []
-         children {}]
-    (if (empty? faces)
-      {:child  (quad-complex child-faces)
-       :parent (set/map-invert children)}
-      ;; else
-      (let [^Quad face (first faces)
-            ^ZeroSimplex z0 (.z0 face)
-            ^ZeroSimplex z1 (.z1 face)
-            ^ZeroSimplex z2 (.z2 face)
-            ^ZeroSimplex z3 (.z3 face)
-            ;; TODO: what about multiple edges connecting same vertices?
-            e01 (sort [z0 z1])
-            e12 (sort [z1 z2])
-            e23 (sort [z2 z3])
-            e30 (sort [z3 z0])
-            ^ZeroSimplex z01 (or (children e01) (cmplx/simplex "ab"))
-            ^ZeroSimplex z12 (or (children e12) (cmplx/simplex "bc"))
-            ^ZeroSimplex z23 (or (children e23) (cmplx/simplex "cd"))
-            ^ZeroSimplex z30 (or (children e30) (cmplx/simplex "da"))
-            ^ZeroSimplex z0123 (cmplx/simplex "abcd")]
-        (recur
-         (rest faces)
-         (concat child-faces
-                 [(quad z30 z0 z01 z0123)
-                  (quad z01 z1 z12 z0123)
-                  (quad z12 z2 z23 z0123)
-                  (quad z23 z3 z30 z0123)])
-         (merge children
-                {z0   z0 z1 z1 z2 z2 z3 z3
-                 e01  z01 e12 z12 e23 z23 e30 z30
-                 face z0123}))))))
+  (let [^List faces (.faces qc)
+        ^EdgeTable edges (EdgeTable/make (* 4 (.size faces)))
+        ^QuadComplex$Builder child (QuadComplex/builder (* 4 (.size faces)))
+        ^Map parent (HashMap.)
+        ;; TODO: what about multiple edges connecting same vertices?
+        midpoint (fn midpoint [^ZeroSimplex z0 ^ZeroSimplex z1]
+                   (or (.get edges z0 z1)
+                       (let [z (cmplx/child-vertex z0 z1 0)]
+                         (.putIfAbsent edges z0 z1 z)
+                         (.put parent z (sort [z0 z1]))
+                         z)))]
+    (doseq [v (.vertices qc)] (.put parent v v))
+    (doseq [^Quad face faces]
+      (let [z0 (.z0 face)
+            z1 (.z1 face)
+            z2 (.z2 face)
+            z3 (.z3 face)
+            z01 (midpoint z0 z1)
+            z12 (midpoint z1 z2)
+            z23 (midpoint z2 z3)
+            z30 (midpoint z3 z0)
+            z0123 (cmplx/child-vertex z0 z2 1)]
+        (.put parent z0123 face)
+        (.add child (quad z30 z0 z01 z0123))
+        (.add child (quad z01 z1 z12 z0123))
+        (.add child (quad z12 z2 z23 z0123))
+        (.add child (quad z23 z3 z30 z0123))))
+    {:child  (.build child)
+     :parent (into {} parent)}))
 
 ;;---------------------------------------------------------------
 ;; TODO: how to ensure that embeddings don't turn the cube inside out?
@@ -123,18 +139,24 @@
 
 ;;---------------------------------------------------------------
 
-(defn- quad-mesh ^QuadMesh [^QuadComplex cmplx
+(defn- quad-mesh ^QuadMesh [^CellComplex cmplx
                             ^IFn embedding]
   (dorun
    (map #(assert (not (nil? (embedding %))))
         (.vertices cmplx)))
-  (QuadMesh/make cmplx embedding))
+  (if (instance? IndexedQuadComplex cmplx)
+    (QuadMesh/make ^IndexedQuadComplex cmplx embedding)
+    (QuadMesh/make ^QuadComplex cmplx embedding)))
 
 ;;---------------------------------------------------------------
 
 (defmethod mesh/mesh QuadComplex [^QuadComplex complex ^IFn embedding]
   (quad-mesh complex embedding))
 
+(defmethod mesh/mesh IndexedQuadComplex [^IndexedQuadComplex complex
+                                         ^IFn embedding]
+  (quad-mesh complex embedding))
+
 ;;---------------------------------------------------------------
 
 (defmethod mesh/points Quad [^IFn embedding ^Quad x]
@@ -146,12 +168,13 @@
 (defmethod mesh/points QuadComplex [^IFn embedding ^QuadComplex x]
   (mesh/points embedding (.vertices ^QuadComplex x)))
 
+(defmethod mesh/points IndexedQuadComplex [^IFn embedding ^IndexedQuadComplex x]
+  (mesh/points embedding (.vertices x)))
+
 ;;---------------------------------------------------------------
 
 (defmethod rn/transform [Object QuadMesh] [^Object f ^QuadMesh x]
-  (quad-mesh
-   (.cmplx x)
-   (update-vals (.embedding x) #(rn/transform f %))))
+  (mesh/transform-mesh f x))
 
 ;;---------------------------------------------------------------
 ;; TODO: ensure that embedded cube has the desired orientation,
@@ -212,16 +235,37 @@
 ;;---------------------------------------------------------------
 
 (defmethod cmplx/midpoint-subdivide-4 QuadMesh [^QuadMesh qm]
-  (let [{^CellComplex child :child
-         parent             :parent} (cmplx/midpoint-subdivide-4 (.cmplx qm))
-        embedding (.embedding qm)]
-    (mesh/mesh
-     child
-     (into
-      {}
-      (map
-       (fn [v]
-         [v (apply space/midpoint (mesh/points embedding (parent v)))])
-       (.vertices child))))))
+  (mesh/subdivide-mesh qm))
+
+;;---------------------------------------------------------------
+;; Direct generation of subdivided quad spheres.
+
+(def ^:private quad-sphere-base
+  "Indexed <code>standard-quad-sphere</code> complex and embedding,
+  created once, so <code>GeodesicSphere</code> can cache its levels."
+  (delay
+   (let [m (standard-quad-sphere)]
+     [(cmplx/indexed-complex-2d (mesh/cmplx m)) (mesh/embedding m)])))
+
+(defn quad-sphere
+  "Return a level <code>k</code> cube-sphere, with <code>6*4^k</code>
+  quad faces, generated directly from lattice coordinates on the
+  faces of <code>standard-quad-sphere</code>.
+  <code>projection</code> is <code>:midpoint</code>, the default,
+  which places vertices as <code>k</code> midpoint subdivisions
+  would, or <code>:gnomonic</code>.
+  Levels are cached; see <code>GeodesicSphere</code>."
+  (^QuadMesh [^long k] (quad-sphere k :midpoint))
+  (^QuadMesh [^long k projection]
+   (let [[base embedding] @quad-sphere-base
+         ^GeodesicSphere$Result r
+         (GeodesicSphere/make
+          ^IndexedCellComplex base
+          ^IFn embedding
+          (int k)
+          (GeodesicSphere$Projection/valueOf
+           (.toUpperCase ^String (name projection))))
+         ^IndexedQuadComplex c (.cmplx r)]
+     (quad-mesh c (zipmap (.vertices c) (.points r))))))
 
 ;;---------------------------------------------------------------
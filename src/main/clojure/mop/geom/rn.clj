@@ -6,7 +6,7 @@
   {:doc     "Geometry utilities for Rn, especially R2 abd R3.
   Hide 3rd party library is used, if any."
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-04-11"}
+   :version "2026-10-18"}
 
   (:refer-clojure :exclude [vector])
 
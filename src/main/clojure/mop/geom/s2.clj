@@ -11,7 +11,7 @@
   <code>Point2S</code>, a possible performance hit."
 
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-04-11"}
+   :version "2026-10-18"}
 
   (:require
    [mop.commons.debug :as debug]
@@ -22,7 +22,7 @@
   (:import
    [clojure.lang IFn]
    [mop.geom.rn Vector4D]
-   [mop.java.geom Point2U]
+   [mop.java.geom Point2U S2Kernels]
    [org.apache.commons.geometry.core Vector]
    [org.apache.commons.geometry.euclidean.threed Vector3D Vector3D$Unit]
    [org.apache.commons.geometry.euclidean.twod Vector2D]
@@ -184,6 +184,44 @@
         (/ (.dot a (.cross b c))
            (+ 1 (.dot a b) (.dot b c) (.dot a c)))))))
 ;;----------------------------------------------------------------
+;; Batch versions over packed xyz arrays, see mop.java.geom.S2Kernels.
+;; Triangles are 9 doubles, edges 6, points 3.
+
+(defn ^doubles xyz [points]
+  "Pack the unit vectors of a sequence of <code>Point2S</code>."
+  (let [^doubles out (double-array (* 3 (count points)))]
+    (loop [i 0
+           points (seq points)]
+      (when points
+        (let [^Vector3D v (s2-to-r3 (first points))]
+          (aset out i (.getX v))
+          (aset out (+ i 1) (.getY v))
+          (aset out (+ i 2) (.getZ v))
+          (recur (+ i 3) (next points)))))
+    out))
+
+(defn ^doubles signed-areas [^doubles triangles]
+  "Signed area of each packed triangle."
+  (let [n (quot (alength triangles) 9)
+        areas (double-array n)]
+    (S2Kernels/signedAreas triangles areas (int n))
+    areas))
+
+(defn ^doubles midpoints [^doubles edges]
+  "Packed great arc midpoint of each packed edge."
+  (let [n (quot (alength edges) 6)
+        out (double-array (* 3 n))]
+    (S2Kernels/midpoints edges out (int n))
+    out))
+
+(defn ^doubles dateline-crossings [^doubles edges]
+  "Packed dateline crossing of each packed edge, <code>NaN</code>s if none."
+  (let [n (quot (alength edges) 6)
+        out (double-array (* 3 n))]
+    (S2Kernels/datelineCrossings edges out (int n))
+    out))
+
+;;----------------------------------------------------------------
 
 (deftype R3Embedding
   [^Vector3D center
@@ -66,19 +66,21 @@
    2D viewer, for speed if nothing else.
    "
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-03-06"}
-  (:require [mop.geom.mesh :as mesh])
+   :version "2026-10-18"}
+  (:require [mop.cmplx.complex :as cmplx]
+            [mop.geom.mesh :as mesh])
   (:import [java.awt Polygon]
-           [mop.java.cmplx TwoSimplex]
-           [mop.java.geom.mesh TriangleMesh]
-           [org.apache.commons.geometry.spherical.twod Point2S]))
+           [java.io File]
+           [java.nio.file Path]
+           [mop.java.cmplx IndexedCellComplex TwoSimplex]
+           [mop.java.geom.mesh GeoJson GeoJson$Geometry Mesh TopoJson
+            TriangleMesh]))
 ;;-------------------------------------------------------------------
-;; TODO: handle other embedding codomains
-(defn coordinates [^Point2S p]
-  (let [azimuth (Math/toDegrees (.getAzimuth p))
-        lon (if (< azimuth 180) azimuth (- azimuth 360))
-        lat (- 90 (Math/toDegrees (.getPolar p)))]
-    [lon lat]))
+;; Point2S and Point2U to [lon lat] in degrees, Vector2D to [x y].
+(defn coordinates [p]
+  (let [xy (double-array 2)]
+    (GeoJson/coordinates p xy)
+    [(aget xy 0) (aget xy 1)]))
 
 (defn point [^Point2S p]
   {:type "Point" :coordinates (coordinates p)})
@@ -102,3 +104,47 @@
       :geometry
       {:type        "MultiPolygon"
        :coordinates (mapv #(triangle-coordinates % embedding) faces)}}}))
+;;-------------------------------------------------------------------
+;; Streaming, for meshes too large for geo-edn.
+
+(defn- path ^Path [f]
+  (if (instance? Path f) f (.toPath (File. (str f)))))
+
+(defn write-geojson
+  "Write <code>mesh</code> to <code>f</code>, a path or file name,
+  walking the faces and writing coordinates directly, so memory use
+  is independent of mesh size.
+  <code>:precision</code> is the number of decimal places, negative
+  for full double precision;
+  <code>:geometry</code> is <code>:features</code>, one Polygon
+  Feature per face, or <code>:multipolygon</code>."
+  [^Mesh mesh f & {:keys [precision geometry]
+                   :or {precision 6 geometry :features}}]
+  (GeoJson/write
+   (path f)
+   ^IndexedCellComplex (cmplx/indexed-complex-2d (.cmplx mesh))
+   (.embedding mesh)
+   (GeoJson$Geometry/valueOf (.toUpperCase ^String (name geometry)))
+   (int precision)))
+
+(defn write-topojson
+  "Write <code>mesh</code> to <code>f</code> as a topojson Topology,
+  with each edge written once as an arc, and faces as rings of arc
+  indices.
+  <code>:quantization</code> is the number of distinct integer
+  coordinate values in each direction;
+  <code>:geometry</code> is <code>:features</code>, one Polygon per
+  face, or <code>:multipolygon</code>;
+  <code>:object</code> is the name of the single object, eg, for
+  the vega-lite <code>format.feature</code>."
+  [^Mesh mesh f & {:keys [quantization geometry object]
+                   :or {quantization 100000
+                        geometry :features
+                        object "mesh"}}]
+  (TopoJson/write
+   (path f)
+   ^IndexedCellComplex (cmplx/indexed-complex-2d (.cmplx mesh))
+   (.embedding mesh)
+   ^String object
+   (GeoJson$Geometry/valueOf (.toUpperCase ^String (name geometry)))
+   (int quantization)))
@@ -0,0 +1,99 @@
+(set! *warn-on-reflection* true)
+(set! *unchecked-math* :warn-on-boxed)
+;;----------------------------------------------------------------
+(ns mop.io.mesh
+  {:doc
+   "Read and write triangle and quad meshes in the binary
+   <code>MeshFile</code> format: face indices, vertex ids and names,
+   the embedding, and vertex attribute columns, in sections of one
+   file.
+   <br>
+   Opening a file maps it, which takes constant time;
+   <code>mesh-file</code> gives direct access to the sections,
+   eg, to upload faces and attributes to the GPU without copying.
+   <code>read-mesh</code> copies the sections into a mesh.
+   <br>
+   <code>encode-mesh</code> and <code>decode-mesh</code> are a compact,
+   lossy alternative for archiving, see <code>MeshCodec</code>."
+   :author  "palisades dot lakes at gmail dot com"
+   :version "2026-10-18"}
+  (:require [mop.cmplx.complex :as cmplx]
+            [mop.geom.mesh :as mesh]
+            [mop.geom.quads])
+  (:import [java.io File]
+           [java.nio.file Files OpenOption Path]
+           [mop.java.cmplx IndexedCellComplex]
+           [mop.java.geom.mesh Mesh MeshCodec MeshCodec$Encoded
+            MeshCodec$Result MeshFile VertexAttributes]))
+;;-------------------------------------------------------------------
+
+(defn- path ^Path [f]
+  (if (instance? Path f) f (.toPath (File. (str f)))))
+
+(defn write-mesh
+  "Write the indexed form of <code>m</code>, with its embedding and
+  attributes, to <code>f</code>, a path or file name."
+  [^Mesh m f]
+  (let [^VertexAttributes a (.attributes m)
+        ^IndexedCellComplex c (if a
+                                (.cmplx a)
+                                (cmplx/indexed-complex-2d (.cmplx m)))]
+    (MeshFile/write (path f) c (.embedding m) a)))
+
+(defn mesh-file
+  "Map <code>f</code>, without reading the mesh.
+  Close the result, eg, with <code>with-open</code>, when done with
+  any buffers taken from it."
+  ^MeshFile [f]
+  (MeshFile/open (path f)))
+
+(defn read-mesh
+  "Read a triangle or quad mesh written by <code>write-mesh</code>.
+  The vertices are new, but print with the saved names."
+  ^Mesh [f]
+  (with-open [^MeshFile mf (mesh-file f)]
+    (let [c (.cmplx mf)
+          points (.points mf)
+          embedding (if points (zipmap (.vertices c) points) {})
+          a (.attributes mf c)]
+      (if a
+        (mesh/attributed-mesh embedding a)
+        (mesh/mesh c embedding)))))
+
+;;-------------------------------------------------------------------
+;; Compact, quantized, for archiving.
+
+(defn encode-mesh
+  "Encode the complex and S2 or R3 embedding of <code>m</code>, with
+  coordinates quantized to <code>:bits</code> per component.
+  Vertices and faces are renumbered; the result's
+  <code>vertexOrder</code> and <code>faceOrder</code> give the original
+  indices."
+  ^MeshCodec$Encoded [^Mesh m & {:keys [bits] :or {bits 20}}]
+  (MeshCodec/encode
+   ^IndexedCellComplex (cmplx/indexed-complex-2d (.cmplx m))
+   (.embedding m)
+   (int bits)))
+
+(defn decode-mesh
+  "Return a triangle or quad mesh from bytes written by
+  <code>encode-mesh</code>, with new vertices."
+  ^Mesh [^bytes b]
+  (let [^MeshCodec$Result r (MeshCodec/decode b)
+        c (.cmplx r)]
+    (mesh/mesh c (zipmap (.vertices c) (.points r)))))
+
+(defn write-encoded
+  "Encode <code>m</code>, as in <code>encode-mesh</code>, to
+  <code>f</code>, a path or file name."
+  [^Mesh m f & options]
+  (let [^MeshCodec$Encoded e (apply encode-mesh m options)]
+    (Files/write (path f) (.bytes e) ^"[Ljava.nio.file.OpenOption;"
+                 (make-array OpenOption 0))))
+
+(defn read-encoded
+  "Read a mesh written by <code>write-encoded</code>."
+  ^Mesh [f]
+  (decode-mesh (Files/readAllBytes (path f))))
+
+;;-------------------------------------------------------------------
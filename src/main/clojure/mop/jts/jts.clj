@@ -5,7 +5,7 @@
 (ns mop.jts.jts
   {:doc     "JTS utilities: https://github.com/locationtech/jts"
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-04-22"}
+   :version "2026-10-18"}
 
   (:require
    [clojure.java.io :as io]
@@ -18,7 +18,7 @@
    [javafx.scene Group]
    [javafx.scene.paint Color]
    [mop.cmplx.complex VertexPair]
-   [mop.java.cmplx TwoSimplex]
+   [mop.java.cmplx IndexedSimplicialComplex2D TwoSimplex]
    [mop.java.geom.mesh TriangleMesh]
    [mop.java.jts GeometryCollectionIterator]
    [org.apache.commons.geometry.euclidean.twod Vector2D]
@@ -281,14 +281,36 @@
 ;;----------------------------------------------------------------
 ;; mop mesh to JTS
 ;;----------------------------------------------------------------
+(defn- indexed-triangles ^Polygon/1 [^IndexedSimplicialComplex2D cmplx
+                                    ^IFn embedding
+                                    ^GeometryFactory factory]
+  "Build the polygons directly from the packed face indices,
+  without creating any <code>TwoSimplex</code>."
+  (let [n (.nFaces cmplx)
+        ^Polygon/1 triangles (make-array Polygon n)]
+    (dotimes [i n]
+      (let [z0 (.vertex cmplx (.vertexIndex cmplx i 0))
+            z1 (.vertex cmplx (.vertexIndex cmplx i 1))
+            z2 (.vertex cmplx (.vertexIndex cmplx i 2))
+            ^Polygon t (triangle factory
+                                 (embedding z0)
+                                 (embedding z1)
+                                 (embedding z2))]
+        (.setUserData t (str z0 "->" z1 "->" z2))
+        (aset triangles i t)))
+    triangles))
+
 (defn ^GeometryCollection mesh-polygons [^TriangleMesh mesh
                                          ^GeometryFactory factory]
-  (let [faces (.faces (.cmplx mesh))
-        _ (println "n mesh faces: " (.size faces))
-        _ (println "n mesh vertices: " (.size (.vertices (.cmplx mesh))))
+  (let [cmplx (.cmplx mesh)
         embedding (.embedding mesh)
-        triangles (into-array
-                   Polygon (mapv #(triangle factory % embedding) faces))
+        ^Polygon/1 triangles
+        (if (instance? IndexedSimplicialComplex2D cmplx)
+          (indexed-triangles cmplx embedding factory)
+          (into-array
+           Polygon (mapv #(triangle factory % embedding) (.faces cmplx))))
+        _ (println "n mesh faces: " (alength triangles))
+        _ (println "n mesh vertices: " (.size (.vertices cmplx)))
         g (assert-valid (.createGeometryCollection factory triangles))]
     (.setUserData g "mesh-polygons")
     (println (debug-msg g))
@@ -5,17 +5,19 @@
 
   {:doc     "LWJGL utilities"
    :author  "palisades dot lakes at gmail dot com"
-   :version "2026-02-18"}
+   :version "2026-10-18"}
 
   (:require [clojure.math :as math]
             [clojure.pprint :as pp]
+            [mop.cmplx.complex :as cmplx]
             [mop.geom.mesh :as mesh]
             [mop.geom.rn :as rn]
             [mop.image.util :as image])
 
   (:import [java.awt.image BufferedImage]
            [java.nio ByteBuffer FloatBuffer]
-           [mop.java.cmplx CellComplex SimplicialComplex2D]
+           [mop.java.cmplx
+            CellComplex IndexedSimplicialComplex2D SimplicialComplex2D]
            [org.apache.commons.geometry.euclidean.threed Vector3D]
            [org.apache.commons.geometry.euclidean.threed.rotation QuaternionRotation]
            [org.apache.commons.geometry.euclidean.twod Vector2D]
@@ -344,7 +346,7 @@
 
 ;;------------------------------------------------------------------
 ;; TODO: not just QuadMesh
-(defn setup [{:keys [^SimplicialComplex2D cmplx
+(defn setup [{:keys [^CellComplex cmplx
                      ;xyz-embedding
                      ;rgba-embedding
                      ;dual-embedding
@@ -363,7 +365,7 @@
              ]
 
   ;;TODO: one map with accumulated parameters passed to all inner setup fns?
-  (println "faces:" (count (.faces ^CellComplex cmplx)))
+  (println "faces:" (cmplx/n-faces cmplx))
   (println "vertices:" (count (.vertices ^CellComplex cmplx)))
 
   (let [settings (merge {:program (use-program
@@ -390,7 +392,8 @@
     (check-error)
 
     (assoc (merge textures vertices)
-      :elements (if (instance? SimplicialComplex2D cmplx)
+      :elements (if (or (instance? SimplicialComplex2D cmplx)
+                        (instance? IndexedSimplicialComplex2D cmplx))
                   GL46/GL_TRIANGLES
                   GL46/GL_QUADS))))
 
@@ -1,7 +1,6 @@
 package mop.java.cmplx;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simplices and other (eg quadrilateral) cells.
@@ -14,14 +13,16 @@ import java.util.concurrent.atomic.AtomicInteger;
  * sub-cells.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-02-18
+ * @version 2026-10-18
  */
 
 public interface Cell extends Comparable {
 
 
-  static final AtomicInteger _counter = new AtomicInteger(-1);
-  static int counter () { return _counter.getAndIncrement(); }
+  /** Unique, non-negative, increasing within a thread.
+   * See <code>CellIds</code>.
+   */
+  static long counter () { return CellIds.next(); }
 
   /** Currently, only require the included zero simplices.
    * Higher dimensional sub-cells may be transient and created as needed.
@@ -0,0 +1,51 @@
+package mop.java.cmplx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of {@link Cell} identity counts.
+ * <p>
+ * Each thread takes a block of consecutive ids from a shared 64 bit
+ * counter, and hands them out without further synchronization,
+ * so parallel construction doesn't contend on a single atomic.
+ * <p>
+ * Ids are non-negative, unique within the process, and strictly
+ * increasing within a thread, so cells created by one thread sort in
+ * creation order.
+ * Cells created concurrently by different threads interleave by block,
+ * not by creation time, so nothing should depend on id order across
+ * threads; indexed complexes find vertices through an explicit
+ * vertex to index map, not by binary search on ids.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+final class CellIds {
+
+  static final int BLOCK_SIZE = 1 << 12;
+
+  private static final AtomicLong _next = new AtomicLong(0L);
+
+  // {next, end} of this thread's current block
+  private static final ThreadLocal<long[]> _block =
+    ThreadLocal.withInitial(() -> new long[] { 0L, 0L });
+
+  static final long next () {
+    final long[] block = _block.get();
+    if (block[0] == block[1]) {
+      final long start = _next.getAndAdd(BLOCK_SIZE);
+      if (start < 0L) {
+        throw new IllegalStateException("Cell ids exhausted"); }
+      block[0] = start;
+      block[1] = start + BLOCK_SIZE; }
+    return block[0]++; }
+
+  //--------------------------------------------------------------------
+  // disabled constructor
+  //--------------------------------------------------------------------
+  private CellIds () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,168 @@
+package mop.java.cmplx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hash table from unoriented edges (pairs of distinct, non-negative
+ * vertex ids) to values, for subdivision and other micro-topological
+ * operations that need a temporary edge to something map.
+ * <p>
+ * Keys are stored as 2 primitive <code>long</code>s,
+ * smaller id first, so lookups allocate nothing.
+ * They aren't packed into 1 <code>long</code>: {@link ZeroSimplex}
+ * counts are 64 bit, and per-thread id blocks (see {@link CellIds})
+ * can push them past 32 bits in a long-running process.
+ * Ids may be dense vertex indices, or {@link ZeroSimplex} identity
+ * counts (see {@link #get(ZeroSimplex,ZeroSimplex)}),
+ * but not both in the same table.
+ * <p>
+ * Open addressing, linear probing, fixed capacity,
+ * sized from the expected number of edges at construction.
+ * <p>
+ * Safe for concurrent use: slots are claimed with compare-and-set,
+ * so, for any edge, exactly one {@link #putIfAbsent} succeeds,
+ * and all threads see that value.
+ * Values must not be <code>null</code>.
+ * Entries can't be removed.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class EdgeTable<V> {
+
+  // No valid larger id is 0, since the 2 ids differ, and are
+  // non-negative.
+  private static final long EMPTY = 0L;
+
+  // larger id, claimed by compare-and-set
+  private final AtomicLongArray _hi;
+  // smaller id, written by the claiming thread before the value,
+  // so visible to any thread that has seen the value
+  private final long[] _lo;
+  private final AtomicReferenceArray<V> _values;
+  private final int _mask;
+
+  private final AtomicInteger _size = new AtomicInteger(0);
+  public final int size () { return _size.get(); }
+
+  public final int capacity () { return _mask + 1; }
+
+  //--------------------------------------------------------------------
+
+  private final int slot (final long lo,
+                          final long hi) {
+    // murmur3 finalizer
+    long h = (lo * 0x9e3779b97f4a7c15L) ^ hi;
+    h ^= (h >>> 33);
+    h *= 0xff51afd7ed558ccdL;
+    h ^= (h >>> 33);
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= (h >>> 33);
+    return ((int) h) & _mask; }
+
+  /** Wait for a concurrent {@link #putIfAbsent} that has claimed slot
+   * <code>i</code> to publish its value.
+   */
+  private final V valueAt (final int i) {
+    V v = _values.get(i);
+    while (null == v) {
+      Thread.onSpinWait();
+      v = _values.get(i); }
+    return v; }
+
+  //--------------------------------------------------------------------
+  /** Return the value for the edge between <code>a</code> and
+   * <code>b</code>, or <code>null</code> if none.
+   */
+  public final V get (final long a,
+                      final long b) {
+    assert (a != b) && (0L <= a) && (0L <= b);
+    final long lo = Math.min(a, b);
+    final long hi = Math.max(a, b);
+    int i = slot(lo, hi);
+    for (int n = 0; n <= _mask; n++) {
+      final long k = _hi.get(i);
+      if (EMPTY == k) { return null; }
+      if (hi == k) {
+        final V v = valueAt(i);
+        if (lo == _lo[i]) { return v; } }
+      i = (i + 1) & _mask; }
+    return null; }
+
+  public final V get (final ZeroSimplex a,
+                      final ZeroSimplex b) {
+    return get(a.count(), b.count()); }
+
+  /** If the edge between <code>a</code> and <code>b</code> is absent,
+   * associate it with <code>value</code> and return <code>null</code>.
+   * Otherwise, return the existing value, unchanged.
+   *
+   * @throws IllegalStateException if the table is full.
+   */
+  public final V putIfAbsent (final long a,
+                              final long b,
+                              final V value) {
+    assert (a != b) && (0L <= a) && (0L <= b);
+    assert null != value;
+    final long lo = Math.min(a, b);
+    final long hi = Math.max(a, b);
+    int i = slot(lo, hi);
+    for (int n = 0; n <= _mask; n++) {
+      long k = _hi.get(i);
+      if (EMPTY == k) {
+        if (_hi.compareAndSet(i, EMPTY, hi)) {
+          _lo[i] = lo;
+          _values.set(i, value);
+          _size.incrementAndGet();
+          return null; }
+        // lost the race for this slot
+        k = _hi.get(i); }
+      if (hi == k) {
+        final V v = valueAt(i);
+        if (lo == _lo[i]) { return v; } }
+      i = (i + 1) & _mask; }
+    throw new IllegalStateException(
+      "EdgeTable full: " + capacity() + " slots"); }
+
+  public final V putIfAbsent (final ZeroSimplex a,
+                              final ZeroSimplex b,
+                              final V value) {
+    return putIfAbsent(a.count(), b.count(), value); }
+
+  //--------------------------------------------------------------------
+  /** Return the values, in table (not insertion) order.
+   * Not safe to call during concurrent inserts.
+   */
+  public final List<V> values () {
+    final List<V> values = new ArrayList<>(size());
+    for (int i = 0; i <= _mask; i++) {
+      final V v = _values.get(i);
+      if (null != v) { values.add(v); } }
+    return values; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private EdgeTable (final int capacity) {
+    assert 0 == (capacity & (capacity - 1));
+    _hi = new AtomicLongArray(capacity);
+    _lo = new long[capacity];
+    _values = new AtomicReferenceArray<>(capacity);
+    _mask = capacity - 1; }
+
+  /** Return an empty table with room for <code>expectedEdges</code>
+   * entries, at a load factor of at most 1/2.
+   */
+  public static final <V> EdgeTable<V> make (final int expectedEdges) {
+    final int n = Math.max(16, 2 * expectedEdges);
+    final int capacity = Integer.highestOneBit(n - 1) << 1;
+    return new EdgeTable<>(capacity); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,408 @@
+package mop.java.cmplx;
+
+import clojure.lang.IFn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-resolution face hierarchy: the base complex and its
+ * successive midpoint subdivisions, as a forest of face quadtrees,
+ * one per base face.
+ * <p>
+ * Relies on the index conventions of {@link MidpointSubdivision}:
+ * <ul>
+ * <li>Face <code>f</code> at level <code>l</code> has children
+ * <code>4f..4f+3</code> at level <code>l+1</code>, so the parent is
+ * <code>f&gt;&gt;2</code>, and the descendants <code>d</code> levels
+ * down are the contiguous range
+ * <code>[f*4<sup>d</sup>,(f+1)*4<sup>d</sup>)</code>.
+ * <li>Vertex indices are stable: vertex <code>i</code> of level
+ * <code>l</code> is vertex <code>i</code> of every finer level.
+ * </ul>
+ * So navigation between levels is arithmetic, O(1) per step,
+ * with no stored parent or child links.
+ * <p>
+ * A <em>node</em> is a (level, face) pair, packed in a
+ * <code>long</code>. A <em>cut</em> is a set of nodes that covers each
+ * base face exactly once, eg, a mixed resolution selection.
+ * <p>
+ * Levels are subdivided lazily, in order, the first time they are
+ * needed. Cutting never builds them: the faces of a cut node are
+ * derived from its base face by following the parent chain down,
+ * so a cut costs O(depth) per node, however deep the hierarchy.
+ * {@link #deepen(int)} returns a new hierarchy sharing the same
+ * levels, built or not.
+ * <p>
+ * Immutable, apart from the lazily built levels; thread safe.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class FaceHierarchy {
+
+  /** Levels subdivided so far, shared by deepened hierarchies,
+   * so each level is built once.
+   * Built sequentially, so vertex ids increase with level.
+   */
+  private static final class Levels {
+    private IndexedCellComplex[] _built;
+    private int _nBuilt;
+
+    private Levels (final IndexedCellComplex base) {
+      _built = new IndexedCellComplex[] { base };
+      _nBuilt = 1; }
+
+    private final synchronized IndexedCellComplex get (final int l) {
+      if (_built.length <= l) {
+        _built = Arrays.copyOf(_built, Math.max(l + 1, 2 * _built.length)); }
+      for (; _nBuilt <= l; _nBuilt++) {
+        _built[_nBuilt] = MidpointSubdivision.subdivide(_built[_nBuilt - 1]); }
+      return _built[l]; } }
+
+  private final Levels _levels;
+  private final int _nLevels;
+
+  public final int nLevels () { return _nLevels; }
+
+  /** Builds level <code>l</code>, and any coarser levels,
+   * if not done already.
+   */
+  public final IndexedCellComplex level (final int l) {
+    if ((l < 0) || (_nLevels <= l)) {
+      throw new IndexOutOfBoundsException(
+        "level " + l + " of " + _nLevels); }
+    return _levels.get(l); }
+
+  public final IndexedCellComplex base () { return level(0); }
+
+  public final IndexedCellComplex finest () { return level(_nLevels - 1); }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+
+  public static final int parent (final int face) { return face >>> 2; }
+
+  public static final int child (final int face,
+                                 final int slot) {
+    assert (0 <= slot) && (slot < 4);
+    return (face << 2) + slot; }
+
+  /** Ancestor <code>levels</code> up. */
+  public static final int ancestor (final int face,
+                                    final int levels) {
+    return face >>> (2 * levels); }
+
+  /** First descendant <code>levels</code> down. */
+  public static final int firstDescendant (final int face,
+                                           final int levels) {
+    return face << (2 * levels); }
+
+  /** One past the last descendant <code>levels</code> down. */
+  public static final int endDescendants (final int face,
+                                          final int levels) {
+    return (face + 1) << (2 * levels); }
+
+  //--------------------------------------------------------------------
+  // nodes
+  //--------------------------------------------------------------------
+
+  public static final long node (final int level,
+                                 final int face) {
+    return (((long) level) << 32) | (face & 0xFFFFFFFFL); }
+
+  public static final int nodeLevel (final long node) {
+    return (int) (node >>> 32); }
+
+  public static final int nodeFace (final long node) {
+    return (int) node; }
+
+  //--------------------------------------------------------------------
+  // cuts
+  //--------------------------------------------------------------------
+
+  private static final boolean truthy (final Object x) {
+    return (null != x) && (! Boolean.FALSE.equals(x)); }
+
+  /** Growable node list. */
+  private static final class Nodes {
+    private long[] _nodes;
+    private int _n = 0;
+
+    private Nodes (final int capacity) {
+      _nodes = new long[Math.max(capacity, 4)]; }
+
+    private final void add (final long node) {
+      if (_n == _nodes.length) {
+        _nodes = Arrays.copyOf(_nodes, 2 * _nodes.length); }
+      _nodes[_n++] = node; }
+
+    private final long[] toArray () { return Arrays.copyOf(_nodes, _n); } }
+
+  private final void cut (final int level,
+                          final int face,
+                          final IFn refine,
+                          final Nodes nodes) {
+    if (((level + 1) < _nLevels)
+      && truthy(refine.invoke(level, face))) {
+      for (int s = 0; s < 4; s++) {
+        cut(level + 1, child(face, s), refine, nodes); }
+      return; }
+    nodes.add(node(level, face)); }
+
+  /** Return the cut selected by descending from each base face while
+   * <code>(refine level face)</code> is truthy, down to at most the
+   * finest level.
+   * Nodes are in depth first order.
+   * Cost is proportional to the number of nodes visited,
+   * so O(depth) for refining a single region;
+   * doesn't build any levels.
+   */
+  public final long[] cut (final IFn refine) {
+    final int nf = base().nFaces();
+    final Nodes nodes = new Nodes(nf);
+    for (int f = 0; f < nf; f++) { cut(0, f, refine, nodes); }
+    return nodes.toArray(); }
+
+  //--------------------------------------------------------------------
+  // cut complexes
+  //--------------------------------------------------------------------
+
+  /** A face, at some level, with its vertices in the order stored in
+   * that level. Vertices of a neighbor off the shared edge may be null.
+   */
+  private static final class Face {
+    private final int _index;
+    private final ZeroSimplex[] _v;
+
+    private Face (final int index,
+                  final ZeroSimplex[] v) {
+      _index = index;
+      _v = v; }
+
+    /** Corner of the half-edge <code>b-&gt;a</code>, or -1. */
+    private final int corner (final ZeroSimplex a,
+                              final ZeroSimplex b) {
+      final int n = _v.length;
+      for (int k = 0; k < n; k++) {
+        if ((b == _v[k]) && (a == _v[(k + 1) % n])) { return k; } }
+      return -1; } }
+
+  /** Derives the vertices of a node by descending from its base face,
+   * tracking the neighbor across each edge of the current face.
+   * Reproduces {@link MidpointSubdivision}: child <code>s</code> of a
+   * face keeps corner <code>s</code>, which, having the smallest index,
+   * stays first; the middle child of a triangle is rotated to start at
+   * the midpoint of the edge whose first half-edge, in face order,
+   * comes first, which the neighbors determine.
+   * Midpoints are named from that first half-edge, as in the levels,
+   * and shared by all the nodes of a cut, but are new vertices,
+   * distinct from those of any built level.
+   * Assumes at most 2 faces on an edge.
+   */
+  private static final class Descent {
+    private final IndexedCellComplex _base;
+    private final HalfEdges _he;
+    private final int _n;
+    private final EdgeTable<ZeroSimplex> _midpoints;
+    private final EdgeTable<ZeroSimplex> _centers;
+
+    private Descent (final IndexedCellComplex base,
+                     final int expectedEdges) {
+      _base = base;
+      _he = base.halfEdges();
+      _n = base.arity();
+      _midpoints = EdgeTable.make(expectedEdges);
+      _centers = (4 == _n) ? EdgeTable.make(expectedEdges / 4) : null; }
+
+    private final ZeroSimplex midpoint (final ZeroSimplex a,
+                                        final ZeroSimplex b) {
+      final ZeroSimplex z = _midpoints.get(a, b);
+      if (null != z) { return z; }
+      final ZeroSimplex m =
+        ZeroSimplex.make(a, b, MidpointSubdivision.EDGE_SLOT);
+      _midpoints.putIfAbsent(a, b, m);
+      return m; }
+
+    // only on the edges of the path, created before they are needed,
+    // so null off the shared edge of a neighbor
+    private final ZeroSimplex existing (final ZeroSimplex a,
+                                        final ZeroSimplex b) {
+      return ((null == a) || (null == b)) ? null : _midpoints.get(a, b); }
+
+    private final ZeroSimplex center (final ZeroSimplex[] v) {
+      final ZeroSimplex z = _centers.get(v[0], v[2]);
+      if (null != z) { return z; }
+      final ZeroSimplex c =
+        ZeroSimplex.make(v[0], v[2], MidpointSubdivision.FACE_SLOT);
+      _centers.putIfAbsent(v[0], v[2], c);
+      return c; }
+
+    // corner child s of a face with vertices v and edge midpoints m
+    private final ZeroSimplex[] corner (final ZeroSimplex[] v,
+                                        final ZeroSimplex[] m,
+                                        final ZeroSimplex center,
+                                        final int s) {
+      final int n = _n;
+      return (3 == n)
+        ? new ZeroSimplex[] { v[s], m[s], m[(s + 2) % 3] }
+        : new ZeroSimplex[] { v[s], m[s], center, m[(s + 3) % 4] }; }
+
+    private final Face[] children (final Face f,
+                                   final ZeroSimplex[] m,
+                                   final ZeroSimplex center,
+                                   final long[] first) {
+      final Face[] kids = new Face[4];
+      final int nCorners = (3 == _n) ? 3 : 4;
+      for (int s = 0; s < nCorners; s++) {
+        kids[s] = new Face(child(f._index, s),
+                           corner(f._v, m, center, s)); }
+      if (3 == _n) {
+        int r = 0;
+        for (int c = 1; c < 3; c++) { if (first[c] < first[r]) { r = c; } }
+        kids[3] = new Face(child(f._index, 3),
+                           new ZeroSimplex[] {
+                             m[r], m[(r + 1) % 3], m[(r + 2) % 3] }); }
+      return kids; }
+
+    /** The children of neighbor <code>g</code> on its edges shared
+     * with the current face.
+     */
+    private final void neighborChildren (final Face g,
+                                         final Face[] out,
+                                         final int k) {
+      final int n = _n;
+      final ZeroSimplex[] w = g._v;
+      final ZeroSimplex[] m = new ZeroSimplex[n];
+      for (int c = 0; c < n; c++) { m[c] = existing(w[c], w[(c + 1) % n]); }
+      for (int t = 0; t < n; t++) {
+        out[k + t] = new Face(child(g._index, t), corner(w, m, null, t)); } }
+
+    private final ZeroSimplex[] vertices (final int level,
+                                          final int face) {
+      final int n = _n;
+      final int b = ancestor(face, level);
+      final ZeroSimplex[] bv = new ZeroSimplex[n];
+      for (int c = 0; c < n; c++) {
+        bv[c] = _base.vertex(_base.vertexIndex(b, c)); }
+      Face f = new Face(b, bv);
+      Face[] nb = new Face[n];
+      int[] nc = new int[n];
+      for (int c = 0; c < n; c++) {
+        final int t = _he.twin((n * b) + c);
+        if (t < 0) { nc[c] = -1; continue; }
+        // just the shared edge, so no other midpoints are looked up
+        final ZeroSimplex[] w = new ZeroSimplex[n];
+        nc[c] = t % n;
+        w[nc[c]] = bv[(c + 1) % n];
+        w[(nc[c] + 1) % n] = bv[c];
+        nb[c] = new Face(_he.face(t), w); }
+      for (int k = level - 1; k >= 0; k--) {
+        // midpoints of f's edges, named from their first half-edge
+        final ZeroSimplex[] v = f._v;
+        final ZeroSimplex[] m = new ZeroSimplex[n];
+        final long[] first = new long[n];
+        for (int c = 0; c < n; c++) {
+          final ZeroSimplex a = v[c];
+          final ZeroSimplex z = v[(c + 1) % n];
+          final long own = ((long) n * f._index) + c;
+          final long other = (null == nb[c])
+            ? Long.MAX_VALUE
+            : ((long) n * nb[c]._index) + nc[c];
+          first[c] = Math.min(own, other);
+          m[c] = (own < other) ? midpoint(a, z) : midpoint(z, a); }
+        final ZeroSimplex center = (4 == n) ? center(v) : null;
+        final Face[] kids = children(f, m, center, first);
+        // candidate neighbors of the child: its siblings, and the
+        // children of f's neighbors
+        final Face[] candidates = new Face[4 + (n * n)];
+        System.arraycopy(kids, 0, candidates, 0, 4);
+        for (int c = 0; c < n; c++) {
+          if (null != nb[c]) { neighborChildren(nb[c], candidates, 4 + (n * c)); } }
+        final Face kid = kids[(face >>> (2 * k)) & 3];
+        final Face[] knb = new Face[n];
+        final int[] knc = new int[n];
+        for (int c = 0; c < n; c++) {
+          knc[c] = -1;
+          final ZeroSimplex a = kid._v[c];
+          final ZeroSimplex z = kid._v[(c + 1) % n];
+          for (final Face g : candidates) {
+            if ((null == g) || (kid == g)) { continue; }
+            final int j = g.corner(a, z);
+            if (0 <= j) { knb[c] = g; knc[c] = j; break; } } }
+        f = kid;
+        nb = knb;
+        nc = knc; }
+      return f._v; } }
+
+  /** Return a complex with the faces of the nodes in
+   * <code>cut</code>, and just the vertices they use,
+   * in order of first use.
+   * Not, in general, conforming: a coarser face may meet the
+   * vertices of finer neighbors in the middle of an edge.
+   * <p>
+   * Builds no levels: each node's vertices are derived from its base
+   * face, in O(depth). Vertices below the base are new, shared within
+   * the result, but not with the levels or other cut complexes.
+   */
+  public final IndexedCellComplex cutComplex (final long[] cut) {
+    final IndexedCellComplex base = base();
+    final int arity = base.arity();
+    long expected = 16L;
+    for (final long node : cut) {
+      final int l = nodeLevel(node);
+      if ((l < 0) || (_nLevels <= l)) {
+        throw new IndexOutOfBoundsException(
+          "level " + l + " of " + _nLevels); }
+      expected += (long) arity * l; }
+    final Descent descent =
+      new Descent(base, (int) Math.min(expected, 1L << 28));
+    final Map<ZeroSimplex,Integer> index = new HashMap<>();
+    final List<ZeroSimplex> vertices = new ArrayList<>();
+    final int[] faces = new int[arity * cut.length];
+    int i = 0;
+    for (final long node : cut) {
+      for (final ZeroSimplex z :
+             descent.vertices(nodeLevel(node), nodeFace(node))) {
+        Integer j = index.get(z);
+        if (null == j) {
+          j = vertices.size();
+          index.put(z, j);
+          vertices.add(z); }
+        faces[i++] = j; } }
+    final ZeroSimplex[] v = vertices.toArray(new ZeroSimplex[0]);
+    return (3 == arity)
+      ? IndexedSimplicialComplex2D.make(v, faces)
+      : IndexedQuadComplex.make(v, faces); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private FaceHierarchy (final Levels levels,
+                         final int nLevels) {
+    _levels = levels;
+    _nLevels = nLevels; }
+
+  /** Return a hierarchy with <code>levels</code> more levels,
+   * sharing this one's. Builds nothing.
+   */
+  public final FaceHierarchy deepen (final int levels) {
+    if (levels < 0) {
+      throw new IllegalArgumentException("negative levels: " + levels); }
+    return new FaceHierarchy(_levels, _nLevels + levels); }
+
+  /** Return the hierarchy from <code>base</code> (level 0) through
+   * <code>depth</code> subdivisions, none built yet.
+   */
+  public static final FaceHierarchy make (final IndexedCellComplex base,
+                                          final int depth) {
+    return new FaceHierarchy(new Levels(base), 1).deepen(depth); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
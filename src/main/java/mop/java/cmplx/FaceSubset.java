@@ -0,0 +1,245 @@
+package mop.java.cmplx;
+
+import clojure.lang.IFn;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * View of a subset of the faces of an indexed triangle or quad complex
+ * (the <em>root</em>), as a {@link BitSet} over the root's face
+ * indices.
+ * <p>
+ * Nothing is copied: {@link #faces()} is a list view onto the root's
+ * faces, and {@link #vertices()} is computed on first use,
+ * in O(faces), and cached.
+ * Views of views share the same root, so composing filters
+ * (intersection, union, removing a vertex's faces) is
+ * O(root faces / 64), or O(degree) for a single vertex.
+ * <p>
+ * Immutable, as long as the mask passed to {@link #make} isn't
+ * modified.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class FaceSubset implements CellComplex {
+
+  private final IndexedCellComplex _root;
+  public final IndexedCellComplex root () { return _root; }
+
+  private final BitSet _mask;
+
+  /** Return a copy of the root face mask. */
+  public final BitSet mask () { return (BitSet) _mask.clone(); }
+
+  public final boolean contains (final int rootFace) {
+    return _mask.get(rootFace); }
+
+  private final int _nFaces;
+  public final int nFaces () { return _nFaces; }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+  // root face index of each face in the view, built on first use
+
+  private volatile int[] _rootFaces;
+
+  /** Root face indices of the faces in this view, in increasing order.
+   * Not a copy; don't modify.
+   */
+  public final int[] rootFaces () {
+    int[] rf = _rootFaces;
+    if (null == rf) {
+      synchronized (this) {
+        rf = _rootFaces;
+        if (null == rf) {
+          rf = _mask.stream().toArray();
+          _rootFaces = rf; } } }
+    return rf; }
+
+  private final class Faces extends AbstractList<Cell>
+    implements RandomAccess {
+    @Override
+    public final Cell get (final int i) {
+      return (Cell) _root.faces().get(rootFaces()[i]); }
+    @Override
+    public final int size () { return _nFaces; } }
+
+  private final List<Cell> _faces =
+    Collections.unmodifiableList(new Faces());
+
+  /** Unmodifiable view onto the root's faces. */
+  public final List<Cell> faces () { return _faces; }
+
+  //--------------------------------------------------------------------
+  // vertices
+  //--------------------------------------------------------------------
+
+  private volatile List<ZeroSimplex> _vertices;
+
+  /** Vertices of the faces in the view, in root order,
+   * computed on first use, and cached.
+   */
+  public final List<ZeroSimplex> vertices () {
+    List<ZeroSimplex> vertices = _vertices;
+    if (null == vertices) {
+      synchronized (this) {
+        vertices = _vertices;
+        if (null == vertices) {
+          final int arity = _root.arity();
+          final int[] fi = _root.faceIndices();
+          final BitSet used = new BitSet(_root.nVertices());
+          for (int f = _mask.nextSetBit(0);
+               f >= 0;
+               f = _mask.nextSetBit(f + 1)) {
+            for (int c = 0; c < arity; c++) {
+              used.set(fi[(arity * f) + c]); } }
+          final ZeroSimplex[] z = new ZeroSimplex[used.cardinality()];
+          int i = 0;
+          for (int v = used.nextSetBit(0);
+               v >= 0;
+               v = used.nextSetBit(v + 1)) {
+            z[i++] = _root.vertex(v); }
+          vertices = Collections.unmodifiableList(Arrays.asList(z));
+          _vertices = vertices; } } }
+    return vertices; }
+
+  //--------------------------------------------------------------------
+  // composition
+  //--------------------------------------------------------------------
+
+  /** Faces in both views, which must have the same root. */
+  public final FaceSubset and (final FaceSubset that) {
+    assert _root == that._root;
+    final BitSet mask = mask();
+    mask.and(that._mask);
+    return new FaceSubset(_root, mask); }
+
+  /** Faces in either view, which must have the same root. */
+  public final FaceSubset or (final FaceSubset that) {
+    assert _root == that._root;
+    final BitSet mask = mask();
+    mask.or(that._mask);
+    return new FaceSubset(_root, mask); }
+
+  /** Faces in this view, but not <code>that</code>. */
+  public final FaceSubset andNot (final FaceSubset that) {
+    assert _root == that._root;
+    final BitSet mask = mask();
+    mask.andNot(that._mask);
+    return new FaceSubset(_root, mask); }
+
+  /** Return an equivalent compact complex, with just the used
+   * vertices, and root faces in order.
+   * Copies, unlike the rest of this class.
+   */
+  public final IndexedCellComplex toIndexed () {
+    final int arity = _root.arity();
+    final int[] fi = _root.faceIndices();
+    final List<ZeroSimplex> vl = vertices();
+    final ZeroSimplex[] vertices = vl.toArray(new ZeroSimplex[0]);
+    final int[] remap = new int[_root.nVertices()];
+    for (int i = 0; i < vertices.length; i++) {
+      remap[_root.indexOf(vertices[i])] = i; }
+    final int[] rf = rootFaces();
+    final int[] faces = new int[arity * rf.length];
+    int j = 0;
+    for (final int f : rf) {
+      for (int c = 0; c < arity; c++) {
+        faces[j++] = remap[fi[(arity * f) + c]]; } }
+    return (3 == arity)
+      ? IndexedSimplicialComplex2D.make(vertices, faces)
+      : IndexedQuadComplex.make(vertices, faces); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private FaceSubset (final IndexedCellComplex root,
+                      final BitSet mask) {
+    assert mask.length() <= root.nFaces();
+    _root = root;
+    _mask = mask;
+    _nFaces = mask.cardinality(); }
+
+  /** Takes ownership of <code>mask</code>, a set of root face indices.
+   */
+  public static final FaceSubset make (final IndexedCellComplex root,
+                                       final BitSet mask) {
+    return new FaceSubset(root, mask); }
+
+  /** All the faces of <code>c</code>. */
+  public static final FaceSubset all (final CellComplex c) {
+    if (c instanceof FaceSubset s) { return s; }
+    final IndexedCellComplex root = indexed(c);
+    final BitSet mask = new BitSet(root.nFaces());
+    mask.set(0, root.nFaces());
+    return new FaceSubset(root, mask); }
+
+  static final IndexedCellComplex indexed (final CellComplex c) {
+    return switch (c) {
+      case IndexedCellComplex ic -> ic;
+      case SimplicialComplex2D sc -> sc.indexed();
+      case QuadComplex qc -> qc.indexed();
+      case FaceSubset fs -> fs.root();
+      default -> throw new UnsupportedOperationException(
+        "Can't index " + c.getClass()); }; }
+
+  /** The faces of <code>c</code> for which <code>predicate</code>
+   * returns a truthy value.
+   * Views of views share the root.
+   */
+  public static final FaceSubset filter (final CellComplex c,
+                                         final IFn predicate) {
+    final FaceSubset all = all(c);
+    final List faces = all._root.faces();
+    final BitSet mask = new BitSet(all._root.nFaces());
+    for (int f = all._mask.nextSetBit(0);
+         f >= 0;
+         f = all._mask.nextSetBit(f + 1)) {
+      final Object x = predicate.invoke(faces.get(f));
+      if ((null != x) && (! Boolean.FALSE.equals(x))) { mask.set(f); } }
+    return new FaceSubset(all._root, mask); }
+
+  /** The faces of <code>c</code> that don't contain <code>z</code>,
+   * identified by identity, not name.
+   * O(degree of <code>z</code>), given the root's cached
+   * {@link HalfEdges}.
+   */
+  public static final FaceSubset withoutVertex (final CellComplex c,
+                                                final ZeroSimplex z) {
+    final FaceSubset all = all(c);
+    final int v = all._root.indexOf(z);
+    if (v < 0) { return all; }
+    final BitSet mask = all.mask();
+    for (final int f : all._root.halfEdges().vertexFaces(v)) {
+      mask.clear(f); }
+    return new FaceSubset(all._root, mask); }
+
+  /** The faces of <code>c</code> that don't contain any vertex named
+   * <code>name</code>; names needn't be unique.
+   * One pass over the root's vertices, comparing names without
+   * rendering them, then O(degree) per match.
+   */
+  public static final FaceSubset withoutVertexNamed (final CellComplex c,
+                                                     final String name) {
+    final FaceSubset all = all(c);
+    final IndexedCellComplex root = all._root;
+    final int nv = root.nVertices();
+    BitSet mask = null;
+    for (int v = 0; v < nv; v++) {
+      if (root.vertex(v).hasName(name)) {
+        if (null == mask) { mask = all.mask(); }
+        for (final int f : root.halfEdges().vertexFaces(v)) {
+          mask.clear(f); } } }
+    return (null == mask) ? all : new FaceSubset(root, mask); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
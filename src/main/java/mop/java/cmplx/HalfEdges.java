@@ -0,0 +1,254 @@
+package mop.java.cmplx;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Adjacency index for a 2d cell complex whose faces all have the same
+ * number of vertices (3 for triangles, 4 for quads), stored as packed
+ * vertex indices, as in {@link IndexedSimplicialComplex2D} and
+ * {@link IndexedQuadComplex}.
+ * <p>
+ * Half-edge <code>h</code> is corner <code>h % arity</code> of face
+ * <code>h / arity</code>, running from that corner's vertex to the
+ * next one in the face's orientation.
+ * So half-edges are implicit in the face array; the only additional
+ * state is the <code>twin</code> of each half-edge, and, for each
+ * vertex, the half-edges leaving it (in compressed row form).
+ * <p>
+ * All queries are O(1) or O(degree).
+ * <p>
+ * Only an edge with exactly 1 half-edge in each direction has twins.
+ * The half-edges of non-manifold edges (more than 2 faces), and of
+ * edges used twice in the same direction (inconsistent orientation),
+ * are all boundary half-edges, as if the complex were cut open along
+ * them, so <code>twin(twin(h)) == h</code> whenever
+ * <code>twin(h) &gt;= 0</code>, and each such half-edge is counted as
+ * a separate edge by {@link #nEdges}.
+ * {@link TopologyReport} counts the distinct unoriented edges.
+ * <p>
+ * Immutable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class HalfEdges {
+
+  private final int _arity;
+  public final int arity () { return _arity; }
+
+  private final int _nVertices;
+  public final int nVertices () { return _nVertices; }
+
+  // shared with the complex, not copied
+  private final int[] _faces;
+  public final int nFaces () { return _faces.length / _arity; }
+  public final int nHalfEdges () { return _faces.length; }
+
+  // -1 for boundary half-edges
+  private final int[] _twin;
+
+  // half-edges leaving vertex v are _out[_outStart[v].._outStart[v+1])
+  private final int[] _outStart;
+  private final int[] _out;
+
+  private final int _nEdges;
+  /** Number of unoriented edges, interior and boundary, with each
+   * half-edge of a non-manifold edge counted separately.
+   */
+  public final int nEdges () { return _nEdges; }
+
+  //--------------------------------------------------------------------
+  // half-edges
+  //--------------------------------------------------------------------
+
+  public final int face (final int h) { return h / _arity; }
+
+  public final int next (final int h) {
+    final int c = h % _arity;
+    return (c == (_arity - 1)) ? (h - c) : (h + 1); }
+
+  public final int prev (final int h) {
+    final int c = h % _arity;
+    return (0 == c) ? (h + _arity - 1) : (h - 1); }
+
+  public final int origin (final int h) { return _faces[h]; }
+
+  public final int target (final int h) { return _faces[next(h)]; }
+
+  /** Return the oppositely oriented half-edge in the neighboring face,
+   * or -1 if <code>h</code> is on the boundary.
+   */
+  public final int twin (final int h) { return _twin[h]; }
+
+  public final boolean isBoundary (final int h) { return _twin[h] < 0; }
+
+  /** Is <code>h</code> the representative of its unoriented edge,
+   * ie, the first half-edge of the edge in face order?
+   */
+  public final boolean isFirst (final int h) {
+    final int t = _twin[h];
+    return (t < 0) || (h < t); }
+
+  /** Return the half-edge from <code>a</code> to <code>b</code>,
+   * or -1 if there is none. O(degree of <code>a</code>).
+   */
+  public final int halfEdge (final int a,
+                             final int b) {
+    for (int i = _outStart[a]; i < _outStart[a + 1]; i++) {
+      final int h = _out[i];
+      if (target(h) == b) { return h; } }
+    return -1; }
+
+  //--------------------------------------------------------------------
+  // edges
+  //--------------------------------------------------------------------
+
+  /** Return the faces containing the (unoriented) edge between
+   * <code>a</code> and <code>b</code>; 0, 1, 2, or, for non-manifold
+   * complexes, more.
+   */
+  public final int[] edgeFaces (final int a,
+                                final int b) {
+    final int na = _outStart[a + 1] - _outStart[a];
+    final int nb = _outStart[b + 1] - _outStart[b];
+    final int[] faces = new int[na + nb];
+    int n = 0;
+    for (int i = _outStart[a]; i < _outStart[a + 1]; i++) {
+      final int h = _out[i];
+      if (target(h) == b) { faces[n++] = face(h); } }
+    for (int i = _outStart[b]; i < _outStart[b + 1]; i++) {
+      final int h = _out[i];
+      if (target(h) == a) { faces[n++] = face(h); } }
+    return Arrays.copyOf(faces, n); }
+
+  /** Return the boundary half-edges, in increasing order. */
+  public final int[] boundaryHalfEdges () {
+    return IntStream.range(0, _twin.length)
+      .filter(h -> _twin[h] < 0)
+      .toArray(); }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+
+  /** Return the face across corner <code>c</code>'s outgoing edge,
+   * or -1 on the boundary.
+   */
+  public final int faceNeighbor (final int f,
+                                 final int c) {
+    final int t = _twin[(f * _arity) + c];
+    return (t < 0) ? -1 : face(t); }
+
+  /** Return the faces across each edge of <code>f</code>, in corner
+   * order, with -1 for boundary edges.
+   */
+  public final int[] faceNeighbors (final int f) {
+    final int[] neighbors = new int[_arity];
+    for (int c = 0; c < _arity; c++) {
+      neighbors[c] = faceNeighbor(f, c); }
+    return neighbors; }
+
+  //--------------------------------------------------------------------
+  // vertices
+  //--------------------------------------------------------------------
+
+  /** Number of half-edges leaving <code>v</code>,
+   * ie, number of faces containing <code>v</code>.
+   */
+  public final int outDegree (final int v) {
+    return _outStart[v + 1] - _outStart[v]; }
+
+  /** Return the <code>i</code>th half-edge leaving <code>v</code>. */
+  public final int outHalfEdge (final int v,
+                                final int i) {
+    return _out[_outStart[v] + i]; }
+
+  /** Return the faces containing <code>v</code>, in increasing order. */
+  public final int[] vertexFaces (final int v) {
+    final int n = outDegree(v);
+    final int[] faces = new int[n];
+    for (int i = 0; i < n; i++) { faces[i] = face(_out[_outStart[v] + i]); }
+    return faces; }
+
+  /** Return the distinct vertices sharing an edge with <code>v</code>.
+   */
+  public final int[] vertexRing (final int v) {
+    final int n = outDegree(v);
+    final int[] ring = new int[2 * n];
+    int m = 0;
+    for (int i = _outStart[v]; i < _outStart[v + 1]; i++) {
+      final int h = _out[i];
+      m = addIfAbsent(ring, m, target(h));
+      m = addIfAbsent(ring, m, origin(prev(h))); }
+    return Arrays.copyOf(ring, m); }
+
+  private static final int addIfAbsent (final int[] a,
+                                        final int n,
+                                        final int x) {
+    for (int i = 0; i < n; i++) { if (x == a[i]) { return n; } }
+    a[n] = x;
+    return n + 1; }
+
+  /** Is <code>v</code> on a boundary edge? */
+  public final boolean isBoundaryVertex (final int v) {
+    for (int i = _outStart[v]; i < _outStart[v + 1]; i++) {
+      final int h = _out[i];
+      if ((_twin[h] < 0) || (_twin[prev(h)] < 0)) { return true; } }
+    return false; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private HalfEdges (final int nVertices,
+                     final int arity,
+                     final int[] faces) {
+    assert 0 == (faces.length % arity);
+    _arity = arity;
+    _nVertices = nVertices;
+    _faces = faces;
+    final int nh = faces.length;
+
+    // counting sort of half-edges by origin vertex
+    final int[] start = new int[nVertices + 1];
+    for (final int v : faces) { start[v + 1]++; }
+    for (int v = 0; v < nVertices; v++) { start[v + 1] += start[v]; }
+    final int[] fill = Arrays.copyOf(start, nVertices);
+    final int[] out = new int[nh];
+    for (int h = 0; h < nh; h++) { out[fill[faces[h]]++] = h; }
+    _outStart = start;
+    _out = out;
+
+    // twin of a->b is the only b->a, if a->b is the only a->b
+    final int[] twin = new int[nh];
+    IntStream.range(0, nh).parallel().forEach(h -> {
+      final int a = faces[h];
+      final int b = target(h);
+      int same = 0;
+      for (int i = start[a]; i < start[a + 1]; i++) {
+        if (target(out[i]) == b) { same++; } }
+      int t = -1;
+      int opposite = 0;
+      for (int i = start[b]; i < start[b + 1]; i++) {
+        final int g = out[i];
+        if (target(g) == a) { t = g; opposite++; } }
+      twin[h] = ((1 == same) && (1 == opposite)) ? t : -1; });
+    _twin = twin;
+
+    _nEdges = (int) IntStream.range(0, nh).parallel()
+      .filter(this::isFirst)
+      .count(); }
+
+  /** <code>faces</code> holds <code>arity</code> vertex indices per
+   * face, each in <code>[0,nVertices)</code>.
+   * Not copied, and must not be modified.
+   */
+  public static final HalfEdges make (final int nVertices,
+                                      final int arity,
+                                      final int[] faces) {
+    return new HalfEdges(nVertices, arity, faces); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
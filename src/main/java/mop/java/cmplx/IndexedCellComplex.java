@@ -0,0 +1,42 @@
+package mop.java.cmplx;
+
+/**
+ * Cell complexes whose faces all have the same number of vertices,
+ * stored as packed indices into a dense vertex range.
+ * <p>
+ * Immutable.
+ * <p>
+ * Identity equality.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+
+public interface IndexedCellComplex extends CellComplex {
+
+  /** Number of vertices per face. */
+  public int arity ();
+
+  public int nVertices ();
+
+  public ZeroSimplex vertex (int i);
+
+  /** Index of <code>z</code> in <code>vertices()</code>,
+   * or a negative number if <code>z</code> isn't a vertex.
+   */
+  public int indexOf (ZeroSimplex z);
+
+  public int nFaces ();
+
+  /** Index of the <code>corner</code> vertex of <code>face</code>. */
+  public int vertexIndex (int face, int corner);
+
+  /** <code>arity()</code> vertex indices per face.
+   * Not a copy; don't modify.
+   */
+  public int[] faceIndices ();
+
+  /** Lazily built, cached, adjacency index. */
+  public HalfEdges halfEdges ();
+
+}
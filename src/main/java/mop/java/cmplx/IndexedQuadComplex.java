@@ -0,0 +1,207 @@
+package mop.java.cmplx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two dimensional quadrilateral cell complex, with faces stored as
+ * packed vertex indices, rather than as a list of {@link Quad}.
+ * See {@link IndexedSimplicialComplex2D}.
+ * <p>
+ * Vertices are a dense index range <code>[0,nVertices())</code>,
+ * in any order, as in {@link IndexedSimplicialComplex2D}.
+ * Face <code>i</code> is the oriented quadruple
+ * <code>faceIndices()[4*i] ... faceIndices()[4*i+3]</code>,
+ * rotated so the minimum vertex index comes first,
+ * matching {@link Quad} when the vertices are sorted.
+ * <p>
+ * Immutable, as long as callers don't modify the arrays passed to, or
+ * returned by, this class.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class IndexedQuadComplex
+  implements IndexedCellComplex {
+
+  public final int arity () { return 4; }
+
+  private final ZeroSimplex[] _vertices;
+  private final List<ZeroSimplex> _vertexList;
+  public final List<ZeroSimplex> vertices () { return _vertexList; }
+  public final int nVertices () { return _vertices.length; }
+  public final ZeroSimplex vertex (final int i) { return _vertices[i]; }
+
+  private final int[] _faces;
+  public final int nFaces () { return _faces.length / 4; }
+
+  /** Index of the <code>corner</code> vertex of <code>face</code>. */
+  public final int vertexIndex (final int face,
+                                final int corner) {
+    return _faces[(4 * face) + corner]; }
+
+  /** WARNING: returns the internal array, not a copy.
+   * Don't modify it!
+   */
+  public final int[] faceIndices () { return _faces; }
+
+  private volatile List<Quad> _faceList;
+
+  /** Return an unmodifiable list of {@link Quad}, created on the
+   * first call, and cached.
+   * Expensive for large complexes; prefer
+   * {@link #faceIndices()} where possible.
+   */
+  public final List<Quad> faces () {
+    List<Quad> faces = _faceList;
+    if (null == faces) {
+      synchronized (this) {
+        faces = _faceList;
+        if (null == faces) {
+          final int n = nFaces();
+          final Quad[] f = new Quad[n];
+          for (int i = 0; i < n; i++) {
+            final int i4 = 4 * i;
+            f[i] = Quad.make(
+              _vertices[_faces[i4]],
+              _vertices[_faces[i4 + 1]],
+              _vertices[_faces[i4 + 2]],
+              _vertices[_faces[i4 + 3]]); }
+          faces = Collections.unmodifiableList(Arrays.asList(f));
+          _faceList = faces; } } }
+    return faces; }
+
+  private volatile Map<ZeroSimplex,Integer> _index;
+
+  /** Index of <code>z</code> in {@link #vertices()},
+   * or -1 if <code>z</code> isn't a vertex.
+   * O(1), via a vertex to index map, built on the first call (unless
+   * passed to the constructor), and cached,
+   * so vertices needn't be in id order.
+   */
+  public final int indexOf (final ZeroSimplex z) {
+    Map<ZeroSimplex,Integer> index = _index;
+    if (null == index) {
+      synchronized (this) {
+        index = _index;
+        if (null == index) {
+          index = indexMap(_vertices);
+          _index = index; } } }
+    final Integer i = index.get(z);
+    return (null == i) ? -1 : i.intValue(); }
+
+  //--------------------------------------------------------------------
+  // adjacency
+  //--------------------------------------------------------------------
+
+  private volatile HalfEdges _halfEdges;
+
+  /** Return the adjacency index, built on the first call, and cached.
+   */
+  public final HalfEdges halfEdges () {
+    HalfEdges he = _halfEdges;
+    if (null == he) {
+      synchronized (this) {
+        he = _halfEdges;
+        if (null == he) {
+          he = HalfEdges.make(nVertices(), 4, _faces);
+          _halfEdges = he; } } }
+    return he; }
+
+  //--------------------------------------------------------------------
+  // conversion
+  //--------------------------------------------------------------------
+  /** Return an equivalent object form complex.
+   * Uses (and creates, if necessary) the cached {@link #faces()}.
+   */
+  public final QuadComplex toQuadComplex () {
+    return QuadComplex.make(faces()); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+  /** Rotate each quadruple in place so the minimum index comes first,
+   * preserving orientation.
+   */
+  private static final void normalize (final int[] faces) {
+    for (int i4 = 0; i4 < faces.length; i4 += 4) {
+      int m = 0;
+      for (int j = 1; j < 4; j++) {
+        if (faces[i4 + j] < faces[i4 + m]) { m = j; } }
+      if (0 < m) {
+        final int a = faces[i4];
+        final int b = faces[i4 + 1];
+        final int c = faces[i4 + 2];
+        final int d = faces[i4 + 3];
+        switch (m) {
+          case 1 -> {
+            faces[i4] = b; faces[i4 + 1] = c;
+            faces[i4 + 2] = d; faces[i4 + 3] = a; }
+          case 2 -> {
+            faces[i4] = c; faces[i4 + 1] = d;
+            faces[i4 + 2] = a; faces[i4 + 3] = b; }
+          default -> {
+            faces[i4] = d; faces[i4 + 1] = a;
+            faces[i4 + 2] = b; faces[i4 + 3] = c; } } } } }
+
+  private static final Map<ZeroSimplex,Integer> indexMap (
+    final ZeroSimplex[] vertices) {
+    final int nv = vertices.length;
+    final Map<ZeroSimplex,Integer> index = new HashMap<>(2 * nv);
+    for (int i = 0; i < nv; i++) { index.put(vertices[i], i); }
+    return index; }
+
+  private static final boolean isUnique (final ZeroSimplex[] vertices) {
+    return vertices.length == indexMap(vertices).size(); }
+
+  private IndexedQuadComplex (final ZeroSimplex[] vertices,
+                              final int[] faces,
+                              final List<Quad> faceList,
+                              final Map<ZeroSimplex,Integer> index) {
+    assert 0 == (faces.length % 4);
+    assert isUnique(vertices);
+    _vertices = vertices;
+    _vertexList = Collections.unmodifiableList(Arrays.asList(vertices));
+    _faces = faces;
+    _faceList = faceList;
+    _index = index; }
+
+  /** Takes ownership of both arrays, without copying.
+   * <code>vertices</code> must be unique, in any order;
+   * <code>faces</code> holds 4 indices into <code>vertices</code>
+   * per face, and is rotated in place so the minimum index of each
+   * face comes first.
+   */
+  public static final IndexedQuadComplex make (
+    final ZeroSimplex[] vertices,
+    final int[] faces) {
+    normalize(faces);
+    return new IndexedQuadComplex(vertices, faces, null, null); }
+
+  /** Index the vertices and faces of an object form complex.
+   * The existing {@link Quad} list is reused as the
+   * {@link #faces()} of the result.
+   */
+  public static final IndexedQuadComplex make (final QuadComplex c) {
+    final List<ZeroSimplex> vl = c.vertices();
+    final List<Quad> fl = c.faces();
+    final int nv = vl.size();
+    final int nf = fl.size();
+    final ZeroSimplex[] vertices = vl.toArray(new ZeroSimplex[nv]);
+    final Map<ZeroSimplex,Integer> index = indexMap(vertices);
+    final int[] faces = new int[4 * nf];
+    int i4 = 0;
+    for (final Quad f : fl) {
+      faces[i4++] = index.get(f.z0());
+      faces[i4++] = index.get(f.z1());
+      faces[i4++] = index.get(f.z2());
+      faces[i4++] = index.get(f.z3()); }
+    // Quad is already minimally rotated, in the same order
+    return new IndexedQuadComplex(vertices, faces, fl, index); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,205 @@
+package mop.java.cmplx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two dimensional simplicial complex, with faces stored as packed
+ * vertex indices, rather than as a list of {@link TwoSimplex}.
+ * Intended for large (multi-million face) complexes, where the
+ * per-face object graph of {@link SimplicialComplex2D} dominates
+ * memory use and gc time.
+ * <p>
+ * Vertices are a dense index range <code>[0,nVertices())</code>,
+ * in any order; sorted as in {@link SimplicialComplex2D} when indexed
+ * from an object form complex, but otherwise in whatever order the
+ * builder (eg, subdivision) chose, since {@link ZeroSimplex} ids
+ * from different threads don't follow creation order.
+ * Face <code>i</code> is the oriented triple
+ * <code>faceIndices()[3*i], faceIndices()[3*i+1], faceIndices()[3*i+2]</code>,
+ * rotated so the minimum vertex index comes first,
+ * matching {@link TwoSimplex} when the vertices are sorted.
+ * <p>
+ * The {@link CellComplex} <code>faces()</code> list is only
+ * materialized (once) on demand, for compatibility with code that
+ * expects {@link TwoSimplex} objects.
+ * <p>
+ * Immutable, as long as callers don't modify the arrays passed to, or
+ * returned by, this class.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class IndexedSimplicialComplex2D
+  implements IndexedCellComplex {
+
+  public final int arity () { return 3; }
+
+  private final ZeroSimplex[] _vertices;
+  private final List<ZeroSimplex> _vertexList;
+  public final List<ZeroSimplex> vertices () { return _vertexList; }
+  public final int nVertices () { return _vertices.length; }
+  public final ZeroSimplex vertex (final int i) { return _vertices[i]; }
+
+  private final int[] _faces;
+  public final int nFaces () { return _faces.length / 3; }
+
+  /** Index of the <code>corner</code> vertex of <code>face</code>. */
+  public final int vertexIndex (final int face,
+                                final int corner) {
+    return _faces[(3 * face) + corner]; }
+
+  /** WARNING: returns the internal array, not a copy.
+   * Don't modify it!
+   */
+  public final int[] faceIndices () { return _faces; }
+
+  private volatile List<TwoSimplex> _faceList;
+
+  /** Return an unmodifiable list of {@link TwoSimplex}, created on the
+   * first call, and cached.
+   * Expensive for large complexes; prefer
+   * {@link #faceIndices()} where possible.
+   */
+  public final List<TwoSimplex> faces () {
+    List<TwoSimplex> faces = _faceList;
+    if (null == faces) {
+      synchronized (this) {
+        faces = _faceList;
+        if (null == faces) {
+          final int n = nFaces();
+          final TwoSimplex[] f = new TwoSimplex[n];
+          for (int i = 0; i < n; i++) {
+            final int i3 = 3 * i;
+            f[i] = TwoSimplex.make(
+              _vertices[_faces[i3]],
+              _vertices[_faces[i3 + 1]],
+              _vertices[_faces[i3 + 2]]); }
+          faces = Collections.unmodifiableList(Arrays.asList(f));
+          _faceList = faces; } } }
+    return faces; }
+
+  private volatile Map<ZeroSimplex,Integer> _index;
+
+  /** Index of <code>z</code> in {@link #vertices()},
+   * or -1 if <code>z</code> isn't a vertex.
+   * O(1), via a vertex to index map, built on the first call (unless
+   * passed to the constructor), and cached,
+   * so vertices needn't be in id order.
+   */
+  public final int indexOf (final ZeroSimplex z) {
+    Map<ZeroSimplex,Integer> index = _index;
+    if (null == index) {
+      synchronized (this) {
+        index = _index;
+        if (null == index) {
+          index = indexMap(_vertices);
+          _index = index; } } }
+    final Integer i = index.get(z);
+    return (null == i) ? -1 : i.intValue(); }
+
+  //--------------------------------------------------------------------
+  // adjacency
+  //--------------------------------------------------------------------
+
+  private volatile HalfEdges _halfEdges;
+
+  /** Return the adjacency index, built on the first call, and cached.
+   */
+  public final HalfEdges halfEdges () {
+    HalfEdges he = _halfEdges;
+    if (null == he) {
+      synchronized (this) {
+        he = _halfEdges;
+        if (null == he) {
+          he = HalfEdges.make(nVertices(), 3, _faces);
+          _halfEdges = he; } } }
+    return he; }
+
+  //--------------------------------------------------------------------
+  // conversion
+  //--------------------------------------------------------------------
+  /** Return an equivalent object form complex.
+   * Uses (and creates, if necessary) the cached {@link #faces()}.
+   */
+  public final SimplicialComplex2D toSimplicialComplex2D () {
+    return SimplicialComplex2D.make(faces()); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+  /** Rotate each triple in place so the minimum index comes first,
+   * preserving orientation.
+   */
+  private static final void normalize (final int[] faces) {
+    for (int i3 = 0; i3 < faces.length; i3 += 3) {
+      final int a = faces[i3];
+      final int b = faces[i3 + 1];
+      final int c = faces[i3 + 2];
+      assert (a != b) && (b != c) && (c != a);
+      if ((b < a) && (b < c)) {
+        faces[i3] = b; faces[i3 + 1] = c; faces[i3 + 2] = a; }
+      else if ((c < a) && (c < b)) {
+        faces[i3] = c; faces[i3 + 1] = a; faces[i3 + 2] = b; } } }
+
+  private static final Map<ZeroSimplex,Integer> indexMap (
+    final ZeroSimplex[] vertices) {
+    final int nv = vertices.length;
+    final Map<ZeroSimplex,Integer> index = new HashMap<>(2 * nv);
+    for (int i = 0; i < nv; i++) { index.put(vertices[i], i); }
+    return index; }
+
+  private static final boolean isUnique (final ZeroSimplex[] vertices) {
+    return vertices.length == indexMap(vertices).size(); }
+
+  private IndexedSimplicialComplex2D (final ZeroSimplex[] vertices,
+                                      final int[] faces,
+                                      final List<TwoSimplex> faceList,
+                                      final Map<ZeroSimplex,Integer> index) {
+    assert 0 == (faces.length % 3);
+    assert isUnique(vertices);
+    _vertices = vertices;
+    _vertexList = Collections.unmodifiableList(Arrays.asList(vertices));
+    _faces = faces;
+    _faceList = faceList;
+    _index = index; }
+
+  /** Takes ownership of both arrays, without copying.
+   * <code>vertices</code> must be unique, in any order;
+   * <code>faces</code> holds 3 indices into <code>vertices</code>
+   * per face, and is rotated in place so the minimum index of each
+   * face comes first.
+   */
+  public static final IndexedSimplicialComplex2D make (
+    final ZeroSimplex[] vertices,
+    final int[] faces) {
+    normalize(faces);
+    return new IndexedSimplicialComplex2D(vertices, faces, null, null); }
+
+  /** Index the vertices and faces of an object form complex.
+   * The existing {@link TwoSimplex} list is reused as the
+   * {@link #faces()} of the result.
+   */
+  public static final IndexedSimplicialComplex2D make (
+    final SimplicialComplex2D c) {
+    final List<ZeroSimplex> vl = c.vertices();
+    final List<TwoSimplex> fl = c.faces();
+    final int nv = vl.size();
+    final int nf = fl.size();
+    final ZeroSimplex[] vertices = vl.toArray(new ZeroSimplex[nv]);
+    final Map<ZeroSimplex,Integer> index = indexMap(vertices);
+    final int[] faces = new int[3 * nf];
+    int i3 = 0;
+    for (final TwoSimplex f : fl) {
+      faces[i3++] = index.get(f.z0());
+      faces[i3++] = index.get(f.z1());
+      faces[i3++] = index.get(f.z2()); }
+    // TwoSimplex is already minimally rotated, in the same order
+    return new IndexedSimplicialComplex2D(vertices, faces, fl, index); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,254 @@
+package mop.java.cmplx;
+
+import clojure.lang.IFn;
+
+import java.util.stream.IntStream;
+
+/**
+ * Midpoint subdivision of triangle and quad complexes, splitting each
+ * face into 4, together with the child embedding.
+ * <p>
+ * Produces the same topology as the Clojure
+ * <code>mop.cmplx.complex/midpoint-subdivide-4</code> methods:
+ * parent vertices are reused, new vertices are created in the same
+ * order (edge vertices in order of first use in the parent face
+ * list, then, for quads, the face vertex),
+ * and child faces <code>4*f .. 4*f+3</code> subdivide parent face
+ * <code>f</code>, in the same order.
+ * <p>
+ * Midpoint vertices are numbered through an {@link EdgeTable} keyed
+ * by parent vertex index pairs, as in the Clojure version, so every
+ * face on an edge, including the 3 or more faces on a non-manifold
+ * edge, gets the same midpoint, and then held in a primitive array
+ * over the parent half-edges (see {@link HalfEdges}).
+ * Child faces and child points are computed in parallel over the
+ * parent face and half-edge ranges, in the common fork-join pool.
+ * Only vertex creation is sequential, so that vertex index order
+ * matches creation order.
+ * New vertices get compact generated names; see {@link ZeroSimplex}.
+ * <p>
+ * Points are opaque; the caller supplies a <code>midpoint</code>
+ * function, called with 2 points for edges,
+ * and 4 points, in face order, for quad faces.
+ * Lower index (earlier created) vertex first for edges.
+ * <code>midpoint</code> and <code>embedding</code> must be safe to call
+ * from multiple threads.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class MidpointSubdivision {
+
+  //--------------------------------------------------------------------
+  /** Child complex and points, aligned with child vertex indices.
+   */
+  public record Result (IndexedCellComplex child,
+                       Object[] points) { }
+
+  //--------------------------------------------------------------------
+  /** Return <code>nVertices + number of new vertices</code>,
+   * filling the new vertex index for each half-edge
+   * and, for quads, each face.
+   */
+  private static final int numberNewVertices (final HalfEdges he,
+                                              final int[] edgeVertex,
+                                              final int[] faceVertex) {
+    final int arity = he.arity();
+    final int nf = he.nFaces();
+    final EdgeTable<Integer> edges = EdgeTable.make(he.nEdges());
+    int next = he.nVertices();
+    for (int f = 0; f < nf; f++) {
+      for (int c = 0; c < arity; c++) {
+        final int h = (f * arity) + c;
+        final Integer v =
+          edges.putIfAbsent(he.origin(h), he.target(h), next);
+        edgeVertex[h] = (null == v) ? next++ : v.intValue(); }
+      if (null != faceVertex) { faceVertex[f] = next++; } }
+    return next; }
+
+  /** Child vertex indices of the new vertices:
+   * the midpoint of each parent half-edge (shared by twins),
+   * and, for quads, the center of each parent face (else null).
+   * Child vertices <code>[0,parent.nVertices())</code> are the parent
+   * vertices; <code>nChild</code> is the total.
+   */
+  public record Indices (int nChild,
+                         int[] edgeVertex,
+                         int[] faceVertex) { }
+
+  /** Return the child vertex numbering used by
+   * <code>subdivide(parent, ...)</code>, eg, to subdivide
+   * per-vertex data held in arrays.
+   */
+  public static final Indices indices (final IndexedCellComplex parent) {
+    final HalfEdges he = parent.halfEdges();
+    final int[] ev = new int[he.nHalfEdges()];
+    final int[] fv = (4 == he.arity()) ? new int[he.nFaces()] : null;
+    return new Indices(numberNewVertices(he, ev, fv), ev, fv); }
+
+  //--------------------------------------------------------------------
+
+  // ZeroSimplex name slots, shared with FaceHierarchy
+  static final int EDGE_SLOT = 0;
+  static final int FACE_SLOT = 1;
+
+  private static final ZeroSimplex[] childVertices (
+    final IndexedCellComplex parent,
+    final HalfEdges he,
+    final int[] edgeVertex,
+    final int[] faceVertex,
+    final int nChild) {
+    final int nv = parent.nVertices();
+    final int arity = he.arity();
+    final int[] pf = parent.faceIndices();
+    final ZeroSimplex[] vertices = new ZeroSimplex[nChild];
+    for (int v = 0; v < nv; v++) { vertices[v] = parent.vertex(v); }
+    // sequential, in index order, so creation order matches index
+    // order.
+    final int nf = he.nFaces();
+    for (int f = 0; f < nf; f++) {
+      for (int c = 0; c < arity; c++) {
+        final int h = (f * arity) + c;
+        if (null == vertices[edgeVertex[h]]) {
+          vertices[edgeVertex[h]] = ZeroSimplex.make(
+            parent.vertex(he.origin(h)),
+            parent.vertex(he.target(h)),
+            EDGE_SLOT); } }
+      if (null != faceVertex) {
+        final int i = arity * f;
+        vertices[faceVertex[f]] = ZeroSimplex.make(
+          parent.vertex(pf[i]),
+          parent.vertex(pf[i + 2]),
+          FACE_SLOT); } }
+    return vertices; }
+
+  //--------------------------------------------------------------------
+
+  private static final int[] triangleFaces (final int[] pf,
+                                            final int[] ev) {
+    final int nf = pf.length / 3;
+    final int[] cf = new int[12 * nf];
+    IntStream.range(0, nf).parallel().forEach(f -> {
+      final int i = 3 * f;
+      final int a = pf[i];
+      final int b = pf[i + 1];
+      final int c = pf[i + 2];
+      final int ab = ev[i];
+      final int bc = ev[i + 1];
+      final int ca = ev[i + 2];
+      final int j = 12 * f;
+      cf[j] = a; cf[j + 1] = ab; cf[j + 2] = ca;
+      cf[j + 3] = b; cf[j + 4] = bc; cf[j + 5] = ab;
+      cf[j + 6] = c; cf[j + 7] = ca; cf[j + 8] = bc;
+      cf[j + 9] = ab; cf[j + 10] = bc; cf[j + 11] = ca; });
+    return cf; }
+
+  private static final int[] quadFaces (final int[] pf,
+                                        final int[] ev,
+                                        final int[] fv) {
+    final int nf = pf.length / 4;
+    final int[] cf = new int[16 * nf];
+    IntStream.range(0, nf).parallel().forEach(f -> {
+      final int i = 4 * f;
+      final int z0 = pf[i];
+      final int z1 = pf[i + 1];
+      final int z2 = pf[i + 2];
+      final int z3 = pf[i + 3];
+      final int z01 = ev[i];
+      final int z12 = ev[i + 1];
+      final int z23 = ev[i + 2];
+      final int z30 = ev[i + 3];
+      final int z0123 = fv[f];
+      final int j = 16 * f;
+      cf[j] = z30; cf[j + 1] = z0; cf[j + 2] = z01; cf[j + 3] = z0123;
+      cf[j + 4] = z01; cf[j + 5] = z1; cf[j + 6] = z12; cf[j + 7] = z0123;
+      cf[j + 8] = z12; cf[j + 9] = z2; cf[j + 10] = z23; cf[j + 11] = z0123;
+      cf[j + 12] = z23; cf[j + 13] = z3; cf[j + 14] = z30; cf[j + 15] = z0123; });
+    return cf; }
+
+  //--------------------------------------------------------------------
+
+  private static final Object[] childPoints (final IndexedCellComplex parent,
+                                             final HalfEdges he,
+                                             final int[] ev,
+                                             final int[] fv,
+                                             final int nChild,
+                                             final IFn embedding,
+                                             final IFn midpoint) {
+    final int nv = parent.nVertices();
+    final int[] pf = parent.faceIndices();
+    final Object[] points = new Object[nChild];
+    IntStream.range(0, nv).parallel().forEach(v ->
+      points[v] = embedding.invoke(parent.vertex(v)));
+    // the half-edges of a non-manifold edge are all 'first', and
+    // write equal midpoints, lower index vertex first, to one slot.
+    IntStream.range(0, he.nHalfEdges()).parallel().forEach(h -> {
+      if (he.isFirst(h)) {
+        final int a = he.origin(h);
+        final int b = he.target(h);
+        points[ev[h]] = (a < b)
+          ? midpoint.invoke(points[a], points[b])
+          : midpoint.invoke(points[b], points[a]); } });
+    if (null != fv) {
+      IntStream.range(0, fv.length).parallel().forEach(f -> {
+        final int i = 4 * f;
+        points[fv[f]] = midpoint.invoke(
+          points[pf[i]], points[pf[i + 1]],
+          points[pf[i + 2]], points[pf[i + 3]]); }); }
+    return points; }
+
+  //--------------------------------------------------------------------
+  /** Subdivide <code>parent</code>, a triangle or quad complex,
+   * and compute the embedding of the child vertices.
+   *
+   * @param embedding maps parent vertices to points.
+   * @param midpoint returns a 'centroid' of 2 or 4 points.
+   */
+  public static final Result subdivide (final IndexedCellComplex parent,
+                                        final IFn embedding,
+                                        final IFn midpoint) {
+    return subdivide(parent, embedding, midpoint, true); }
+
+  /** Subdivide <code>parent</code>, a triangle or quad complex,
+   * without an embedding.
+   * Child face <code>4*f+s</code> is the <code>s</code>th child of
+   * parent face <code>f</code>,
+   * and parent vertex indices are unchanged in the child.
+   */
+  public static final IndexedCellComplex subdivide (
+    final IndexedCellComplex parent) {
+    return subdivide(parent, null, null, false).child(); }
+
+  private static final Result subdivide (final IndexedCellComplex parent,
+                                         final IFn embedding,
+                                         final IFn midpoint,
+                                         final boolean embed) {
+    final int arity = parent.arity();
+    if ((3 != arity) && (4 != arity)) {
+      throw new UnsupportedOperationException(
+        "Can't midpoint subdivide faces with " + arity + " vertices."); }
+    final HalfEdges he = parent.halfEdges();
+    final Indices indices = indices(parent);
+    final int[] ev = indices.edgeVertex();
+    final int[] fv = indices.faceVertex();
+    final int nChild = indices.nChild();
+    final ZeroSimplex[] vertices =
+      childVertices(parent, he, ev, fv, nChild);
+    final Object[] points = embed
+      ? childPoints(parent, he, ev, fv, nChild, embedding, midpoint)
+      : null;
+    final int[] pf = parent.faceIndices();
+    final IndexedCellComplex child = (3 == arity)
+      ? IndexedSimplicialComplex2D.make(vertices, triangleFaces(pf, ev))
+      : IndexedQuadComplex.make(vertices, quadFaces(pf, ev, fv));
+    return new Result(child, points); }
+
+  //--------------------------------------------------------------------
+  // disabled constructor
+  //--------------------------------------------------------------------
+  private MidpointSubdivision () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -8,13 +8,13 @@ import java.util.List;
  * AKA '(Abstract) Edge'. An ordered pair of zero simplexes.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-02-18
+ * @version 2026-10-18
  */
 public final class OneSimplex implements Cell {
 
-  private final int _count;
+  private final long _count;
 
-  private final int count () { return _count; }
+  private final long count () { return _count; }
 
   private final ZeroSimplex _z0;
 
@@ -32,7 +32,7 @@ public final class OneSimplex implements Cell {
   public final String toString () { return z0() + "->" + z1(); }
 
   @Override
-  public final int hashCode () { return _count; }
+  public final int hashCode () { return Long.hashCode(_count); }
 
 //  @Override
 //  public final boolean equals (final Object that) {
@@ -52,7 +52,7 @@ public final class OneSimplex implements Cell {
   @Override
   public final int compareTo (final @NonNull Object that) {
     assert that instanceof OneSimplex;
-    return _count - ((OneSimplex) that).count(); }
+    return Long.compare(_count, ((OneSimplex) that).count()); }
 
   //--------------------------------------------------------------------
   // Cell
@@ -11,7 +11,7 @@ import java.util.List;
  * of zero simplexes.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-02-18
+ * @version 2026-10-18
  */
 public final class Quad implements Cell {
 
@@ -38,8 +38,8 @@ public final class Quad implements Cell {
 
   //--------------------------------------------------------------------
 
-  private final int _count;
-  private final int count () { return _count; }
+  private final long _count;
+  private final long count () { return _count; }
 
   private final ZeroSimplex _z0;
   public final ZeroSimplex z0 () { return _z0; }
@@ -60,7 +60,7 @@ public final class Quad implements Cell {
       "Q[" + z0() + "," + z1() + z2() + "," + z3() + "]"; }
 
   @Override
-  public final int hashCode () { return _count; }
+  public final int hashCode () { return Long.hashCode(_count); }
 
 //  @Override
 //  public final boolean equals (final Object that) {
@@ -78,7 +78,7 @@ public final class Quad implements Cell {
    */
   @Override
   public final int compareTo (final @NonNull Object that) {
-    return _count - ((Quad) that).count(); }
+    return Long.compare(_count, ((Quad) that).count()); }
 
   //--------------------------------------------------------------------
   // Cell
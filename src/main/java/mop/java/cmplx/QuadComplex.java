@@ -1,16 +1,17 @@
 package mop.java.cmplx;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Abstract 2d quadrilateral cell complex.
- * Minimal representation: vertices and faces only.
+ * Minimal representation: vertices and faces only,
+ * plus an optional, lazily built, index and adjacency structure.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-03-10
+ * @version 2026-10-18
  */
 public final class QuadComplex implements CellComplex {
 
@@ -20,28 +21,120 @@ public final class QuadComplex implements CellComplex {
   private final List<Quad> _faces;
   public final List<Quad> faces () { return _faces; }
 
+  //--------------------------------------------------------------------
+  // adjacency
+  //--------------------------------------------------------------------
+
+  private volatile IndexedQuadComplex _indexed;
+
+  /** Return an equivalent complex with faces stored as packed vertex
+   * indices, built on the first call, and cached.
+   * Vertex and face indices are positions in {@link #vertices()}
+   * and {@link #faces()}.
+   */
+  public final IndexedQuadComplex indexed () {
+    IndexedQuadComplex indexed = _indexed;
+    if (null == indexed) {
+      synchronized (this) {
+        indexed = _indexed;
+        if (null == indexed) {
+          indexed = IndexedQuadComplex.make(this);
+          _indexed = indexed; } } }
+    return indexed; }
+
+  /** Return the adjacency index, built on the first call, and cached.
+   * Opt-in: costs nothing unless called.
+   */
+  public final HalfEdges halfEdges () { return indexed().halfEdges(); }
+
   //--------------------------------------------------------------------
   // construction
   //--------------------------------------------------------------------
-  /** Accumulate the sorted vertices from the provided faces.
+  private QuadComplex (final List<ZeroSimplex> vertices,
+                       final List<Quad> faces) {
+    _vertices = vertices;
+    _faces = faces; }
+
+  /** Trims <code>a</code> to <code>n</code> if necessary, rather than
+   * wrapping a sublist that would keep a builder's spare capacity.
+   */
+  private static final <T> List<T> unmodifiable (final T[] a,
+                                                 final int n) {
+    return Collections.unmodifiableList(
+      Arrays.asList((n == a.length) ? a : Arrays.copyOf(a, n))); }
+
+  /** Takes ownership of both arrays, without copying.
+   * <code>vertices</code> must be sorted, unique, and exactly the
+   * vertices of <code>faces</code>.
    */
+  public static final QuadComplex make (final ZeroSimplex[] vertices,
+                                        final Quad[] faces) {
+    assert isSorted(vertices);
+    return new QuadComplex(
+      unmodifiable(vertices, vertices.length),
+      unmodifiable(faces, faces.length)); }
 
-  private QuadComplex (final Collection<Quad> faces) {
-    final SortedSet<ZeroSimplex> vertices = new TreeSet<>();
-    for (final Quad f : faces) {
-      vertices.add(f.z0());
-      vertices.add(f.z1());
-      vertices.add(f.z2());
-      vertices.add(f.z3()); }
-    _vertices = List.copyOf(vertices);
-    _faces = List.copyOf(faces); }
+  private static final boolean isSorted (final ZeroSimplex[] vertices) {
+    for (int i = 1; i < vertices.length; i++) {
+      if (0 <= vertices[i - 1].compareTo(vertices[i])) { return false; } }
+    return true; }
 
   /** Accumulate the sorted vertices from the provided faces.
    * Do not retain a reference to <code>faces</code>.
    * Use unmodifiable lists internally.
    */
-  public static final QuadComplex make (final Collection<Quad> faces) {
-    return new QuadComplex(faces); }
+  public static final QuadComplex make (
+    final Collection<Quad> faces) {
+    return builder(faces.size()).addAll(faces).build(); }
+
+  //--------------------------------------------------------------------
+  /** Accumulates faces in a growable array, and their vertices in a
+   * primitive id keyed set, so {@link #build()} needs neither a
+   * <code>TreeSet</code> nor a copy of the face list.
+   * Single use, not thread safe.
+   */
+  public static final class Builder {
+
+    private Quad[] _faces;
+    private int _nFaces = 0;
+    private VertexSet _vertices;
+
+    public final Builder add (final Quad f) {
+      if (null == _faces) {
+        throw new IllegalStateException("Builder already built"); }
+      if (_nFaces == _faces.length) {
+        _faces = Arrays.copyOf(_faces, 2 * _nFaces); }
+      _faces[_nFaces++] = f;
+      _vertices.add(f.z0());
+      _vertices.add(f.z1());
+      _vertices.add(f.z2());
+      _vertices.add(f.z3());
+      return this; }
+
+    public final Builder addAll (final Iterable<Quad> faces) {
+      for (final Quad f : faces) { add(f); }
+      return this; }
+
+    /** Vertices in id order, faces in the order added. */
+    public final QuadComplex build () {
+      if (null == _faces) {
+        throw new IllegalStateException("Builder already built"); }
+      final QuadComplex c = new QuadComplex(
+        unmodifiable(_vertices.sorted(), _vertices.size()),
+        unmodifiable(_faces, _nFaces));
+      _faces = null;
+      _vertices = null;
+      return c; }
+
+    private Builder (final int expectedFaces) {
+      final int n = Math.max(16, expectedFaces);
+      _faces = new Quad[n];
+      _vertices = new VertexSet(n); } }
+
+  public static final Builder builder (final int expectedFaces) {
+    return new Builder(expectedFaces); }
+
+  public static final Builder builder () { return new Builder(16); }
 
   //--------------------------------------------------------------------
 } // end class
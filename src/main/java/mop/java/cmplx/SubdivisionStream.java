@@ -0,0 +1,297 @@
+package mop.java.cmplx;
+
+import clojure.lang.IFn;
+
+/**
+ * Depth-first traversal of the faces and vertices of the level
+ * <code>k</code> midpoint subdivision of a triangle complex,
+ * without building levels <code>1..k</code>.
+ * <p>
+ * Equivalent to <code>k</code> applications of
+ * {@link MidpointSubdivision}, except:
+ * <ul>
+ * <li>No {@link ZeroSimplex} is created for new vertices.
+ * Vertices are identified by <code>long</code> ids from a lattice
+ * numbering: base vertices keep their index in the base complex,
+ * followed by the <code>2<sup>k</sup>-1</code> interior points of each
+ * base edge, followed by the interior points of each base face.
+ * <li>Faces are visited depth first, so the <code>4<sup>k</sup></code>
+ * descendants of base face <code>f</code> are contiguous,
+ * starting at <code>f*4<sup>k</sup></code>.
+ * The faces, and their orientations, are the same as the iterated
+ * subdivision, but the order within each base face differs,
+ * since faces aren't rotated to put the minimum vertex first.
+ * </ul>
+ * Memory use is <code>O(k)</code>, beyond the base complex and points.
+ * <p>
+ * Points shared between faces are recomputed in each face, always as
+ * <code>midpoint(p,q)</code> with <code>p</code> the point with the
+ * smaller id, so every visit computes the same value;
+ * for symmetric <code>midpoint</code> functions, also the same value
+ * as the iterated subdivision.
+ * <code>midpoint</code> and <code>embedding</code> are as in
+ * {@link MidpointSubdivision}.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class SubdivisionStream {
+
+  //--------------------------------------------------------------------
+
+  @FunctionalInterface
+  public interface FaceConsumer {
+    void accept (long face,
+                 long v0, long v1, long v2,
+                 Object p0, Object p1, Object p2); }
+
+  @FunctionalInterface
+  public interface VertexConsumer {
+    void accept (long vertex, Object point); }
+
+  //--------------------------------------------------------------------
+
+  private final IndexedSimplicialComplex2D _base;
+  public final IndexedSimplicialComplex2D base () { return _base; }
+
+  private final int _level;
+  public final int level () { return _level; }
+
+  private final IFn _midpoint;
+
+  // base vertex points, by index
+  private final Object[] _points;
+
+  // base edge index, per base half-edge
+  private final int[] _edge;
+  private final int _nEdges;
+
+  // 2^level
+  private final int _n;
+
+  /** Number of vertices at <code>level()</code>. */
+  public final long nVertices () {
+    final long n = _n;
+    return _base.nVertices()
+      + (_nEdges * (n - 1L))
+      + (_base.nFaces() * (((n - 1L) * (n - 2L)) / 2L)); }
+
+  /** Number of faces at <code>level()</code>. */
+  public final long nFaces () {
+    return ((long) _base.nFaces()) << (2 * _level); }
+
+  //--------------------------------------------------------------------
+  // lattice ids
+  //--------------------------------------------------------------------
+  // Within base face f, with corners A,B,C, a level k vertex has
+  // integer barycentric coordinates (i,j,l), i+j+l = n = 2^k.
+
+  private final long edgeId (final int h,
+                             final int t) {
+    return _base.nVertices() + (_edge[h] * (_n - 1L)) + (t - 1); }
+
+  private final long id (final int f,
+                         final int i,
+                         final int j,
+                         final int l) {
+    final int f3 = 3 * f;
+    final int[] fi = _base.faceIndices();
+    final int a = fi[f3];
+    final int b = fi[f3 + 1];
+    final int c = fi[f3 + 2];
+    if (i == _n) { return a; }
+    if (j == _n) { return b; }
+    if (l == _n) { return c; }
+    // edge ids count from the smaller index end
+    if (0 == l) { return edgeId(f3, (a < b) ? j : i); }
+    if (0 == i) { return edgeId(f3 + 1, (b < c) ? l : j); }
+    if (0 == j) { return edgeId(f3 + 2, (c < a) ? i : l); }
+    final long n1 = _n - 1L;
+    final long interior = (n1 * (_n - 2L)) / 2L;
+    final long offset = ((i - 1L) * n1) - (((i - 1L) * i) / 2L);
+    return _base.nVertices()
+      + (_nEdges * n1)
+      + (f * interior)
+      + offset + (j - 1); }
+
+  private final Object midpoint (final long u,
+                                 final Object pu,
+                                 final long v,
+                                 final Object pv) {
+    return (u < v) ? _midpoint.invoke(pu, pv) : _midpoint.invoke(pv, pu); }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+  // per depth scratch: 3 corners, then 3 corners and 3 midpoints
+  private final class Stack {
+    final long[][] ids = new long[_level + 1][3];
+    final Object[][] points = new Object[_level + 1][3];
+    final int[][] coords = new int[_level + 1][9];
+    final long[][] ids6 = new long[_level + 1][6];
+    final Object[][] points6 = new Object[_level + 1][6];
+    final int[][] coords6 = new int[_level + 1][18]; }
+
+  private final Stack start (final int f) {
+    final Stack s = new Stack();
+    final int[] fi = _base.faceIndices();
+    for (int c = 0; c < 3; c++) {
+      final int v = fi[(3 * f) + c];
+      s.ids[0][c] = v;
+      s.points[0][c] = _points[v];
+      s.coords[0][(3 * c) + c] = _n; }
+    return s; }
+
+  private static final int[][] CHILDREN = {
+    { 0, 3, 5 }, { 1, 4, 3 }, { 2, 5, 4 }, { 3, 4, 5 } };
+
+  /** Recurse into the 4 children of the depth <code>d</code> triangle,
+   * passing leaf faces to <code>faces</code>, and new base face
+   * interior vertices to <code>vertices</code>, if not null.
+   * Return the next face index.
+   */
+  private final long descend (final int f,
+                              final Stack s,
+                              final int d,
+                              long face,
+                              final FaceConsumer faces,
+                              final VertexConsumer vertices) {
+    final long[] ids = s.ids[d];
+    final Object[] pts = s.points[d];
+    final int[] crd = s.coords[d];
+    if (d == _level) {
+      if (null != faces) {
+        faces.accept(face, ids[0], ids[1], ids[2], pts[0], pts[1], pts[2]); }
+      return face + 1; }
+    // corners 0,1,2 then midpoints 01, 12, 20 as 3, 4, 5
+    final long[] id6 = s.ids6[d];
+    final Object[] p6 = s.points6[d];
+    final int[] c6 = s.coords6[d];
+    for (int c = 0; c < 3; c++) {
+      id6[c] = ids[c];
+      p6[c] = pts[c];
+      System.arraycopy(crd, 3 * c, c6, 3 * c, 3); }
+    for (int c = 0; c < 3; c++) {
+      final int c1 = (c + 1) % 3;
+      final int m = 3 + c;
+      for (int k = 0; k < 3; k++) {
+        c6[(3 * m) + k] = (crd[(3 * c) + k] + crd[(3 * c1) + k]) / 2; }
+      final int i = c6[3 * m];
+      final int j = c6[(3 * m) + 1];
+      final int l = c6[(3 * m) + 2];
+      id6[m] = id(f, i, j, l);
+      p6[m] = midpoint(ids[c], pts[c], ids[c1], pts[c1]);
+      // each interior edge is in 2 triangles, with opposite orientations
+      if ((null != vertices)
+        && (0 < i) && (0 < j) && (0 < l)
+        && (ids[c] < ids[c1])) {
+        vertices.accept(id6[m], p6[m]); } }
+    final int d1 = d + 1;
+    for (final int[] child : CHILDREN) {
+      for (int c = 0; c < 3; c++) {
+        s.ids[d1][c] = id6[child[c]];
+        s.points[d1][c] = p6[child[c]];
+        System.arraycopy(c6, 3 * child[c], s.coords[d1], 3 * c, 3); }
+      face = descend(f, s, d1, face, faces, vertices); }
+    return face; }
+
+  /** Visit each level <code>k</code> face, in order, with its vertex ids
+   * and points.
+   */
+  public final void faces (final FaceConsumer consumer) {
+    long face = 0;
+    final int nf = _base.nFaces();
+    for (int f = 0; f < nf; f++) {
+      face = descend(f, start(f), 0, face, consumer, null); } }
+
+  //--------------------------------------------------------------------
+  // vertices
+  //--------------------------------------------------------------------
+
+  private final void edgePoints (final int h,
+                                 final int t0, final long id0,
+                                 final Object p0,
+                                 final int t1, final long id1,
+                                 final Object p1,
+                                 final VertexConsumer consumer) {
+    if (2 > (t1 - t0)) { return; }
+    final int t = (t0 + t1) / 2;
+    final long id = edgeId(h, t);
+    final Object p = midpoint(id0, p0, id1, p1);
+    consumer.accept(id, p);
+    edgePoints(h, t0, id0, p0, t, id, p, consumer);
+    edgePoints(h, t, id, p, t1, id1, p1, consumer); }
+
+  /** Visit each level <code>k</code> vertex once, with its point:
+   * base vertices, then base edge interiors, then base face interiors.
+   * Ids are not visited in increasing order.
+   */
+  public final void vertices (final VertexConsumer consumer) {
+    final int nv = _base.nVertices();
+    for (int v = 0; v < nv; v++) { consumer.accept(v, _points[v]); }
+    final HalfEdges he = _base.halfEdges();
+    final int nh = he.nHalfEdges();
+    for (int h = 0; h < nh; h++) {
+      if (he.isFirst(h)) {
+        final int a = Math.min(he.origin(h), he.target(h));
+        final int b = Math.max(he.origin(h), he.target(h));
+        edgePoints(h, 0, a, _points[a], _n, b, _points[b], consumer); } }
+    final int nf = _base.nFaces();
+    for (int f = 0; f < nf; f++) {
+      descend(f, start(f), 0, 0L, null, consumer); } }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private SubdivisionStream (final IndexedSimplicialComplex2D base,
+                             final IFn embedding,
+                             final IFn midpoint,
+                             final int level) {
+    _base = base;
+    _level = level;
+    _midpoint = midpoint;
+    _n = 1 << level;
+    final int nv = base.nVertices();
+    _points = new Object[nv];
+    for (int v = 0; v < nv; v++) {
+      _points[v] = embedding.invoke(base.vertex(v)); }
+    final HalfEdges he = base.halfEdges();
+    final int nh = he.nHalfEdges();
+    _edge = new int[nh];
+    int e = 0;
+    for (int h = 0; h < nh; h++) {
+      if (he.isFirst(h)) { _edge[h] = e++; } }
+    for (int h = 0; h < nh; h++) {
+      if (! he.isFirst(h)) { _edge[h] = _edge[he.twin(h)]; } }
+    _nEdges = e; }
+
+  /** Largest level whose face count,
+   * <code>base.nFaces()*4<sup>k</sup></code>, fits in a
+   * <code>long</code>, and whose edge lattice,
+   * <code>2<sup>k</sup></code>, fits in an <code>int</code>;
+   * 29 for an icosahedron.
+   * Face and vertex counts exceed <code>int</code> range from about
+   * level 14, so consumers should keep ids as <code>long</code>s.
+   */
+  public static final int maxLevel (
+    final IndexedSimplicialComplex2D base) {
+    return Math.min(
+      30, (Long.numberOfLeadingZeros(base.nFaces()) - 1) / 2); }
+
+  /** @param level 0 visits the base complex itself,
+   * at most {@link #maxLevel}.
+   */
+  public static final SubdivisionStream make (
+    final IndexedSimplicialComplex2D base,
+    final IFn embedding,
+    final IFn midpoint,
+    final int level) {
+    if ((level < 0) || (maxLevel(base) < level)) {
+      throw new IllegalArgumentException(
+        "Subdivision level out of range: " + level); }
+    return new SubdivisionStream(base, embedding, midpoint, level); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
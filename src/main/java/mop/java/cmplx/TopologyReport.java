@@ -0,0 +1,264 @@
+package mop.java.cmplx;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Topological validity of a 2d cell complex: non-manifold edges and
+ * vertices, inconsistent orientation, duplicate faces, boundary loops,
+ * and the Euler characteristic.
+ * <p>
+ * Computed in one parallel pass over the faces of the indexed form of
+ * the complex, using its cached {@link HalfEdges}, with per-thread
+ * primitive counters merged at the end.
+ * Each edge is examined by its smallest half-edge, and each vertex by
+ * its first outgoing half-edge, so nothing is counted twice, and there
+ * are no shared mutable structures.
+ * Cost is O(faces * degree), plus a sequential walk over the boundary
+ * half-edges.
+ * <p>
+ * Immutable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class TopologyReport {
+
+  private final int _nVertices;
+  public final int nVertices () { return _nVertices; }
+
+  private final long _nEdges;
+  /** Number of distinct unoriented edges. */
+  public final long nEdges () { return _nEdges; }
+
+  private final int _nFaces;
+  public final int nFaces () { return _nFaces; }
+
+  private final long _boundaryEdges;
+  /** Edges in exactly 1 face. */
+  public final long boundaryEdges () { return _boundaryEdges; }
+
+  private final int _boundaryLoops;
+  /** Loops of half-edges with no twin: the boundary, plus any
+   * non-manifold or inconsistently oriented edges.
+   * Found by following, from the target of each, the first such
+   * half-edge leaving it, so approximate around non-manifold vertices.
+   */
+  public final int boundaryLoops () { return _boundaryLoops; }
+
+  private final long _nonManifoldEdges;
+  /** Edges in more than 2 faces. */
+  public final long nonManifoldEdges () { return _nonManifoldEdges; }
+
+  private final long _inconsistentEdges;
+  /** Edges traversed in the same direction by 2 or more faces. */
+  public final long inconsistentEdges () { return _inconsistentEdges; }
+
+  private final long _nonManifoldVertices;
+  /** Vertices whose faces don't form a single fan, eg, where 2 cones
+   * meet at a point.
+   * Isolated vertices, in no face, aren't counted.
+   */
+  public final long nonManifoldVertices () { return _nonManifoldVertices; }
+
+  private final long _duplicateFaces;
+  /** Faces with the same vertices as an earlier face, in any order. */
+  public final long duplicateFaces () { return _duplicateFaces; }
+
+  /** <code>V - E + F</code>. 2 for a sphere. */
+  public final long eulerCharacteristic () {
+    return _nVertices - _nEdges + _nFaces; }
+
+  public final boolean isManifold () {
+    return (0 == _nonManifoldEdges) && (0 == _nonManifoldVertices); }
+
+  public final boolean isOriented () { return 0 == _inconsistentEdges; }
+
+  public final boolean isClosed () { return 0 == _boundaryEdges; }
+
+  /** Manifold, consistently oriented, without duplicate faces. */
+  public final boolean isValid () {
+    return isManifold() && isOriented() && (0 == _duplicateFaces); }
+
+  @Override
+  public final String toString () {
+    return "TopologyReport["
+      + "V=" + _nVertices
+      + ", E=" + _nEdges
+      + ", F=" + _nFaces
+      + ", chi=" + eulerCharacteristic()
+      + ", boundaryEdges=" + _boundaryEdges
+      + ", boundaryLoops=" + _boundaryLoops
+      + ", nonManifoldEdges=" + _nonManifoldEdges
+      + ", inconsistentEdges=" + _inconsistentEdges
+      + ", nonManifoldVertices=" + _nonManifoldVertices
+      + ", duplicateFaces=" + _duplicateFaces
+      + "]"; }
+
+  //--------------------------------------------------------------------
+  // per-thread counters
+  //--------------------------------------------------------------------
+
+  private static final class Counts {
+
+    private final HalfEdges _he;
+    private final int[] _faces;
+    private final int _arity;
+
+    long edges = 0;
+    long boundary = 0;
+    long nonManifoldEdges = 0;
+    long inconsistent = 0;
+    long nonManifoldVertices = 0;
+    long duplicates = 0;
+
+    Counts (final HalfEdges he,
+            final int[] faces) {
+      _he = he;
+      _faces = faces;
+      _arity = he.arity(); }
+
+    final void add (final Counts that) {
+      edges += that.edges;
+      boundary += that.boundary;
+      nonManifoldEdges += that.nonManifoldEdges;
+      inconsistent += that.inconsistent;
+      nonManifoldVertices += that.nonManifoldVertices;
+      duplicates += that.duplicates; }
+
+    final void face (final int f) {
+      final int h0 = f * _arity;
+      for (int h = h0; h < (h0 + _arity); h++) {
+        edge(h);
+        final int v = _faces[h];
+        if (_he.outHalfEdge(v, 0) == h) { vertex(v); } }
+      duplicate(f); }
+
+    //------------------------------------------------------------------
+    // edge a->b, if h is its smallest half-edge, in either direction
+
+    private final void edge (final int h) {
+      final int a = _he.origin(h);
+      final int b = _he.target(h);
+      int same = 0;
+      int opposite = 0;
+      final int na = _he.outDegree(a);
+      for (int i = 0; i < na; i++) {
+        final int g = _he.outHalfEdge(a, i);
+        if (_he.target(g) == b) {
+          if (g < h) { return; }
+          same++; } }
+      final int nb = _he.outDegree(b);
+      for (int i = 0; i < nb; i++) {
+        final int g = _he.outHalfEdge(b, i);
+        if (_he.target(g) == a) {
+          if (g < h) { return; }
+          opposite++; } }
+      edges++;
+      final int m = same + opposite;
+      if (1 == m) { boundary++; }
+      else if (2 < m) { nonManifoldEdges++; }
+      if ((1 < same) || (1 < opposite)) { inconsistent++; } }
+
+    //------------------------------------------------------------------
+    // Rotate around v from half-edge to half-edge via
+    // h -> twin(prev(h)). A manifold vertex has at most 1 half-edge
+    // with no predecessor (a boundary edge), and rotating from there,
+    // or from any half-edge if there is none, visits every outgoing
+    // half-edge once, ending on the boundary, or back at the start.
+
+    private final void vertex (final int v) {
+      final int n = _he.outDegree(v);
+      int start = _he.outHalfEdge(v, 0);
+      int open = 0;
+      for (int i = 0; i < n; i++) {
+        final int h = _he.outHalfEdge(v, i);
+        if (_he.isBoundary(h)) { open++; start = h; } }
+      if (1 < open) { nonManifoldVertices++; return; }
+      int h = start;
+      int k = 1;
+      while (k <= n) {
+        h = _he.twin(_he.prev(h));
+        if ((h < 0) || (h == start)) { break; }
+        k++; }
+      final boolean closed = (0 == open) ? (h == start) : (h < 0);
+      if ((! closed) || (k != n)) { nonManifoldVertices++; } }
+
+    //------------------------------------------------------------------
+    // count f if an earlier face, sharing its first vertex, has the
+    // same vertices
+
+    private final boolean contains (final int g,
+                                    final int v) {
+      final int g0 = g * _arity;
+      for (int c = 0; c < _arity; c++) {
+        if (_faces[g0 + c] == v) { return true; } }
+      return false; }
+
+    private final void duplicate (final int f) {
+      final int f0 = f * _arity;
+      final int v = _faces[f0];
+      final int n = _he.outDegree(v);
+      for (int i = 0; i < n; i++) {
+        final int g = _he.face(_he.outHalfEdge(v, i));
+        if (g < f) {
+          boolean same = true;
+          for (int c = 1; same && (c < _arity); c++) {
+            same = contains(g, _faces[f0 + c]); }
+          if (same) { duplicates++; return; } } } } }
+
+  //--------------------------------------------------------------------
+  // boundary loops
+  //--------------------------------------------------------------------
+
+  private static final int boundaryLoops (final HalfEdges he) {
+    final BitSet visited = new BitSet(he.nHalfEdges());
+    int loops = 0;
+    for (final int h0 : he.boundaryHalfEdges()) {
+      if (visited.get(h0)) { continue; }
+      loops++;
+      int h = h0;
+      while ((h >= 0) && (! visited.get(h))) {
+        visited.set(h);
+        final int b = he.target(h);
+        final int n = he.outDegree(b);
+        h = -1;
+        for (int i = 0; i < n; i++) {
+          final int g = he.outHalfEdge(b, i);
+          if (he.isBoundary(g)) { h = g; break; } } } }
+    return loops; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private TopologyReport (final IndexedCellComplex c) {
+    final HalfEdges he = c.halfEdges();
+    final int[] faces = c.faceIndices();
+    final Counts counts =
+      IntStream.range(0, c.nFaces()).parallel()
+      .collect(
+        () -> new Counts(he, faces),
+        Counts::face,
+        Counts::add);
+    _nVertices = c.nVertices();
+    _nEdges = counts.edges;
+    _nFaces = c.nFaces();
+    _boundaryEdges = counts.boundary;
+    _boundaryLoops = boundaryLoops(he);
+    _nonManifoldEdges = counts.nonManifoldEdges;
+    _inconsistentEdges = counts.inconsistent;
+    _nonManifoldVertices = counts.nonManifoldVertices;
+    _duplicateFaces = counts.duplicates; }
+
+  /** Check <code>c</code>, a triangle or quad complex, indexed or not,
+   * or a {@link FaceSubset}.
+   */
+  public static final TopologyReport make (final CellComplex c) {
+    final IndexedCellComplex ic =
+      (c instanceof FaceSubset s) ? s.toIndexed() : FaceSubset.indexed(c);
+    return new TopologyReport(ic); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
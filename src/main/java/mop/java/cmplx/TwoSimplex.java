@@ -10,7 +10,7 @@ import java.util.List;
  * triple of zero simplexes.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-02-18
+ * @version 2026-10-18
  */
 public final class TwoSimplex implements Cell {
 
@@ -31,8 +31,8 @@ public final class TwoSimplex implements Cell {
 
   //--------------------------------------------------------------------
 
-  private final int _count;
-  private final int count () { return _count; }
+  private final long _count;
+  private final long count () { return _count; }
 
   private final ZeroSimplex _z0;
   public final ZeroSimplex z0 () { return _z0; }
@@ -50,7 +50,7 @@ public final class TwoSimplex implements Cell {
     return z0() + "->" + z1() + "->" + z2(); }
 
   @Override
-  public final int hashCode () { return _count; }
+  public final int hashCode () { return Long.hashCode(_count); }
 
 //  @Override
 //  public final boolean equals (final Object that) {
@@ -70,7 +70,7 @@ public final class TwoSimplex implements Cell {
   public final int compareTo (final @NonNull Object that) {
     // TODO: compare to any Cell?
     assert that instanceof TwoSimplex;
-    return _count - ((TwoSimplex) that).count(); }
+    return Long.compare(_count, ((TwoSimplex) that).count()); }
 
   //--------------------------------------------------------------------
   // Cell
@@ -0,0 +1,105 @@
+package mop.java.cmplx;
+
+import java.util.Arrays;
+
+/**
+ * Growable set of {@link ZeroSimplex}, for the complex builders.
+ * <p>
+ * Membership is by identity count, in an open addressing table of
+ * primitive <code>long</code>s, so adds don't compare or chase
+ * pointers.
+ * {@link #sorted()} is O(n) if vertices were added in creation order,
+ * which is the usual case; otherwise it sorts the primitive ids.
+ * <p>
+ * Not thread safe.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+final class VertexSet {
+
+  // ids are non-negative
+  private static final long EMPTY = -1L;
+
+  private ZeroSimplex[] _vertices;
+  private int _size = 0;
+  final int size () { return _size; }
+
+  // in creation order so far?
+  private boolean _sorted = true;
+
+  private long[] _ids;
+  private int[] _index;
+  private int _mask;
+
+  //--------------------------------------------------------------------
+
+  private static final int slot (final long id,
+                                 final int mask) {
+    long h = id * 0x9e3779b97f4a7c15L;
+    h ^= (h >>> 32);
+    return ((int) h) & mask; }
+
+  private final void rehash (final int capacity) {
+    final long[] ids = new long[capacity];
+    final int[] index = new int[capacity];
+    Arrays.fill(ids, EMPTY);
+    final int mask = capacity - 1;
+    for (int i = 0; i < _size; i++) {
+      final long id = _vertices[i].count();
+      int j = slot(id, mask);
+      while (EMPTY != ids[j]) { j = (j + 1) & mask; }
+      ids[j] = id;
+      index[j] = i; }
+    _ids = ids;
+    _index = index;
+    _mask = mask; }
+
+  /** Add <code>z</code> if not already present. */
+  final void add (final ZeroSimplex z) {
+    final long id = z.count();
+    int j = slot(id, _mask);
+    while (EMPTY != _ids[j]) {
+      if (id == _ids[j]) { return; }
+      j = (j + 1) & _mask; }
+    if (_size == _vertices.length) {
+      _vertices = Arrays.copyOf(_vertices, 2 * _size); }
+    if ((0 < _size) && (_vertices[_size - 1].count() > id)) {
+      _sorted = false; }
+    _ids[j] = id;
+    _index[j] = _size;
+    _vertices[_size++] = z;
+    if ((2 * _size) > _mask) { rehash(2 * (_mask + 1)); } }
+
+  private final ZeroSimplex get (final long id) {
+    int j = slot(id, _mask);
+    while (id != _ids[j]) { j = (j + 1) & _mask; }
+    return _vertices[_index[j]]; }
+
+  /** Return the vertices, sorted, trimmed to size.
+   * May return the internal array.
+   */
+  final ZeroSimplex[] sorted () {
+    if (_sorted) {
+      return (_size == _vertices.length)
+        ? _vertices
+        : Arrays.copyOf(_vertices, _size); }
+    final long[] ids = new long[_size];
+    for (int i = 0; i < _size; i++) { ids[i] = _vertices[i].count(); }
+    Arrays.parallelSort(ids);
+    final ZeroSimplex[] vertices = new ZeroSimplex[_size];
+    for (int i = 0; i < _size; i++) { vertices[i] = get(ids[i]); }
+    return vertices; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  VertexSet (final int expected) {
+    final int n = Math.max(16, expected);
+    _vertices = new ZeroSimplex[n];
+    rehash(Integer.highestOneBit((2 * n) - 1) << 1); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
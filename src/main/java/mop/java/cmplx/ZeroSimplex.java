@@ -9,29 +9,110 @@ import java.util.List;
  * simplicial and quad complexes, and embedded meshes from them. Most
  * code uses <code>int</code>s as a low overhead substitute, but this is
  * dangerous with multiple meshes that may share vertices, edges, etc.
+ * <p>
+ * Names are for display only; identity is by object.
+ * Vertices generated by subdivision, cutting, etc., don't store a
+ * name. Instead they record a compact
+ * <code>(parent, other, level, slot)</code> tuple: the ids of the
+ * 1 or 2 parent vertices, the number of generations since an
+ * explicitly named vertex, and which child of the parent cell this is.
+ * The parents are an ordered pair, eg, a directed edge, so a child of
+ * a face can be distinguished from the child of a neighbor that
+ * shares the same 2 vertices.
+ * Distinct <code>(parent, other, slot)</code> keys give distinct
+ * names.
+ * The readable name is rendered from the tuple on each call to
+ * {@link #toString()}, and not retained,
+ * so name storage doesn't grow with subdivision depth.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-02-18
+ * @version 2026-10-18
  */
 public final class ZeroSimplex implements Cell {
   //--------------------------------------------------------------------
 
-  private final int _count;
-  private final int count () { return _count; }
+  private final long _count;
+  final long count () { return _count; }
 
+  // null for generated vertices
   private final String _name;
 
-  public final String name () { return _name; }
+  private final long _parent;
+  // negative for vertices with less than 2 parents
+  private final long _other;
+  private final int _level;
+  private final int _slot;
+
+  /** 0 for explicitly named vertices. */
+  public final int level () { return _level; }
+
+  /** Creation count; unique only within this process. */
+  public final long id () { return _count; }
+
+  /** Id of the (first) parent vertex,
+   * negative for explicitly named vertices.
+   */
+  public final long parent () { return _parent; }
+
+  /** Id of the second parent vertex,
+   * negative unless generated from 2 vertices.
+   */
+  public final long other () { return _other; }
+
+  public final int slot () { return _slot; }
+
+  /** Is this an explicitly named vertex? */
+  public final boolean isNamed () { return null != _name; }
+
+  public final String name () { return toString(); }
+
+  // index just past the decimal digits of non-negative x at
+  // s[i], or -1 if they aren't there
+  private static final int match (final String s,
+                                  final int i,
+                                  final long x) {
+    int end = i + 1;
+    for (long y = x / 10L; 0L != y; y /= 10L) { end++; }
+    if (s.length() < end) { return -1; }
+    long y = x;
+    for (int j = end - 1; j >= i; j--) {
+      if (s.charAt(j) != (char) ('0' + (int) (y % 10L))) { return -1; }
+      y /= 10L; }
+    return end; }
+
+  /** Does this vertex render as <code>name</code>?
+   * Doesn't build the rendered name of generated vertices,
+   * so cheap enough to test every vertex of a large complex.
+   */
+  public final boolean hasName (final String name) {
+    if (null != _name) { return _name.equals(name); }
+    if ((_parent < 0) || (_level < 0) || (_slot < 0)) {
+      return toString().equals(name); }
+    if (name.isEmpty() || ('z' != name.charAt(0))) { return false; }
+    int i = match(name, 1, _parent);
+    if (0 <= _other) {
+      if ((i < 0) || (i == name.length()) || ('-' != name.charAt(i))) {
+        return false; }
+      i = match(name, i + 1, _other); }
+    if ((i < 0) || (i == name.length()) || ('.' != name.charAt(i))) {
+      return false; }
+    i = match(name, i + 1, _level);
+    if ((i < 0) || (i == name.length()) || ('.' != name.charAt(i))) {
+      return false; }
+    return name.length() == match(name, i + 1, _slot); }
 
   //--------------------------------------------------------------------
   // Object
   //--------------------------------------------------------------------
 
   @Override
-  public final String toString () { return _name; }
+  public final String toString () {
+    if (null != _name) { return _name; }
+    if (_other < 0) { return "z" + _parent + "." + _level + "." + _slot; }
+    return "z" + _parent + "-" + _other + "." + _level + "." + _slot; }
 
   @Override
-  public final int hashCode () { return _count; }
+  public final int hashCode () { return Long.hashCode(_count); }
 
 //  @Override
 //  public final boolean equals (final Object that) {
@@ -52,7 +133,7 @@ public final class ZeroSimplex implements Cell {
   @Override
   public final int compareTo (final @NonNull Object that) {
     assert that instanceof ZeroSimplex : that.toString();
-    return _count - ((ZeroSimplex) that).count(); }
+    return Long.compare(_count, ((ZeroSimplex) that).count()); }
 
   //--------------------------------------------------------------------
   // Cell
@@ -75,12 +156,57 @@ public final class ZeroSimplex implements Cell {
   // construction
   //--------------------------------------------------------------------
 
-  private ZeroSimplex (final String name) {
-    _count = Cell.counter(); _name = name; }
+  private ZeroSimplex (final String name,
+                       final long parent,
+                       final long other,
+                       final int level,
+                       final int slot) {
+    _count = Cell.counter();
+    _name = name;
+    _parent = parent;
+    _other = other;
+    _level = level;
+    _slot = slot; }
 
   public static final ZeroSimplex make (final String name) {
-    return new ZeroSimplex(name);
+    return new ZeroSimplex(name, -1L, -1L, 0, 0);
   }
+
+  /** A vertex generated from <code>parent</code>,
+   * eg, its copy on the other side of a cut.
+   */
+  public static final ZeroSimplex make (final ZeroSimplex parent,
+                                        final int slot) {
+    return new ZeroSimplex(
+      null, parent._count, -1L, parent._level + 1, slot); }
+
+  /** A vertex generated from the edge (or other cell) spanned by
+   * <code>z0</code> and <code>z1</code>, eg, its midpoint.
+   * Order matters: <code>(z0, z1, slot)</code> and
+   * <code>(z1, z0, slot)</code> render different names.
+   */
+  public static final ZeroSimplex make (final ZeroSimplex z0,
+                                        final ZeroSimplex z1,
+                                        final int slot) {
+    return new ZeroSimplex(
+      null,
+      z0._count,
+      z1._count,
+      Math.max(z0._level, z1._level) + 1,
+      slot); }
+
+  /** A vertex read back from storage, rendering the same name as the
+   * saved vertex: <code>name</code> if not null, else the
+   * <code>(parent, other, level, slot)</code> tuple, whose parent ids
+   * were assigned by the process that saved it.
+   * Gets a new id, so restored vertices sort in creation order.
+   */
+  public static final ZeroSimplex restore (final String name,
+                                           final long parent,
+                                           final long other,
+                                           final int level,
+                                           final int slot) {
+    return new ZeroSimplex(name, parent, other, level, slot); }
   //--------------------------------------------------------------------
 } // end class
 //--------------------------------------------------------------------
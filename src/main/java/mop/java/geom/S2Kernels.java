@@ -0,0 +1,314 @@
+package mop.java.geom;
+
+/**
+ * Batch versions of the per point spherical geometry in
+ * <code>mop.geom.s2</code>, over packed <code>double[]</code>
+ * arrays of unit vectors, rather than <code>Point2S</code>
+ * and <code>Vector3D$Unit</code> objects:
+ * <ul>
+ * <li>triangles: 9 doubles each, <code>ax ay az bx by bz cx cy cz</code>.
+ * <li>edges: 6 doubles each, <code>ax ay az bx by bz</code>.
+ * <li>points: 3 doubles each, <code>x y z</code>,
+ * or 2, <code>azimuth polar</code>.
+ * </ul>
+ * Results agree with the <code>mop.geom.s2</code> functions to within
+ * a few ulps, not bit for bit; commons-geometry uses extended precision
+ * dot and cross products, and the vector path uses the
+ * <code>jdk.incubator.vector</code> transcendental functions.
+ * <p>
+ * Signed areas, midpoints, and angle to xyz conversion use
+ * <code>jdk.incubator.vector</code>, if S2KernelsVector was compiled
+ * (<code>mvn -Pvector</code>), the module is present
+ * (<code>--add-modules jdk.incubator.vector</code>),
+ * and it's not disabled with <code>-Dmop.s2.vector=false</code>,
+ * falling back to the scalar loops otherwise, and for the tail of each
+ * batch.
+ * Dateline crossing is branchy, and always scalar.
+ * <p>
+ * Output arrays are supplied by the caller, so repeated calls don't
+ * allocate.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class S2Kernels {
+
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  // same as the mop.geom.s2 Precision context
+  private static final double EPSILON = 1.0e-12;
+
+  private static final boolean eq (final double a,
+                                   final double b) {
+    return Math.abs(a - b) <= EPSILON; }
+
+  //--------------------------------------------------------------------
+  // optional vector path
+  //--------------------------------------------------------------------
+
+  /** Vector implementations, on <code>[0,n)</code>, returning the
+   * index where the scalar loop should take over.
+   */
+  interface Batch {
+    int signedAreas (double[] triangles, double[] areas, int n);
+    int midpoints (double[] edges, double[] midpoints, int n);
+    int s2ToR3 (double[] ap, double[] xyz, int n); }
+
+  private static final Batch VECTOR = vector();
+
+  private static final Batch vector () {
+    if (! Boolean.parseBoolean(
+      System.getProperty("mop.s2.vector", "true"))) { return null; }
+    if (ModuleLayer.boot()
+      .findModule("jdk.incubator.vector").isEmpty()) { return null; }
+    try {
+      return (Batch) Class.forName("mop.java.geom.S2KernelsVector")
+        .getDeclaredConstructor()
+        .newInstance(); }
+    catch (final ReflectiveOperationException | LinkageError e) {
+      return null; } }
+
+  /** Is the <code>jdk.incubator.vector</code> path in use? */
+  public static final boolean isVectorized () { return null != VECTOR; }
+
+  //--------------------------------------------------------------------
+  // signed area
+  //--------------------------------------------------------------------
+
+  /** The scalar loop, on <code>[start,end)</code>, whether or not
+   * {@link #isVectorized()}; eg, to check the vector path.
+   */
+  public static final void signedAreas (final double[] t,
+                                        final double[] areas,
+                                        final int start,
+                                        final int end) {
+    for (int i = start; i < end; i++) {
+      final int j = 9 * i;
+      final double ax = t[j];
+      final double ay = t[j + 1];
+      final double az = t[j + 2];
+      final double bx = t[j + 3];
+      final double by = t[j + 4];
+      final double bz = t[j + 5];
+      final double cx = t[j + 6];
+      final double cy = t[j + 7];
+      final double cz = t[j + 8];
+      final double triple =
+        (ax * ((by * cz) - (bz * cy)))
+        + (ay * ((bz * cx) - (bx * cz)))
+        + (az * ((bx * cy) - (by * cx)));
+      final double ab = (ax * bx) + (ay * by) + (az * bz);
+      final double bc = (bx * cx) + (by * cy) + (bz * cz);
+      final double ac = (ax * cx) + (ay * cy) + (az * cz);
+      areas[i] = 2.0 * Math.atan(triple / (1.0 + ab + bc + ac)); } }
+
+  /** Signed area of each of <code>n</code> spherical triangles,
+   * as in <code>mop.geom.s2/signed-area</code>.
+   */
+  public static final void signedAreas (final double[] triangles,
+                                        final double[] areas,
+                                        final int n) {
+    assert (9 * n) <= triangles.length;
+    assert n <= areas.length;
+    final int i =
+      (null == VECTOR) ? 0 : VECTOR.signedAreas(triangles, areas, n);
+    signedAreas(triangles, areas, i, n); }
+
+  //--------------------------------------------------------------------
+  // midpoints
+  //--------------------------------------------------------------------
+
+  /** The scalar loop, on <code>[start,end)</code>, whether or not
+   * {@link #isVectorized()}; eg, to check the vector path.
+   */
+  public static final void midpoints (final double[] e,
+                                      final double[] m,
+                                      final int start,
+                                      final int end) {
+    for (int i = start; i < end; i++) {
+      final int j = 6 * i;
+      final double x = e[j] + e[j + 3];
+      final double y = e[j + 1] + e[j + 4];
+      final double z = e[j + 2] + e[j + 5];
+      final double r = Math.sqrt((x * x) + (y * y) + (z * z));
+      final int k = 3 * i;
+      m[k] = x / r;
+      m[k + 1] = y / r;
+      m[k + 2] = z / r; } }
+
+  /** Midpoint of the great arc along each of <code>n</code> edges,
+   * as in the 2 point <code>mop.geom.s2</code> midpoint.
+   * Antipodal and zero length edges give <code>NaN</code>s.
+   */
+  public static final void midpoints (final double[] edges,
+                                      final double[] midpoints,
+                                      final int n) {
+    assert (6 * n) <= edges.length;
+    assert (3 * n) <= midpoints.length;
+    final int i =
+      (null == VECTOR) ? 0 : VECTOR.midpoints(edges, midpoints, n);
+    midpoints(edges, midpoints, i, n); }
+
+  //--------------------------------------------------------------------
+  // conversion
+  //--------------------------------------------------------------------
+
+  /** The scalar loop, on <code>[start,end)</code>, whether or not
+   * {@link #isVectorized()}; eg, to check the vector path.
+   */
+  public static final void s2ToR3 (final double[] ap,
+                                   final double[] xyz,
+                                   final int start,
+                                   final int end) {
+    for (int i = start; i < end; i++) {
+      final double azimuth = ap[2 * i];
+      final double polar = ap[(2 * i) + 1];
+      final double sinPolar = Math.sin(polar);
+      final int k = 3 * i;
+      xyz[k] = Math.cos(azimuth) * sinPolar;
+      xyz[k + 1] = Math.sin(azimuth) * sinPolar;
+      xyz[k + 2] = Math.cos(polar); } }
+
+  /** Unit vectors for <code>n</code> (azimuth, polar) pairs,
+   * as in <code>mop.geom.s2/s2-to-r3</code>.
+   */
+  public static final void s2ToR3 (final double[] ap,
+                                   final double[] xyz,
+                                   final int n) {
+    assert (2 * n) <= ap.length;
+    assert (3 * n) <= xyz.length;
+    final int i =
+      (null == VECTOR) ? 0 : VECTOR.s2ToR3(ap, xyz, n);
+    s2ToR3(ap, xyz, i, n); }
+
+  /** (azimuth, polar) pairs for <code>n</code> unit vectors,
+   * azimuth in <code>[0,2PI)</code>, as in
+   * <code>mop.geom.s2/r3-to-s2</code>.
+   */
+  public static final void r3ToS2 (final double[] xyz,
+                                   final double[] ap,
+                                   final int n) {
+    assert (3 * n) <= xyz.length;
+    assert (2 * n) <= ap.length;
+    for (int i = 0; i < n; i++) {
+      final int k = 3 * i;
+      ap[2 * i] = azimuth(xyz[k], xyz[k + 1]);
+      ap[(2 * i) + 1] = polar(xyz[k], xyz[k + 1], xyz[k + 2]); } }
+
+  private static final double azimuth (final double x,
+                                       final double y) {
+    final double a = Math.atan2(y, x);
+    return (a < 0.0) ? (a + TWO_PI) : a; }
+
+  private static final double polar (final double x,
+                                     final double y,
+                                     final double z) {
+    final double r = Math.sqrt((x * x) + (y * y) + (z * z));
+    return Math.acos(Math.max(-1.0, Math.min(1.0, z / r))); }
+
+  //--------------------------------------------------------------------
+  // dateline
+  //--------------------------------------------------------------------
+
+  /** Is <code>azimuth</code> 0 or <code>2PI</code>,
+   * to within the same precision as {@link #datelineCrossings}?
+   */
+  public static final boolean onDateline (final double azimuth) {
+    return eq(azimuth, 0.0) || eq(azimuth, TWO_PI); }
+
+  /** Is <code>polar</code> 0 or <code>PI</code>,
+   * to within the same precision as {@link #datelineCrossings}?
+   */
+  public static final boolean isPolar (final double polar) {
+    return eq(polar, 0.0) || eq(polar, Math.PI); }
+
+  // candidate on the dateline, strictly between from and to?
+  private static final boolean check (final double x,
+                                      final double y,
+                                      final double z,
+                                      final double[] fn,
+                                      final double[] tn) {
+    return onDateline(azimuth(x, y))
+      && (((x * fn[0]) + (y * fn[1]) + (z * fn[2])) > 0.0)
+      && (((x * tn[0]) + (y * tn[1]) + (z * tn[2])) < 0.0); }
+
+  private static final void cross (final double ax,
+                                   final double ay,
+                                   final double az,
+                                   final double bx,
+                                   final double by,
+                                   final double bz,
+                                   final double[] out) {
+    out[0] = (ay * bz) - (az * by);
+    out[1] = (az * bx) - (ax * bz);
+    out[2] = (ax * by) - (ay * bx); }
+
+  /** Where, if anywhere, each of <code>n</code> edges crosses the
+   * dateline (azimuth 0), as in
+   * <code>mop.geom.s2/dateline-crossing</code>:
+   * polar, meridional, and zero length edges don't cross;
+   * an endpoint on the dateline is returned as the crossing.
+   * Writes the crossing's xyz, or <code>NaN</code>s if none,
+   * and returns the number of crossings.
+   */
+  public static final int datelineCrossings (final double[] edges,
+                                             final double[] crossings,
+                                             final int n) {
+    assert (6 * n) <= edges.length;
+    assert (3 * n) <= crossings.length;
+    final double[] normal = new double[3];
+    final double[] fn = new double[3];
+    final double[] tn = new double[3];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      final int j = 6 * i;
+      final int k = 3 * i;
+      final double fx = edges[j];
+      final double fy = edges[j + 1];
+      final double fz = edges[j + 2];
+      final double tx = edges[j + 3];
+      final double ty = edges[j + 4];
+      final double tz = edges[j + 5];
+      final double fa = azimuth(fx, fy);
+      final double ta = azimuth(tx, ty);
+      crossings[k] = Double.NaN;
+      crossings[k + 1] = Double.NaN;
+      crossings[k + 2] = Double.NaN;
+      if (isPolar(polar(fx, fy, fz)) || isPolar(polar(tx, ty, tz))
+        || eq(fa, ta)) {
+        continue; }
+      if (onDateline(fa)) {
+        crossings[k] = fx; crossings[k + 1] = fy; crossings[k + 2] = fz;
+        count++;
+        continue; }
+      if (onDateline(ta)) {
+        crossings[k] = tx; crossings[k + 1] = ty; crossings[k + 2] = tz;
+        count++;
+        continue; }
+      cross(fx, fy, fz, tx, ty, tz, normal);
+      final double nx = normal[0];
+      final double ny = normal[1];
+      final double nz = normal[2];
+      cross(nx, ny, nz, fx, fy, fz, fn);
+      cross(nx, ny, nz, tx, ty, tz, tn);
+      // normal x (0,1,0), normalized
+      final double s = 1.0 / Math.sqrt((nz * nz) + (nx * nx));
+      final double cx = -nz * s;
+      final double cz = nx * s;
+      if (check(cx, 0.0, cz, fn, tn)) {
+        crossings[k] = cx; crossings[k + 1] = 0.0; crossings[k + 2] = cz;
+        count++; }
+      else if (check(-cx, 0.0, -cz, fn, tn)) {
+        crossings[k] = -cx; crossings[k + 1] = 0.0; crossings[k + 2] = -cz;
+        count++; } }
+    return count; }
+
+  //--------------------------------------------------------------------
+  // disabled constructor
+  //--------------------------------------------------------------------
+  private S2Kernels () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
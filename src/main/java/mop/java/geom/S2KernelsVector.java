@@ -0,0 +1,120 @@
+package mop.java.geom;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <code>jdk.incubator.vector</code> loops for {@link S2Kernels}.
+ * Only loaded, reflectively, if the module is present.
+ * <p>
+ * Inputs are interleaved (xyz per point), so loads and stores are
+ * gathers and scatters, with precomputed lane index maps.
+ * Each method handles whole vectors, and returns where the scalar
+ * loop should pick up the tail.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+final class S2KernelsVector implements S2Kernels.Batch {
+
+  private static final VectorSpecies<Double> SPECIES =
+    DoubleVector.SPECIES_PREFERRED;
+
+  private static final int LANES = SPECIES.length();
+
+  // lane i -> i * stride
+  private static final int[] lanes (final int stride) {
+    final int[] map = new int[LANES];
+    for (int i = 0; i < LANES; i++) { map[i] = i * stride; }
+    return map; }
+
+  private static final int[] STRIDE2 = lanes(2);
+  private static final int[] STRIDE3 = lanes(3);
+  private static final int[] STRIDE6 = lanes(6);
+  private static final int[] STRIDE9 = lanes(9);
+
+  private static final DoubleVector load (final double[] a,
+                                          final int offset,
+                                          final int[] map) {
+    return DoubleVector.fromArray(SPECIES, a, offset, map, 0); }
+
+  //--------------------------------------------------------------------
+
+  @Override
+  public final int signedAreas (final double[] t,
+                                final double[] areas,
+                                final int n) {
+    final int upper = SPECIES.loopBound(n);
+    for (int i = 0; i < upper; i += LANES) {
+      final int j = 9 * i;
+      final DoubleVector ax = load(t, j, STRIDE9);
+      final DoubleVector ay = load(t, j + 1, STRIDE9);
+      final DoubleVector az = load(t, j + 2, STRIDE9);
+      final DoubleVector bx = load(t, j + 3, STRIDE9);
+      final DoubleVector by = load(t, j + 4, STRIDE9);
+      final DoubleVector bz = load(t, j + 5, STRIDE9);
+      final DoubleVector cx = load(t, j + 6, STRIDE9);
+      final DoubleVector cy = load(t, j + 7, STRIDE9);
+      final DoubleVector cz = load(t, j + 8, STRIDE9);
+      final DoubleVector triple =
+        ax.mul(by.mul(cz).sub(bz.mul(cy)))
+        .add(ay.mul(bz.mul(cx).sub(bx.mul(cz))))
+        .add(az.mul(bx.mul(cy).sub(by.mul(cx))));
+      final DoubleVector ab = ax.mul(bx).add(ay.mul(by)).add(az.mul(bz));
+      final DoubleVector bc = bx.mul(cx).add(by.mul(cy)).add(bz.mul(cz));
+      final DoubleVector ac = ax.mul(cx).add(ay.mul(cy)).add(az.mul(cz));
+      triple.div(ab.add(1.0).add(bc).add(ac))
+        .lanewise(VectorOperators.ATAN)
+        .mul(2.0)
+        .intoArray(areas, i); }
+    return upper; }
+
+  @Override
+  public final int midpoints (final double[] e,
+                              final double[] m,
+                              final int n) {
+    final int upper = SPECIES.loopBound(n);
+    for (int i = 0; i < upper; i += LANES) {
+      final int j = 6 * i;
+      final DoubleVector x =
+        load(e, j, STRIDE6).add(load(e, j + 3, STRIDE6));
+      final DoubleVector y =
+        load(e, j + 1, STRIDE6).add(load(e, j + 4, STRIDE6));
+      final DoubleVector z =
+        load(e, j + 2, STRIDE6).add(load(e, j + 5, STRIDE6));
+      final DoubleVector r = x.mul(x).add(y.mul(y)).add(z.mul(z)).sqrt();
+      final int k = 3 * i;
+      x.div(r).intoArray(m, k, STRIDE3, 0);
+      y.div(r).intoArray(m, k + 1, STRIDE3, 0);
+      z.div(r).intoArray(m, k + 2, STRIDE3, 0); }
+    return upper; }
+
+  @Override
+  public final int s2ToR3 (final double[] ap,
+                           final double[] xyz,
+                           final int n) {
+    final int upper = SPECIES.loopBound(n);
+    for (int i = 0; i < upper; i += LANES) {
+      final int j = 2 * i;
+      final DoubleVector azimuth = load(ap, j, STRIDE2);
+      final DoubleVector polar = load(ap, j + 1, STRIDE2);
+      final DoubleVector sinPolar = polar.lanewise(VectorOperators.SIN);
+      final int k = 3 * i;
+      azimuth.lanewise(VectorOperators.COS).mul(sinPolar)
+        .intoArray(xyz, k, STRIDE3, 0);
+      azimuth.lanewise(VectorOperators.SIN).mul(sinPolar)
+        .intoArray(xyz, k + 1, STRIDE3, 0);
+      polar.lanewise(VectorOperators.COS)
+        .intoArray(xyz, k + 2, STRIDE3, 0); }
+    return upper; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  S2KernelsVector () { }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
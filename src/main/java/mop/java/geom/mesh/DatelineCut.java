@@ -0,0 +1,242 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import mop.java.geom.Point2U;
+import mop.java.geom.S2Kernels;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Cut a triangle complex embedded in S2 along the dateline
+ * (azimuth 0), returning a complex with a continuous
+ * {@link Point2U} embedding.
+ * <p>
+ * Each face whose edges cross the dateline is replaced by 1 or 2
+ * faces in which some corners are copies of the original vertex,
+ * with azimuth unwrapped by <code>+/-2PI</code>:
+ * a lone vertex on one side is unwrapped towards the other two;
+ * otherwise there is a copy of the face on each side.
+ * <p>
+ * Vertices on the dateline join whichever side the rest of the face
+ * is on, rather than counting as crossings.
+ * Poles are never unwrapped; their azimuth is arbitrary.
+ * <p>
+ * The cases and copies are the same as
+ * <code>mop.geom.mesh/dateline-cut-face</code>, but here a copy is
+ * shared by all faces that unwrap the same vertex in the same
+ * direction, via a dense (vertex, direction) table, so the cut complex
+ * stays connected on each side of the dateline.
+ * Originals no face uses any more are dropped.
+ * <p>
+ * Three passes:
+ * <ol>
+ * <li>parallel, over edges: classify dateline crossings with
+ * {@link S2Kernels#datelineCrossings}.
+ * <li>parallel, over faces: choose the case from the crossings
+ * and the side of the dateline each vertex is on, writing up to 2 output
+ * faces per input face, with unwrap direction per corner.
+ * <li>sequential, over output corners: allocate the copies,
+ * in face order, so vertex creation order is deterministic.
+ * </ol>
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class DatelineCut {
+
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  // edges per parallel dateline crossing batch
+  private static final int BATCH = 1024;
+
+  //--------------------------------------------------------------------
+  /** Cut complex and points, aligned with its vertex indices. */
+  public record Result (IndexedSimplicialComplex2D cut,
+                        Point2U[] points) { }
+
+  //--------------------------------------------------------------------
+  // edge classification
+  //--------------------------------------------------------------------
+
+  private static final boolean[] crossings (final HalfEdges he,
+                                            final int[] faces,
+                                            final double[] xyz) {
+    final int nh = he.nHalfEdges();
+    final int[] first = IntStream.range(0, nh)
+      .filter(he::isFirst)
+      .toArray();
+    final int ne = first.length;
+    final double[] points = new double[3 * ne];
+    IntStream.range(0, (ne + BATCH - 1) / BATCH).parallel().forEach(b -> {
+      final int start = b * BATCH;
+      final int n = Math.min(BATCH, ne - start);
+      final double[] edges = new double[6 * n];
+      for (int e = 0; e < n; e++) {
+        final int h = first[start + e];
+        System.arraycopy(xyz, 3 * faces[h], edges, 6 * e, 3);
+        System.arraycopy(xyz, 3 * he.target(h), edges, (6 * e) + 3, 3); }
+      final double[] out = new double[3 * n];
+      S2Kernels.datelineCrossings(edges, out, n);
+      System.arraycopy(out, 0, points, 3 * start, 3 * n); });
+    // crossing is symmetric in the edge's endpoints
+    final boolean[] crosses = new boolean[nh];
+    IntStream.range(0, ne).parallel().forEach(e ->
+      crosses[first[e]] = ! Double.isNaN(points[3 * e]));
+    IntStream.range(0, nh).parallel().forEach(h -> {
+      if (! he.isFirst(h)) { crosses[h] = crosses[he.twin(h)]; } });
+    return crosses; }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+  // Up to 2 output faces per input face, 6 corners,
+  // each a vertex index and an unwrap direction: -1, 0, or +1.
+
+  // which side of the dateline a vertex is on
+  private static final byte POLE = 0;
+  private static final byte DATELINE = 1;
+  private static final byte LOW = 2;
+  private static final byte HIGH = 3;
+
+  private static final byte side (final double azimuth,
+                                  final double polar) {
+    if (S2Kernels.isPolar(polar)) { return POLE; }
+    if (S2Kernels.onDateline(azimuth)) { return DATELINE; }
+    return (azimuth < Math.PI) ? LOW : HIGH; }
+
+  private static final void face (final int f,
+                                  final int[] faces,
+                                  final byte[] side,
+                                  final boolean[] crosses,
+                                  final int[] vertex,
+                                  final byte[] wrap,
+                                  final byte[] count) {
+    final int f3 = 3 * f;
+    final int o = 6 * f;
+    int nLow = 0;
+    int nHigh = 0;
+    boolean straddles = false;
+    for (int k = 0; k < 3; k++) {
+      final byte s0 = side[faces[f3 + k]];
+      final byte s1 = side[faces[f3 + ((k + 1) % 3)]];
+      if (LOW == s0) { nLow++; }
+      else if (HIGH == s0) { nHigh++; }
+      // an edge with an endpoint on the dateline always 'crosses'
+      straddles |= crosses[f3 + k] && (LOW <= s0) && (LOW <= s1);
+      vertex[o + k] = faces[f3 + k];
+      vertex[o + 3 + k] = faces[f3 + k]; }
+    count[f] = 1;
+    for (int k = 0; k < 3; k++) {
+      final byte s = side[faces[f3 + k]];
+      if (! straddles) {
+        // dateline vertices join the rest of the face
+        if ((DATELINE == s) && (0 == nLow) && (0 < nHigh)) {
+          wrap[o + k] = 1; } }
+      else if (2 == nHigh) {
+        // lone low vertex unwrapped up
+        if (LOW == s) { wrap[o + k] = 1; } }
+      else if (2 == nLow) {
+        // lone high vertex unwrapped down
+        if (HIGH == s) { wrap[o + k] = -1; } }
+      else {
+        // 1 low, 1 high, and a pole or dateline vertex:
+        // a copy of the face on each side
+        count[f] = 2;
+        if ((LOW == s) || (DATELINE == s)) { wrap[o + k] = 1; }
+        if (HIGH == s) { wrap[o + 3 + k] = -1; } } } }
+
+  //--------------------------------------------------------------------
+  /** Cut <code>c</code>, whose vertices <code>s2</code> maps to
+   * {@link Point2S}.
+   */
+  public static final Result cut (final IndexedSimplicialComplex2D c,
+                                  final IFn s2) {
+    final int nv = c.nVertices();
+    final int nf = c.nFaces();
+    final int[] faces = c.faceIndices();
+    final double[] azimuth = new double[nv];
+    final double[] polar = new double[nv];
+    final byte[] side = new byte[nv];
+    final double[] xyz = new double[3 * nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      final Point2S p = (Point2S) s2.invoke(c.vertex(v));
+      assert null != p : c.vertex(v);
+      polar[v] = p.getPolar();
+      side[v] = side(p.getAzimuth(), polar[v]);
+      // so a dateline vertex unwraps to exactly 2PI
+      azimuth[v] = (DATELINE == side[v]) ? 0.0 : p.getAzimuth();
+      final Vector3D x = p.getVector();
+      xyz[3 * v] = x.getX();
+      xyz[(3 * v) + 1] = x.getY();
+      xyz[(3 * v) + 2] = x.getZ(); });
+
+    final boolean[] crosses = crossings(c.halfEdges(), faces, xyz);
+
+    final int[] vertex = new int[6 * nf];
+    final byte[] wrap = new byte[6 * nf];
+    final byte[] count = new byte[nf];
+    IntStream.range(0, nf).parallel().forEach(f ->
+      face(f, faces, side, crosses, vertex, wrap, count));
+
+    // copies of vertex v: 2v for -2PI, 2v+1 for +2PI
+    final int[] copy = new int[2 * nv];
+    Arrays.fill(copy, -1);
+    final ZeroSimplex[] vertices = Arrays.copyOf(c.vertices()
+      .toArray(new ZeroSimplex[0]), nv + (6 * nf));
+    final Point2U[] points = new Point2U[vertices.length];
+    IntStream.range(0, nv).parallel().forEach(v ->
+      points[v] = Point2U.of(azimuth[v], polar[v]));
+    final boolean[] used = new boolean[vertices.length];
+    int next = nv;
+    int nOut = 0;
+    for (int f = 0; f < nf; f++) {
+      final int o = 6 * f;
+      for (int i = o; i < (o + (3 * count[f])); i++) {
+        final int v = vertex[i];
+        final int w = wrap[i];
+        if (0 != w) {
+          final int slot = (2 * v) + ((w > 0) ? 1 : 0);
+          if (copy[slot] < 0) {
+            copy[slot] = next;
+            vertices[next] = ZeroSimplex.make(c.vertex(v), (w > 0) ? 1 : 0);
+            points[next] = Point2U.of(azimuth[v] + (w * TWO_PI), polar[v]);
+            next++; }
+          vertex[i] = copy[slot]; }
+        used[vertex[i]] = true; }
+      nOut += count[f]; }
+
+    // drop unused originals, and compact
+    final int[] remap = new int[next];
+    int n = 0;
+    for (int v = 0; v < next; v++) { remap[v] = used[v] ? n++ : -1; }
+    final ZeroSimplex[] cutVertices = new ZeroSimplex[n];
+    final Point2U[] cutPoints = new Point2U[n];
+    for (int v = 0; v < next; v++) {
+      if (used[v]) {
+        cutVertices[remap[v]] = vertices[v];
+        cutPoints[remap[v]] = points[v]; } }
+    final int[] cutFaces = new int[3 * nOut];
+    int j = 0;
+    for (int f = 0; f < nf; f++) {
+      final int o = 6 * f;
+      for (int i = o; i < (o + (3 * count[f])); i++) {
+        cutFaces[j++] = remap[vertex[i]]; } }
+    return new Result(
+      IndexedSimplicialComplex2D.make(cutVertices, cutFaces),
+      cutPoints); }
+
+  //--------------------------------------------------------------------
+  // disabled constructor
+  //--------------------------------------------------------------------
+  private DatelineCut () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
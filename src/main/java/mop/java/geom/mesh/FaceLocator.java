@@ -0,0 +1,311 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.CellComplex;
+import mop.java.cmplx.FaceSubset;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.SimplicialComplex2D;
+import mop.java.cmplx.TwoSimplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Point location on a triangle mesh embedded in S2: which face
+ * contains a given point, and where in the face.
+ * <p>
+ * A face-bucket grid, uniform in azimuth and polar angle.
+ * Each face is bounded by the smallest cap, centered on its vertex
+ * centroid, that contains its vertices, and so, being less than a
+ * hemisphere, the whole spherical triangle.
+ * The face is listed in every grid cell that the cap's
+ * (azimuth, polar) bounding box overlaps.
+ * A query tests only the faces listed in the point's cell,
+ * so costs O(1) on average for meshes with roughly uniform face
+ * size, such as midpoint subdivided icosahedra, rather than the
+ * O(log n) of a hierarchical descent, which would also need the
+ * subdivision ancestry.
+ * <p>
+ * Barycentric coordinates are the gnomonic ones: the normalized
+ * triple products <code>p.(b x c)</code>, <code>p.(c x a)</code>,
+ * <code>p.(a x b)</code>, which are also the containment tests,
+ * in the corner order of the face's {@link TwoSimplex}.
+ * <p>
+ * Building is a parallel pass over the faces for their cell ranges,
+ * then a sequential counting sort into the buckets, so each bucket
+ * lists its faces in index order.
+ * Queries are read only, and the batch version runs in parallel.
+ * <p>
+ * Immutable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class FaceLocator {
+
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  // tolerance for points on, or numerically just outside, an edge
+  private static final double EPSILON = 1.0e-12;
+
+  private final IndexedSimplicialComplex2D _cmplx;
+  public final IndexedSimplicialComplex2D cmplx () { return _cmplx; }
+
+  // unit vector per vertex
+  private final double[] _xyz;
+
+  private final int _nPolar;
+  private final int _nAzimuth;
+  private final double _dPolar;
+  private final double _dAzimuth;
+
+  // faces in cell k are _buckets[_start[k].._start[k+1])
+  private final int[] _start;
+  private final int[] _buckets;
+
+  /** Number of grid cells. */
+  public final int nCells () { return _nPolar * _nAzimuth; }
+
+  /** Average number of faces listed per cell. */
+  public final double meanBucketSize () {
+    return ((double) _buckets.length) / nCells(); }
+
+  //--------------------------------------------------------------------
+  /** Containing face and barycentric coordinates, in the corner
+   * order of the face.
+   */
+  public record Location (int index,
+                          TwoSimplex face,
+                          double b0,
+                          double b1,
+                          double b2) { }
+
+  //--------------------------------------------------------------------
+  // grid
+  //--------------------------------------------------------------------
+
+  private final int row (final double polar) {
+    return Math.min(_nPolar - 1, Math.max(0, (int) (polar / _dPolar))); }
+
+  private final int column (final double azimuth) {
+    final int j = (int) Math.floor(azimuth / _dAzimuth);
+    return Math.floorMod(j, _nAzimuth); }
+
+  private static final double azimuth (final double x,
+                                       final double y) {
+    final double a = Math.atan2(y, x);
+    return (a < 0.0) ? (a + TWO_PI) : a; }
+
+  private static final double polar (final double x,
+                                     final double y,
+                                     final double z) {
+    final double r = Math.sqrt((x * x) + (y * y) + (z * z));
+    return Math.acos(Math.max(-1.0, Math.min(1.0, z / r))); }
+
+  private final int cell (final double x,
+                          final double y,
+                          final double z) {
+    return (row(polar(x, y, z)) * _nAzimuth) + column(azimuth(x, y)); }
+
+  //--------------------------------------------------------------------
+  // queries
+  //--------------------------------------------------------------------
+
+  private final double triple (final double px,
+                               final double py,
+                               final double pz,
+                               final int a,
+                               final int b) {
+    final double[] v = _xyz;
+    final int i = 3 * a;
+    final int j = 3 * b;
+    final double ax = v[i];
+    final double ay = v[i + 1];
+    final double az = v[i + 2];
+    final double bx = v[j];
+    final double by = v[j + 1];
+    final double bz = v[j + 2];
+    return (px * ((ay * bz) - (az * by)))
+      + (py * ((az * bx) - (ax * bz)))
+      + (pz * ((ax * by) - (ay * bx))); }
+
+  /** Index of the face containing the unit vector <code>(x,y,z)</code>,
+   * or -1 if there is none, eg, for a mesh that doesn't cover the
+   * sphere.
+   * Writes the barycentric coordinates to
+   * <code>barycentric[offset..offset+2]</code>, if a face is found.
+   */
+  public final int locate (final double x,
+                           final double y,
+                           final double z,
+                           final double[] barycentric,
+                           final int offset) {
+    final int[] faces = _cmplx.faceIndices();
+    final int k = cell(x, y, z);
+    for (int i = _start[k]; i < _start[k + 1]; i++) {
+      final int f = _buckets[i];
+      final int f3 = 3 * f;
+      final int a = faces[f3];
+      final int b = faces[f3 + 1];
+      final int c = faces[f3 + 2];
+      final double ta = triple(x, y, z, b, c);
+      if (ta < -EPSILON) { continue; }
+      final double tb = triple(x, y, z, c, a);
+      if (tb < -EPSILON) { continue; }
+      final double tc = triple(x, y, z, a, b);
+      if (tc < -EPSILON) { continue; }
+      final double s = ta + tb + tc;
+      barycentric[offset] = ta / s;
+      barycentric[offset + 1] = tb / s;
+      barycentric[offset + 2] = tc / s;
+      return f; }
+    return -1; }
+
+  /** Containing face, or <code>null</code> if there is none. */
+  public final Location locate (final Point2S p) {
+    final Vector3D v = p.getVector();
+    final double[] b = new double[3];
+    final int f = locate(v.getX(), v.getY(), v.getZ(), b, 0);
+    if (f < 0) { return null; }
+    return new Location(f, _cmplx.faces().get(f), b[0], b[1], b[2]); }
+
+  /** Locate <code>n</code> unit vectors, packed <code>x y z</code>,
+   * in parallel, writing a face index (or -1) per point to
+   * <code>faces</code>, and 3 barycentric coordinates per point
+   * to <code>barycentric</code>.
+   * Returns the number of points not located.
+   */
+  public final int locate (final double[] xyz,
+                           final int[] faces,
+                           final double[] barycentric,
+                           final int n) {
+    assert (3 * n) <= xyz.length;
+    assert n <= faces.length;
+    assert (3 * n) <= barycentric.length;
+    return (int) IntStream.range(0, n).parallel()
+      .filter(i -> {
+        final int i3 = 3 * i;
+        faces[i] = locate(xyz[i3], xyz[i3 + 1], xyz[i3 + 2],
+                          barycentric, i3);
+        return faces[i] < 0; })
+      .count(); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+  // Cell range of face f, as rows [r0,r1], and columns c0 + [0,span),
+  // modulo the number of columns.
+
+  private final void bounds (final int f,
+                             final int[] faces,
+                             final int[] ranges) {
+    final double[] v = _xyz;
+    final int f3 = 3 * f;
+    final int a = 3 * faces[f3];
+    final int b = 3 * faces[f3 + 1];
+    final int c = 3 * faces[f3 + 2];
+    double cx = v[a] + v[b] + v[c];
+    double cy = v[a + 1] + v[b + 1] + v[c + 1];
+    double cz = v[a + 2] + v[b + 2] + v[c + 2];
+    final double s = Math.sqrt((cx * cx) + (cy * cy) + (cz * cz));
+    cx /= s; cy /= s; cz /= s;
+    final double cos = Math.min(
+      (cx * v[a]) + (cy * v[a + 1]) + (cz * v[a + 2]),
+      Math.min(
+        (cx * v[b]) + (cy * v[b + 1]) + (cz * v[b + 2]),
+        (cx * v[c]) + (cy * v[c + 1]) + (cz * v[c + 2])));
+    // pad for rounding, and for points just outside an edge
+    final double r =
+      Math.acos(Math.max(-1.0, Math.min(1.0, cos))) + 1.0e-9;
+    final int k = 4 * f;
+    if ((! Double.isFinite(s)) || (0.0 == s) || (r >= (0.5 * Math.PI))) {
+      // degenerate, or at least a hemisphere: everywhere
+      ranges[k] = 0; ranges[k + 1] = _nPolar - 1;
+      ranges[k + 2] = 0; ranges[k + 3] = _nAzimuth;
+      return; }
+    final double polar = polar(cx, cy, cz);
+    ranges[k] = row(polar - r);
+    ranges[k + 1] = row(polar + r);
+    if (((polar - r) <= 0.0) || ((polar + r) >= Math.PI)) {
+      // contains a pole
+      ranges[k + 2] = 0; ranges[k + 3] = _nAzimuth;
+      return; }
+    final double azimuth = azimuth(cx, cy);
+    final double half =
+      Math.asin(Math.min(1.0, Math.sin(r) / Math.sin(polar)));
+    final int c0 = (int) Math.floor((azimuth - half) / _dAzimuth);
+    final int c1 = (int) Math.floor((azimuth + half) / _dAzimuth);
+    ranges[k + 2] = Math.floorMod(c0, _nAzimuth);
+    ranges[k + 3] = Math.min(_nAzimuth, 1 + c1 - c0); }
+
+  private FaceLocator (final IndexedSimplicialComplex2D cmplx,
+                       final double[] xyz) {
+    _cmplx = cmplx;
+    _xyz = xyz;
+    final int nf = cmplx.nFaces();
+    // about 1 cell per face
+    _nPolar = Math.max(1, (int) Math.ceil(Math.sqrt(nf / 2.0)));
+    _nAzimuth = 2 * _nPolar;
+    _dPolar = Math.PI / _nPolar;
+    _dAzimuth = TWO_PI / _nAzimuth;
+
+    final int[] faces = cmplx.faceIndices();
+    final int[] ranges = new int[4 * nf];
+    IntStream.range(0, nf).parallel().forEach(f ->
+      bounds(f, faces, ranges));
+
+    final int nCells = _nPolar * _nAzimuth;
+    final int[] start = new int[nCells + 1];
+    for (int f = 0; f < nf; f++) {
+      final int k = 4 * f;
+      for (int row = ranges[k]; row <= ranges[k + 1]; row++) {
+        for (int j = 0; j < ranges[k + 3]; j++) {
+          final int col = (ranges[k + 2] + j) % _nAzimuth;
+          start[(row * _nAzimuth) + col + 1]++; } } }
+    for (int i = 0; i < nCells; i++) { start[i + 1] += start[i]; }
+    final int[] next = Arrays.copyOf(start, nCells);
+    final int[] buckets = new int[start[nCells]];
+    for (int f = 0; f < nf; f++) {
+      final int k = 4 * f;
+      for (int row = ranges[k]; row <= ranges[k + 1]; row++) {
+        for (int j = 0; j < ranges[k + 3]; j++) {
+          final int col = (ranges[k + 2] + j) % _nAzimuth;
+          buckets[next[(row * _nAzimuth) + col]++] = f; } } }
+    _start = start;
+    _buckets = buckets; }
+
+  /** <code>s2</code> maps the vertices of <code>cmplx</code> to
+   * {@link Point2S}.
+   */
+  public static final FaceLocator make (
+    final IndexedSimplicialComplex2D cmplx,
+    final IFn s2) {
+    final int nv = cmplx.nVertices();
+    final double[] xyz = new double[3 * nv];
+    IntStream.range(0, nv).parallel().forEach(i -> {
+      final Point2S p = (Point2S) s2.invoke(cmplx.vertex(i));
+      assert null != p : cmplx.vertex(i);
+      final Vector3D v = p.getVector();
+      xyz[3 * i] = v.getX();
+      xyz[(3 * i) + 1] = v.getY();
+      xyz[(3 * i) + 2] = v.getZ(); });
+    return new FaceLocator(cmplx, xyz); }
+
+  /** Index the faces of a mesh with a {@link Point2S} embedding.
+   * Face indices are those of the indexed form of its complex.
+   */
+  public static final FaceLocator make (final TriangleMesh mesh) {
+    final CellComplex c = mesh.cmplx();
+    final IndexedSimplicialComplex2D ic = switch (c) {
+      case IndexedSimplicialComplex2D isc -> isc;
+      case SimplicialComplex2D sc -> sc.indexed();
+      case FaceSubset fs -> (IndexedSimplicialComplex2D) fs.toIndexed();
+      default -> throw new UnsupportedOperationException(
+        "Can't locate points in " + c.getClass()); };
+    return make(ic, mesh.embedding()); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,219 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.geom.Point2U;
+import org.apache.commons.geometry.euclidean.twod.Vector2D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streaming <a href="https://datatracker.ietf.org/doc/html/rfc7946">
+ * geojson</a> writer for triangle and quad meshes.
+ * <p>
+ * Walks the packed face indices of an {@link IndexedCellComplex},
+ * writing each vertex's coordinates straight to a
+ * {@link JsonGenerator}, so memory use doesn't depend on the size of
+ * the mesh, and no face objects are created.
+ * <p>
+ * Coordinates, by embedding codomain:
+ * <ul>
+ * <li>{@link Point2S}: (longitude,latitude) in degrees, longitude in
+ * [-180,180).
+ * <li>{@link Point2U}: (longitude,latitude) in degrees, without
+ * wrapping the longitude, so multiply wrapped meshes stay continuous,
+ * which the spec doesn't allow.
+ * <li>{@link Vector2D}: (x,y), as 'projected coordinates'.
+ * </ul>
+ * Faces aren't cut at the 180 meridian;
+ * see {@link DatelineCut}.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class GeoJson {
+
+  /** One <code>Polygon</code> Feature per face, with the face index
+   * as its id, or all faces in a single <code>MultiPolygon</code>
+   * Feature.
+   */
+  public enum Geometry { FEATURES, MULTIPOLYGON }
+
+  //--------------------------------------------------------------------
+
+  private final JsonGenerator _generator;
+  private final IndexedCellComplex _cmplx;
+  private final IFn _embedding;
+  // negative for full double precision
+  private final int _digits;
+  private final double _scale;
+  // reused for every coordinate
+  private final double[] _xy = new double[2];
+  private final char[] _chars = new char[32];
+
+  //--------------------------------------------------------------------
+  // coordinates
+
+  /** Write the 2d coordinates of <code>p</code> into <code>xy</code>.
+   */
+  public static final void coordinates (final Object p,
+                                       final double[] xy) {
+    switch (p) {
+      case Point2S s -> {
+        final double azimuth = Math.toDegrees(s.getAzimuth());
+        xy[0] = (azimuth < 180.0) ? azimuth : azimuth - 360.0;
+        xy[1] = 90.0 - Math.toDegrees(s.getPolar()); }
+      case Point2U u -> {
+        xy[0] = Math.toDegrees(u.getU());
+        xy[1] = 90.0 - Math.toDegrees(u.getV()); }
+      case Vector2D v -> {
+        xy[0] = v.getX();
+        xy[1] = v.getY(); }
+      default -> throw new IllegalArgumentException(
+        "No geojson coordinates for " + p.getClass()); } }
+
+  /** Write <code>x</code> rounded to <code>digits</code> after the
+   * decimal point, without trailing zeros, and without going through
+   * a <code>String</code>.
+   */
+  private final void number (final double x) throws IOException {
+    final double scaled = x * _scale;
+    if ((_digits < 0) || !(Math.abs(scaled) < 0x1.0p53)) {
+      _generator.writeNumber(x);
+      return; }
+    long m = Math.abs(Math.round(scaled));
+    final boolean negative = (scaled < 0.0) && (0L != m);
+    int end = _chars.length;
+    int i = end;
+    for (int k = 0; k < _digits; k++) {
+      final int d = (int) (m % 10L);
+      m /= 10L;
+      // drop trailing zeros
+      if ((i == end) && (0 == d)) { end--; i--; continue; }
+      _chars[--i] = (char) ('0' + d); }
+    if (i < end) { _chars[--i] = '.'; }
+    else { i = end = _chars.length; }
+    do {
+      _chars[--i] = (char) ('0' + (int) (m % 10L));
+      m /= 10L; }
+    while (0L != m);
+    if (negative) { _chars[--i] = '-'; }
+    _generator.writeNumber(_chars, i, end - i); }
+
+  private final void position (final Object vertex) throws IOException {
+    coordinates(_embedding.invoke(vertex), _xy);
+    _generator.writeStartArray();
+    number(_xy[0]);
+    number(_xy[1]);
+    _generator.writeEndArray(); }
+
+  /** Closed linear ring around the face's vertices, in order. */
+  private final void polygon (final int face) throws IOException {
+    final int arity = _cmplx.arity();
+    _generator.writeStartArray();
+    _generator.writeStartArray();
+    for (int k = 0; k < arity; k++) {
+      position(_cmplx.vertex(_cmplx.vertexIndex(face, k))); }
+    position(_cmplx.vertex(_cmplx.vertexIndex(face, 0)));
+    _generator.writeEndArray();
+    _generator.writeEndArray(); }
+
+  //--------------------------------------------------------------------
+
+  private final void features () throws IOException {
+    final JsonGenerator g = _generator;
+    final int nf = _cmplx.nFaces();
+    for (int f = 0; f < nf; f++) {
+      g.writeStartObject();
+      g.writeStringField("type", "Feature");
+      g.writeNumberField("id", f);
+      g.writeObjectFieldStart("properties");
+      g.writeEndObject();
+      g.writeObjectFieldStart("geometry");
+      g.writeStringField("type", "Polygon");
+      g.writeFieldName("coordinates");
+      polygon(f);
+      g.writeEndObject();
+      g.writeEndObject(); } }
+
+  private final void multiPolygon () throws IOException {
+    final JsonGenerator g = _generator;
+    g.writeStartObject();
+    g.writeStringField("type", "Feature");
+    g.writeObjectFieldStart("properties");
+    g.writeEndObject();
+    g.writeObjectFieldStart("geometry");
+    g.writeStringField("type", "MultiPolygon");
+    g.writeArrayFieldStart("coordinates");
+    final int nf = _cmplx.nFaces();
+    for (int f = 0; f < nf; f++) { polygon(f); }
+    g.writeEndArray();
+    g.writeEndObject();
+    g.writeEndObject(); }
+
+  private final void featureCollection (final Geometry geometry)
+    throws IOException {
+    _generator.writeStartObject();
+    _generator.writeStringField("type", "FeatureCollection");
+    _generator.writeArrayFieldStart("features");
+    switch (geometry) {
+      case FEATURES -> features();
+      case MULTIPOLYGON -> multiPolygon(); }
+    _generator.writeEndArray();
+    _generator.writeEndObject(); }
+
+  //--------------------------------------------------------------------
+
+  private GeoJson (final JsonGenerator generator,
+                   final IndexedCellComplex cmplx,
+                   final IFn embedding,
+                   final int digits) {
+    _generator = generator;
+    _cmplx = cmplx;
+    _embedding = embedding;
+    _digits = Math.min(digits, 17);
+    _scale = (digits < 0) ? 1.0 : Math.pow(10.0, _digits); }
+
+  /** Write <code>cmplx</code>, embedded by <code>embedding</code>,
+   * as a FeatureCollection to <code>generator</code>, with coordinates
+   * rounded to <code>digits</code> decimal places, or full precision
+   * if <code>digits</code> is negative.
+   * Doesn't close or flush the generator.
+   */
+  public static final void write (final JsonGenerator generator,
+                                  final IndexedCellComplex cmplx,
+                                  final IFn embedding,
+                                  final Geometry geometry,
+                                  final int digits)
+    throws IOException {
+    new GeoJson(generator, cmplx, embedding, digits)
+      .featureCollection(geometry); }
+
+  /** Write UTF-8 geojson to <code>path</code>,
+   * creating parent directories as needed.
+   */
+  public static final void write (final Path path,
+                                  final IndexedCellComplex cmplx,
+                                  final IFn embedding,
+                                  final Geometry geometry,
+                                  final int digits)
+    throws IOException {
+    final Path parent = path.toAbsolutePath().getParent();
+    if (null != parent) { Files.createDirectories(parent); }
+    try (final OutputStream out =
+           new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+         final JsonGenerator g =
+           new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+      write(g, cmplx, embedding, geometry, digits); } }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
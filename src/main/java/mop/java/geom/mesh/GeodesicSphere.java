@@ -0,0 +1,409 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.cmplx.IndexedQuadComplex;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Level <code>k</code> geodesic spheres, eg, icospheres (triangles)
+ * and cube-spheres (quads), generated directly from
+ * <code>(i,j)</code> lattice coordinates on each face of a base
+ * complex embedded in S2, rather than by <code>k</code> rounds of
+ * midpoint subdivision.
+ * The base complex and its embedding come from the caller,
+ * eg, <code>mop.geom.icosahedron/s2-icosahedron</code> or
+ * <code>mop.geom.quads/standard-quad-sphere</code>,
+ * and its vertices are the first vertices of the result.
+ * <p>
+ * Each base face is divided <code>n=2<sup>k</sup></code> times along
+ * each edge, giving <code>4<sup>k</sup></code> faces per base face,
+ * the same counts as <code>k</code> midpoint subdivisions.
+ * Vertices are numbered: base vertices, then the interior
+ * vertices of each base edge, then the interior vertices of each base
+ * face, so the vertices on a seam are shared by construction, with
+ * no edge table.
+ * Faces are numbered by base face, then by row of the lattice.
+ * <p>
+ * Positions are computed in parallel, over base edges, then base
+ * faces:
+ * <ul>
+ * <li>{@link Projection#MIDPOINT}: recursive great circle midpoints,
+ * the positions of <code>k</code> midpoint subdivisions of the base
+ * solid, up to rounding,
+ * <li>{@link Projection#GNOMONIC}: the flat lattice on the base face,
+ * centrally projected onto the sphere.
+ * </ul>
+ * <p>
+ * Generated levels are kept in a cache of soft references,
+ * keyed by <code>(base, level, projection)</code>, with identity
+ * equality for the base complex, so repeated calls share one result,
+ * until memory is needed.
+ * Results are shared; don't modify their arrays.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class GeodesicSphere {
+
+  /** How lattice points are placed on the sphere. */
+  public enum Projection { MIDPOINT, GNOMONIC }
+
+  //--------------------------------------------------------------------
+  /** Indexed complex, an {@link IndexedSimplicialComplex2D} or
+   * {@link IndexedQuadComplex}, and points aligned with its vertex
+   * indices.
+   */
+  public record Result (IndexedCellComplex cmplx,
+                        Point2S[] points) { }
+
+  private record Key (IndexedCellComplex base,
+                      int level,
+                      Projection projection) { }
+
+  private static final ConcurrentHashMap<Key,SoftReference<Result>>
+    CACHE = new ConcurrentHashMap<>();
+
+  //--------------------------------------------------------------------
+  // lattice
+  //--------------------------------------------------------------------
+
+  private final int _n;
+  private final int _arity;
+  private final int _nBase;
+  private final int[] _baseFaces;
+  // base edge id for each ordered pair of base vertices
+  private final int[] _edge;
+  private final int _nEdges;
+  // (lower, higher) base vertices of each base edge
+  private final int[] _ends;
+  private final int _nInterior;
+
+  private GeodesicSphere (final int level,
+                          final int arity,
+                          final int nBase,
+                          final int[] baseFaces) {
+    _n = 1 << level;
+    _arity = arity;
+    _nBase = nBase;
+    _baseFaces = baseFaces;
+    _edge = new int[nBase * nBase];
+    Arrays.fill(_edge, -1);
+    int e = 0;
+    for (int f = 0; f < baseFaces.length; f += arity) {
+      for (int c = 0; c < arity; c++) {
+        final int a = baseFaces[f + c];
+        final int b = baseFaces[f + ((c + 1) % arity)];
+        if (_edge[(a * nBase) + b] < 0) {
+          _edge[(a * nBase) + b] = e;
+          _edge[(b * nBase) + a] = e;
+          e++; } } }
+    _nEdges = e;
+    _ends = new int[2 * e];
+    for (int a = 0; a < nBase; a++) {
+      for (int b = a + 1; b < nBase; b++) {
+        final int ab = _edge[(a * nBase) + b];
+        if (0 <= ab) { _ends[2 * ab] = a; _ends[(2 * ab) + 1] = b; } } }
+    _nInterior = (3 == arity)
+      ? (((_n - 1) * (_n - 2)) / 2)
+      : ((_n - 1) * (_n - 1)); }
+
+  private final int nBaseFaces () { return _baseFaces.length / _arity; }
+
+  private final long nVertices () {
+    return _nBase + (((long) _nEdges) * (_n - 1))
+      + (((long) nBaseFaces()) * _nInterior); }
+
+  // base vertex a, if t == 0, else the vertex t steps from a towards b
+  private final int edgeVertex (final int a,
+                                final int b,
+                                final int t) {
+    if (0 == t) { return a; }
+    if (_n == t) { return b; }
+    final int e = _edge[(a * _nBase) + b];
+    return _nBase + (e * (_n - 1)) + ((a < b) ? (t - 1) : (_n - t - 1)); }
+
+  private final int interiorVertex (final int f,
+                                    final int i,
+                                    final int j) {
+    final int first = _nBase + (_nEdges * (_n - 1)) + (f * _nInterior);
+    if (4 == _arity) { return first + ((j - 1) * (_n - 1)) + (i - 1); }
+    // rows j = 1 .. n-2, each with i = 1 .. n-1-j
+    final int row = ((j - 1) * (_n - 1)) - (((j - 1) * j) / 2);
+    return first + row + (i - 1); }
+
+  /** Vertex index of lattice point <code>(i,j)</code> on base face
+   * <code>f</code>. Triangle <code>(a,b,c)</code> has
+   * <code>a</code> at <code>(0,0)</code>, <code>b</code> at
+   * <code>(n,0)</code>, <code>c</code> at <code>(0,n)</code>;
+   * quad <code>(a,b,c,d)</code> has <code>c</code> at
+   * <code>(n,n)</code> and <code>d</code> at <code>(0,n)</code>.
+   */
+  private final int vertex (final int f,
+                            final int i,
+                            final int j) {
+    final int o = _arity * f;
+    final int a = _baseFaces[o];
+    final int b = _baseFaces[o + 1];
+    final int c = _baseFaces[o + 2];
+    final int n = _n;
+    if (3 == _arity) {
+      if (0 == j) { return edgeVertex(a, b, i); }
+      if (0 == i) { return edgeVertex(a, c, j); }
+      if (n == (i + j)) { return edgeVertex(b, c, j); } }
+    else {
+      final int d = _baseFaces[o + 3];
+      if (0 == j) { return edgeVertex(a, b, i); }
+      if (0 == i) { return edgeVertex(a, d, j); }
+      if (n == i) { return edgeVertex(b, c, j); }
+      if (n == j) { return edgeVertex(d, c, i); } }
+    return interiorVertex(f, i, j); }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+
+  private final int[] faces () {
+    final int n = _n;
+    final int k = _arity;
+    final long length = ((long) nBaseFaces()) * n * n * k;
+    if (length > (Integer.MAX_VALUE - 8)) {
+      throw new IllegalArgumentException("Too many faces: " + length); }
+    final int[] faces = new int[(int) length];
+    IntStream.range(0, nBaseFaces()).parallel().forEach(f -> {
+      int h = f * n * n * k;
+      for (int j = 0; j < n; j++) {
+        for (int i = 0; i < (n - ((3 == k) ? j : 0)); i++) {
+          if (3 == k) {
+            faces[h++] = vertex(f, i, j);
+            faces[h++] = vertex(f, i + 1, j);
+            faces[h++] = vertex(f, i, j + 1);
+            if ((i + j) < (n - 1)) {
+              faces[h++] = vertex(f, i + 1, j);
+              faces[h++] = vertex(f, i + 1, j + 1);
+              faces[h++] = vertex(f, i, j + 1); } }
+          else {
+            faces[h++] = vertex(f, i, j);
+            faces[h++] = vertex(f, i + 1, j);
+            faces[h++] = vertex(f, i + 1, j + 1);
+            faces[h++] = vertex(f, i, j + 1); } } } });
+    return faces; }
+
+  //--------------------------------------------------------------------
+  // positions
+  //--------------------------------------------------------------------
+
+  private static final void normalize (final double[] p,
+                                       final int o,
+                                       final double x,
+                                       final double y,
+                                       final double z) {
+    final double s = 1.0 / Math.sqrt((x * x) + (y * y) + (z * z));
+    p[o] = x * s;
+    p[o + 1] = y * s;
+    p[o + 2] = z * s; }
+
+  // great circle midpoint of points at offsets a and b, into offset o
+  private static final void midpoint (final double[] p,
+                                      final int o,
+                                      final int a,
+                                      final int b) {
+    normalize(p, o,
+              p[a] + p[b], p[a + 1] + p[b + 1], p[a + 2] + p[b + 2]); }
+
+  // as in s2/midpoint of 4 points: the midpoint of the midpoints of
+  // opposite edges, or of the 2 such points, if they differ
+  private static final void center (final double[] p,
+                                    final int o,
+                                    final int a,
+                                    final int b,
+                                    final int c,
+                                    final int d) {
+    final double[] m = new double[12];
+    normalize(m, 0, p[a] + p[b], p[a + 1] + p[b + 1], p[a + 2] + p[b + 2]);
+    normalize(m, 3, p[c] + p[d], p[c + 1] + p[d + 1], p[c + 2] + p[d + 2]);
+    normalize(m, 6, p[b] + p[c], p[b + 1] + p[c + 1], p[b + 2] + p[c + 2]);
+    normalize(m, 9, p[d] + p[a], p[d + 1] + p[a + 1], p[d + 2] + p[a + 2]);
+    midpoint(m, 0, 0, 3);
+    midpoint(m, 6, 6, 9);
+    final double dx = m[0] - m[6];
+    final double dy = m[1] - m[7];
+    final double dz = m[2] - m[8];
+    if (((dx * dx) + (dy * dy) + (dz * dz)) > 1.0e-12) {
+      midpoint(m, 0, 0, 6); }
+    System.arraycopy(m, 0, p, o, 3); }
+
+  private final void edgePositions (final double[] xyz,
+                                    final Projection projection) {
+    final int n = _n;
+    IntStream.range(0, _nEdges).parallel().forEach(e -> {
+      final int a = _ends[2 * e];
+      final int b = _ends[(2 * e) + 1];
+      if (Projection.GNOMONIC == projection) {
+        for (int t = 1; t < n; t++) {
+          final double s = ((double) t) / n;
+          final double r = 1.0 - s;
+          normalize(xyz, 3 * edgeVertex(a, b, t),
+                    (r * xyz[3 * a]) + (s * xyz[3 * b]),
+                    (r * xyz[(3 * a) + 1]) + (s * xyz[(3 * b) + 1]),
+                    (r * xyz[(3 * a) + 2]) + (s * xyz[(3 * b) + 2])); } }
+      else {
+        for (int s = n >> 1; s > 0; s >>= 1) {
+          for (int t = s; t < n; t += 2 * s) {
+            midpoint(xyz, 3 * edgeVertex(a, b, t),
+                     3 * edgeVertex(a, b, t - s),
+                     3 * edgeVertex(a, b, t + s)); } } } }); }
+
+  private final boolean interior (final int i,
+                                  final int j) {
+    return (0 < i) && (0 < j)
+      && ((3 == _arity) ? ((i + j) < _n) : ((i < _n) && (j < _n))); }
+
+  private final void gnomonic (final double[] xyz,
+                               final int f) {
+    final int n = _n;
+    final int o = _arity * f;
+    final int a = 3 * _baseFaces[o];
+    final int b = 3 * _baseFaces[o + 1];
+    final int c = 3 * _baseFaces[o + 2];
+    final int d = (4 == _arity) ? (3 * _baseFaces[o + 3]) : -1;
+    for (int j = 1; j < n; j++) {
+      for (int i = 1; i < n; i++) {
+        if (! interior(i, j)) { continue; }
+        final double s = ((double) i) / n;
+        final double t = ((double) j) / n;
+        final double wa;
+        final double wb;
+        final double wc;
+        final double wd;
+        if (3 == _arity) {
+          wa = 1.0 - s - t; wb = s; wc = t; wd = 0.0; }
+        else {
+          wa = (1.0 - s) * (1.0 - t); wb = s * (1.0 - t);
+          wc = s * t; wd = (1.0 - s) * t; }
+        double x = (wa * xyz[a]) + (wb * xyz[b]) + (wc * xyz[c]);
+        double y = (wa * xyz[a + 1]) + (wb * xyz[b + 1]) + (wc * xyz[c + 1]);
+        double z = (wa * xyz[a + 2]) + (wb * xyz[b + 2]) + (wc * xyz[c + 2]);
+        if (0 <= d) {
+          x += wd * xyz[d]; y += wd * xyz[d + 1]; z += wd * xyz[d + 2]; }
+        normalize(xyz, 3 * vertex(f, i, j), x, y, z); } } }
+
+  private final void midpoints (final double[] xyz,
+                                final int f) {
+    final int n = _n;
+    for (int s = n >> 1; s > 0; s >>= 1) {
+      final int s2 = 2 * s;
+      for (int j = 0; j <= n; j += s) {
+        for (int i = 0; i <= n; i += s) {
+          if (((0 == (i % s2)) && (0 == (j % s2)))
+              || (! interior(i, j))) { continue; }
+          final int o = 3 * vertex(f, i, j);
+          if (0 == (j % s2)) {
+            midpoint(xyz, o,
+                     3 * vertex(f, i - s, j), 3 * vertex(f, i + s, j)); }
+          else if (0 == (i % s2)) {
+            midpoint(xyz, o,
+                     3 * vertex(f, i, j - s), 3 * vertex(f, i, j + s)); }
+          else if (3 == _arity) {
+            midpoint(xyz, o,
+                     3 * vertex(f, i - s, j + s),
+                     3 * vertex(f, i + s, j - s)); }
+          else {
+            center(xyz, o,
+                   3 * vertex(f, i - s, j - s),
+                   3 * vertex(f, i + s, j - s),
+                   3 * vertex(f, i + s, j + s),
+                   3 * vertex(f, i - s, j + s)); } } } } }
+
+  //--------------------------------------------------------------------
+
+  private static final Result generate (final Key key,
+                                        final IFn embedding) {
+    final IndexedCellComplex base = key.base();
+    final int nBase = base.nVertices();
+    final GeodesicSphere g = new GeodesicSphere(
+      key.level(), base.arity(), nBase, base.faceIndices());
+    final long nv = g.nVertices();
+    if ((3 * nv) > (Integer.MAX_VALUE - 8)) {
+      throw new IllegalArgumentException("Too many vertices: " + nv); }
+    final int[] faces = g.faces();
+
+    final double[] xyz = new double[(int) (3 * nv)];
+    for (int v = 0; v < nBase; v++) {
+      final Point2S p = (Point2S) embedding.invoke(base.vertex(v));
+      assert null != p : base.vertex(v);
+      final Vector3D x = p.getVector();
+      xyz[3 * v] = x.getX();
+      xyz[(3 * v) + 1] = x.getY();
+      xyz[(3 * v) + 2] = x.getZ(); }
+    g.edgePositions(xyz, key.projection());
+    IntStream.range(0, g.nBaseFaces()).parallel().forEach(f -> {
+      if (Projection.GNOMONIC == key.projection()) { g.gnomonic(xyz, f); }
+      else { g.midpoints(xyz, f); } });
+    final Point2S[] points = new Point2S[(int) nv];
+    IntStream.range(0, (int) nv).parallel().forEach(v ->
+      points[v] = Point2S.from(
+        Vector3D.of(xyz[3 * v], xyz[(3 * v) + 1], xyz[(3 * v) + 2])));
+
+    // base vertices are shared; the rest are created sequentially,
+    // in index order, so their ids are deterministic
+    final ZeroSimplex[] vertices = new ZeroSimplex[(int) nv];
+    int v = 0;
+    for (; v < nBase; v++) { vertices[v] = base.vertex(v); }
+    for (int e = 0; e < g._nEdges; e++) {
+      final ZeroSimplex a = vertices[g._ends[2 * e]];
+      final ZeroSimplex b = vertices[g._ends[(2 * e) + 1]];
+      for (int t = 1; t < g._n; t++) {
+        vertices[v++] = ZeroSimplex.make(a, b, t); } }
+    for (int f = 0; f < g.nBaseFaces(); f++) {
+      final int o = g._arity * f;
+      final ZeroSimplex a = vertices[g._baseFaces[o]];
+      final ZeroSimplex c = vertices[g._baseFaces[o + 2]];
+      for (int j = 1; j < g._n; j++) {
+        for (int i = 1; i < g._n; i++) {
+          if (g.interior(i, j)) {
+            vertices[v++] = ZeroSimplex.make(a, c, (j * (g._n + 1)) + i); } } } }
+    assert nv == v;
+    final IndexedCellComplex cmplx = (3 == g._arity)
+      ? IndexedSimplicialComplex2D.make(vertices, faces)
+      : IndexedQuadComplex.make(vertices, faces);
+    return new Result(cmplx, points); }
+
+  //--------------------------------------------------------------------
+
+  /** The level <code>level</code> sphere over <code>base</code>,
+   * a triangle or quad complex whose vertices <code>embedding</code>
+   * maps to {@link Point2S}, from the cache if possible.
+   */
+  public static final Result make (final IndexedCellComplex base,
+                                   final IFn embedding,
+                                   final int level,
+                                   final Projection projection) {
+    if ((level < 0) || (level > 15)) {
+      throw new IllegalArgumentException("level: " + level); }
+    final int arity = base.arity();
+    if ((3 != arity) && (4 != arity)) {
+      throw new IllegalArgumentException("arity: " + arity); }
+    final Key key = new Key(base, level, projection);
+    while (true) {
+      final SoftReference<Result> ref = CACHE.computeIfAbsent(
+        key, k -> new SoftReference<>(generate(k, embedding)));
+      final Result r = ref.get();
+      if (null != r) { return r; }
+      // cleared; drop it, unless another thread already has
+      CACHE.remove(key, ref); } }
+
+  /** Drop all cached levels. */
+  public static final void clearCache () { CACHE.clear(); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -7,7 +7,7 @@ import mop.java.cmplx.CellComplex;
  * Embedded cell complex.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-03-06
+ * @version 2026-10-18
  */
 
 public interface Mesh {
@@ -15,4 +15,8 @@ public interface Mesh {
   CellComplex cmplx ();
   /** Maps zero simplices (vertices) to points in some space. */
   IFn embedding ();
+  /** Columnar vertex data, indexed like the vertices of an indexed
+   * complex, or null.
+   */
+  VertexAttributes attributes ();
 }
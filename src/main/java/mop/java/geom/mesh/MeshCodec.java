@@ -0,0 +1,709 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.cmplx.IndexedQuadComplex;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compact lossy codec for triangle and quad meshes with S2
+ * ({@link Point2S}) or R3 ({@link Vector3D}) embeddings,
+ * for archiving many variants of large meshes.
+ * <p>
+ * Faces are visited breadth first over face adjacency
+ * ({@link HalfEdges#twin}), and cut into chunks of
+ * {@link #CHUNK} faces, each coded independently, so encoding and
+ * decoding run in parallel over chunks.
+ * Within a chunk:
+ * <ul>
+ * <li>Connectivity: one bit per edge of each visited face, saying
+ * whether a new face is attached across it. An attached face gets its
+ * first 2 corners from the edge; each other corner is either the
+ * next new vertex or a delta from an earlier one.
+ * Faces that can't be reached that way start a new traversal,
+ * with all corners coded.
+ * <li>Positions: S2 points as octahedral coordinates, R3 points over
+ * the bounding box, each quantized to <code>bits</code> bits per
+ * coordinate, and coded as the residual from a parallelogram
+ * prediction across the shared edge, falling back to the position
+ * of a neighboring vertex.
+ * <li>Everything goes through an adaptive binary range coder, with
+ * integers as context modeled Exp-Golomb codes.
+ * </ul>
+ * Vertices are renumbered in order of first use, and faces in order
+ * of visit, so a decoded mesh is equal to the original only up to
+ * that permutation, returned by {@link #encode} for callers that need
+ * it, and the quantization of its coordinates.
+ * Faces keep their orientation; vertices in no face are dropped.
+ * <p>
+ * Layout, little endian: a 96 byte header (magic
+ * <code>"mopcodec"</code>, version, arity, {@link Codomain} ordinal,
+ * bits, vertex, face, and chunk counts, and for R3 the bounding box
+ * minimum and quantization step), a table of 24 bytes per chunk
+ * (first face, face count, first vertex, vertex count, byte offset,
+ * byte length), and the range coded chunks.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class MeshCodec {
+
+  public static final int VERSION = 1;
+
+  private static final byte[] MAGIC =
+    "mopcodec".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int HEADER = 96;
+  private static final int ENTRY = 24;
+
+  /** Faces per independently coded chunk. */
+  public static final int CHUNK = 1 << 16;
+
+  /** Embedding codomains: {@link Point2S} or {@link Vector3D}. */
+  public enum Codomain { S2, R3 }
+
+  /** The bytes, and, for each decoded vertex and face, the index of
+   * the original in the encoded complex.
+   */
+  public record Encoded (byte[] bytes,
+                         int[] vertexOrder,
+                         int[] faceOrder) { }
+
+  /** Decoded complex, and the point for each of its vertices:
+   * {@link Point2S} or {@link Vector3D}.
+   */
+  public record Result (IndexedCellComplex cmplx,
+                        Object[] points) { }
+
+  //--------------------------------------------------------------------
+  // adaptive binary range coder, as in LZMA
+  //--------------------------------------------------------------------
+
+  private static final int MODEL_BITS = 11;
+  private static final int MOVE_BITS = 5;
+  private static final short HALF = (short) (1 << (MODEL_BITS - 1));
+
+  private static final short[] models (final int n) {
+    final short[] p = new short[n];
+    Arrays.fill(p, HALF);
+    return p; }
+
+  // Exp-Golomb: unary bit length, then the bits below the leading 1
+  private static final int UNARY = 34;
+  private static final short[] intModels () {
+    return models(UNARY + (UNARY * 33)); }
+
+  private static final class Encoder {
+
+    private byte[] _out = new byte[1 << 12];
+    private int _n = 0;
+    private long _low = 0L;
+    private int _range = -1;
+    private int _cache = 0;
+    private long _cacheSize = 1L;
+
+    private final void write (final int b) {
+      if (_n == _out.length) { _out = Arrays.copyOf(_out, 2 * _n); }
+      _out[_n++] = (byte) b; }
+
+    private final void shiftLow () {
+      if ((_low < 0xFF000000L) || (_low > 0xFFFFFFFFL)) {
+        final int carry = (int) (_low >>> 32);
+        int temp = _cache;
+        do {
+          write(temp + carry);
+          temp = 0xFF; }
+        while (--_cacheSize != 0L);
+        _cache = ((int) (_low >>> 24)) & 0xFF; }
+      _cacheSize++;
+      _low = (_low & 0x00FFFFFFL) << 8; }
+
+    final void bit (final short[] models,
+                    final int i,
+                    final int bit) {
+      final int p = models[i];
+      final int bound = (_range >>> MODEL_BITS) * p;
+      if (0 == bit) {
+        _range = bound;
+        models[i] = (short) (p + (((1 << MODEL_BITS) - p) >>> MOVE_BITS)); }
+      else {
+        _low += bound & 0xFFFFFFFFL;
+        _range -= bound;
+        models[i] = (short) (p - (p >>> MOVE_BITS)); }
+      if (0 == (_range & 0xFF000000)) {
+        _range <<= 8;
+        shiftLow(); } }
+
+    final void integer (final short[] models,
+                        final long u) {
+      final long u1 = u + 1L;
+      final int n = 63 - Long.numberOfLeadingZeros(u1);
+      for (int i = 0; i < n; i++) { bit(models, Math.min(i, UNARY - 1), 1); }
+      bit(models, Math.min(n, UNARY - 1), 0);
+      final int base = UNARY + (n * 33);
+      for (int i = n - 1; i >= 0; i--) {
+        bit(models, base + i, (int) ((u1 >>> i) & 1L)); } }
+
+    final byte[] finish () {
+      for (int i = 0; i < 5; i++) { shiftLow(); }
+      return Arrays.copyOf(_out, _n); } }
+
+  private static final class Decoder {
+
+    private final byte[] _in;
+    private int _i;
+    private final int _end;
+    private int _range = -1;
+    private int _code = 0;
+
+    private final int read () {
+      return (_i < _end) ? (_in[_i++] & 0xFF) : 0; }
+
+    Decoder (final byte[] in,
+             final int start,
+             final int length) {
+      _in = in;
+      _i = start;
+      _end = start + length;
+      for (int i = 0; i < 5; i++) { _code = (_code << 8) | read(); } }
+
+    final int bit (final short[] models,
+                   final int i) {
+      final int p = models[i];
+      final int bound = (_range >>> MODEL_BITS) * p;
+      final int bit;
+      if ((_code ^ 0x80000000) < (bound ^ 0x80000000)) {
+        _range = bound;
+        models[i] = (short) (p + (((1 << MODEL_BITS) - p) >>> MOVE_BITS));
+        bit = 0; }
+      else {
+        _code -= bound;
+        _range -= bound;
+        models[i] = (short) (p - (p >>> MOVE_BITS));
+        bit = 1; }
+      if (0 == (_range & 0xFF000000)) {
+        _code = (_code << 8) | read();
+        _range <<= 8; }
+      return bit; }
+
+    final long integer (final short[] models) {
+      int n = 0;
+      while (1 == bit(models, Math.min(n, UNARY - 1))) { n++; }
+      final int base = UNARY + (n * 33);
+      long u1 = 1L;
+      for (int i = n - 1; i >= 0; i--) {
+        u1 = (u1 << 1) | bit(models, base + i); }
+      return u1 - 1L; } }
+
+  private static final long zigzag (final long x) {
+    return (x << 1) ^ (x >> 63); }
+
+  private static final long unzigzag (final long u) {
+    return (u >>> 1) ^ -(u & 1L); }
+
+  //--------------------------------------------------------------------
+  // quantization
+  //--------------------------------------------------------------------
+
+  private static final double sign (final double x) {
+    return (x >= 0.0) ? 1.0 : -1.0; }
+
+  /** Octahedral coordinates of the direction of (x,y,z), quantized to
+   * <code>[0,max]</code>.
+   */
+  private static final void octahedral (final double x,
+                                        final double y,
+                                        final double z,
+                                        final int max,
+                                        final int[] q,
+                                        final int i) {
+    final double s = Math.abs(x) + Math.abs(y) + Math.abs(z);
+    double u = x / s;
+    double v = y / s;
+    if (z < 0.0) {
+      final double uu = (1.0 - Math.abs(v)) * sign(u);
+      v = (1.0 - Math.abs(u)) * sign(v);
+      u = uu; }
+    q[i] = (int) Math.round((u + 1.0) * 0.5 * max);
+    q[i + 1] = (int) Math.round((v + 1.0) * 0.5 * max); }
+
+  /** Unit vector for quantized octahedral coordinates. */
+  private static final void direction (final int qu,
+                                       final int qv,
+                                       final int max,
+                                       final double[] xyz) {
+    final double u = ((2.0 * qu) / max) - 1.0;
+    final double v = ((2.0 * qv) / max) - 1.0;
+    final double z = 1.0 - Math.abs(u) - Math.abs(v);
+    final double x;
+    final double y;
+    if (z < 0.0) {
+      x = (1.0 - Math.abs(v)) * sign(u);
+      y = (1.0 - Math.abs(u)) * sign(v); }
+    else {
+      x = u;
+      y = v; }
+    final double s = Math.sqrt((x * x) + (y * y) + (z * z));
+    xyz[0] = x / s;
+    xyz[1] = y / s;
+    xyz[2] = z / s; }
+
+  //--------------------------------------------------------------------
+  // per chunk state and prediction, shared by encoding and decoding
+  //--------------------------------------------------------------------
+
+  private static final class Chunk {
+
+    final int arity;
+    final int dim;
+    final int max;
+    final boolean s2;
+    // corners, in new vertex indices, arity per face in visit order
+    final int[] faces;
+    // quantized coordinates, dim per vertex in new order
+    final int[] q;
+    final int faceStart;
+    final int faceEnd;
+    final int vertexStart;
+    int counter;
+
+    final short[] attach = models(8);
+    final short[] fresh = models(8);
+    final short[] attachedDelta = intModels();
+    final short[] rootDelta = intModels();
+    final short[][] residual;
+
+    private final double[] _a = new double[3];
+    private final double[] _b = new double[3];
+    private final double[] _c = new double[3];
+    final int[] prediction = new int[3];
+
+    Chunk (final int arity,
+           final Codomain codomain,
+           final int bits,
+           final int[] faces,
+           final int[] q,
+           final int[] entry) {
+      this.arity = arity;
+      this.s2 = (Codomain.S2 == codomain);
+      this.dim = s2 ? 2 : 3;
+      this.max = (1 << bits) - 1;
+      this.faces = faces;
+      this.q = q;
+      faceStart = entry[0];
+      faceEnd = entry[0] + entry[1];
+      vertexStart = entry[2];
+      counter = vertexStart;
+      residual = new short[dim][];
+      for (int k = 0; k < dim; k++) { residual[k] = intModels(); } }
+
+    private final boolean decoded (final int v) {
+      return (vertexStart <= v) && (v < counter); }
+
+    private final void copy (final int v) {
+      System.arraycopy(q, dim * v, prediction, 0, dim); }
+
+    /** a + b - c. */
+    private final void parallelogram (final int a,
+                                      final int b,
+                                      final int c) {
+      if (s2) {
+        direction(q[2 * a], q[(2 * a) + 1], max, _a);
+        direction(q[2 * b], q[(2 * b) + 1], max, _b);
+        direction(q[2 * c], q[(2 * c) + 1], max, _c);
+        final double x = (_a[0] + _b[0]) - _c[0];
+        final double y = (_a[1] + _b[1]) - _c[1];
+        final double z = (_a[2] + _b[2]) - _c[2];
+        if (0.0 == (Math.abs(x) + Math.abs(y) + Math.abs(z))) {
+          copy(a);
+          return; }
+        octahedral(x, y, z, max, prediction, 0); }
+      else {
+        for (int k = 0; k < 3; k++) {
+          final long p =
+            ((long) q[(3 * a) + k] + q[(3 * b) + k]) - q[(3 * c) + k];
+          prediction[k] = (int) Math.max(0L, Math.min(max, p)); } } }
+
+    /** Predict corner <code>k</code> of the face at <code>f</code>,
+     * attached across edge <code>j</code> of the face at
+     * <code>parent</code>, or a root face if <code>parent</code> is
+     * negative.
+     */
+    final void predict (final int f,
+                        final int k,
+                        final int parent,
+                        final int j) {
+      final int base = arity * f;
+      if (0 <= parent) {
+        final int pb = arity * parent;
+        final int n0 = faces[base];
+        final int n1 = faces[base + 1];
+        final int a;
+        final int b;
+        final int c;
+        if (3 == arity) {
+          a = n0; b = n1; c = faces[pb + ((j + 2) % 3)]; }
+        else if (2 == k) {
+          a = n1; b = n1; c = faces[pb + ((j + 3) % 4)]; }
+        else {
+          a = n0; b = n0; c = faces[pb + ((j + 2) % 4)]; }
+        if (decoded(a) && decoded(b) && decoded(c)) {
+          parallelogram(a, b, c);
+          return; } }
+      if ((0 < k) && decoded(faces[(base + k) - 1])) {
+        copy(faces[(base + k) - 1]); }
+      else if (vertexStart < counter) { copy(counter - 1); }
+      else { Arrays.fill(prediction, 0, dim, (max + 1) / 2); } } }
+
+  //--------------------------------------------------------------------
+  // encoding
+  //--------------------------------------------------------------------
+
+  private static final Codomain codomain (final Object p) {
+    return switch (p) {
+      case Point2S s -> Codomain.S2;
+      case Vector3D v -> Codomain.R3;
+      default -> throw new IllegalArgumentException(
+        "Can't encode points of " + p.getClass()); }; }
+
+  /** Visit faces breadth first, filling <code>order</code> and
+   * <code>entry</code>, the half-edge of each visited face that
+   * becomes its first corner, numbering vertices in order of first
+   * use, and returning the chunk table entries.
+   */
+  private static final List<int[]> traverse (final HalfEdges he,
+                                             final int[] order,
+                                             final int[] entry,
+                                             final int[] number) {
+    final int arity = he.arity();
+    final int nf = he.nFaces();
+    final int[] slot = new int[nf];
+    Arrays.fill(slot, -1);
+    Arrays.fill(number, -1);
+    final List<int[]> chunks = new ArrayList<>();
+    int pos = 0;
+    int scan = 0;
+    int nextVertex = 0;
+    while (pos < nf) {
+      final int f0 = pos;
+      final int v0 = nextVertex;
+      final int end = Math.min(nf, pos + CHUNK);
+      int head = pos;
+      while (pos < end) {
+        final int h0;
+        if (head == pos) {
+          while (0 <= slot[scan]) { scan++; }
+          h0 = arity * scan; }
+        else {
+          h0 = -1;
+          int h = entry[head++];
+          for (int j = 0; (j < arity) && (pos < end); j++) {
+            final int t = he.twin(h);
+            if ((0 <= t) && (slot[he.face(t)] < 0)) {
+              final int f = he.face(t);
+              slot[f] = pos;
+              order[pos] = f;
+              entry[pos++] = t;
+              int c = t;
+              for (int k = 0; k < arity; k++) {
+                final int v = he.origin(c);
+                if (number[v] < 0) { number[v] = nextVertex++; }
+                c = he.next(c); } }
+            h = he.next(h); } }
+        if (0 <= h0) {
+          final int f = he.face(h0);
+          slot[f] = pos;
+          order[pos] = f;
+          entry[pos++] = h0;
+          int c = h0;
+          for (int k = 0; k < arity; k++) {
+            final int v = he.origin(c);
+            if (number[v] < 0) { number[v] = nextVertex++; }
+            c = he.next(c); } } }
+      chunks.add(new int[] {f0, pos - f0, v0, nextVertex - v0}); }
+    return chunks; }
+
+  private static final void corner (final Encoder e,
+                                    final Chunk c,
+                                    final int f,
+                                    final int k,
+                                    final int parent,
+                                    final int j) {
+    final int v = c.faces[(c.arity * f) + k];
+    final boolean root = (parent < 0);
+    final int ctx = (root ? 0 : 4) + k;
+    if (v == c.counter) {
+      e.bit(c.fresh, ctx, 1);
+      c.predict(f, k, parent, j);
+      for (int i = 0; i < c.dim; i++) {
+        e.integer(c.residual[i],
+                  zigzag((long) c.q[(c.dim * v) + i] - c.prediction[i])); }
+      c.counter++; }
+    else {
+      e.bit(c.fresh, ctx, 0);
+      if (root) { e.integer(c.rootDelta, (c.counter - 1L) - v); }
+      else {
+        e.integer(c.attachedDelta,
+                  zigzag((long) v - c.faces[(c.arity * f) + 1])); } } }
+
+  private static final byte[] encode (final Chunk c,
+                                      final HalfEdges he,
+                                      final int[] entry) {
+    final Encoder e = new Encoder();
+    final int arity = c.arity;
+    final int end = c.faceEnd;
+    int pos = c.faceStart;
+    int head = pos;
+    int previous = 0;
+    while (pos < end) {
+      if (head == pos) {
+        for (int k = 0; k < arity; k++) { corner(e, c, pos, k, -1, 0); }
+        pos++; }
+      else {
+        final int parent = head++;
+        int h = entry[parent];
+        for (int j = 0; (j < arity) && (pos < end); j++) {
+          final int t = he.twin(h);
+          final int attached = ((0 <= t) && (entry[pos] == t)) ? 1 : 0;
+          e.bit(c.attach, (2 * j) + previous, attached);
+          previous = attached;
+          if (1 == attached) {
+            for (int k = 2; k < arity; k++) {
+              corner(e, c, pos, k, parent, j); }
+            pos++; }
+          h = he.next(h); } } }
+    return e.finish(); }
+
+  /** Encode <code>cmplx</code>, embedded by <code>embedding</code> in
+   * S2 or R3, with coordinates quantized to <code>bits</code> bits,
+   * in <code>[1,30]</code>.
+   */
+  public static final Encoded encode (final IndexedCellComplex cmplx,
+                                      final IFn embedding,
+                                      final int bits) {
+    if ((bits < 1) || (30 < bits)) {
+      throw new IllegalArgumentException(
+        "bits must be in [1,30]: " + bits); }
+    final int arity = cmplx.arity();
+    final int nv = cmplx.nVertices();
+    final int nf = cmplx.nFaces();
+    final HalfEdges he = cmplx.halfEdges();
+    final Codomain codomain =
+      (0 == nv) ? Codomain.R3 : codomain(embedding.invoke(cmplx.vertex(0)));
+    final int dim = (Codomain.S2 == codomain) ? 2 : 3;
+    final int max = (1 << bits) - 1;
+
+    final int[] order = new int[nf];
+    final int[] entry = new int[nf];
+    final int[] number = new int[nv];
+    final List<int[]> chunks = traverse(he, order, entry, number);
+    final int[] vertexOrder = new int[nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      if (0 <= number[v]) { vertexOrder[number[v]] = v; } });
+    final int nUsed = chunks.isEmpty()
+      ? 0 : chunks.getLast()[2] + chunks.getLast()[3];
+
+    // coordinates, in new vertex order
+    final double[] xyz = new double[3 * nUsed];
+    IntStream.range(0, nUsed).parallel().forEach(i -> {
+      final Object p = embedding.invoke(cmplx.vertex(vertexOrder[i]));
+      final Vector3D v = switch (p) {
+        case Point2S s -> s.getVector();
+        case Vector3D r -> r;
+        default -> throw new IllegalArgumentException(
+          "Can't encode points of " + p.getClass()); };
+      xyz[3 * i] = v.getX();
+      xyz[(3 * i) + 1] = v.getY();
+      xyz[(3 * i) + 2] = v.getZ(); });
+    final double[] min = new double[3];
+    final double[] step = {1.0, 1.0, 1.0};
+    final int[] q = new int[dim * nUsed];
+    if (Codomain.S2 == codomain) {
+      IntStream.range(0, nUsed).parallel().forEach(i ->
+        octahedral(xyz[3 * i], xyz[(3 * i) + 1], xyz[(3 * i) + 2],
+                   max, q, 2 * i)); }
+    else {
+      for (int k = 0; k < 3; k++) {
+        final int kk = k;
+        final double lo = IntStream.range(0, nUsed).parallel()
+          .mapToDouble(i -> xyz[(3 * i) + kk]).min().orElse(0.0);
+        final double hi = IntStream.range(0, nUsed).parallel()
+          .mapToDouble(i -> xyz[(3 * i) + kk]).max().orElse(0.0);
+        min[k] = lo;
+        if (hi > lo) { step[k] = (hi - lo) / max; } }
+      IntStream.range(0, 3 * nUsed).parallel().forEach(i -> {
+        final int k = i % 3;
+        q[i] = (int) Math.round((xyz[i] - min[k]) / step[k]); }); }
+
+    // corners, in new vertex indices, in visit order
+    final int[] faces = new int[arity * nf];
+    IntStream.range(0, nf).parallel().forEach(pos -> {
+      int h = entry[pos];
+      for (int k = 0; k < arity; k++) {
+        faces[(arity * pos) + k] = number[he.origin(h)];
+        h = he.next(h); } });
+
+    final byte[][] coded = new byte[chunks.size()][];
+    IntStream.range(0, coded.length).parallel().forEach(i ->
+      coded[i] = encode(
+        new Chunk(arity, codomain, bits, faces, q, chunks.get(i)),
+        he, entry));
+
+    long size = HEADER + ((long) ENTRY * coded.length);
+    for (final byte[] b : coded) { size += b.length; }
+    if (Integer.MAX_VALUE < size) {
+      throw new IllegalArgumentException(
+        "Encoded mesh too large for a byte array: " + size); }
+    final ByteBuffer out =
+      ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    out.put(MAGIC)
+      .putInt(VERSION)
+      .putInt(arity)
+      .putInt(codomain.ordinal())
+      .putInt(bits)
+      .putInt(nUsed)
+      .putInt(nf)
+      .putInt(coded.length)
+      .putInt(0);
+    for (int k = 0; k < 3; k++) { out.putDouble(min[k]); }
+    for (int k = 0; k < 3; k++) { out.putDouble(step[k]); }
+    out.position(HEADER);
+    int offset = HEADER + (ENTRY * coded.length);
+    for (int i = 0; i < coded.length; i++) {
+      final int[] c = chunks.get(i);
+      out.putInt(c[0]).putInt(c[1]).putInt(c[2]).putInt(c[3])
+        .putInt(offset).putInt(coded[i].length);
+      offset += coded[i].length; }
+    for (final byte[] b : coded) { out.put(b); }
+    return new Encoded(out.array(),
+                       Arrays.copyOf(vertexOrder, nUsed),
+                       order); }
+
+  //--------------------------------------------------------------------
+  // decoding
+  //--------------------------------------------------------------------
+
+  private static final void corner (final Decoder d,
+                                    final Chunk c,
+                                    final int f,
+                                    final int k,
+                                    final int parent,
+                                    final int j) {
+    final int i = (c.arity * f) + k;
+    final boolean root = (parent < 0);
+    final int ctx = (root ? 0 : 4) + k;
+    if (1 == d.bit(c.fresh, ctx)) {
+      final int v = c.counter;
+      c.faces[i] = v;
+      c.predict(f, k, parent, j);
+      for (int n = 0; n < c.dim; n++) {
+        c.q[(c.dim * v) + n] = (int)
+          (c.prediction[n] + unzigzag(d.integer(c.residual[n]))); }
+      c.counter++; }
+    else if (root) {
+      c.faces[i] = (int) ((c.counter - 1L) - d.integer(c.rootDelta)); }
+    else {
+      c.faces[i] = (int) (c.faces[(c.arity * f) + 1]
+        + unzigzag(d.integer(c.attachedDelta))); } }
+
+  private static final void decode (final Chunk c,
+                                    final Decoder d) {
+    final int arity = c.arity;
+    final int[] faces = c.faces;
+    final int end = c.faceEnd;
+    int pos = c.faceStart;
+    int head = pos;
+    int previous = 0;
+    while (pos < end) {
+      if (head == pos) {
+        for (int k = 0; k < arity; k++) { corner(d, c, pos, k, -1, 0); }
+        pos++; }
+      else {
+        final int parent = head++;
+        final int pb = arity * parent;
+        for (int j = 0; (j < arity) && (pos < end); j++) {
+          final int attached = d.bit(c.attach, (2 * j) + previous);
+          previous = attached;
+          if (1 == attached) {
+            faces[arity * pos] = faces[pb + ((j + 1) % arity)];
+            faces[(arity * pos) + 1] = faces[pb + j];
+            for (int k = 2; k < arity; k++) {
+              corner(d, c, pos, k, parent, j); }
+            pos++; } } } } }
+
+  /** Decode bytes written by {@link #encode}. */
+  public static final Result decode (final byte[] bytes) {
+    final ByteBuffer in =
+      ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    final byte[] magic = new byte[MAGIC.length];
+    in.get(magic);
+    if (!Arrays.equals(MAGIC, magic)) {
+      throw new IllegalArgumentException("Not an encoded mesh"); }
+    final int version = in.getInt();
+    if (VERSION != version) {
+      throw new IllegalArgumentException(
+        "Unsupported encoded mesh version: " + version); }
+    final int arity = in.getInt();
+    final Codomain codomain = Codomain.values()[in.getInt()];
+    final int bits = in.getInt();
+    final int nv = in.getInt();
+    final int nf = in.getInt();
+    final int nChunks = in.getInt();
+    in.getInt();
+    final double[] min = new double[3];
+    final double[] step = new double[3];
+    for (int k = 0; k < 3; k++) { min[k] = in.getDouble(); }
+    for (int k = 0; k < 3; k++) { step[k] = in.getDouble(); }
+    in.position(HEADER);
+    final int[][] chunks = new int[nChunks][6];
+    for (final int[] c : chunks) {
+      for (int k = 0; k < 6; k++) { c[k] = in.getInt(); } }
+
+    final int dim = (Codomain.S2 == codomain) ? 2 : 3;
+    final int max = (1 << bits) - 1;
+    final int[] faces = new int[arity * nf];
+    final int[] q = new int[dim * nv];
+    IntStream.range(0, nChunks).parallel().forEach(i ->
+      decode(new Chunk(arity, codomain, bits, faces, q, chunks[i]),
+             new Decoder(bytes, chunks[i][4], chunks[i][5])));
+
+    final Object[] points = new Object[nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      if (Codomain.S2 == codomain) {
+        final double[] xyz = new double[3];
+        direction(q[2 * v], q[(2 * v) + 1], max, xyz);
+        points[v] = Point2S.from(Vector3D.of(xyz[0], xyz[1], xyz[2])); }
+      else {
+        points[v] = Vector3D.of(
+          min[0] + (step[0] * q[3 * v]),
+          min[1] + (step[1] * q[(3 * v) + 1]),
+          min[2] + (step[2] * q[(3 * v) + 2])); } });
+
+    final ZeroSimplex root = ZeroSimplex.make("codec");
+    final ZeroSimplex[] vertices = new ZeroSimplex[nv];
+    for (int v = 0; v < nv; v++) { vertices[v] = ZeroSimplex.make(root, v); }
+    final IndexedCellComplex cmplx = (3 == arity)
+      ? IndexedSimplicialComplex2D.make(vertices, faces)
+      : IndexedQuadComplex.make(vertices, faces);
+    return new Result(cmplx, points); }
+
+  //--------------------------------------------------------------------
+
+  private MeshCodec () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+
+  //--------------------------------------------------------------------
+}
@@ -0,0 +1,491 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.cmplx.IndexedQuadComplex;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import mop.java.geom.Point2U;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.euclidean.twod.Vector2D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Versioned binary container for triangle and quad meshes,
+ * written through a {@link FileChannel} and read back by mapping the
+ * whole file as a {@link MemorySegment}, so opening is O(1) in the
+ * mesh size, and sections can be handed to the GPU as direct buffers
+ * without copying.
+ * <p>
+ * Layout, little endian:
+ * <ul>
+ * <li>header, 64 bytes: magic <code>"mopmesh\0"</code>,
+ * <code>int</code> version, <code>int</code> arity (3 or 4),
+ * <code>long</code> vertex count, <code>long</code> face count,
+ * <code>int</code> section count, padding.
+ * <li>section table, 64 bytes per section: name, up to 32 UTF-8 bytes,
+ * zero padded, <code>int</code> {@link Type},
+ * <code>int</code> dimension, <code>int</code> flags,
+ * <code>int</code> padding, <code>long</code> offset,
+ * <code>long</code> length in bytes.
+ * <li>section data, each starting on a 64 byte boundary.
+ * </ul>
+ * Sections:
+ * <ul>
+ * <li><code>faces</code>: <code>int32</code>, arity per face, as in
+ * <code>faceIndices()</code>.
+ * <li><code>ids</code>: <code>int64</code>, 4 per vertex: the saved
+ * id, parent ids, and <code>(level &lt;&lt; 32) | slot</code>,
+ * see {@link ZeroSimplex}.
+ * <li><code>names</code>: bytes, the length prefixed UTF-8 names of
+ * the explicitly named vertices, in vertex order.
+ * <li><code>embedding</code>, optional: <code>float64</code>
+ * coordinates, as in {@link VertexAttributes#withEmbedding},
+ * with the codomain, a {@link Codomain} ordinal, in the flags.
+ * <li><code>attribute/</code><em>name</em>, optional: a
+ * {@link VertexAttributes} column, <code>float32</code> or
+ * <code>float64</code>, flags 1 for unit columns.
+ * </ul>
+ * <p>
+ * An open file is safe to read from multiple threads.
+ * Segments and buffers returned by it are invalid after
+ * {@link #close()}.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class MeshFile implements AutoCloseable {
+
+  public static final int VERSION = 1;
+
+  private static final byte[] MAGIC =
+    "mopmesh\0".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int HEADER = 64;
+  private static final int ENTRY = 64;
+  private static final int NAME = 32;
+  private static final int ALIGN = 64;
+
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+  private static final ValueLayout.OfInt INT =
+    ValueLayout.JAVA_INT_UNALIGNED.withOrder(ORDER);
+  private static final ValueLayout.OfLong LONG =
+    ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ORDER);
+  private static final ValueLayout.OfFloat FLOAT =
+    ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ORDER);
+  private static final ValueLayout.OfDouble DOUBLE =
+    ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(ORDER);
+
+  public static final String FACES = "faces";
+  public static final String IDS = "ids";
+  public static final String NAMES = "names";
+  public static final String EMBEDDING = "embedding";
+  public static final String ATTRIBUTE = "attribute/";
+
+  // elements per parallel copy chunk
+  private static final int CHUNK = 1 << 16;
+
+  //--------------------------------------------------------------------
+  /** Section element type. */
+  public enum Type {
+    INT32(4), INT64(8), FLOAT32(4), FLOAT64(8), BYTES(1);
+    private final int _bytes;
+    public final int bytes () { return _bytes; }
+    Type (final int bytes) { _bytes = bytes; } }
+
+  /** Embedding codomain, as stored in the flags of the
+   * <code>embedding</code> section.
+   */
+  public enum Codomain { POINT2S, POINT2U, VECTOR3D, VECTOR2D }
+
+  /** A section table entry. */
+  public record Section (String name,
+                         Type type,
+                         int dimension,
+                         int flags,
+                         long offset,
+                         long length) {
+    public final long count () { return length / type.bytes(); } }
+
+  //--------------------------------------------------------------------
+  // reading
+  //--------------------------------------------------------------------
+
+  private final Arena _arena;
+  private final MemorySegment _file;
+  private final int _arity;
+  private final int _nVertices;
+  private final int _nFaces;
+  private final Map<String,Section> _sections;
+
+  public final int arity () { return _arity; }
+  public final int nVertices () { return _nVertices; }
+  public final int nFaces () { return _nFaces; }
+
+  /** Section names, in file order. */
+  public final Set<String> names () { return _sections.keySet(); }
+
+  /** The named section's table entry, or null. */
+  public final Section section (final String name) {
+    return _sections.get(name); }
+
+  private final Section required (final String name) {
+    final Section s = _sections.get(name);
+    if (null == s) {
+      throw new IllegalArgumentException("No section: " + name); }
+    return s; }
+
+  /** The named section's bytes, without copying. */
+  public final MemorySegment segment (final String name) {
+    final Section s = required(name);
+    return _file.asSlice(s.offset(), s.length()); }
+
+  // a direct byte buffer over the section; at most 2GB
+  private final ByteBuffer bytes (final String name) {
+    return segment(name).asByteBuffer().order(ORDER); }
+
+  /** A direct buffer over an <code>int32</code> section, eg,
+   * <code>faces</code>, for GPU upload without copying.
+   */
+  public final IntBuffer intBuffer (final String name) {
+    return bytes(name).asIntBuffer(); }
+
+  /** A direct buffer over a <code>float32</code> section. */
+  public final FloatBuffer floatBuffer (final String name) {
+    return bytes(name).asFloatBuffer(); }
+
+  /** A direct buffer over a <code>float64</code> section. */
+  public final DoubleBuffer doubleBuffer (final String name) {
+    return bytes(name).asDoubleBuffer(); }
+
+  //--------------------------------------------------------------------
+  // copying out, in parallel chunks
+
+  private static final int chunks (final long n) {
+    return (int) ((n + CHUNK - 1) / CHUNK); }
+
+  private final int[] ints (final String name) {
+    final MemorySegment s = segment(name);
+    final int n = (int) (s.byteSize() / 4);
+    final int[] a = new int[n];
+    IntStream.range(0, chunks(n)).parallel().forEach(c -> {
+      final int i = c * CHUNK;
+      MemorySegment.copy(s, INT, 4L * i, a, i, Math.min(CHUNK, n - i)); });
+    return a; }
+
+  private final long[] longs (final String name) {
+    final MemorySegment s = segment(name);
+    final int n = (int) (s.byteSize() / 8);
+    final long[] a = new long[n];
+    IntStream.range(0, chunks(n)).parallel().forEach(c -> {
+      final int i = c * CHUNK;
+      MemorySegment.copy(s, LONG, 8L * i, a, i, Math.min(CHUNK, n - i)); });
+    return a; }
+
+  private final double[] doubles (final String name) {
+    final MemorySegment s = segment(name);
+    final int n = (int) (s.byteSize() / 8);
+    final double[] a = new double[n];
+    IntStream.range(0, chunks(n)).parallel().forEach(c -> {
+      final int i = c * CHUNK;
+      MemorySegment.copy(s, DOUBLE, 8L * i, a, i, Math.min(CHUNK, n - i)); });
+    return a; }
+
+  private final float[] floats (final String name) {
+    final MemorySegment s = segment(name);
+    final int n = (int) (s.byteSize() / 4);
+    final float[] a = new float[n];
+    IntStream.range(0, chunks(n)).parallel().forEach(c -> {
+      final int i = c * CHUNK;
+      MemorySegment.copy(s, FLOAT, 4L * i, a, i, Math.min(CHUNK, n - i)); });
+    return a; }
+
+  /** Copy of the face indices. */
+  public final int[] faceIndices () { return ints(FACES); }
+
+  /** Build the complex, with new vertices that render the same names
+   * as the saved ones. O(size): vertices are created sequentially, in
+   * index order.
+   */
+  public final IndexedCellComplex cmplx () {
+    final long[] ids = longs(IDS);
+    final MemorySegment names = segment(NAMES);
+    final ZeroSimplex[] vertices = new ZeroSimplex[_nVertices];
+    long offset = 0;
+    for (int v = 0; v < _nVertices; v++) {
+      final long parent = ids[(4 * v) + 1];
+      final long other = ids[(4 * v) + 2];
+      final long ls = ids[(4 * v) + 3];
+      String name = null;
+      if (parent < 0) {
+        final int length = names.get(INT, offset);
+        final byte[] b = new byte[length];
+        MemorySegment.copy(names, ValueLayout.JAVA_BYTE, offset + 4,
+                           b, 0, length);
+        name = new String(b, StandardCharsets.UTF_8);
+        offset += 4 + length; }
+      vertices[v] = ZeroSimplex.restore(
+        name, parent, other, (int) (ls >>> 32), (int) ls); }
+    final int[] faces = faceIndices();
+    return (3 == _arity)
+      ? IndexedSimplicialComplex2D.make(vertices, faces)
+      : IndexedQuadComplex.make(vertices, faces); }
+
+  /** The embedding's points, aligned with vertex indices, or null if
+   * there is no <code>embedding</code> section.
+   */
+  public final Object[] points () {
+    final Section s = _sections.get(EMBEDDING);
+    if (null == s) { return null; }
+    final double[] x = doubles(EMBEDDING);
+    final int d = s.dimension();
+    final Codomain codomain = Codomain.values()[s.flags()];
+    final Object[] points = new Object[_nVertices];
+    IntStream.range(0, _nVertices).parallel().forEach(v -> {
+      final int i = d * v;
+      points[v] = switch (codomain) {
+        case POINT2S -> Point2S.of(x[i], x[i + 1]);
+        case POINT2U -> Point2U.of(x[i], x[i + 1]);
+        case VECTOR3D -> Vector3D.of(x[i], x[i + 1], x[i + 2]);
+        case VECTOR2D -> Vector2D.of(x[i], x[i + 1]); }; });
+    return points; }
+
+  /** Copy the attribute sections into columns over <code>cmplx</code>,
+   * which should be {@link #cmplx()}; null if there are none.
+   */
+  public final VertexAttributes attributes (final IndexedCellComplex cmplx) {
+    VertexAttributes a = null;
+    for (final Section s : _sections.values()) {
+      if (! s.name().startsWith(ATTRIBUTE)) { continue; }
+      if (null == a) { a = VertexAttributes.make(cmplx); }
+      VertexAttributes.Column c = (Type.FLOAT32 == s.type())
+        ? VertexAttributes.Column.make(s.dimension(), floats(s.name()))
+        : VertexAttributes.Column.make(s.dimension(), doubles(s.name()));
+      if (0 != (s.flags() & 1)) { c = c.asUnit(); }
+      a = a.with(s.name().substring(ATTRIBUTE.length()), c); }
+    return a; }
+
+  /** Unmap the file. */
+  @Override
+  public final void close () { _arena.close(); }
+
+  //--------------------------------------------------------------------
+
+  private MeshFile (final Arena arena,
+                    final MemorySegment file) {
+    _arena = arena;
+    _file = file;
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (MAGIC[i] != file.get(ValueLayout.JAVA_BYTE, i)) {
+        throw new IllegalArgumentException("Not a mesh file"); } }
+    final int version = file.get(INT, 8);
+    if (VERSION != version) {
+      throw new IllegalArgumentException(
+        "Unsupported mesh file version: " + version); }
+    _arity = file.get(INT, 12);
+    _nVertices = Math.toIntExact(file.get(LONG, 16));
+    _nFaces = Math.toIntExact(file.get(LONG, 24));
+    final int n = file.get(INT, 32);
+    final Map<String,Section> sections = new LinkedHashMap<>();
+    for (int i = 0; i < n; i++) {
+      final long o = HEADER + ((long) i * ENTRY);
+      final byte[] b = new byte[NAME];
+      MemorySegment.copy(file, ValueLayout.JAVA_BYTE, o, b, 0, NAME);
+      int length = 0;
+      while ((length < NAME) && (0 != b[length])) { length++; }
+      final String name = new String(b, 0, length, StandardCharsets.UTF_8);
+      sections.put(name, new Section(
+        name,
+        Type.values()[file.get(INT, o + NAME)],
+        file.get(INT, o + NAME + 4),
+        file.get(INT, o + NAME + 8),
+        file.get(LONG, o + NAME + 16),
+        file.get(LONG, o + NAME + 24))); }
+    _sections = Collections.unmodifiableMap(sections); }
+
+  /** Map <code>path</code>, read only, and parse the header. */
+  public static final MeshFile open (final Path path) throws IOException {
+    final Arena arena = Arena.ofShared();
+    try (final FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      return new MeshFile(
+        arena,
+        channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size(),
+                    arena)); }
+    catch (final IOException | RuntimeException e) {
+      arena.close();
+      throw e; } }
+
+  //--------------------------------------------------------------------
+  // writing
+  //--------------------------------------------------------------------
+
+  // a section to write: one of the arrays is non-null
+  private record Data (String name,
+                       Type type,
+                       int dimension,
+                       int flags,
+                       int[] ints,
+                       long[] longs,
+                       float[] floats,
+                       double[] doubles,
+                       byte[] bytes) {
+    long length () {
+      final long n = switch (type) {
+        case INT32 -> ints.length;
+        case INT64 -> longs.length;
+        case FLOAT32 -> floats.length;
+        case FLOAT64 -> doubles.length;
+        case BYTES -> bytes.length; };
+      return n * type.bytes(); } }
+
+  private static final Codomain codomain (final Object p) {
+    return switch (p) {
+      case Point2S s -> Codomain.POINT2S;
+      case Point2U u -> Codomain.POINT2U;
+      case Vector3D v -> Codomain.VECTOR3D;
+      case Vector2D v -> Codomain.VECTOR2D;
+      default -> throw new IllegalArgumentException(
+        "Can't save points of " + p.getClass()); }; }
+
+  private static final long[] ids (final IndexedCellComplex c) {
+    final int n = c.nVertices();
+    final long[] ids = new long[4 * n];
+    IntStream.range(0, n).parallel().forEach(v -> {
+      final ZeroSimplex z = c.vertex(v);
+      ids[4 * v] = z.id();
+      ids[(4 * v) + 1] = z.isNamed() ? -1L : z.parent();
+      ids[(4 * v) + 2] = z.other();
+      ids[(4 * v) + 3] =
+        (((long) z.level()) << 32) | (z.slot() & 0xFFFFFFFFL); });
+    return ids; }
+
+  private static final byte[] names (final IndexedCellComplex c) {
+    final List<byte[]> names = new ArrayList<>();
+    int length = 0;
+    for (int v = 0; v < c.nVertices(); v++) {
+      final ZeroSimplex z = c.vertex(v);
+      if (z.isNamed()) {
+        final byte[] b = z.name().getBytes(StandardCharsets.UTF_8);
+        names.add(b);
+        length += 4 + b.length; } }
+    final ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+    for (final byte[] b : names) { buffer.putInt(b.length).put(b); }
+    return buffer.array(); }
+
+  private static final long align (final long offset) {
+    return ((offset + ALIGN - 1) / ALIGN) * ALIGN; }
+
+  private static final void copy (final Data d,
+                                  final MemorySegment dst) {
+    final long n = d.length() / d.type().bytes();
+    IntStream.range(0, chunks(n)).parallel().forEach(c -> {
+      final int i = c * CHUNK;
+      final int m = (int) Math.min(CHUNK, n - i);
+      switch (d.type()) {
+        case INT32 -> MemorySegment.copy(d.ints(), i, dst, INT, 4L * i, m);
+        case INT64 -> MemorySegment.copy(d.longs(), i, dst, LONG, 8L * i, m);
+        case FLOAT32 ->
+          MemorySegment.copy(d.floats(), i, dst, FLOAT, 4L * i, m);
+        case FLOAT64 ->
+          MemorySegment.copy(d.doubles(), i, dst, DOUBLE, 8L * i, m);
+        case BYTES -> MemorySegment.copy(
+          d.bytes(), i, dst, ValueLayout.JAVA_BYTE, i, m); } }); }
+
+  /** Write <code>cmplx</code>, an {@link IndexedSimplicialComplex2D}
+   * or {@link IndexedQuadComplex}, with <code>embedding</code> and
+   * <code>attributes</code>, either of which may be null.
+   */
+  public static final void write (final Path path,
+                                  final IndexedCellComplex cmplx,
+                                  final IFn embedding,
+                                  final VertexAttributes attributes)
+    throws IOException {
+    final List<Data> data = new ArrayList<>();
+    data.add(new Data(FACES, Type.INT32, cmplx.arity(), 0,
+                      cmplx.faceIndices(), null, null, null, null));
+    data.add(new Data(IDS, Type.INT64, 4, 0,
+                      null, ids(cmplx), null, null, null));
+    data.add(new Data(NAMES, Type.BYTES, 1, 0,
+                      null, null, null, null, names(cmplx)));
+    if ((null != embedding) && (0 < cmplx.nVertices())) {
+      final VertexAttributes.Column c = VertexAttributes.make(cmplx)
+        .withEmbedding(EMBEDDING, embedding).column(EMBEDDING);
+      final Codomain codomain =
+        codomain(embedding.invoke(cmplx.vertex(0)));
+      data.add(new Data(EMBEDDING, Type.FLOAT64, c.dimension(),
+                        codomain.ordinal(),
+                        null, null, null, c.doubles(), null)); }
+    if (null != attributes) {
+      if (attributes.cmplx() != cmplx) {
+        throw new IllegalArgumentException(
+          "Attributes aren't over the complex being written"); }
+      for (final String name : attributes.names()) {
+        final VertexAttributes.Column c = attributes.column(name);
+        final int flags = c.isUnit() ? 1 : 0;
+        data.add(c.isFloat()
+          ? new Data(ATTRIBUTE + name, Type.FLOAT32, c.dimension(), flags,
+                     null, null, c.floats(), null, null)
+          : new Data(ATTRIBUTE + name, Type.FLOAT64, c.dimension(), flags,
+                     null, null, null, c.doubles(), null)); } }
+
+    final long[] offsets = new long[data.size()];
+    long end = align(HEADER + ((long) data.size() * ENTRY));
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = end;
+      end = align(end + data.get(i).length()); }
+
+    try (final Arena arena = Arena.ofShared();
+         final FileChannel channel = FileChannel.open(
+           path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+           StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final MemorySegment file =
+        channel.map(FileChannel.MapMode.READ_WRITE, 0L, end, arena);
+      MemorySegment.copy(MAGIC, 0, file, ValueLayout.JAVA_BYTE, 0L,
+                         MAGIC.length);
+      file.set(INT, 8, VERSION);
+      file.set(INT, 12, cmplx.arity());
+      file.set(LONG, 16, cmplx.nVertices());
+      file.set(LONG, 24, cmplx.nFaces());
+      file.set(INT, 32, data.size());
+      for (int i = 0; i < offsets.length; i++) {
+        final Data d = data.get(i);
+        final long o = HEADER + ((long) i * ENTRY);
+        final byte[] name = d.name().getBytes(StandardCharsets.UTF_8);
+        if (name.length > NAME) {
+          throw new IllegalArgumentException(
+            "Section name longer than " + NAME + " bytes: " + d.name()); }
+        MemorySegment.copy(name, 0, file, ValueLayout.JAVA_BYTE, o,
+                           name.length);
+        file.set(INT, o + NAME, d.type().ordinal());
+        file.set(INT, o + NAME + 4, d.dimension());
+        file.set(INT, o + NAME + 8, d.flags());
+        file.set(LONG, o + NAME + 16, offsets[i]);
+        file.set(LONG, o + NAME + 24, d.length());
+        copy(d, file.asSlice(offsets[i], d.length())); }
+      file.force(); } }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,379 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.CellComplex;
+import mop.java.cmplx.FaceSubset;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.cmplx.QuadComplex;
+import mop.java.cmplx.SimplicialComplex2D;
+import mop.java.geom.Point2U;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.euclidean.twod.Vector2D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Per face quality metrics for triangle and quad meshes, computed in
+ * one parallel pass, with histogram and quantile summaries,
+ * as primitive arrays, for comparing subdivision and optimization
+ * schemes over millions of faces.
+ * <p>
+ * Metrics are measured in the space of the embedding:
+ * <ul>
+ * <li>{@link Space#R3}: <code>Vector3D</code>; Euclidean lengths,
+ * angles, and (unsigned) areas.
+ * <li>{@link Space#S2}: <code>Point2S</code>; great arc lengths,
+ * spherical angles, and signed spherical areas, as in
+ * <code>mop.geom.s2/signed-area</code>.
+ * <li>{@link Space#PLANE}: <code>Point2U</code> or
+ * <code>Vector2D</code>; planar lengths, angles, and signed areas.
+ * </ul>
+ * Aspect ratio is circumradius over twice inradius, as in
+ * <code>mop.jts.jts/aspect-ratio</code>, computed from the edge
+ * lengths: 1 for an equilateral triangle, infinite for a degenerate
+ * one. For quads, it's the worse of the two triangles on either
+ * side of the shorter diagonal.
+ * Quad areas are the sum of the triangles <code>(0,1,2)</code> and
+ * <code>(0,2,3)</code>.
+ * <p>
+ * Angles are in radians.
+ * <p>
+ * Immutable, as long as the arrays aren't modified.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class MeshMetrics {
+
+  /** Where lengths, angles, and areas are measured. */
+  public enum Space { R3, S2, PLANE }
+
+  private final Space _space;
+  public final Space space () { return _space; }
+
+  private final IndexedCellComplex _cmplx;
+  /** Metric arrays are indexed like this complex's faces. */
+  public final IndexedCellComplex cmplx () { return _cmplx; }
+
+  private final double[] _area;
+  /** Not a copy. */
+  public final double[] area () { return _area; }
+
+  private final double[] _aspectRatio;
+  /** Not a copy. */
+  public final double[] aspectRatio () { return _aspectRatio; }
+
+  private final double[] _minAngle;
+  /** Not a copy. */
+  public final double[] minAngle () { return _minAngle; }
+
+  private final double[] _maxAngle;
+  /** Not a copy. */
+  public final double[] maxAngle () { return _maxAngle; }
+
+  private final double[] _minEdge;
+  /** Not a copy. */
+  public final double[] minEdge () { return _minEdge; }
+
+  private final double[] _maxEdge;
+  /** Not a copy. */
+  public final double[] maxEdge () { return _maxEdge; }
+
+  //--------------------------------------------------------------------
+  // summaries
+  //--------------------------------------------------------------------
+
+  /** Counts of <code>values</code> in <code>bins</code> equal width
+   * bins over <code>[min,max]</code>, in parallel.
+   * Values outside the range are counted in the first or last bin;
+   * NaNs aren't counted.
+   */
+  public static final long[] histogram (final double[] values,
+                                        final double min,
+                                        final double max,
+                                        final int bins) {
+    assert (0 < bins) && (min < max);
+    final double scale = bins / (max - min);
+    return IntStream.range(0, values.length).parallel()
+      .collect(
+        () -> new long[bins],
+        (counts, i) -> {
+          final double x = values[i];
+          if (! Double.isNaN(x)) {
+            final int b = (int) Math.floor((x - min) * scale);
+            counts[Math.max(0, Math.min(bins - 1, b))]++; } },
+        (a, b) -> { for (int i = 0; i < bins; i++) { a[i] += b[i]; } }); }
+
+  /** Linearly interpolated quantiles of <code>values</code>, ignoring
+   * NaNs, at each of <code>probabilities</code>, in <code>[0,1]</code>.
+   * Sorts a copy, in parallel.
+   * All NaN if there are no values.
+   */
+  public static final double[] quantiles (final double[] values,
+                                          final double[] probabilities) {
+    final double[] sorted = Arrays.copyOf(values, values.length);
+    Arrays.parallelSort(sorted);
+    // NaNs sort last
+    int n = sorted.length;
+    while ((0 < n) && Double.isNaN(sorted[n - 1])) { n--; }
+    final double[] q = new double[probabilities.length];
+    for (int i = 0; i < q.length; i++) {
+      final double p = probabilities[i];
+      assert (0.0 <= p) && (p <= 1.0);
+      if (0 == n) { q[i] = Double.NaN; continue; }
+      final double x = p * (n - 1);
+      final int j = (int) Math.floor(x);
+      final int k = Math.min(n - 1, j + 1);
+      q[i] = sorted[j] + ((x - j) * (sorted[k] - sorted[j])); }
+    return q; }
+
+  /** <code>count min max mean standard-deviation</code>,
+   * ignoring NaNs.
+   */
+  public static final double[] moments (final double[] values) {
+    final double[] s = IntStream.range(0, values.length).parallel()
+      .collect(
+        () -> new double[] { 0.0, Double.POSITIVE_INFINITY,
+                             Double.NEGATIVE_INFINITY, 0.0, 0.0 },
+        (a, i) -> {
+          final double x = values[i];
+          if (! Double.isNaN(x)) {
+            a[0] += 1.0;
+            a[1] = Math.min(a[1], x);
+            a[2] = Math.max(a[2], x);
+            a[3] += x;
+            a[4] += x * x; } },
+        (a, b) -> {
+          a[0] += b[0];
+          a[1] = Math.min(a[1], b[1]);
+          a[2] = Math.max(a[2], b[2]);
+          a[3] += b[3];
+          a[4] += b[4]; });
+    final double n = s[0];
+    final double mean = s[3] / n;
+    final double var = Math.max(0.0, (s[4] / n) - (mean * mean));
+    return new double[] { n, s[1], s[2], mean, Math.sqrt(var) }; }
+
+  //--------------------------------------------------------------------
+  // geometry
+  //--------------------------------------------------------------------
+  // Points are packed xyz, with z = 0 in the plane, and unit vectors
+  // on S2.
+
+  private static final double dot (final double[] p,
+                                   final int i,
+                                   final int j) {
+    return (p[i] * p[j]) + (p[i + 1] * p[j + 1]) + (p[i + 2] * p[j + 2]); }
+
+  private static final double norm (final double x,
+                                    final double y,
+                                    final double z) {
+    return Math.sqrt((x * x) + (y * y) + (z * z)); }
+
+  private final double length (final double[] p,
+                               final int i,
+                               final int j) {
+    if (Space.S2 == _space) {
+      final double cx = (p[i + 1] * p[j + 2]) - (p[i + 2] * p[j + 1]);
+      final double cy = (p[i + 2] * p[j]) - (p[i] * p[j + 2]);
+      final double cz = (p[i] * p[j + 1]) - (p[i + 1] * p[j]);
+      return Math.atan2(norm(cx, cy, cz), dot(p, i, j)); }
+    return norm(p[j] - p[i], p[j + 1] - p[i + 1], p[j + 2] - p[i + 2]); }
+
+  // interior angle at i, between the edges to j and k
+  private final double angle (final double[] p,
+                              final int i,
+                              final int j,
+                              final int k) {
+    double ux = p[j] - p[i];
+    double uy = p[j + 1] - p[i + 1];
+    double uz = p[j + 2] - p[i + 2];
+    double vx = p[k] - p[i];
+    double vy = p[k + 1] - p[i + 1];
+    double vz = p[k + 2] - p[i + 2];
+    if (Space.S2 == _space) {
+      // project onto the tangent plane at i
+      final double du = (ux * p[i]) + (uy * p[i + 1]) + (uz * p[i + 2]);
+      final double dv = (vx * p[i]) + (vy * p[i + 1]) + (vz * p[i + 2]);
+      ux -= du * p[i]; uy -= du * p[i + 1]; uz -= du * p[i + 2];
+      vx -= dv * p[i]; vy -= dv * p[i + 1]; vz -= dv * p[i + 2]; }
+    final double cx = (uy * vz) - (uz * vy);
+    final double cy = (uz * vx) - (ux * vz);
+    final double cz = (ux * vy) - (uy * vx);
+    return Math.atan2(norm(cx, cy, cz),
+                      (ux * vx) + (uy * vy) + (uz * vz)); }
+
+  private final double area (final double[] p,
+                             final int i,
+                             final int j,
+                             final int k) {
+    final double ax = p[i];
+    final double ay = p[i + 1];
+    final double az = p[i + 2];
+    final double bx = p[j];
+    final double by = p[j + 1];
+    final double bz = p[j + 2];
+    final double cx = p[k];
+    final double cy = p[k + 1];
+    final double cz = p[k + 2];
+    return switch (_space) {
+      case S2 -> {
+        final double triple =
+          (ax * ((by * cz) - (bz * cy)))
+          + (ay * ((bz * cx) - (bx * cz)))
+          + (az * ((bx * cy) - (by * cx)));
+        yield 2.0 * Math.atan(
+          triple / (1.0 + dot(p, i, j) + dot(p, j, k) + dot(p, i, k))); }
+      case PLANE ->
+        0.5 * (((bx - ax) * (cy - ay)) - ((by - ay) * (cx - ax)));
+      case R3 -> {
+        final double ux = bx - ax;
+        final double uy = by - ay;
+        final double uz = bz - az;
+        final double vx = cx - ax;
+        final double vy = cy - ay;
+        final double vz = cz - az;
+        yield 0.5 * norm((uy * vz) - (uz * vy),
+                         (uz * vx) - (ux * vz),
+                         (ux * vy) - (uy * vx)); } }; }
+
+  // circumradius / (2 * inradius), from edge lengths
+  private static final double aspectRatio (final double a,
+                                           final double b,
+                                           final double c) {
+    final double d = (b + c - a) * (c + a - b) * (a + b - c);
+    return (d <= 0.0) ? Double.POSITIVE_INFINITY : ((a * b * c) / d); }
+
+  //--------------------------------------------------------------------
+
+  private final void triangle (final int f,
+                               final int[] faces,
+                               final double[] p) {
+    final int f3 = 3 * f;
+    final int i = 3 * faces[f3];
+    final int j = 3 * faces[f3 + 1];
+    final int k = 3 * faces[f3 + 2];
+    final double ab = length(p, i, j);
+    final double bc = length(p, j, k);
+    final double ca = length(p, k, i);
+    final double a0 = angle(p, i, j, k);
+    final double a1 = angle(p, j, k, i);
+    final double a2 = angle(p, k, i, j);
+    _area[f] = area(p, i, j, k);
+    _aspectRatio[f] = aspectRatio(ab, bc, ca);
+    _minAngle[f] = Math.min(a0, Math.min(a1, a2));
+    _maxAngle[f] = Math.max(a0, Math.max(a1, a2));
+    _minEdge[f] = Math.min(ab, Math.min(bc, ca));
+    _maxEdge[f] = Math.max(ab, Math.max(bc, ca)); }
+
+  private final void quad (final int f,
+                           final int[] faces,
+                           final double[] p) {
+    final int f4 = 4 * f;
+    final int i = 3 * faces[f4];
+    final int j = 3 * faces[f4 + 1];
+    final int k = 3 * faces[f4 + 2];
+    final int l = 3 * faces[f4 + 3];
+    final double ab = length(p, i, j);
+    final double bc = length(p, j, k);
+    final double cd = length(p, k, l);
+    final double da = length(p, l, i);
+    final double ac = length(p, i, k);
+    final double bd = length(p, j, l);
+    double minAngle = Double.POSITIVE_INFINITY;
+    double maxAngle = Double.NEGATIVE_INFINITY;
+    final int[] corners = { i, j, k, l };
+    for (int c = 0; c < 4; c++) {
+      final double a = angle(p, corners[c], corners[(c + 1) % 4],
+                             corners[(c + 3) % 4]);
+      minAngle = Math.min(minAngle, a);
+      maxAngle = Math.max(maxAngle, a); }
+    _area[f] = area(p, i, j, k) + area(p, i, k, l);
+    _aspectRatio[f] = (ac <= bd)
+      ? Math.max(aspectRatio(ab, bc, ac), aspectRatio(ac, cd, da))
+      : Math.max(aspectRatio(bc, cd, bd), aspectRatio(bd, da, ab));
+    _minAngle[f] = minAngle;
+    _maxAngle[f] = maxAngle;
+    _minEdge[f] = Math.min(Math.min(ab, bc), Math.min(cd, da));
+    _maxEdge[f] = Math.max(Math.max(ab, bc), Math.max(cd, da)); }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private static final Space space (final Object p) {
+    return switch (p) {
+      case Vector3D v -> Space.R3;
+      case Point2S s -> Space.S2;
+      case Point2U u -> Space.PLANE;
+      case Vector2D v -> Space.PLANE;
+      default -> throw new IllegalArgumentException(
+        "No metrics for " + p.getClass()); }; }
+
+  private static final void coordinates (final Object p,
+                                         final double[] x,
+                                         final int i) {
+    switch (p) {
+      case Vector3D v -> {
+        x[i] = v.getX(); x[i + 1] = v.getY(); x[i + 2] = v.getZ(); }
+      case Point2S s -> {
+        final Vector3D v = s.getVector();
+        x[i] = v.getX(); x[i + 1] = v.getY(); x[i + 2] = v.getZ(); }
+      case Point2U u -> { x[i] = u.getU(); x[i + 1] = u.getV(); }
+      case Vector2D v -> { x[i] = v.getX(); x[i + 1] = v.getY(); }
+      default -> throw new IllegalArgumentException(
+        "No metrics for " + p.getClass()); } }
+
+  private MeshMetrics (final IndexedCellComplex cmplx,
+                       final IFn embedding) {
+    final int nv = cmplx.nVertices();
+    final int nf = cmplx.nFaces();
+    final double[] p = new double[3 * nv];
+    _cmplx = cmplx;
+    _space = (0 == nv) ? Space.R3 : space(embedding.invoke(cmplx.vertex(0)));
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      final Object x = embedding.invoke(cmplx.vertex(v));
+      assert _space == space(x) : x;
+      coordinates(x, p, 3 * v); });
+    _area = new double[nf];
+    _aspectRatio = new double[nf];
+    _minAngle = new double[nf];
+    _maxAngle = new double[nf];
+    _minEdge = new double[nf];
+    _maxEdge = new double[nf];
+    final int[] faces = cmplx.faceIndices();
+    switch (cmplx.arity()) {
+      case 3 -> IntStream.range(0, nf).parallel().forEach(f ->
+        triangle(f, faces, p));
+      case 4 -> IntStream.range(0, nf).parallel().forEach(f ->
+        quad(f, faces, p));
+      default -> throw new IllegalArgumentException(
+        "No metrics for arity " + cmplx.arity()); } }
+
+  /** Metrics for the faces of <code>cmplx</code>, a triangle or quad
+   * complex, whose vertices <code>embedding</code> maps to
+   * <code>Vector3D</code>, <code>Point2S</code>, <code>Point2U</code>,
+   * or <code>Vector2D</code>.
+   */
+  public static final MeshMetrics make (final IndexedCellComplex cmplx,
+                                        final IFn embedding) {
+    return new MeshMetrics(cmplx, embedding); }
+
+  /** Metrics for the faces of the indexed form of the mesh's complex.
+   */
+  public static final MeshMetrics make (final Mesh mesh) {
+    final CellComplex c = mesh.cmplx();
+    final IndexedCellComplex ic = switch (c) {
+      case IndexedCellComplex i -> i;
+      case SimplicialComplex2D sc -> sc.indexed();
+      case QuadComplex qc -> qc.indexed();
+      case FaceSubset fs -> fs.toIndexed();
+      default -> throw new UnsupportedOperationException(
+        "No metrics for " + c.getClass()); };
+    return make(ic, mesh.embedding()); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
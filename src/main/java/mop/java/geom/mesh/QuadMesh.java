@@ -2,18 +2,24 @@ package mop.java.geom.mesh;
 
 import clojure.lang.IFn;
 import mop.java.cmplx.CellComplex;
+import mop.java.cmplx.FaceSubset;
+import mop.java.cmplx.IndexedQuadComplex;
 import mop.java.cmplx.QuadComplex;
 
 /**
  * Embedded two dimensional quad complex. Minimal representation:
  * vertices and faces only.
+ * <p>
+ * The complex is either a {@link QuadComplex}, an
+ * {@link IndexedQuadComplex}, or a {@link FaceSubset} of a
+ * quad complex.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-03-06
+ * @version 2026-10-18
  */
 public final class QuadMesh implements Mesh {
 
-  private final QuadComplex _cmplx;
+  private final CellComplex _cmplx;
 
   public final CellComplex cmplx () { return _cmplx; }
 
@@ -21,14 +27,24 @@ public final class QuadMesh implements Mesh {
 
   public final IFn embedding () { return _embedding; }
 
+  // null unless supplied
+  private final VertexAttributes _attributes;
+
+  public final VertexAttributes attributes () { return _attributes; }
+
   //--------------------------------------------------------------------
   // construction
   //--------------------------------------------------------------------
 
-  private QuadMesh (final QuadComplex cmplx,
-                    final IFn embedding) {
+  private QuadMesh (final CellComplex cmplx,
+                    final IFn embedding,
+                    final VertexAttributes attributes) {
+    assert (null == attributes)
+      || (cmplx == attributes.cmplx())
+      || ((cmplx instanceof FaceSubset s) && (s.root() == attributes.cmplx()));
     _cmplx = cmplx;
     _embedding = embedding;
+    _attributes = attributes;
   }
 
   /**
@@ -38,7 +54,38 @@ public final class QuadMesh implements Mesh {
    */
   public static final QuadMesh make (final QuadComplex cmplx,
                                      final IFn embedding) {
-    return new QuadMesh(cmplx, embedding);
+    return new QuadMesh(cmplx, embedding, null);
+  }
+
+  public static final QuadMesh make (final IndexedQuadComplex cmplx,
+                                     final IFn embedding) {
+    return new QuadMesh(cmplx, embedding, null);
+  }
+
+  /** Carry columnar vertex data, indexed like the vertices of
+   * <code>cmplx</code>, alongside the embedding.
+   */
+  public static final QuadMesh make (final IndexedQuadComplex cmplx,
+                                     final IFn embedding,
+                                     final VertexAttributes attributes) {
+    return new QuadMesh(cmplx, embedding, attributes);
+  }
+
+  /** A view of a subset of the faces of a complex,
+   * sharing its vertices.
+   */
+  public static final QuadMesh make (final FaceSubset cmplx,
+                                     final IFn embedding) {
+    return new QuadMesh(cmplx, embedding, null);
+  }
+
+  /** A view of a subset of the faces of a complex, with columnar
+   * vertex data indexed like the vertices of its root.
+   */
+  public static final QuadMesh make (final FaceSubset cmplx,
+                                     final IFn embedding,
+                                     final VertexAttributes attributes) {
+    return new QuadMesh(cmplx, embedding, attributes);
   }
 
   //--------------------------------------------------------------------
@@ -0,0 +1,289 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Edge flip (Lawson) optimization of a triangle complex embedded in
+ * S2 towards the spherical Delaunay triangulation of its vertices.
+ * <p>
+ * Interior edge <code>a-b</code>, between faces <code>(a,b,c)</code>
+ * and <code>(b,a,d)</code>, is locally Delaunay if <code>d</code> is
+ * not inside the circumcircle of <code>(a,b,c)</code>: on the sphere,
+ * the circumcircle bounds the cap cut off by the plane through
+ * <code>a,b,c</code>, so the in-circle predicate is the sign of
+ * <code>(d-a).((b-a)x(c-a))</code>, the same as a convex hull test.
+ * Non-Delaunay edges are replaced by <code>c-d</code>.
+ * <p>
+ * A parallel pass over the edges finds the initial worklist;
+ * flips, each O(1) in a working copy of the face and twin arrays,
+ * are then sequential, re-queuing the 4 edges around each flipped
+ * quad.
+ * Edges in the constraint list, boundary edges, and flips that would
+ * leave a vertex with fewer than 3 faces, fold a face over, or
+ * duplicate an existing edge, are skipped, so an input with folded
+ * faces may keep some non-Delaunay edges.
+ * <p>
+ * Vertices, and so the embedding, are unchanged; only the faces
+ * differ.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class S2Delaunay {
+
+  // relative tolerance for the in-circle predicate, so flips strictly
+  // improve, and the iteration terminates
+  private static final double EPSILON = 1.0e-12;
+
+  //--------------------------------------------------------------------
+  /** The flipped complex, sharing the original's vertices,
+   * and the number of flips.
+   */
+  public record Result (IndexedSimplicialComplex2D cmplx,
+                        long flips) { }
+
+  //--------------------------------------------------------------------
+  // predicate
+  //--------------------------------------------------------------------
+
+  /** Is <code>d</code> strictly inside the circumcircle of the
+   * (counter-clockwise, seen from outside) spherical triangle
+   * <code>a,b,c</code>? Arguments are offsets into packed
+   * <code>xyz</code>.
+   */
+  static final boolean inCircle (final double[] p,
+                                 final int a,
+                                 final int b,
+                                 final int c,
+                                 final int d) {
+    final double ux = p[b] - p[a];
+    final double uy = p[b + 1] - p[a + 1];
+    final double uz = p[b + 2] - p[a + 2];
+    final double vx = p[c] - p[a];
+    final double vy = p[c + 1] - p[a + 1];
+    final double vz = p[c + 2] - p[a + 2];
+    final double wx = p[d] - p[a];
+    final double wy = p[d + 1] - p[a + 1];
+    final double wz = p[d + 2] - p[a + 2];
+    final double nx = (uy * vz) - (uz * vy);
+    final double ny = (uz * vx) - (ux * vz);
+    final double nz = (ux * vy) - (uy * vx);
+    final double det = (wx * nx) + (wy * ny) + (wz * nz);
+    final double scale =
+      Math.sqrt(((ux * ux) + (uy * uy) + (uz * uz))
+                * ((vx * vx) + (vy * vy) + (vz * vz))
+                * ((wx * wx) + (wy * wy) + (wz * wz)));
+    return det > (EPSILON * scale); }
+
+  //--------------------------------------------------------------------
+  // working state
+  //--------------------------------------------------------------------
+
+  private final double[] _xyz;
+  private final int[] _faces;
+  private final int[] _twin;
+  private final int[] _degree;
+  // sorted packed (min,max) vertex pairs
+  private final long[] _constrained;
+
+  private static final int next (final int h) {
+    return (2 == (h % 3)) ? (h - 2) : (h + 1); }
+
+  private static final int prev (final int h) {
+    return (0 == (h % 3)) ? (h + 2) : (h - 1); }
+
+  private static final long key (final int a,
+                                 final int b) {
+    return (((long) Math.min(a, b)) << 32) | Math.max(a, b); }
+
+  private final boolean isConstrained (final int a,
+                                       final int b) {
+    return (0 < _constrained.length)
+      && (0 <= Arrays.binarySearch(_constrained, key(a, b))); }
+
+  // should the edge of half-edge h be flipped?
+  private final boolean flippable (final int h) {
+    final int t = _twin[h];
+    if (t < 0) { return false; }
+    final int a = _faces[h];
+    final int b = _faces[next(h)];
+    final int c = _faces[prev(h)];
+    final int d = _faces[prev(t)];
+    if ((c == d) || isConstrained(a, b)) { return false; }
+    return inCircle(_xyz, 3 * a, 3 * b, 3 * c, 3 * d); }
+
+  // is there already an edge c-d? rotate around c from the
+  // half-edge g0 leaving it, in both directions, checking the edges
+  // out of, and into, c in each face
+  private final boolean touches (final int g,
+                                 final int d) {
+    return (_faces[next(g)] == d) || (_faces[prev(g)] == d); }
+
+  private final boolean hasEdge (final int g0,
+                                 final int d) {
+    int g = g0;
+    do {
+      if (touches(g, d)) { return true; }
+      g = _twin[prev(g)]; }
+    while ((0 <= g) && (g != g0));
+    if (g == g0) { return false; }
+    // open fan: the other way
+    g = g0;
+    while (true) {
+      final int t = _twin[g];
+      if (t < 0) { return false; }
+      g = next(t);
+      if (touches(g, d)) { return true; } } }
+
+  // is the triangle (i,j,k) counter-clockwise, seen from outside?
+  private final boolean ccw (final int i,
+                             final int j,
+                             final int k) {
+    final double[] p = _xyz;
+    final int a = 3 * i;
+    final int b = 3 * j;
+    final int c = 3 * k;
+    return 0.0 <
+      ((p[a] * ((p[b + 1] * p[c + 2]) - (p[b + 2] * p[c + 1])))
+       + (p[a + 1] * ((p[b + 2] * p[c]) - (p[b] * p[c + 2])))
+       + (p[a + 2] * ((p[b] * p[c + 1]) - (p[b + 1] * p[c])))); }
+
+  // flip the edge of h, returning false if skipped
+  private final boolean flip (final int h) {
+    final int t = _twin[h];
+    final int h1 = next(h);
+    final int h2 = prev(h);
+    final int t1 = next(t);
+    final int t2 = prev(t);
+    final int a = _faces[h];
+    final int b = _faces[h1];
+    final int c = _faces[h2];
+    final int d = _faces[t2];
+    if ((_degree[a] <= 3) || (_degree[b] <= 3)) { return false; }
+    if ((! ccw(c, a, d)) || (! ccw(d, b, c))) { return false; }
+    if (hasEdge(h2, d)) { return false; }
+    final int bc = _twin[h1];
+    final int ca = _twin[h2];
+    final int ad = _twin[t1];
+    final int db = _twin[t2];
+    // (a,b,c) -> (c,a,d), (b,a,d) -> (d,b,c)
+    _faces[h] = c; _faces[h1] = a; _faces[h2] = d;
+    _faces[t] = d; _faces[t1] = b; _faces[t2] = c;
+    link(h, ca);
+    link(h1, ad);
+    link(h2, t2);
+    link(t, db);
+    link(t1, bc);
+    _degree[a]--; _degree[b]--; _degree[c]++; _degree[d]++;
+    return true; }
+
+  private final void link (final int g,
+                           final int t) {
+    _twin[g] = t;
+    if (0 <= t) { _twin[t] = g; } }
+
+  //--------------------------------------------------------------------
+
+  private S2Delaunay (final IndexedSimplicialComplex2D cmplx,
+                      final double[] xyz,
+                      final long[] constrained) {
+    final HalfEdges he = cmplx.halfEdges();
+    final int nh = he.nHalfEdges();
+    _xyz = xyz;
+    _faces = Arrays.copyOf(cmplx.faceIndices(), nh);
+    _twin = new int[nh];
+    IntStream.range(0, nh).parallel().forEach(h -> _twin[h] = he.twin(h));
+    _degree = new int[cmplx.nVertices()];
+    IntStream.range(0, cmplx.nVertices()).parallel().forEach(v ->
+      _degree[v] = he.outDegree(v));
+    _constrained = constrained; }
+
+  private final long run () {
+    final int nh = _faces.length;
+    // initial worklist, in parallel
+    final int[] initial = IntStream.range(0, nh).parallel()
+      .filter(h -> ((_twin[h] < 0) || (h < _twin[h])) && flippable(h))
+      .toArray();
+    int[] stack =
+      Arrays.copyOf(initial, Math.max(16, 2 * initial.length));
+    int n = initial.length;
+    final BitSet queued = new BitSet(nh);
+    for (int i = 0; i < n; i++) { queued.set(stack[i]); }
+    long flips = 0;
+    while (0 < n) {
+      final int h = stack[--n];
+      queued.clear(h);
+      if (! flippable(h)) { continue; }
+      if (! flip(h)) { continue; }
+      flips++;
+      final int t = _twin[h];
+      if ((n + 4) > stack.length) {
+        stack = Arrays.copyOf(stack, 2 * stack.length); }
+      // the outer edges of the quad
+      for (final int g : new int[] { h, next(h), t, next(t) }) {
+        if (! queued.get(g)) { queued.set(g); stack[n++] = g; } } }
+    return flips; }
+
+  //--------------------------------------------------------------------
+
+  private static final long[] constraints (final int[] pairs) {
+    if (null == pairs) { return new long[0]; }
+    final long[] keys = new long[pairs.length / 2];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = key(pairs[2 * i], pairs[(2 * i) + 1]); }
+    Arrays.sort(keys);
+    return keys; }
+
+  private static final double[] xyz (final IndexedSimplicialComplex2D c,
+                                     final IFn embedding) {
+    final int nv = c.nVertices();
+    final double[] xyz = new double[3 * nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      final Vector3D p =
+        ((Point2S) embedding.invoke(c.vertex(v))).getVector();
+      xyz[3 * v] = p.getX();
+      xyz[(3 * v) + 1] = p.getY();
+      xyz[(3 * v) + 2] = p.getZ(); });
+    return xyz; }
+
+  /** Flip the edges of <code>cmplx</code>, whose vertices
+   * <code>embedding</code> maps to <code>Point2S</code>, until every
+   * unconstrained interior edge is locally Delaunay.
+   * <code>constrained</code>, which may be null, holds pairs of vertex
+   * indices, in either order, of edges that must not flip.
+   */
+  public static final Result flip (final IndexedSimplicialComplex2D cmplx,
+                                   final IFn embedding,
+                                   final int[] constrained) {
+    final S2Delaunay d = new S2Delaunay(cmplx, xyz(cmplx, embedding),
+                                        constraints(constrained));
+    final long flips = d.run();
+    final ZeroSimplex[] vertices =
+      cmplx.vertices().toArray(new ZeroSimplex[0]);
+    return new Result(
+      IndexedSimplicialComplex2D.make(vertices, d._faces), flips); }
+
+  /** Number of interior edges that aren't locally Delaunay,
+   * counted in parallel.
+   */
+  public static final long nonDelaunayEdges (
+    final IndexedSimplicialComplex2D cmplx,
+    final IFn embedding) {
+    final S2Delaunay d = new S2Delaunay(cmplx, xyz(cmplx, embedding),
+                                        new long[0]);
+    return IntStream.range(0, d._faces.length).parallel()
+      .filter(h -> (h < d._twin[h]) && d.flippable(h))
+      .count(); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,248 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedCellComplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Iterative vertex relaxation for triangle and quad meshes embedded
+ * in S2, eg, to even out the face areas left by midpoint subdivision
+ * of the icosahedron.
+ * <p>
+ * Each iteration moves every free vertex part way, by
+ * <code>step</code>, along the great arc to a target point, and
+ * renormalizes:
+ * <ul>
+ * <li>{@link Mode#LAPLACIAN}: the normalized mean of the vertex's
+ * neighbors.
+ * <li>{@link Mode#LLOYD}: the area weighted mean of the centroids of
+ * the faces containing the vertex, an approximation to the centroid
+ * of its Voronoi cell, so iterating approaches a centroidal Voronoi
+ * tessellation.
+ * <li>{@link Mode#AREA}: as {@link Mode#LLOYD}, but weighted by
+ * squared face area, so larger faces pull harder, and face areas
+ * are pushed towards equal.
+ * </ul>
+ * Face areas and centroids, then vertex positions, are computed in
+ * parallel passes, reading one position buffer and writing the other,
+ * so the result doesn't depend on thread scheduling.
+ * Vertex one-rings are built once, up front.
+ * <p>
+ * Iteration stops after <code>iterations</code> steps, when no vertex
+ * moves more than <code>tolerance</code> radians, or when the
+ * <code>progress</code> callback, called with the iteration number
+ * and maximum move after each step, returns <code>false</code>.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class S2Relaxation {
+
+  /** Where each vertex moves towards. */
+  public enum Mode { LAPLACIAN, LLOYD, AREA }
+
+  //--------------------------------------------------------------------
+  /** Final positions, packed xyz unit vectors, indexed like the
+   * vertices of the complex; the number of iterations run;
+   * the maximum move, in radians, in the last one;
+   * and whether that was within tolerance.
+   */
+  public record Result (double[] xyz,
+                        int iterations,
+                        double maxMove,
+                        boolean converged) {
+
+    /** Position of vertex <code>i</code>. */
+    public final Point2S point (final int i) {
+      return Point2S.from(
+        Vector3D.of(xyz[3 * i], xyz[(3 * i) + 1], xyz[(3 * i) + 2])); } }
+
+  //--------------------------------------------------------------------
+  // faces
+  //--------------------------------------------------------------------
+
+  private static final double triangleArea (final double[] p,
+                                            final int i,
+                                            final int j,
+                                            final int k) {
+    final double ax = p[i];
+    final double ay = p[i + 1];
+    final double az = p[i + 2];
+    final double bx = p[j];
+    final double by = p[j + 1];
+    final double bz = p[j + 2];
+    final double cx = p[k];
+    final double cy = p[k + 1];
+    final double cz = p[k + 2];
+    final double triple =
+      (ax * ((by * cz) - (bz * cy)))
+      + (ay * ((bz * cx) - (bx * cz)))
+      + (az * ((bx * cy) - (by * cx)));
+    final double ab = (ax * bx) + (ay * by) + (az * bz);
+    final double bc = (bx * cx) + (by * cy) + (bz * cz);
+    final double ac = (ax * cx) + (ay * cy) + (az * cz);
+    return 2.0 * Math.atan(triple / (1.0 + ab + bc + ac)); }
+
+  // area and (unnormalized) centroid of face f, from positions p
+  private static final void face (final int f,
+                                  final int arity,
+                                  final int[] faces,
+                                  final double[] p,
+                                  final double[] area,
+                                  final double[] centroid) {
+    final int f0 = arity * f;
+    double x = 0.0;
+    double y = 0.0;
+    double z = 0.0;
+    for (int c = 0; c < arity; c++) {
+      final int v = 3 * faces[f0 + c];
+      x += p[v]; y += p[v + 1]; z += p[v + 2]; }
+    final double r = Math.sqrt((x * x) + (y * y) + (z * z));
+    centroid[3 * f] = x / r;
+    centroid[(3 * f) + 1] = y / r;
+    centroid[(3 * f) + 2] = z / r;
+    final int a = 3 * faces[f0];
+    double s = 0.0;
+    for (int c = 2; c < arity; c++) {
+      s += triangleArea(p, a, 3 * faces[f0 + c - 1], 3 * faces[f0 + c]); }
+    area[f] = Math.abs(s); }
+
+  //--------------------------------------------------------------------
+  // vertices
+  //--------------------------------------------------------------------
+  // Move v from cur to next, returning the angle moved.
+
+  private static final double vertex (final int v,
+                                      final Mode mode,
+                                      final double step,
+                                      final int[] neighbors,
+                                      final double[] area,
+                                      final double[] centroid,
+                                      final double[] cur,
+                                      final double[] next) {
+    final int v3 = 3 * v;
+    double x = 0.0;
+    double y = 0.0;
+    double z = 0.0;
+    if (Mode.LAPLACIAN == mode) {
+      for (final int u : neighbors) {
+        x += cur[3 * u]; y += cur[(3 * u) + 1]; z += cur[(3 * u) + 2]; } }
+    else {
+      for (final int f : neighbors) {
+        final double w = (Mode.AREA == mode)
+          ? (area[f] * area[f]) : area[f];
+        x += w * centroid[3 * f];
+        y += w * centroid[(3 * f) + 1];
+        z += w * centroid[(3 * f) + 2]; } }
+    final double px = cur[v3];
+    final double py = cur[v3 + 1];
+    final double pz = cur[v3 + 2];
+    final double t = Math.sqrt((x * x) + (y * y) + (z * z));
+    if ((0.0 == t) || (! Double.isFinite(t))) {
+      next[v3] = px; next[v3 + 1] = py; next[v3 + 2] = pz;
+      return 0.0; }
+    double qx = ((1.0 - step) * px) + ((step * x) / t);
+    double qy = ((1.0 - step) * py) + ((step * y) / t);
+    double qz = ((1.0 - step) * pz) + ((step * z) / t);
+    final double r = Math.sqrt((qx * qx) + (qy * qy) + (qz * qz));
+    qx /= r; qy /= r; qz /= r;
+    next[v3] = qx; next[v3 + 1] = qy; next[v3 + 2] = qz;
+    final double cx = (py * qz) - (pz * qy);
+    final double cy = (pz * qx) - (px * qz);
+    final double cz = (px * qy) - (py * qx);
+    return Math.atan2(Math.sqrt((cx * cx) + (cy * cy) + (cz * cz)),
+                      (px * qx) + (py * qy) + (pz * qz)); }
+
+  //--------------------------------------------------------------------
+  /** Relax the vertices of <code>cmplx</code>, starting from
+   * <code>xyz</code>, packed unit vectors, which isn't modified.
+   * Vertices in <code>pinned</code>, which may be null, don't move.
+   * <code>progress</code>, which may be null, is called with a
+   * <code>Long</code> iteration number and <code>Double</code> max
+   * move after each iteration.
+   */
+  public static final Result relax (final IndexedCellComplex cmplx,
+                                    final double[] xyz,
+                                    final Mode mode,
+                                    final int iterations,
+                                    final double step,
+                                    final double tolerance,
+                                    final BitSet pinned,
+                                    final IFn progress) {
+    assert (0.0 < step) && (step <= 1.0);
+    final int nv = cmplx.nVertices();
+    final int nf = cmplx.nFaces();
+    final int arity = cmplx.arity();
+    final int[] faces = cmplx.faceIndices();
+    final HalfEdges he = cmplx.halfEdges();
+    final int[][] neighbors = new int[nv][];
+    IntStream.range(0, nv).parallel().forEach(v ->
+      neighbors[v] = (Mode.LAPLACIAN == mode)
+        ? he.vertexRing(v) : he.vertexFaces(v));
+    final double[] area = new double[nf];
+    final double[] centroid = new double[3 * nf];
+    final double[] move = new double[nv];
+    double[] cur = Arrays.copyOf(xyz, 3 * nv);
+    double[] next = new double[3 * nv];
+    int i = 0;
+    double maxMove = Double.POSITIVE_INFINITY;
+    while ((i < iterations) && (maxMove > tolerance)) {
+      final double[] c = cur;
+      final double[] n = next;
+      if (Mode.LAPLACIAN != mode) {
+        IntStream.range(0, nf).parallel().forEach(f ->
+          face(f, arity, faces, c, area, centroid)); }
+      IntStream.range(0, nv).parallel().forEach(v -> {
+        if ((null != pinned) && pinned.get(v)) {
+          System.arraycopy(c, 3 * v, n, 3 * v, 3);
+          move[v] = 0.0; }
+        else {
+          move[v] = vertex(v, mode, step, neighbors[v], area, centroid,
+                           c, n); } });
+      maxMove = Arrays.stream(move).parallel().max().orElse(0.0);
+      cur = n;
+      next = c;
+      i++;
+      if ((null != progress)
+        && Boolean.FALSE.equals(
+          progress.invoke(Long.valueOf(i), Double.valueOf(maxMove)))) {
+        break; } }
+    return new Result(cur, i, maxMove, maxMove <= tolerance); }
+
+  /** Relax starting from <code>embedding</code>, which maps the
+   * vertices of <code>cmplx</code> to <code>Point2S</code>.
+   */
+  public static final Result relax (final IndexedCellComplex cmplx,
+                                    final IFn embedding,
+                                    final Mode mode,
+                                    final int iterations,
+                                    final double step,
+                                    final double tolerance,
+                                    final BitSet pinned,
+                                    final IFn progress) {
+    final int nv = cmplx.nVertices();
+    final double[] xyz = new double[3 * nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      final Vector3D p =
+        ((Point2S) embedding.invoke(cmplx.vertex(v))).getVector();
+      xyz[3 * v] = p.getX();
+      xyz[(3 * v) + 1] = p.getY();
+      xyz[(3 * v) + 2] = p.getZ(); });
+    return relax(cmplx, xyz, mode, iterations, step, tolerance, pinned,
+                 progress); }
+
+  //--------------------------------------------------------------------
+  // disabled constructor
+  //--------------------------------------------------------------------
+  private S2Relaxation () {
+    throw new UnsupportedOperationException(
+      "Can't instantiate " + getClass()); }
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
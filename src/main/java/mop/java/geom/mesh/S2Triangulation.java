@@ -0,0 +1,513 @@
+package mop.java.geom.mesh;
+
+import mop.java.cmplx.IndexedSimplicialComplex2D;
+import mop.java.cmplx.ZeroSimplex;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Spherical Delaunay triangulation of a point set on S2, as the
+ * convex hull of its unit vectors.
+ * <p>
+ * Points are inserted incrementally, in a biased randomized order:
+ * a seeded shuffle, split into rounds of doubling size, each round
+ * sorted along a Hilbert curve over the faces of the cube, so
+ * successive points are usually close together.
+ * Each point is located by a greedy walk over hull edges to its
+ * nearest inserted vertex, one of whose faces sees the point.
+ * The faces that see it, found by searching outward from that face,
+ * are replaced by a fan around the new vertex.
+ * <p>
+ * The orientation predicate, which is also the in-circle test for
+ * points on the sphere, is filtered: it falls back to exact
+ * arithmetic only when the floating point determinant is within its
+ * error bound, so the hull stays convex, and the result is a
+ * valid complex, for any input.
+ * <p>
+ * Conversion to unit vectors, sort keys, sorting, and compaction of
+ * the result run in parallel; insertion is sequential, and takes
+ * expected constant time per point given the insertion order.
+ * <p>
+ * Duplicate points, and points that are numerically inside the hull
+ * of the others, are skipped. If the points lie in a closed
+ * hemisphere, hull faces whose plane doesn't have the origin
+ * strictly inside --- caps of at least a hemisphere --- are dropped,
+ * leaving a triangulation of the spherical convex hull, with a
+ * boundary.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class S2Triangulation {
+
+  // Shewchuk's orient3d error bound, for 2^-53 unit roundoff
+  private static final double ERRBOUND =
+    (7.0 + (56.0 * 0x1.0p-53)) * 0x1.0p-53;
+
+  // Hilbert curve bits per axis, on each face of the cube
+  private static final int BITS = 15;
+  // bits for point index in packed sort keys
+  private static final int INDEX_BITS = 28;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1L;
+
+  // the first round of insertion is at most this big
+  private static final int FIRST_ROUND = 64;
+
+  private static final long SEED = 0x5eed5eedL;
+
+  //--------------------------------------------------------------------
+  /** The triangulation, and the index in the input of each of its
+   * vertices.
+   */
+  public record Result (IndexedSimplicialComplex2D cmplx,
+                        int[] index) { }
+
+  //--------------------------------------------------------------------
+  // predicates
+  //--------------------------------------------------------------------
+
+  private static final BigDecimal big (final double x) {
+    return new BigDecimal(x); }
+
+  private static final int exact (final double[] p,
+                                  final int a,
+                                  final int b,
+                                  final int c,
+                                  final int d) {
+    final BigDecimal[] u = new BigDecimal[3];
+    final BigDecimal[] v = new BigDecimal[3];
+    final BigDecimal[] w = new BigDecimal[3];
+    for (int i = 0; i < 3; i++) {
+      final BigDecimal pa = (a < 0) ? BigDecimal.ZERO : big(p[a + i]);
+      u[i] = big(p[b + i]).subtract(pa);
+      v[i] = big(p[c + i]).subtract(pa);
+      w[i] = big(p[d + i]).subtract(pa); }
+    final BigDecimal nx = u[1].multiply(v[2]).subtract(u[2].multiply(v[1]));
+    final BigDecimal ny = u[2].multiply(v[0]).subtract(u[0].multiply(v[2]));
+    final BigDecimal nz = u[0].multiply(v[1]).subtract(u[1].multiply(v[0]));
+    return w[0].multiply(nx)
+      .add(w[1].multiply(ny))
+      .add(w[2].multiply(nz))
+      .signum(); }
+
+  /** Sign of <code>(d-a).((b-a)x(c-a))</code>: positive if
+   * <code>d</code> is outside the plane of the (counter-clockwise,
+   * seen from outside) triangle <code>a,b,c</code>, ie, inside its
+   * circumcircle on the sphere. Arguments are offsets into packed
+   * <code>xyz</code>; a negative <code>a</code> is the origin.
+   */
+  static final int orient (final double[] p,
+                           final int a,
+                           final int b,
+                           final int c,
+                           final int d) {
+    final double ax = (a < 0) ? 0.0 : p[a];
+    final double ay = (a < 0) ? 0.0 : p[a + 1];
+    final double az = (a < 0) ? 0.0 : p[a + 2];
+    final double ux = p[b] - ax;
+    final double uy = p[b + 1] - ay;
+    final double uz = p[b + 2] - az;
+    final double vx = p[c] - ax;
+    final double vy = p[c + 1] - ay;
+    final double vz = p[c + 2] - az;
+    final double wx = p[d] - ax;
+    final double wy = p[d + 1] - ay;
+    final double wz = p[d + 2] - az;
+    final double det =
+      (wx * ((uy * vz) - (uz * vy)))
+      + (wy * ((uz * vx) - (ux * vz)))
+      + (wz * ((ux * vy) - (uy * vx)));
+    final double bound = ERRBOUND *
+      ((Math.abs(wx) * (Math.abs(uy * vz) + Math.abs(uz * vy)))
+       + (Math.abs(wy) * (Math.abs(uz * vx) + Math.abs(ux * vz)))
+       + (Math.abs(wz) * (Math.abs(ux * vy) + Math.abs(uy * vx))));
+    if (det > bound) { return 1; }
+    if (-det > bound) { return -1; }
+    return exact(p, a, b, c, d); }
+
+  //--------------------------------------------------------------------
+  // insertion order
+  //--------------------------------------------------------------------
+
+  // index along a Hilbert curve through the 2^BITS square
+  private static final long hilbert (final int x0,
+                                     final int y0) {
+    final int n = 1 << BITS;
+    int x = x0;
+    int y = y0;
+    long d = 0;
+    for (int s = n >> 1; s > 0; s >>= 1) {
+      final int rx = (0 != (x & s)) ? 1 : 0;
+      final int ry = (0 != (y & s)) ? 1 : 0;
+      d += ((long) s) * s * ((3 * rx) ^ ry);
+      if (0 == ry) {
+        if (1 == rx) { x = n - 1 - x; y = n - 1 - y; }
+        final int t = x; x = y; y = t; } }
+    return d; }
+
+  private static final int cell (final double u) {
+    final int n = 1 << BITS;
+    return Math.max(0, Math.min(n - 1, (int) (0.5 * (u + 1.0) * n))); }
+
+  // cube face, then Hilbert index on the face
+  private static final long key (final double x,
+                                 final double y,
+                                 final double z) {
+    final double ax = Math.abs(x);
+    final double ay = Math.abs(y);
+    final double az = Math.abs(z);
+    final long face;
+    final double u;
+    final double v;
+    if ((ax >= ay) && (ax >= az)) {
+      face = (x > 0.0) ? 0 : 1; u = y / ax; v = z / ax; }
+    else if (ay >= az) {
+      face = (y > 0.0) ? 2 : 3; u = z / ay; v = x / ay; }
+    else {
+      face = (z > 0.0) ? 4 : 5; u = x / az; v = y / az; }
+    return (face << (2 * BITS)) | hilbert(cell(u), cell(v)); }
+
+  // shuffle, then sort rounds of doubling size along the curve
+  private static final int[] order (final double[] xyz) {
+    final int n = xyz.length / 3;
+    final long[] keys = new long[n];
+    IntStream.range(0, n).parallel().forEach(i ->
+      keys[i] = key(xyz[3 * i], xyz[(3 * i) + 1], xyz[(3 * i) + 2]));
+    final int[] order = new int[n];
+    for (int i = 0; i < n; i++) { order[i] = i; }
+    final SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = n - 1; i > 0; i--) {
+      final int j = random.nextInt(i + 1);
+      final int t = order[i]; order[i] = order[j]; order[j] = t; }
+    int end = n;
+    while (0 < end) {
+      final int start = (end > FIRST_ROUND) ? (end / 2) : 0;
+      final long[] round = new long[end - start];
+      IntStream.range(start, end).parallel().forEach(i ->
+        round[i - start] = (keys[order[i]] << INDEX_BITS) | order[i]);
+      Arrays.parallelSort(round);
+      IntStream.range(start, end).parallel().forEach(i ->
+        order[i] = (int) (round[i - start] & INDEX_MASK));
+      end = start; }
+    return order; }
+
+  //--------------------------------------------------------------------
+  // working state
+  //--------------------------------------------------------------------
+
+  private final double[] _xyz;
+  // 3 vertex indices per face slot; -1 first marks a free slot
+  private final int[] _faces;
+  private final int[] _twin;
+  // a half-edge out of each vertex, -1 if not (or no longer) in hull
+  private final int[] _vertexEdge;
+  // visibility from the point being inserted: +/- _stamp
+  private final int[] _mark;
+  private int _stamp = 0;
+  // new face whose edge on the horizon starts at the vertex
+  private final int[] _start;
+
+  private final int[] _free;
+  private int _nFree = 0;
+  private int _nSlots = 0;
+
+  // visible faces, then horizon (origin, target, outer twin)
+  private int[] _cavity = new int[64];
+  private int[] _horizon = new int[192];
+
+  private static final int next (final int h) {
+    return (2 == (h % 3)) ? (h - 2) : (h + 1); }
+
+  private static final int prev (final int h) {
+    return (0 == (h % 3)) ? (h + 2) : (h - 1); }
+
+  private final double dot (final int v,
+                            final int p) {
+    final double[] x = _xyz;
+    return (x[3 * v] * x[3 * p])
+      + (x[(3 * v) + 1] * x[(3 * p) + 1])
+      + (x[(3 * v) + 2] * x[(3 * p) + 2]); }
+
+  private final boolean same (final int v,
+                              final int p) {
+    final double[] x = _xyz;
+    return (x[3 * v] == x[3 * p])
+      && (x[(3 * v) + 1] == x[(3 * p) + 1])
+      && (x[(3 * v) + 2] == x[(3 * p) + 2]); }
+
+  private final boolean visible (final int f,
+                                 final int p) {
+    if (_stamp == _mark[f]) { return true; }
+    if (-_stamp == _mark[f]) { return false; }
+    final int f3 = 3 * f;
+    final boolean visible = 0 < orient(_xyz,
+                                       3 * _faces[f3],
+                                       3 * _faces[f3 + 1],
+                                       3 * _faces[f3 + 2],
+                                       3 * p);
+    _mark[f] = visible ? _stamp : -_stamp;
+    return visible; }
+
+  private final int newFace (final int a,
+                             final int b,
+                             final int c) {
+    final int f = (0 < _nFree) ? _free[--_nFree] : _nSlots++;
+    final int f3 = 3 * f;
+    _faces[f3] = a; _faces[f3 + 1] = b; _faces[f3 + 2] = c;
+    _mark[f] = 0;
+    _vertexEdge[a] = f3;
+    _vertexEdge[b] = f3 + 1;
+    _vertexEdge[c] = f3 + 2;
+    return f; }
+
+  private final void link (final int g,
+                           final int t) {
+    _twin[g] = t;
+    _twin[t] = g; }
+
+  //--------------------------------------------------------------------
+  // location
+  //--------------------------------------------------------------------
+
+  // greedy walk along hull edges towards p; ends at the nearest
+  // vertex, since the hull edges are the spherical Delaunay graph
+  private final int nearest (final int start,
+                             final int p) {
+    int v = start;
+    double best = dot(v, p);
+    while (true) {
+      int closer = -1;
+      final int h0 = _vertexEdge[v];
+      int h = h0;
+      do {
+        final int w = _faces[next(h)];
+        final double d = dot(w, p);
+        if (d > best) { best = d; closer = w; }
+        h = _twin[prev(h)]; }
+      while (h != h0);
+      if (closer < 0) { return v; }
+      v = closer; } }
+
+  // a face, around v if possible, that sees p, or -1
+  private final int visibleFace (final int v,
+                                 final int p) {
+    final int h0 = _vertexEdge[v];
+    int h = h0;
+    do {
+      if (visible(h / 3, p)) { return h / 3; }
+      h = _twin[prev(h)]; }
+    while (h != h0);
+    // only in degenerate cases
+    for (int f = 0; f < _nSlots; f++) {
+      if ((0 <= _faces[3 * f]) && visible(f, p)) { return f; } }
+    return -1; }
+
+  //--------------------------------------------------------------------
+  // insertion
+  //--------------------------------------------------------------------
+
+  private final int cavity (final int f0,
+                            final int p) {
+    int n = 0;
+    _cavity[n++] = f0;
+    for (int i = 0; i < n; i++) {
+      final int f3 = 3 * _cavity[i];
+      for (int k = 0; k < 3; k++) {
+        final int g = _twin[f3 + k] / 3;
+        if ((_stamp != _mark[g]) && (-_stamp != _mark[g])
+            && visible(g, p)) {
+          if (n == _cavity.length) {
+            _cavity = Arrays.copyOf(_cavity, 2 * n); }
+          _cavity[n++] = g; } } }
+    return n; }
+
+  private final int horizon (final int nCavity) {
+    int n = 0;
+    for (int i = 0; i < nCavity; i++) {
+      final int f3 = 3 * _cavity[i];
+      for (int k = 0; k < 3; k++) {
+        final int h = f3 + k;
+        final int t = _twin[h];
+        if (_stamp != _mark[t / 3]) {
+          if ((n + 3) > _horizon.length) {
+            _horizon = Arrays.copyOf(_horizon, 2 * _horizon.length); }
+          _horizon[n++] = _faces[h];
+          _horizon[n++] = _faces[next(h)];
+          _horizon[n++] = t; } } }
+    return n / 3; }
+
+  private final boolean insert (final int start,
+                                final int p) {
+    final int v = nearest(start, p);
+    if (same(v, p)) { return false; }
+    _stamp++;
+    final int f0 = visibleFace(v, p);
+    if (f0 < 0) { return false; }
+    final int nCavity = cavity(f0, p);
+    final int nHorizon = horizon(nCavity);
+    // free the cavity; its vertices not on the horizon leave the hull
+    for (int i = 0; i < nCavity; i++) {
+      final int f3 = 3 * _cavity[i];
+      for (int k = 0; k < 3; k++) { _vertexEdge[_faces[f3 + k]] = -1; }
+      _faces[f3] = -1;
+      _free[_nFree++] = _cavity[i]; }
+    // fan around p; reuse _cavity for the new faces
+    if (nHorizon > _cavity.length) {
+      _cavity = new int[2 * nHorizon]; }
+    for (int i = 0; i < nHorizon; i++) {
+      final int a = _horizon[3 * i];
+      final int f = newFace(a, _horizon[(3 * i) + 1], p);
+      link(3 * f, _horizon[(3 * i) + 2]);
+      _start[a] = f;
+      _cavity[i] = f; }
+    for (int i = 0; i < nHorizon; i++) {
+      final int f = _cavity[i];
+      link((3 * f) + 1, (3 * _start[_horizon[(3 * i) + 1]]) + 2); }
+    return true; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private S2Triangulation (final double[] xyz) {
+    final int n = xyz.length / 3;
+    final int slots = Math.max(4, 2 * n);
+    _xyz = xyz;
+    _faces = new int[3 * slots];
+    _twin = new int[3 * slots];
+    _mark = new int[slots];
+    _free = new int[slots];
+    _vertexEdge = new int[n];
+    Arrays.fill(_vertexEdge, -1);
+    _start = new int[n]; }
+
+  // first 4 points, in insertion order, not in a common plane
+  private static final int[] tetrahedron (final double[] xyz,
+                                          final int[] order) {
+    final int n = order.length;
+    final int a = order[0];
+    int i = 1;
+    while ((i < n) && (xyz[3 * a] == xyz[3 * order[i]])
+           && (xyz[(3 * a) + 1] == xyz[(3 * order[i]) + 1])
+           && (xyz[(3 * a) + 2] == xyz[(3 * order[i]) + 2])) { i++; }
+    final int b = (i < n) ? order[i] : -1;
+    int c = -1;
+    int d = -1;
+    for (i++; (i < n) && (d < 0); i++) {
+      final int q = order[i];
+      if (c < 0) {
+        // 3 distinct points on the sphere are never collinear,
+        // but these are only nearly on the sphere
+        final double ux = xyz[3 * b] - xyz[3 * a];
+        final double uy = xyz[(3 * b) + 1] - xyz[(3 * a) + 1];
+        final double uz = xyz[(3 * b) + 2] - xyz[(3 * a) + 2];
+        final double vx = xyz[3 * q] - xyz[3 * a];
+        final double vy = xyz[(3 * q) + 1] - xyz[(3 * a) + 1];
+        final double vz = xyz[(3 * q) + 2] - xyz[(3 * a) + 2];
+        if ((0.0 != ((uy * vz) - (uz * vy)))
+            || (0.0 != ((uz * vx) - (ux * vz)))
+            || (0.0 != ((ux * vy) - (uy * vx)))) { c = q; } }
+      else if (0 != orient(xyz, 3 * a, 3 * b, 3 * c, 3 * q)) {
+        d = q; } }
+    if (d < 0) {
+      throw new IllegalArgumentException(
+        "Need at least 4 points not in a common plane."); }
+    // a,b,c counter-clockwise seen from outside: d behind
+    return (0 < orient(xyz, 3 * a, 3 * b, 3 * c, 3 * d))
+      ? new int[] { a, c, b, d }
+      : new int[] { a, b, c, d }; }
+
+  private final void init (final int[] t) {
+    final int a = t[0];
+    final int b = t[1];
+    final int c = t[2];
+    final int d = t[3];
+    newFace(a, b, c);
+    newFace(a, d, b);
+    newFace(b, d, c);
+    newFace(c, d, a);
+    // match the 12 half-edges directly
+    for (int h = 0; h < 12; h++) {
+      for (int g = h + 1; g < 12; g++) {
+        if ((_faces[h] == _faces[next(g)])
+            && (_faces[next(h)] == _faces[g])) { link(h, g); } } } }
+
+  private final int[][] compact (final int n) {
+    final int[] kept = IntStream.range(0, _nSlots).parallel()
+      .filter(f -> (0 <= _faces[3 * f])
+                   && (0 < orient(_xyz, -1,
+                                  3 * _faces[3 * f],
+                                  3 * _faces[(3 * f) + 1],
+                                  3 * _faces[(3 * f) + 2])))
+      .toArray();
+    final boolean[] used = new boolean[n];
+    IntStream.range(0, kept.length).parallel().forEach(i -> {
+      final int f3 = 3 * kept[i];
+      used[_faces[f3]] = true;
+      used[_faces[f3 + 1]] = true;
+      used[_faces[f3 + 2]] = true; });
+    final int[] remap = new int[n];
+    int nv = 0;
+    for (int v = 0; v < n; v++) { remap[v] = used[v] ? nv++ : -1; }
+    final int[] index = new int[nv];
+    for (int v = 0; v < n; v++) {
+      if (used[v]) { index[remap[v]] = v; } }
+    final int[] faces = new int[3 * kept.length];
+    IntStream.range(0, kept.length).parallel().forEach(i -> {
+      final int f3 = 3 * kept[i];
+      faces[3 * i] = remap[_faces[f3]];
+      faces[(3 * i) + 1] = remap[_faces[f3 + 1]];
+      faces[(3 * i) + 2] = remap[_faces[f3 + 2]]; });
+    return new int[][] { index, faces }; }
+
+  //--------------------------------------------------------------------
+
+  /** Triangulate the points in packed <code>xyz</code>, which should
+   * be unit vectors.
+   * Vertex <code>v</code> of the result is generated with slot
+   * <code>index[v]</code>, its position in the input, and the
+   * vertices are in input order.
+   */
+  public static final Result triangulate (final double[] xyz) {
+    final int n = xyz.length / 3;
+    if (n < 4) {
+      throw new IllegalArgumentException(
+        "Need at least 4 points, not " + n); }
+    if (n > INDEX_MASK) {
+      throw new IllegalArgumentException("Too many points: " + n); }
+    final int[] order = order(xyz);
+    final int[] t = tetrahedron(xyz, order);
+    final S2Triangulation s = new S2Triangulation(xyz);
+    s.init(t);
+    int last = t[3];
+    for (final int p : order) {
+      if ((p != t[0]) && (p != t[1]) && (p != t[2]) && (p != t[3])
+          && s.insert(last, p)) {
+        last = p; } }
+    final int[][] compact = s.compact(n);
+    final int[] index = compact[0];
+    final ZeroSimplex root = ZeroSimplex.make("s2");
+    final ZeroSimplex[] vertices = new ZeroSimplex[index.length];
+    for (int v = 0; v < index.length; v++) {
+      vertices[v] = ZeroSimplex.make(root, index[v]); }
+    return new Result(
+      IndexedSimplicialComplex2D.make(vertices, compact[1]), index); }
+
+  /** Triangulate <code>points</code>. */
+  public static final Result triangulate (final Point2S[] points) {
+    final double[] xyz = new double[3 * points.length];
+    IntStream.range(0, points.length).parallel().forEach(i -> {
+      final Vector3D p = points[i].getVector();
+      xyz[3 * i] = p.getX();
+      xyz[(3 * i) + 1] = p.getY();
+      xyz[(3 * i) + 2] = p.getZ(); });
+    return triangulate(xyz); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,230 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedCellComplex;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Streaming
+ * <a href="https://github.com/topojson/topojson-specification">
+ * topojson</a> writer for triangle and quad meshes.
+ * <p>
+ * Each unoriented edge of the complex is written once, as a 2 point
+ * arc from the origin to the target of its first half-edge
+ * (see {@link HalfEdges#isFirst}).
+ * Faces are rings of arc indices, with <code>~i</code> for arc
+ * <code>i</code> traversed backwards, so shared edges and vertices
+ * aren't repeated, as they are in geojson.
+ * <p>
+ * Coordinates are those of {@link GeoJson#coordinates}, quantized to
+ * integers in <code>[0,quantization)</code> over the bounding box and
+ * delta encoded within each arc, with the inverse in the
+ * <code>transform</code>.
+ * <p>
+ * Holds 2 <code>int</code>s per vertex and 1 per half-edge while
+ * writing; the json itself is never in memory.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class TopoJson {
+
+  private final JsonGenerator _generator;
+  private final HalfEdges _halfEdges;
+
+  // quantized coordinates, 2 per vertex
+  private final int[] _xy;
+  // bounding box and scale, x then y
+  private final double[] _translate = new double[2];
+  private final double[] _scale = new double[2];
+
+  // arc index of each half-edge, ~arc for the reversed ones
+  private final int[] _arcs;
+
+  //--------------------------------------------------------------------
+
+  private final void quantize (final IndexedCellComplex cmplx,
+                               final IFn embedding,
+                               final int quantization) {
+    final int nv = cmplx.nVertices();
+    final double[] xy = new double[2 * nv];
+    IntStream.range(0, nv).parallel().forEach(v -> {
+      final double[] p = new double[2];
+      GeoJson.coordinates(embedding.invoke(cmplx.vertex(v)), p);
+      xy[2 * v] = p[0];
+      xy[(2 * v) + 1] = p[1]; });
+    for (int k = 0; k < 2; k++) {
+      final int kk = k;
+      final double min = IntStream.range(0, nv).parallel()
+        .mapToDouble(v -> xy[(2 * v) + kk]).min().orElse(0.0);
+      final double max = IntStream.range(0, nv).parallel()
+        .mapToDouble(v -> xy[(2 * v) + kk]).max().orElse(0.0);
+      _translate[k] = min;
+      _scale[k] = (max > min) ? (max - min) / (quantization - 1) : 1.0; }
+    IntStream.range(0, 2 * nv).parallel().forEach(i -> {
+      final int k = i & 1;
+      _xy[i] = (int) Math.round((xy[i] - _translate[k]) / _scale[k]); }); }
+
+  /** Number the first half-edge of each edge in half-edge order;
+   * the others get the complement of their twin's number.
+   * A twin that isn't first always comes earlier.
+   */
+  private static final void arcs (final HalfEdges he,
+                                  final int[] arcs) {
+    final int nh = he.nHalfEdges();
+    int n = 0;
+    for (int h = 0; h < nh; h++) {
+      arcs[h] = he.isFirst(h) ? n++ : ~arcs[he.twin(h)]; } }
+
+  //--------------------------------------------------------------------
+
+  private final void transform () throws IOException {
+    final JsonGenerator g = _generator;
+    g.writeObjectFieldStart("transform");
+    g.writeArrayFieldStart("scale");
+    g.writeNumber(_scale[0]);
+    g.writeNumber(_scale[1]);
+    g.writeEndArray();
+    g.writeArrayFieldStart("translate");
+    g.writeNumber(_translate[0]);
+    g.writeNumber(_translate[1]);
+    g.writeEndArray();
+    g.writeEndObject(); }
+
+  /** Ring of the face's arcs, in face order. */
+  private final void ring (final int f) throws IOException {
+    final int arity = _halfEdges.arity();
+    _generator.writeStartArray();
+    for (int h = f * arity; h < (f + 1) * arity; h++) {
+      _generator.writeNumber(_arcs[h]); }
+    _generator.writeEndArray(); }
+
+  private final void polygons () throws IOException {
+    final JsonGenerator g = _generator;
+    g.writeStringField("type", "GeometryCollection");
+    g.writeArrayFieldStart("geometries");
+    final int nf = _halfEdges.nFaces();
+    for (int f = 0; f < nf; f++) {
+      g.writeStartObject();
+      g.writeStringField("type", "Polygon");
+      g.writeNumberField("id", f);
+      g.writeArrayFieldStart("arcs");
+      ring(f);
+      g.writeEndArray();
+      g.writeEndObject(); }
+    g.writeEndArray(); }
+
+  private final void multiPolygon () throws IOException {
+    final JsonGenerator g = _generator;
+    g.writeStringField("type", "MultiPolygon");
+    g.writeArrayFieldStart("arcs");
+    final int nf = _halfEdges.nFaces();
+    for (int f = 0; f < nf; f++) {
+      g.writeStartArray();
+      ring(f);
+      g.writeEndArray(); }
+    g.writeEndArray(); }
+
+  /** One 2 point arc per edge, the 2nd point as a delta. */
+  private final void edges () throws IOException {
+    final JsonGenerator g = _generator;
+    final int nh = _halfEdges.nHalfEdges();
+    g.writeArrayFieldStart("arcs");
+    for (int h = 0; h < nh; h++) {
+      if (_halfEdges.isFirst(h)) {
+        final int a = 2 * _halfEdges.origin(h);
+        final int b = 2 * _halfEdges.target(h);
+        g.writeStartArray();
+        g.writeStartArray();
+        g.writeNumber(_xy[a]);
+        g.writeNumber(_xy[a + 1]);
+        g.writeEndArray();
+        g.writeStartArray();
+        g.writeNumber(_xy[b] - _xy[a]);
+        g.writeNumber(_xy[b + 1] - _xy[a + 1]);
+        g.writeEndArray();
+        g.writeEndArray(); } }
+    g.writeEndArray(); }
+
+  private final void topology (final String object,
+                               final GeoJson.Geometry geometry)
+    throws IOException {
+    final JsonGenerator g = _generator;
+    g.writeStartObject();
+    g.writeStringField("type", "Topology");
+    transform();
+    g.writeObjectFieldStart("objects");
+    g.writeObjectFieldStart(object);
+    switch (geometry) {
+      case FEATURES -> polygons();
+      case MULTIPOLYGON -> multiPolygon(); }
+    g.writeEndObject();
+    g.writeEndObject();
+    edges();
+    g.writeEndObject(); }
+
+  //--------------------------------------------------------------------
+
+  private TopoJson (final JsonGenerator generator,
+                    final IndexedCellComplex cmplx,
+                    final IFn embedding,
+                    final int quantization) {
+    if (quantization < 2) {
+      throw new IllegalArgumentException(
+        "quantization must be at least 2: " + quantization); }
+    _generator = generator;
+    _halfEdges = cmplx.halfEdges();
+    _xy = new int[2 * cmplx.nVertices()];
+    quantize(cmplx, embedding, quantization);
+    _arcs = new int[_halfEdges.nHalfEdges()];
+    arcs(_halfEdges, _arcs); }
+
+  /** Write <code>cmplx</code>, embedded by <code>embedding</code>, as
+   * a Topology with a single object, <code>object</code>, holding
+   * a Polygon per face, with the face index as its id,
+   * or a single MultiPolygon.
+   * Coordinates are quantized to <code>quantization</code> values
+   * in each direction, eg, <code>1e5</code>.
+   * Doesn't close or flush the generator.
+   */
+  public static final void write (final JsonGenerator generator,
+                                  final IndexedCellComplex cmplx,
+                                  final IFn embedding,
+                                  final String object,
+                                  final GeoJson.Geometry geometry,
+                                  final int quantization)
+    throws IOException {
+    new TopoJson(generator, cmplx, embedding, quantization)
+      .topology(object, geometry); }
+
+  /** Write UTF-8 topojson to <code>path</code>,
+   * creating parent directories as needed.
+   */
+  public static final void write (final Path path,
+                                  final IndexedCellComplex cmplx,
+                                  final IFn embedding,
+                                  final String object,
+                                  final GeoJson.Geometry geometry,
+                                  final int quantization)
+    throws IOException {
+    final Path parent = path.toAbsolutePath().getParent();
+    if (null != parent) { Files.createDirectories(parent); }
+    try (final OutputStream out =
+           new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+         final JsonGenerator g =
+           new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+      write(g, cmplx, embedding, object, geometry, quantization); } }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
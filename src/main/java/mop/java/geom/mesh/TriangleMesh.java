@@ -2,18 +2,24 @@ package mop.java.geom.mesh;
 
 import clojure.lang.IFn;
 import mop.java.cmplx.CellComplex;
+import mop.java.cmplx.FaceSubset;
+import mop.java.cmplx.IndexedSimplicialComplex2D;
 import mop.java.cmplx.SimplicialComplex2D;
 
 /**
  * Embedded two dimensional simplicial complex. Minimal representation:
  * vertices and faces only.
+ * <p>
+ * The complex is either a {@link SimplicialComplex2D}, an
+ * {@link IndexedSimplicialComplex2D}, or a {@link FaceSubset} of a
+ * triangle complex.
  *
  * @author palisades dot lakes at gmail dot com
- * @version 2026-03-06
+ * @version 2026-10-18
  */
 public final class TriangleMesh implements Mesh {
 
-  private final SimplicialComplex2D _cmplx;
+  private final CellComplex _cmplx;
 
   public final CellComplex cmplx () { return _cmplx; }
 
@@ -21,14 +27,24 @@ public final class TriangleMesh implements Mesh {
 
   public final IFn embedding () { return _embedding; }
 
+  // null unless supplied
+  private final VertexAttributes _attributes;
+
+  public final VertexAttributes attributes () { return _attributes; }
+
   //--------------------------------------------------------------------
   // construction
   //--------------------------------------------------------------------
 
-  private TriangleMesh (final SimplicialComplex2D cmplx,
-                        final IFn embedding) {
+  private TriangleMesh (final CellComplex cmplx,
+                        final IFn embedding,
+                        final VertexAttributes attributes) {
+    assert (null == attributes)
+      || (cmplx == attributes.cmplx())
+      || ((cmplx instanceof FaceSubset s) && (s.root() == attributes.cmplx()));
     _cmplx = cmplx;
     _embedding = embedding;
+    _attributes = attributes;
   }
 
   /**
@@ -38,7 +54,40 @@ public final class TriangleMesh implements Mesh {
    */
   public static final TriangleMesh make (final SimplicialComplex2D cmplx,
                                          final IFn embedding) {
-    return new TriangleMesh(cmplx, embedding);
+    return new TriangleMesh(cmplx, embedding, null);
+  }
+
+  public static final TriangleMesh make (
+    final IndexedSimplicialComplex2D cmplx,
+    final IFn embedding) {
+    return new TriangleMesh(cmplx, embedding, null);
+  }
+
+  /** Carry columnar vertex data, indexed like the vertices of
+   * <code>cmplx</code>, alongside the embedding.
+   */
+  public static final TriangleMesh make (
+    final IndexedSimplicialComplex2D cmplx,
+    final IFn embedding,
+    final VertexAttributes attributes) {
+    return new TriangleMesh(cmplx, embedding, attributes);
+  }
+
+  /** A view of a subset of the faces of a complex,
+   * sharing its vertices.
+   */
+  public static final TriangleMesh make (final FaceSubset cmplx,
+                                         final IFn embedding) {
+    return new TriangleMesh(cmplx, embedding, null);
+  }
+
+  /** A view of a subset of the faces of a complex, with columnar
+   * vertex data indexed like the vertices of its root.
+   */
+  public static final TriangleMesh make (final FaceSubset cmplx,
+                                         final IFn embedding,
+                                         final VertexAttributes attributes) {
+    return new TriangleMesh(cmplx, embedding, attributes);
   }
 
   //--------------------------------------------------------------------
@@ -0,0 +1,369 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.HalfEdges;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.cmplx.MidpointSubdivision;
+import mop.java.geom.Point2U;
+import org.apache.commons.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.geometry.euclidean.twod.Vector2D;
+import org.apache.commons.geometry.spherical.twod.Point2S;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar per-vertex data for an {@link IndexedCellComplex}:
+ * named columns of <code>double</code>s or <code>float</code>s,
+ * <code>dimension</code> values per vertex, indexed by the vertex's
+ * index in the complex.
+ * <p>
+ * An alternative to <code>IFn</code> embeddings, usually persistent
+ * maps from {@link mop.java.cmplx.ZeroSimplex} to boxed points,
+ * for large meshes: no hashing, no per-point objects,
+ * and transforms, subdivision, and GPU export are loops over flat
+ * arrays, run in parallel.
+ * <p>
+ * Immutable, as long as the arrays passed in aren't modified.
+ * {@link #with} and {@link #withEmbedding} return a new store sharing
+ * the other columns.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class VertexAttributes {
+
+  /** Name of the column holding vertex positions,
+   * transformed along with the embedding by <code>rn/transform</code>
+   * on a mesh; other columns are carried through unchanged.
+   */
+  public static final String POSITION = "xyz";
+
+  //--------------------------------------------------------------------
+  /** <code>dimension</code> values per vertex, in either a
+   * <code>double[]</code> or a <code>float[]</code>.
+   * <code>unit</code> columns hold unit vectors, eg, points on the
+   * sphere, renormalized after subdivision.
+   * <p>
+   * Immutable, as long as the array isn't modified.
+   */
+  public static final class Column {
+
+    private final int _dimension;
+    public final int dimension () { return _dimension; }
+
+    // exactly 1 is non-null
+    private final double[] _doubles;
+    private final float[] _floats;
+
+    private final boolean _unit;
+    public final boolean isUnit () { return _unit; }
+
+    public final boolean isFloat () { return null != _floats; }
+
+    /** Not a copy; null for <code>float</code> columns. */
+    public final double[] doubles () { return _doubles; }
+
+    /** Not a copy; null for <code>double</code> columns. */
+    public final float[] floats () { return _floats; }
+
+    public final int size () {
+      return ((null != _floats) ? _floats.length : _doubles.length)
+        / _dimension; }
+
+    public final double get (final int vertex,
+                             final int k) {
+      final int i = (vertex * _dimension) + k;
+      return (null != _floats) ? _floats[i] : _doubles[i]; }
+
+    //------------------------------------------------------------------
+
+    private final double[] values () {
+      if (null != _doubles) { return _doubles; }
+      final double[] d = new double[_floats.length];
+      for (int i = 0; i < d.length; i++) { d[i] = _floats[i]; }
+      return d; }
+
+    // same storage type and unit flag as this
+    private final Column like (final double[] d,
+                               final boolean unit) {
+      if (null == _floats) { return new Column(_dimension, d, null, unit); }
+      final float[] f = new float[d.length];
+      for (int i = 0; i < f.length; i++) { f[i] = (float) d[i]; }
+      return new Column(_dimension, null, f, unit); }
+
+    public final Column toFloats () {
+      if (null != _floats) { return this; }
+      final float[] f = new float[_doubles.length];
+      for (int i = 0; i < f.length; i++) { f[i] = (float) _doubles[i]; }
+      return new Column(_dimension, null, f, _unit); }
+
+    public final Column toDoubles () {
+      if (null != _doubles) { return this; }
+      return new Column(_dimension, values(), null, _unit); }
+
+    /** Mark as holding unit vectors. */
+    public final Column asUnit () {
+      return new Column(_dimension, _doubles, _floats, true); }
+
+    //------------------------------------------------------------------
+    // transforms
+
+    public final Column scale (final double s) {
+      final double[] x = values();
+      final double[] y = new double[x.length];
+      IntStream.range(0, y.length).parallel()
+        .forEach(i -> y[i] = s * x[i]);
+      return like(y, _unit && (1.0 == Math.abs(s))); }
+
+    public final Column translate (final double[] t) {
+      if (t.length != _dimension) {
+        throw new IllegalArgumentException(
+          "translation dimension " + t.length + " != " + _dimension); }
+      final double[] x = values();
+      final double[] y = new double[x.length];
+      IntStream.range(0, y.length).parallel()
+        .forEach(i -> y[i] = x[i] + t[i % _dimension]);
+      return like(y, false); }
+
+    /** Apply a 3d affine transform, given as 12 elements, row major,
+     * as returned by <code>AffineTransformMatrix3D.toArray()</code>.
+     * Unit columns stay unit only if the caller re-marks them.
+     */
+    public final Column affine (final double[] m) {
+      if ((3 != _dimension) || (12 != m.length)) {
+        throw new IllegalArgumentException(
+          "Need 3d column and 12 element matrix: "
+            + _dimension + ", " + m.length); }
+      final double[] x = values();
+      final double[] y = new double[x.length];
+      IntStream.range(0, size()).parallel().forEach(v -> {
+        final int i = 3 * v;
+        final double x0 = x[i];
+        final double x1 = x[i + 1];
+        final double x2 = x[i + 2];
+        y[i] = (m[0] * x0) + (m[1] * x1) + (m[2] * x2) + m[3];
+        y[i + 1] = (m[4] * x0) + (m[5] * x1) + (m[6] * x2) + m[7];
+        y[i + 2] = (m[8] * x0) + (m[9] * x1) + (m[10] * x2) + m[11]; });
+      return like(y, false); }
+
+    //------------------------------------------------------------------
+    // subdivision
+
+    /** Linear interpolation at the new vertices, renormalized for unit
+     * columns.
+     * Not appropriate for angular coordinates,
+     * eg, azimuth and polar angle, which should be recomputed from
+     * the subdivided xyz.
+     */
+    final Column subdivide (final HalfEdges he,
+                            final MidpointSubdivision.Indices indices) {
+      final int d = _dimension;
+      final double[] x = values();
+      final double[] y = new double[d * indices.nChild()];
+      System.arraycopy(x, 0, y, 0, x.length);
+      final int[] ev = indices.edgeVertex();
+      IntStream.range(0, he.nHalfEdges()).parallel().forEach(h -> {
+        if (he.isFirst(h)) {
+          final int a = d * he.origin(h);
+          final int b = d * he.target(h);
+          final int c = d * ev[h];
+          for (int k = 0; k < d; k++) {
+            y[c + k] = 0.5 * (x[a + k] + x[b + k]); }
+          if (_unit) { normalize(y, c, d); } } });
+      final int[] fv = indices.faceVertex();
+      if (null != fv) {
+        final int arity = he.arity();
+        IntStream.range(0, fv.length).parallel().forEach(f -> {
+          final int c = d * fv[f];
+          for (int j = 0; j < arity; j++) {
+            final int a = d * he.origin((arity * f) + j);
+            for (int k = 0; k < d; k++) { y[c + k] += x[a + k]; } }
+          for (int k = 0; k < d; k++) { y[c + k] /= arity; }
+          if (_unit) { normalize(y, c, d); } }); }
+      return like(y, _unit); }
+
+    private static final void normalize (final double[] y,
+                                         final int i,
+                                         final int d) {
+      double s = 0.0;
+      for (int k = 0; k < d; k++) { s += y[i + k] * y[i + k]; }
+      if (0.0 < s) {
+        s = 1.0 / Math.sqrt(s);
+        for (int k = 0; k < d; k++) { y[i + k] *= s; } } }
+
+    //------------------------------------------------------------------
+
+    private Column (final int dimension,
+                    final double[] doubles,
+                    final float[] floats,
+                    final boolean unit) {
+      assert (null == doubles) != (null == floats);
+      assert 0 < dimension;
+      assert 0 == (((null != doubles) ? doubles.length : floats.length)
+        % dimension);
+      _dimension = dimension;
+      _doubles = doubles;
+      _floats = floats;
+      _unit = unit; }
+
+    /** Takes ownership of <code>values</code>. */
+    public static final Column make (final int dimension,
+                                     final double[] values) {
+      return new Column(dimension, values, null, false); }
+
+    /** Takes ownership of <code>values</code>. */
+    public static final Column make (final int dimension,
+                                     final float[] values) {
+      return new Column(dimension, null, values, false); } }
+
+  //--------------------------------------------------------------------
+  // points to coordinates
+  //--------------------------------------------------------------------
+
+  private static final int dimension (final Object p) {
+    return switch (p) {
+      case Vector3D v -> 3;
+      case Vector2D v -> 2;
+      case Point2S s -> 2;
+      case Point2U u -> 2;
+      case double[] a -> a.length;
+      default -> throw new IllegalArgumentException(
+        "No coordinates for " + p.getClass()); }; }
+
+  private static final void coordinates (final Object p,
+                                         final double[] x,
+                                         final int i) {
+    switch (p) {
+      case Vector3D v -> {
+        x[i] = v.getX(); x[i + 1] = v.getY(); x[i + 2] = v.getZ(); }
+      case Vector2D v -> { x[i] = v.getX(); x[i + 1] = v.getY(); }
+      case Point2S s -> { x[i] = s.getAzimuth(); x[i + 1] = s.getPolar(); }
+      case Point2U u -> { x[i] = u.getU(); x[i + 1] = u.getV(); }
+      case double[] a -> System.arraycopy(a, 0, x, i, a.length);
+      default -> throw new IllegalArgumentException(
+        "No coordinates for " + p.getClass()); } }
+
+  //--------------------------------------------------------------------
+
+  private final IndexedCellComplex _cmplx;
+  /** Column rows are indices into this complex's vertices. */
+  public final IndexedCellComplex cmplx () { return _cmplx; }
+
+  private final Map<String,Column> _columns;
+
+  /** Column names, in the order added. */
+  public final Set<String> names () { return _columns.keySet(); }
+
+  /** Return the named column, or null. */
+  public final Column column (final String name) {
+    return _columns.get(name); }
+
+  /** Return a store with <code>column</code> added or replaced. */
+  public final VertexAttributes with (final String name,
+                                      final Column column) {
+    if (column.size() != _cmplx.nVertices()) {
+      throw new IllegalArgumentException(
+        name + " has " + column.size() + " rows, not "
+          + _cmplx.nVertices()); }
+    final Map<String,Column> columns = new LinkedHashMap<>(_columns);
+    columns.put(name, column);
+    return new VertexAttributes(_cmplx, columns); }
+
+  /** Return a store with a column holding the coordinates of
+   * <code>(embedding z)</code> for each vertex:
+   * xyz for <code>Vector3D</code>, xy for <code>Vector2D</code>,
+   * azimuth and polar angle for <code>Point2S</code>,
+   * uv for <code>Point2U</code>, or the elements of a
+   * <code>double[]</code>.
+   */
+  public final VertexAttributes withEmbedding (final String name,
+                                               final IFn embedding) {
+    final int n = _cmplx.nVertices();
+    final Object[] points = new Object[n];
+    IntStream.range(0, n).parallel().forEach(v ->
+      points[v] = embedding.invoke(_cmplx.vertex(v)));
+    final int d = (0 == n) ? 1 : dimension(points[0]);
+    final double[] x = new double[d * n];
+    IntStream.range(0, n).parallel().forEach(v ->
+      coordinates(points[v], x, d * v));
+    return with(name, Column.make(d, x)); }
+
+  //--------------------------------------------------------------------
+  /** Return the attributes of <code>child</code>, which must be the
+   * midpoint subdivision of <code>cmplx()</code>
+   * (see {@link MidpointSubdivision}), interpolating each column.
+   */
+  public final VertexAttributes subdivide (final IndexedCellComplex child) {
+    final MidpointSubdivision.Indices indices =
+      MidpointSubdivision.indices(_cmplx);
+    if (indices.nChild() != child.nVertices()) {
+      throw new IllegalArgumentException(
+        "Not a midpoint subdivision: "
+          + child.nVertices() + " != " + indices.nChild()); }
+    final HalfEdges he = _cmplx.halfEdges();
+    final Map<String,Column> columns = new LinkedHashMap<>();
+    for (final Map.Entry<String,Column> e : _columns.entrySet()) {
+      columns.put(e.getKey(), e.getValue().subdivide(he, indices)); }
+    return new VertexAttributes(child, columns); }
+
+  //--------------------------------------------------------------------
+  // GPU export
+  //--------------------------------------------------------------------
+
+  private final int stride (final String[] names) {
+    int stride = 0;
+    for (final String name : names) { stride += column(name).dimension(); }
+    return stride; }
+
+  /** Return the named columns interleaved, vertex by vertex,
+   * as <code>float</code>s, eg, for an OpenGL vertex buffer.
+   */
+  public final float[] interleave (final String... names) {
+    final int stride = stride(names);
+    final float[] out = new float[stride * _cmplx.nVertices()];
+    int offset = 0;
+    for (final String name : names) {
+      final Column c = column(name);
+      final int d = c.dimension();
+      final int o = offset;
+      IntStream.range(0, _cmplx.nVertices()).parallel().forEach(v -> {
+        for (int k = 0; k < d; k++) {
+          out[(stride * v) + o + k] = (float) c.get(v, k); } });
+      offset += d; }
+    return out; }
+
+  /** Write the named columns interleaved, vertex by vertex,
+   * into <code>out</code>, starting at its position, which is
+   * advanced. Use a direct buffer to go straight to off-heap memory.
+   */
+  public final void interleave (final FloatBuffer out,
+                                final String... names) {
+    final Column[] columns = new Column[names.length];
+    for (int i = 0; i < names.length; i++) { columns[i] = column(names[i]); }
+    final int n = _cmplx.nVertices();
+    for (int v = 0; v < n; v++) {
+      for (final Column c : columns) {
+        for (int k = 0; k < c.dimension(); k++) {
+          out.put((float) c.get(v, k)); } } } }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private VertexAttributes (final IndexedCellComplex cmplx,
+                            final Map<String,Column> columns) {
+    _cmplx = cmplx;
+    _columns = Collections.unmodifiableMap(columns); }
+
+  /** An empty store for the vertices of <code>cmplx</code>. */
+  public static final VertexAttributes make (final IndexedCellComplex cmplx) {
+    return new VertexAttributes(cmplx, new LinkedHashMap<>()); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -0,0 +1,419 @@
+package mop.java.geom.mesh;
+
+import clojure.lang.IFn;
+import mop.java.cmplx.IndexedCellComplex;
+import mop.java.geom.S2Kernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Spatial index over vertex positions on the sphere:
+ * k nearest neighbors, points within an angle, and the bulk self join
+ * behind dedupe, snapping, and seam matching, eg, pairing up the
+ * vertex copies made by <code>dateline-cut</code>.
+ * <p>
+ * A static, balanced 3d kd-tree on unit vectors, stored implicitly:
+ * the node over tree positions <code>[lo,hi)</code> splits at the
+ * median <code>(lo+hi)/2</code>, along the axis of largest spread,
+ * so there are no node objects, just the points permuted into tree
+ * order, the original vertex index per position, and a split axis
+ * per median.
+ * Built by recursive quickselect, forking on large ranges.
+ * <p>
+ * Distances are measured as chords, which order the same as angles
+ * on the unit sphere; angular radii are converted with
+ * <code>chord = 2 sin(angle/2)</code>.
+ * Results are original vertex indices, nearest first.
+ * <p>
+ * Queries are read only; the batch versions run in parallel.
+ * Immutable.
+ *
+ * @author palisades dot lakes at gmail dot com
+ * @version 2026-10-18
+ */
+public final class VertexTree {
+
+  // at most this many points in a leaf
+  private static final int LEAF = 8;
+
+  // fork builds of ranges at least this long
+  private static final int FORK = 1 << 14;
+
+  // tree order
+  private final double[] _xyz;
+  private final int[] _ids;
+  // split axis of the node whose median is at position i
+  private final byte[] _axis;
+
+  public final int size () { return _ids.length; }
+
+  //--------------------------------------------------------------------
+  // distances
+  //--------------------------------------------------------------------
+
+  /** Squared chord length for an angle in radians. */
+  public static final double chord2 (final double angle) {
+    final double s = 2.0 * Math.sin(0.5 * Math.min(Math.PI, angle));
+    return s * s; }
+
+  private final double d2 (final int i,
+                           final double x,
+                           final double y,
+                           final double z) {
+    final int i3 = 3 * i;
+    final double dx = _xyz[i3] - x;
+    final double dy = _xyz[i3 + 1] - y;
+    final double dz = _xyz[i3 + 2] - z;
+    return (dx * dx) + (dy * dy) + (dz * dz); }
+
+  //--------------------------------------------------------------------
+  // k nearest
+  //--------------------------------------------------------------------
+  // bounded max heap on squared distance
+
+  private static final class Heap {
+    final double[] d;
+    final int[] p;
+    int n = 0;
+    Heap (final int k) { d = new double[k]; p = new int[k]; }
+    final boolean full () { return n == d.length; }
+    final double worst () {
+      return full() ? d[0] : Double.POSITIVE_INFINITY; }
+    final void swap (final int i,
+                     final int j) {
+      final double td = d[i]; d[i] = d[j]; d[j] = td;
+      final int tp = p[i]; p[i] = p[j]; p[j] = tp; }
+    final void down (final int i0,
+                     final int m) {
+      int i = i0;
+      while (true) {
+        final int l = (2 * i) + 1;
+        if (l >= m) { return; }
+        final int r = l + 1;
+        final int c = ((r < m) && (d[r] > d[l])) ? r : l;
+        if (d[c] <= d[i]) { return; }
+        swap(i, c);
+        i = c; } }
+    final void offer (final double dist,
+                      final int pos) {
+      if (! full()) {
+        int i = n++;
+        d[i] = dist; p[i] = pos;
+        while (i > 0) {
+          final int up = (i - 1) / 2;
+          if (d[up] >= d[i]) { break; }
+          swap(i, up);
+          i = up; } }
+      else if (dist < d[0]) {
+        d[0] = dist; p[0] = pos;
+        down(0, n); } }
+    // heap sort in place, nearest first
+    final void sort () {
+      for (int m = n - 1; m > 0; m--) { swap(0, m); down(0, m); } } }
+
+  private final void nearest (final int lo,
+                              final int hi,
+                              final double x,
+                              final double y,
+                              final double z,
+                              final Heap heap) {
+    if ((hi - lo) <= LEAF) {
+      for (int i = lo; i < hi; i++) { heap.offer(d2(i, x, y, z), i); }
+      return; }
+    final int m = (lo + hi) >>> 1;
+    final int a = _axis[m];
+    final double diff = ((0 == a) ? x : ((1 == a) ? y : z))
+      - _xyz[(3 * m) + a];
+    heap.offer(d2(m, x, y, z), m);
+    if (diff < 0.0) {
+      nearest(lo, m, x, y, z, heap);
+      if ((diff * diff) < heap.worst()) {
+        nearest(m + 1, hi, x, y, z, heap); } }
+    else {
+      nearest(m + 1, hi, x, y, z, heap);
+      if ((diff * diff) < heap.worst()) {
+        nearest(lo, m, x, y, z, heap); } } }
+
+  /** Write the indices of the (up to) <code>k</code> vertices nearest
+   * <code>(x,y,z)</code>, nearest first, to
+   * <code>neighbors[offset..]</code>, padding with -1.
+   * Returns the number found, <code>min(k,size())</code>.
+   */
+  public final int nearest (final double x,
+                            final double y,
+                            final double z,
+                            final int k,
+                            final int[] neighbors,
+                            final int offset) {
+    final Heap heap = new Heap(Math.min(k, size()));
+    if (0 < heap.d.length) { nearest(0, size(), x, y, z, heap); }
+    heap.sort();
+    for (int i = 0; i < k; i++) {
+      neighbors[offset + i] = (i < heap.n) ? _ids[heap.p[i]] : -1; }
+    return heap.n; }
+
+  /** k nearest vertices to each of <code>n</code> packed query points,
+   * in parallel, <code>k</code> per query in <code>neighbors</code>.
+   */
+  public final void nearest (final double[] queries,
+                             final int n,
+                             final int k,
+                             final int[] neighbors) {
+    assert (3 * n) <= queries.length;
+    assert (k * n) <= neighbors.length;
+    IntStream.range(0, n).parallel().forEach(i ->
+      nearest(queries[3 * i], queries[(3 * i) + 1], queries[(3 * i) + 2],
+              k, neighbors, k * i)); }
+
+  //--------------------------------------------------------------------
+  // radius
+  //--------------------------------------------------------------------
+
+  /** Growable list of tree positions. */
+  private static final class Found {
+    private int[] _positions = new int[16];
+    private int _n = 0;
+
+    private final void add (final int position) {
+      if (_n == _positions.length) {
+        _positions = Arrays.copyOf(_positions, 2 * _positions.length); }
+      _positions[_n++] = position; } }
+
+  private final void within (final int lo,
+                             final int hi,
+                             final double x,
+                             final double y,
+                             final double z,
+                             final double r2,
+                             final Found found) {
+    if ((hi - lo) <= LEAF) {
+      for (int i = lo; i < hi; i++) {
+        if (d2(i, x, y, z) <= r2) { found.add(i); } }
+      return; }
+    final int m = (lo + hi) >>> 1;
+    final int a = _axis[m];
+    final double diff = ((0 == a) ? x : ((1 == a) ? y : z))
+      - _xyz[(3 * m) + a];
+    if (d2(m, x, y, z) <= r2) { found.add(m); }
+    if ((diff < 0.0) || ((diff * diff) <= r2)) {
+      within(lo, m, x, y, z, r2, found); }
+    if ((diff >= 0.0) || ((diff * diff) <= r2)) {
+      within(m + 1, hi, x, y, z, r2, found); } }
+
+  // sorted vertex indices, allocating in proportion to the result
+  private final int[] withinChord (final double x,
+                                   final double y,
+                                   final double z,
+                                   final double r2) {
+    final Found found = new Found();
+    within(0, size(), x, y, z, r2, found);
+    final int[] ids = new int[found._n];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = _ids[found._positions[i]]; }
+    Arrays.sort(ids);
+    return ids; }
+
+  /** Indices of the vertices within <code>angle</code> radians of the
+   * unit vector <code>(x,y,z)</code>, in increasing index order.
+   */
+  public final int[] within (final double x,
+                             final double y,
+                             final double z,
+                             final double angle) {
+    return withinChord(x, y, z, chord2(angle)); }
+
+  //--------------------------------------------------------------------
+  // self join
+  //--------------------------------------------------------------------
+
+  // neighbors j > i of vertex i, within r2
+  private final int[] later (final int i,
+                             final double r2,
+                             final double[] xyz) {
+    final int i3 = 3 * i;
+    final int[] all = withinChord(xyz[i3], xyz[i3 + 1], xyz[i3 + 2], r2);
+    int start = Arrays.binarySearch(all, i);
+    start = (start < 0) ? (-start - 1) : (start + 1);
+    return Arrays.copyOfRange(all, start, all.length); }
+
+  /** All pairs of vertices within <code>angle</code> radians of each
+   * other, packed <code>i j</code> with <code>i &lt; j</code>, sorted,
+   * found with a parallel radius query per vertex.
+   */
+  public final int[] pairs (final double angle) {
+    final double r2 = chord2(angle);
+    final double[] xyz = originalOrder();
+    final int[][] later = new int[size()][];
+    IntStream.range(0, size()).parallel().forEach(i ->
+      later[i] = later(i, r2, xyz));
+    int n = 0;
+    for (final int[] js : later) { n += js.length; }
+    final int[] pairs = new int[2 * n];
+    int k = 0;
+    for (int i = 0; i < later.length; i++) {
+      for (final int j : later[i]) { pairs[k++] = i; pairs[k++] = j; } }
+    return pairs; }
+
+  /** For each vertex, the smallest index in its cluster, where
+   * clusters are the connected components of {@link #pairs(double)}:
+   * coincident (within <code>angle</code>) vertices map to one
+   * representative, so <code>representatives[i]==i</code>
+   * for the vertices to keep.
+   */
+  public final int[] representatives (final double angle) {
+    final int[] pairs = pairs(angle);
+    final int[] root = new int[size()];
+    for (int i = 0; i < root.length; i++) { root[i] = i; }
+    for (int k = 0; k < pairs.length; k += 2) {
+      final int a = find(root, pairs[k]);
+      final int b = find(root, pairs[k + 1]);
+      if (a < b) { root[b] = a; } else if (b < a) { root[a] = b; } }
+    for (int i = 0; i < root.length; i++) { root[i] = find(root, i); }
+    return root; }
+
+  // union find, with path halving
+  private static final int find (final int[] root,
+                                 final int i0) {
+    int i = i0;
+    while (root[i] != i) {
+      root[i] = root[root[i]];
+      i = root[i]; }
+    return i; }
+
+  // coordinates, indexed by original vertex
+  private final double[] originalOrder () {
+    final double[] xyz = new double[_xyz.length];
+    IntStream.range(0, size()).parallel().forEach(i ->
+      System.arraycopy(_xyz, 3 * i, xyz, 3 * _ids[i], 3));
+    return xyz; }
+
+  //--------------------------------------------------------------------
+  // construction
+  //--------------------------------------------------------------------
+
+  private static final double coordinate (final double[] xyz,
+                                          final int[] perm,
+                                          final int i,
+                                          final int axis) {
+    return xyz[(3 * perm[i]) + axis]; }
+
+  // partition perm[lo,hi) so the element at k is in sorted position
+  private static final void select (final double[] xyz,
+                                    final int[] perm,
+                                    final int lo0,
+                                    final int hi0,
+                                    final int k,
+                                    final int axis) {
+    int lo = lo0;
+    int hi = hi0 - 1;
+    while (lo < hi) {
+      final double pivot = coordinate(xyz, perm, (lo + hi) >>> 1, axis);
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (coordinate(xyz, perm, i, axis) < pivot) { i++; }
+        while (coordinate(xyz, perm, j, axis) > pivot) { j--; }
+        if (i <= j) {
+          final int t = perm[i]; perm[i] = perm[j]; perm[j] = t;
+          i++; j--; } }
+      if (k <= j) { hi = j; }
+      else if (k >= i) { lo = i; }
+      else { return; } } }
+
+  private static final int widest (final double[] xyz,
+                                   final int[] perm,
+                                   final int lo,
+                                   final int hi) {
+    final double[] min = { Double.POSITIVE_INFINITY,
+                           Double.POSITIVE_INFINITY,
+                           Double.POSITIVE_INFINITY };
+    final double[] max = { Double.NEGATIVE_INFINITY,
+                           Double.NEGATIVE_INFINITY,
+                           Double.NEGATIVE_INFINITY };
+    for (int i = lo; i < hi; i++) {
+      final int p3 = 3 * perm[i];
+      for (int a = 0; a < 3; a++) {
+        min[a] = Math.min(min[a], xyz[p3 + a]);
+        max[a] = Math.max(max[a], xyz[p3 + a]); } }
+    final double dx = max[0] - min[0];
+    final double dy = max[1] - min[1];
+    final double dz = max[2] - min[2];
+    return ((dx >= dy) && (dx >= dz)) ? 0 : ((dy >= dz) ? 1 : 2); }
+
+  private static final class Build extends RecursiveAction {
+    private final double[] _xyz;
+    private final int[] _perm;
+    private final byte[] _axis;
+    private final int _lo;
+    private final int _hi;
+    Build (final double[] xyz,
+           final int[] perm,
+           final byte[] axis,
+           final int lo,
+           final int hi) {
+      _xyz = xyz; _perm = perm; _axis = axis; _lo = lo; _hi = hi; }
+    @Override
+    protected final void compute () {
+      if ((_hi - _lo) <= LEAF) { return; }
+      final int m = (_lo + _hi) >>> 1;
+      final int a = widest(_xyz, _perm, _lo, _hi);
+      _axis[m] = (byte) a;
+      select(_xyz, _perm, _lo, _hi, m, a);
+      final Build left = new Build(_xyz, _perm, _axis, _lo, m);
+      final Build right = new Build(_xyz, _perm, _axis, m + 1, _hi);
+      if ((_hi - _lo) >= FORK) { invokeAll(left, right); }
+      else { left.compute(); right.compute(); } } }
+
+  private VertexTree (final double[] xyz) {
+    assert 0 == (xyz.length % 3);
+    final int n = xyz.length / 3;
+    final int[] perm = new int[n];
+    for (int i = 0; i < n; i++) { perm[i] = i; }
+    final byte[] axis = new byte[n];
+    ForkJoinPool.commonPool().invoke(new Build(xyz, perm, axis, 0, n));
+    final double[] tree = new double[xyz.length];
+    IntStream.range(0, n).parallel().forEach(i ->
+      System.arraycopy(xyz, 3 * perm[i], tree, 3 * i, 3));
+    _xyz = tree;
+    _ids = perm;
+    _axis = axis; }
+
+  /** Index <code>xyz.length/3</code> packed unit vectors.
+   * Copies <code>xyz</code>.
+   */
+  public static final VertexTree make (final double[] xyz) {
+    return new VertexTree(xyz); }
+
+  /** Bulk load from an attribute column, either xyz (3 per vertex),
+   * or azimuth and polar angle (2 per vertex), as from a
+   * <code>Point2S</code> embedding.
+   */
+  public static final VertexTree make (final VertexAttributes.Column c) {
+    final int n = c.size();
+    final double[] x = c.toDoubles().doubles();
+    return switch (c.dimension()) {
+      case 3 -> new VertexTree(x);
+      case 2 -> {
+        final double[] xyz = new double[3 * n];
+        S2Kernels.s2ToR3(x, xyz, n);
+        yield new VertexTree(xyz); }
+      default -> throw new IllegalArgumentException(
+        "Not points on S2: dimension " + c.dimension()); }; }
+
+  /** Index the vertices of <code>cmplx</code>, mapped by
+   * <code>embedding</code> to <code>Point2S</code> or unit
+   * <code>Vector3D</code>.
+   */
+  public static final VertexTree make (final IndexedCellComplex cmplx,
+                                       final IFn embedding) {
+    return make(
+      VertexAttributes.make(cmplx)
+      .withEmbedding("p", embedding)
+      .column("p")); }
+
+  //--------------------------------------------------------------------
+} // end class
+//--------------------------------------------------------------------
@@ -6,7 +6,16 @@
     :date   "2025-11-18"
     :doc    "Tests for mop.cmplx.complex."}
   (:require [clojure.test :as t]
-            [mop.cmplx.complex :as cmplx]))
+            [mop.cmplx.complex :as cmplx]
+            [mop.geom.icosahedron :as icosahedron]
+            [mop.geom.mesh :as mesh]
+            [mop.geom.quads :as quads])
+  (:import [java.util Collection]
+           [java.util.concurrent Callable ExecutorService Executors Future]
+           [mop.java.cmplx
+            FaceHierarchy FaceSubset HalfEdges IndexedCellComplex
+            IndexedSimplicialComplex2D QuadComplex SimplicialComplex2D
+            TwoSimplex ZeroSimplex]))
 
 ;;------------------------------------------------------------------------------
 ;; mvn -Dtest=mop.test.cmplx.complex compile clojure:test
@@ -29,3 +38,287 @@
      (t/is (not (cmplx/equivalent abc cba))
      ))))
 
+;;------------------------------------------------------------------------------
+
+(t/deftest indexed-round-trip
+  (let [^SimplicialComplex2D c (mesh/cmplx (icosahedron/s2-icosahedron))
+        ^IndexedSimplicialComplex2D ic (cmplx/indexed-complex-2d c)
+        ^SimplicialComplex2D c1 (cmplx/object-complex-2d
+                                 (IndexedSimplicialComplex2D/make
+                                  (into-array (.vertices ic))
+                                  (aclone (.faceIndices ic))))]
+    (t/testing
+     (t/is (= (.vertices c) (.vertices ic) (.vertices c1)))
+     (t/is (== (.size (.faces c)) (.nFaces ic) (.size (.faces c1))))
+     (t/is (every? true? (map cmplx/equivalent (.faces c) (.faces ic))))
+     (t/is (every? true? (map cmplx/equivalent (.faces c) (.faces c1)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest icosahedron-adjacency
+  (let [^SimplicialComplex2D c (mesh/cmplx (icosahedron/s2-icosahedron))
+        ^HalfEdges he (cmplx/half-edges c)]
+    (t/testing
+     (t/is (== 12 (.nVertices he)))
+     (t/is (== 20 (.nFaces he)))
+     (t/is (== 30 (.nEdges he)))
+     (t/is (== 30
+               (count (cmplx/vertex-pairs c))
+               (count (cmplx/vertex-pairs (cmplx/indexed-complex-2d c)))))
+     (t/is (empty? (cmplx/boundary-edges c)))
+     (doseq [z (.vertices c)]
+       (t/is (== 5 (count (cmplx/vertex-ring c z)))))
+     (doseq [^TwoSimplex f (.faces c)]
+       (t/is (== 2 (count (cmplx/edge-faces c (.z0 f) (.z1 f)))))
+       (t/is (some #(identical? f %) (cmplx/edge-faces c (.z1 f) (.z2 f)))))
+     (dotimes [i (.nFaces he)]
+       (t/is (every? #(<= 0 (long %)) (.faceNeighbors he i)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest non-manifold-half-edges
+  ;; 3 faces on edge 0-1, and 1 manifold interior edge 1-2
+  (let [zs (into-array ZeroSimplex (repeatedly 6 #(cmplx/simplex "z")))
+        ic (IndexedSimplicialComplex2D/make
+            zs (int-array [0 1 2, 1 0 3, 0 1 4, 2 1 5]))
+        ^HalfEdges he (cmplx/half-edges ic)
+        hs (range (.nHalfEdges he))]
+    (t/testing "twin is an involution, non-manifold half-edges are boundary"
+     (t/is (every? (fn [^long h]
+                     (let [t (.twin he h)]
+                       (or (neg? t) (== h (.twin he t)))))
+                   hs))
+     (t/is (every? #(.isBoundary he (int %)) [0 3 6]))
+     (t/is (== 9 (.twin he 1)))
+     (t/is (== 1 (.twin he 9)))
+     (t/is (== 10 (count (.boundaryHalfEdges he))))
+     ;; edge 0-1 counted once per half-edge
+     (t/is (== 11 (.nEdges he)))
+     (t/is (== 11 (count (filter #(.isFirst he (int %)) hs)))))))
+;;------------------------------------------------------------------------------
+
+(defn face-vertices [^IndexedCellComplex c ^long f]
+  (mapv #(.vertex c (.vertexIndex c (int f) (int %))) (range (.arity c))))
+
+(defn corresponds?
+  "Is there one vertex bijection taking each face in <code>as</code> to
+  the face at the same position in <code>bs</code>, up to rotation?"
+  [as bs]
+  (loop [fwd {} bwd {} as (seq as) bs (seq bs)]
+    (if-not as
+      (nil? bs)
+      (let [x (first as)
+            y (first bs)
+            m (some (fn [^long r]
+                      (reduce (fn [[f b] [u v]]
+                                (if (and (identical? v (get f u v))
+                                         (identical? u (get b v u)))
+                                  [(assoc f u v) (assoc b v u)]
+                                  (reduced nil)))
+                              [fwd bwd]
+                              (map vector x (into (subvec y r) (subvec y 0 r)))))
+                    (range (count x)))]
+        (if m (recur (m 0) (m 1) (next as) (next bs)) false)))))
+
+(t/deftest icosahedron-hierarchy
+  (let [c (mesh/cmplx (icosahedron/s2-icosahedron))
+        ^FaceHierarchy h (cmplx/face-hierarchy c 3)
+        ;; refine base face 0 all the way, and nothing else
+        ^IndexedCellComplex cut (cmplx/hierarchy-cut
+                                 h
+                                 (fn [level face]
+                                   (zero? (FaceHierarchy/ancestor
+                                           (int face) (int level)))))]
+    (t/testing
+     (t/is (== 4 (.nLevels h)))
+     (t/is (== 1280 (.nFaces (.finest h))))
+     (t/is (== 12 (.nVertices (.base h))))
+     (t/is (= (.vertices (.level h 1))
+              (take 42 (.vertices (.finest h)))))
+     (t/is (== 7 (FaceHierarchy/parent 29)))
+     (t/is (== (+ 19 64) (.nFaces cut))))
+    (t/testing "cut faces are the level faces, up to vertex identity"
+     ;; all of base face 0, and every middle child, at mixed levels
+     (let [nodes (.cut h (fn [level face]
+                           (or (zero? (FaceHierarchy/ancestor
+                                       (int face) (int level)))
+                               (== 3 (bit-and (long face) 3)))))
+           ^IndexedCellComplex mixed (.cutComplex h nodes)]
+       (t/is (< 1 (count (set (map #(FaceHierarchy/nodeLevel %) nodes)))))
+       (t/is (corresponds?
+              (map #(face-vertices mixed %) (range (.nFaces mixed)))
+              (map (fn [^long node]
+                     (face-vertices (.level h (FaceHierarchy/nodeLevel node))
+                                    (FaceHierarchy/nodeFace node)))
+                   nodes)))))
+    (t/testing "levels are built lazily, and shared when deepened"
+     ;; 20*4^12 faces at the finest level; cutting builds no levels
+     (let [^FaceHierarchy deep (cmplx/face-hierarchy c 12)
+           ^IndexedCellComplex coarse (cmplx/hierarchy-cut
+                                       deep
+                                       (fn [level _] (zero? (long level))))]
+       (t/is (== 13 (.nLevels deep)))
+       (t/is (== 80 (.nFaces coarse)))
+       (t/is (== 42 (.nVertices coarse)))
+       (t/is (identical? (.level h 2) (.level (.deepen h 2) 2)))
+       (t/is (== 6 (.nLevels (.deepen h 2))))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest complex-builders
+  (let [zs (vec (repeatedly 40 #(cmplx/simplex "z")))
+        expected (mapv #(.id ^ZeroSimplex %) zs)
+        ;; consecutive runs of k vertices, so vertices first appear in
+        ;; creation order
+        strip (fn [^long k]
+                (map #(subvec zs % (+ (long %) k))
+                     (range (- (count zs) (dec k)))))
+        triangle-faces (mapv (fn [[a b c]] (cmplx/simplex a b c)) (strip 3))
+        quad-faces (mapv (fn [[a b c d]] (quads/quad a b c d)) (strip 4))
+        ids (fn [c] (mapv #(.id ^ZeroSimplex %) (cmplx/vertices c)))]
+    (doseq [[faces make] [[triangle-faces #(SimplicialComplex2D/make ^Collection %)]
+                          [quad-faces #(QuadComplex/make ^Collection %)]]]
+      (let [sorted (make faces)
+            ;; repeated faces, vertices first appearing in reverse order
+            unsorted (make (reverse (into faces faces)))]
+        (t/testing "vertices in creation order, from sorted input"
+          (t/is (= expected (ids sorted)))
+          (t/is (= faces (vec (cmplx/faces sorted)))))
+        (t/testing "vertices sorted and unique, from unsorted input"
+          (t/is (= expected (ids unsorted)))
+          (t/is (== (* 2 (count faces))
+                    (count (cmplx/faces unsorted)))))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest icosahedron-face-subset
+  (let [c (mesh/cmplx (icosahedron/s2-icosahedron))
+        ^ZeroSimplex z (first (cmplx/vertices c))
+        ^FaceSubset s (cmplx/without-vertex c z)
+        ^FaceSubset s1 (cmplx/face-subset s #(not= z (.z0 ^TwoSimplex %)))]
+    (t/testing
+     (t/is (== 15 (.nFaces s)))
+     (t/is (== 11 (count (cmplx/vertices s))))
+     (t/is (identical? (.root s) (.root s1)))
+     (t/is (== 15 (.nFaces s1)))
+     (t/is (== 15 (.nFaces ^IndexedCellComplex (cmplx/indexed-complex-2d s))))
+     (t/is (== 5 (.nFaces (.andNot (FaceSubset/all c) s)))))
+    (t/testing "removing faces by vertex name removes every match"
+     (let [m (icosahedron/s2-icosahedron)
+           m1 (cmplx/midpoint-subdivide-4 m)
+           ;; a generated midpoint, with 6 faces
+           g (last (cmplx/vertices (mesh/cmplx m1)))
+           x0 (cmplx/simplex "x")
+           x1 (cmplx/simplex "x")
+           [a b e f] (repeatedly 4 #(cmplx/simplex "y"))
+           two (mesh/triangle-mesh
+                (SimplicialComplex2D/make
+                 [(cmplx/simplex x0 a b) (cmplx/simplex x1 e f)])
+                (constantly [0.0 0.0]))]
+       (t/is (== 15 (count (mesh/faces (mesh/remove-faces-w-vtx m (str z))))))
+       (t/is (== 20 (count (mesh/faces (mesh/remove-faces-w-vtx m "none")))))
+       (t/is (== 0 (count (mesh/faces (mesh/remove-faces-w-vtx two "x")))))
+       (t/is (== 1 (count (mesh/faces (mesh/remove-faces-w-vtx two x0)))))
+       (t/is (== 74 (count (mesh/faces (mesh/remove-faces-w-vtx m1 (str g))))))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest icosahedron-topology
+  (let [c (mesh/cmplx (icosahedron/s2-icosahedron))
+        z (first (cmplx/vertices c))
+        closed (cmplx/topology-map c)
+        disk (cmplx/topology-map (cmplx/without-vertex c z))]
+    (t/testing
+     (t/is (cmplx/valid? c))
+     (t/is (== 2 (:euler-characteristic closed)))
+     (t/is (== 30 (:edges closed)))
+     (t/is (zero? (:boundary-edges closed)))
+     (t/is (== 1 (:euler-characteristic disk)))
+     (t/is (== 5 (:boundary-edges disk)))
+     (t/is (== 1 (:boundary-loops disk)))
+     (t/is (cmplx/valid? (:child (cmplx/midpoint-subdivide-4 c)))))))
+
+;;------------------------------------------------------------------------------
+
+(defn hand-built
+  "Triangle complex with new vertices <code>[0,max index]</code> and
+  the given face indices."
+  ^IndexedSimplicialComplex2D [faces]
+  (let [nv (inc (long (apply max faces)))]
+    (IndexedSimplicialComplex2D/make
+     (into-array ZeroSimplex (repeatedly nv #(cmplx/simplex "z")))
+     (int-array faces))))
+
+(t/deftest defective-topology
+  (doseq [[doc faces expected]
+          [["3 faces on edge 0-1, 2 of them in the same direction"
+            [0 1 2, 1 0 3, 0 1 4]
+            {:vertices 5 :edges 7 :faces 3 :euler-characteristic 1
+             :boundary-edges 6 :boundary-loops 5 :non-manifold-edges 1
+             :inconsistent-edges 1 :non-manifold-vertices 2
+             :duplicate-faces 0}]
+           ["bowtie: 2 faces sharing only vertex 0"
+            [0 1 2, 0 3 4]
+            {:vertices 5 :edges 6 :faces 2 :euler-characteristic 1
+             :boundary-edges 6 :boundary-loops 2 :non-manifold-edges 0
+             :inconsistent-edges 0 :non-manifold-vertices 1
+             :duplicate-faces 0}]
+           ["inconsistent orientation: both faces run 0->1"
+            [0 1 2, 0 1 3]
+            {:vertices 4 :edges 5 :faces 2 :euler-characteristic 1
+             :boundary-edges 4 :boundary-loops 3 :non-manifold-edges 0
+             :inconsistent-edges 1 :non-manifold-vertices 2
+             :duplicate-faces 0}]
+           ["duplicate face, oppositely oriented, closing a 'pillow'"
+            [0 1 2, 0 2 1]
+            {:vertices 3 :edges 3 :faces 2 :euler-characteristic 2
+             :boundary-edges 0 :boundary-loops 0 :non-manifold-edges 0
+             :inconsistent-edges 0 :non-manifold-vertices 0
+             :duplicate-faces 1}]]]
+    (let [c (hand-built faces)]
+      (t/testing doc
+       (t/is (= expected (cmplx/topology-map c)))
+       (t/is (not (cmplx/valid? c)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest cell-ids-across-threads
+  (let [^ExecutorService other (Executors/newSingleThreadExecutor)
+        on-other (fn [f] (.get ^Future (.submit other ^Callable f)))
+        id (fn ^long [^ZeroSimplex z] (.id z))
+        inverts? (fn [^IndexedCellComplex ic]
+                   (every? (fn [^long i]
+                             (== i (.indexOf ic (.vertex ic (int i)))))
+                           (range (.nVertices ic))))]
+    (try
+      ;; the other thread takes its first ids before this one makes many
+      (let [early (on-other #(cmplx/simplex "early"))
+            c (mesh/cmplx (icosahedron/s2-icosahedron))
+            _ (dotimes [_ 10000] (cmplx/simplex "filler"))
+            late (on-other #(cmplx/simplex "late"))
+            ;; parent vertices from this thread, children from the other
+            child (on-other #(:child (cmplx/midpoint-subdivide-4 c)))
+            ;; vertex index order opposite to id order
+            zs (vec (repeatedly 4 #(cmplx/simplex "z")))
+            reversed (IndexedSimplicialComplex2D/make
+                      (into-array ZeroSimplex (rseq zs))
+                      (int-array [0 1 2, 0 2 3]))
+            concurrent (mapv deref
+                             (repeatedly
+                              4 #(future
+                                  (mapv (fn [_] (cmplx/simplex "z"))
+                                        (range 5000)))))]
+        (t/testing "ids unique, and increasing within a thread"
+          (t/is (< (id early) (id late)))
+          (t/is (every? #(apply < (map id %)) concurrent))
+          (t/is (== (* 4 5000)
+                    (count (set (map id (apply concat concurrent)))))))
+        (t/testing "indexOf doesn't depend on id order"
+          (t/is (inverts? (cmplx/indexed-complex-2d child)))
+          (t/is (inverts? reversed))
+          (t/is (== 3 (.indexOf reversed ^ZeroSimplex (zs 0))))
+          (t/is (== -1 (.indexOf reversed ^ZeroSimplex early)))
+          (t/is (cmplx/valid? reversed))))
+      (finally (.shutdown other)))))
+
+;;------------------------------------------------------------------------------
@@ -13,7 +13,10 @@
             [mop.geom.icosahedron :as icosahedron]
             [mop.geom.mesh :as mesh]
             [mop.geom.s2 :as s2])
-  (:import [org.apache.commons.geometry.euclidean.threed.mesh TriangleMesh]
+  (:import [mop.java.cmplx IndexedCellComplex SubdivisionStream ZeroSimplex]
+           [org.apache.commons.geometry.euclidean.threed Vector3D]
+           [org.apache.commons.geometry.euclidean.threed.mesh TriangleMesh]
+           [org.apache.commons.geometry.spherical.twod Point2S]
            [org.apache.commons.numbers.core Precision]))
 
 ;;------------------------------------------------------------------------------
@@ -57,3 +60,114 @@
   )
 
 ;;------------------------------------------------------------------------------
+
+(t/deftest subdivided-orientation
+  (let [uncut (icosahedron/s2-icosahedron)
+        m (cmplx/midpoint-subdivide-4 (cmplx/midpoint-subdivide-4 uncut))
+        child (:child (cmplx/midpoint-subdivide-4
+                       (:child (cmplx/midpoint-subdivide-4
+                                (mesh/cmplx uncut)))))]
+    (t/testing
+     (t/is (== 162 (count (cmplx/vertices (mesh/cmplx m)))))
+     (t/is (== 320 (cmplx/n-faces (mesh/cmplx m))))
+     (t/is (java.util.Arrays/equals
+            (.faceIndices ^IndexedCellComplex (cmplx/indexed-complex-2d child))
+            (.faceIndices ^IndexedCellComplex (mesh/cmplx m))))
+     (t/is (every? #(<= (.level ^ZeroSimplex %) 2)
+                   (cmplx/vertices (mesh/cmplx m))))
+     (check-area (mesh/embedding m) (cmplx/faces (mesh/cmplx m))))
+    (t/testing "generated vertex names are unique"
+     (t/is (apply distinct? (map str (cmplx/vertices (mesh/cmplx m)))))
+     (t/is (apply distinct? (map str (cmplx/vertices child)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest subdivision-stream
+  (let [^SubdivisionStream s (mesh/subdivision-stream (icosahedron/s2-icosahedron) 3)
+        faces (atom 0)
+        face-vertices (atom #{})
+        visits (atom 0)
+        vertices (atom {})]
+    (mesh/stream-faces s (fn [_ v0 v1 v2 _ _ _]
+                           (swap! faces inc)
+                           (swap! face-vertices conj v0 v1 v2)))
+    (mesh/stream-vertices s (fn [v p]
+                              (swap! visits inc)
+                              (swap! vertices assoc v p)))
+    (t/testing "counts"
+     (t/is (== 1280 @faces (.nFaces s)))
+     (t/is (== 642 (count @vertices) (.nVertices s))))
+    (t/testing "each vertex is visited once, with a distinct point"
+     (t/is (== 642 @visits))
+     (t/is (== 642 (count (set (vals @vertices)))))
+     (t/is (= (set (range 642)) (set (keys @vertices)) @face-vertices)))
+    (t/testing "levels whose face count overflows a long are rejected"
+     (t/is (== 29 (SubdivisionStream/maxLevel (.base s))))
+     (t/is (thrown? IllegalArgumentException
+                    (mesh/subdivision-stream
+                     (icosahedron/s2-icosahedron) 30))))))
+
+;;------------------------------------------------------------------------------
+;; Faces compared up to vertex identity: as oriented triples of points,
+;; rotated to start at the least point.
+
+(defn point-key [^Vector3D p] [(.getX p) (.getY p) (.getZ p)])
+
+(defn face-key [points]
+  (let [ks (mapv point-key points)]
+    (first (sort (map #(into (subvec ks %) (subvec ks 0 %)) (range 3))))))
+
+(t/deftest subdivision-stream-vs-iterated
+  (doseq [k [1 2 3]]
+    (let [m (icosahedron/r3-icosahedron)
+          ^SubdivisionStream s (mesh/subdivision-stream m k)
+          mk (nth (iterate cmplx/midpoint-subdivide-4 m) k)
+          ^IndexedCellComplex c (cmplx/indexed-complex-2d (mesh/cmplx mk))
+          embedding (mesh/embedding mk)
+          iterated (mapv (fn [f] (face-key (map #(embedding (.vertex c (int %))) f)))
+                         (partition 3 (.faceIndices c)))
+          streamed (atom [])
+          points (atom [])]
+      (mesh/stream-faces s (fn [_ _ _ _ p0 p1 p2]
+                             (swap! streamed conj (face-key [p0 p1 p2]))))
+      (mesh/stream-vertices s (fn [_ p] (swap! points conj (point-key p))))
+      (t/testing (str "level " k " stream = " k " midpoint-subdivide-4s")
+       (t/is (== (.nFaces c) (count @streamed) (count (set @streamed))))
+       (t/is (= (set iterated) (set @streamed)))
+       (t/is (== (.nVertices c) (count @points)))
+       (t/is (= (set (map #(point-key (embedding %)) (.vertices c)))
+                (set @points)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest s2-icosphere
+  (let [subdivided (-> (icosahedron/s2-icosahedron)
+                       cmplx/midpoint-subdivide-4
+                       cmplx/midpoint-subdivide-4
+                       cmplx/midpoint-subdivide-4)
+        icosphere (icosahedron/s2-icosphere 3)
+        gnomonic (icosahedron/s2-icosphere 3 :gnomonic)
+        tree (mesh/vertex-tree subdivided)
+        embedding (mesh/embedding subdivided)
+        vertices (vec (cmplx/vertices (mesh/cmplx subdivided)))
+        close? (fn [^Point2S p]
+                 (let [[i] (mesh/nearest-vertices tree p 1)]
+                   (> 1.0e-12 (.distance p ^Point2S
+                                         (embedding (vertices i))))))]
+    (t/testing "same complex as 3 midpoint subdivisions"
+      (t/is (== (* 20 64) (count (mesh/faces icosphere))))
+      (t/is (== (count vertices)
+                (count (cmplx/vertices (mesh/cmplx icosphere)))))
+      (t/is (cmplx/valid? (mesh/cmplx icosphere)))
+      (t/is (empty? (cmplx/boundary-edges (mesh/cmplx icosphere))))
+      (t/is (apply distinct?
+                   (map str (cmplx/vertices (mesh/cmplx icosphere))))))
+    (t/testing "same points as 3 midpoint subdivisions"
+      (t/is (every? close? (vals (mesh/embedding icosphere))))
+      (check-area (mesh/embedding icosphere) (mesh/faces icosphere))
+      (check-area (mesh/embedding gnomonic) (mesh/faces gnomonic)))
+    (t/testing "levels are cached"
+      (t/is (identical? (mesh/cmplx icosphere)
+                        (mesh/cmplx (icosahedron/s2-icosphere 3)))))))
+
+;;------------------------------------------------------------------------------
@@ -0,0 +1,417 @@
+(set! *warn-on-reflection* true)
+(set! *unchecked-math* :warn-on-boxed)
+;;------------------------------------------------------------------------------
+
+(ns ^{:author "palisades dot lakes at gmail dot com"
+      :date   "2026-10-18"
+      :doc    "Tests for mop.geom.mesh."}
+
+  mop.test.geom.mesh
+
+  (:require [clojure.test :as t]
+            [mop.cmplx.complex :as cmplx]
+            [mop.geom.icosahedron :as icosahedron]
+            [mop.geom.mesh :as mesh]
+            [mop.geom.rn :as rn]
+            [mop.geom.s2 :as s2])
+  (:import [java.util Random]
+           [mop.java.cmplx IndexedCellComplex IndexedSimplicialComplex2D
+            TwoSimplex ZeroSimplex]
+           [mop.java.geom Point2U]
+           [mop.java.geom.mesh FaceLocator$Location VertexAttributes
+            VertexAttributes$Column VertexTree]
+           [org.apache.commons.geometry.euclidean.threed Vector3D]
+           [org.apache.commons.geometry.euclidean.threed.mesh TriangleMesh]
+           [org.apache.commons.geometry.spherical.twod Point2S]
+           [org.apache.commons.numbers.core Precision]))
+
+;;------------------------------------------------------------------------------
+;; mvn -Dtest=mop.test.geom.mesh clojure:test
+;;------------------------------------------------------------------------------
+
+(t/deftest vertex-attributes
+  (let [ico (icosahedron/r3-icosahedron)
+        m (mesh/attributed-mesh
+           (mesh/embedding ico)
+           (mesh/vertex-attributes (mesh/cmplx ico)
+                                   {"xyz" (mesh/embedding ico)}))
+        m2 (mesh/subdivide-mesh (mesh/subdivide-mesh m))
+        ^VertexAttributes a (mesh/attributes m2)
+        ^VertexAttributes$Column xyz (.column a "xyz")
+        ^IndexedCellComplex c (.cmplx a)
+        embedding (mesh/embedding m2)]
+    (t/testing
+     (t/is (identical? c (mesh/cmplx m2)))
+     (t/is (== 162 (.size xyz)))
+     (t/is (== (* 3 162) (alength ^floats (.interleave a (into-array String ["xyz"])))))
+     (dotimes [i (.nVertices c)]
+       (let [p (rn/coordinates (embedding (.vertex c i)))]
+         (dotimes [k 3]
+           (t/is (< (Math/abs (- (double (nth p k)) (.get xyz i k)))
+                    1.0e-12))))))
+    (t/testing "transforms scale the position column and carry the rest"
+     (let [^VertexAttributes a2 (.withEmbedding a "w" embedding)
+           m3 (mesh/attributed-mesh embedding a2)
+           filtered (mesh/filter-mesh (constantly true) m3)]
+       (doseq [t [(rn/transform 2.0 m3) (rn/transform 2.0 filtered)]]
+         (let [^VertexAttributes ta (mesh/attributes t)
+               ^VertexAttributes$Column txyz (.column ta "xyz")
+               te (mesh/embedding t)]
+           (t/is (identical? (.column a2 "w") (.column ta "w")))
+           (dotimes [i (.nVertices c)]
+             (let [p (rn/coordinates (te (.vertex c i)))]
+               (dotimes [k 3]
+                 (t/is (< (Math/abs (- (* 2.0 (.get xyz i k)) (.get txyz i k)))
+                          1.0e-12))
+                 (t/is (< (Math/abs (- (double (nth p k)) (.get txyz i k)))
+                          1.0e-12)))))))
+       (t/is (identical? a2 (mesh/attributes filtered)))))))
+
+;;------------------------------------------------------------------------------
+
+(def ^:private ^TriangleMesh s2-icosahedron-2
+  "Level 2 midpoint subdivision of the s2 icosahedron, 320 faces."
+  (cmplx/midpoint-subdivide-4
+   (cmplx/midpoint-subdivide-4 (icosahedron/s2-icosahedron))))
+
+;;------------------------------------------------------------------------------
+
+(defn- dateline-case
+  "Expected <code>DatelineCut</code> case for a face, from azimuths
+  alone, ignoring poles and vertices on the dateline:
+  <code>:unchanged</code> 1 face, <code>:lone-vertex</code> 1 face,
+  <code>:split</code> 2 faces."
+  [embedding ^TwoSimplex face]
+  (let [eps 1.0e-9
+        azimuths (keep (fn [z]
+                         (let [^Point2S p (embedding z)
+                               a (.getAzimuth p)
+                               polar (.getPolar p)]
+                           (when-not (or (< polar eps)
+                                         (< (- Math/PI polar) eps)
+                                         (< a eps) (< (- (* 2 Math/PI) a) eps))
+                             a)))
+                       [(.z0 face) (.z1 face) (.z2 face)])
+        low (count (filter #(< (double %) Math/PI) azimuths))
+        high (- (count azimuths) low)]
+    (cond (or (zero? low) (zero? high)
+              (<= (- (double (reduce max azimuths))
+                     (double (reduce min azimuths)))
+                  Math/PI))
+          :unchanged
+          (== 3 (count azimuths)) :lone-vertex
+          :else :split)))
+
+(defn- check-dateline-cut [s2 cases]
+  (let [u2 (mesh/dateline-cut s2)
+        c (mesh/cmplx u2)
+        embedding (mesh/embedding u2)
+        expected (frequencies
+                  (map #(dateline-case (mesh/embedding s2) %)
+                       (cmplx/faces (mesh/cmplx s2))))]
+    (t/testing "cut complex"
+      (t/is (.isOriented (cmplx/topology c)))
+      (t/is (every? #(instance? Point2U (embedding %))
+                    (cmplx/vertices c))))
+    (t/testing "each case occurs"
+      (doseq [k cases] (t/is (pos? (long (get expected k 0))) (str k))))
+    (t/testing "1 face per unchanged or lone vertex face, 2 per split face"
+      (t/is (== (+ (long (get expected :unchanged 0))
+                   (long (get expected :lone-vertex 0))
+                   (* 2 (long (get expected :split 0))))
+                (count (cmplx/faces c)))))
+    (t/testing "no face spans more than PI in azimuth, ignoring poles"
+      (doseq [^TwoSimplex face (cmplx/faces c)]
+        (let [us (keep (fn [z]
+                         (let [^Point2U p (embedding z)
+                               v (.getV p)]
+                           (when-not (or (< v 1.0e-9)
+                                         (< (- Math/PI v) 1.0e-9))
+                             (.getU p))))
+                       [(.z0 face) (.z1 face) (.z2 face)])]
+          (t/is (<= (- (double (reduce max us)) (double (reduce min us)))
+                    Math/PI)
+                (str face)))))
+    (t/testing "copies of a vertex have distinct names"
+      (t/is (apply distinct? (map str (cmplx/vertices c)))))
+    (t/testing "same faces and copies as dateline-cut-face"
+      (let [face-names (fn [^TwoSimplex f] (mapv str [(.z0 f) (.z1 f) (.z2 f)]))
+            cuts (map #(mesh/dateline-cut-face (mesh/embedding s2) %)
+                      (cmplx/faces (mesh/cmplx s2)))
+            points (into {} (map (fn [z] [(str z) (embedding z)]))
+                         (cmplx/vertices c))]
+        (t/is (= (frequencies (map face-names (cmplx/faces c)))
+                 (frequencies (map face-names (mapcat :new-faces cuts)))))
+        (doseq [[z ^Point2U p] (mapcat :u2 cuts)]
+          (let [^Point2U q (get points (str z))]
+            (t/is (some? q) (str z))
+            (when q
+              (t/is (< (Math/abs (- (.getU p) (.getU q))) 1.0e-12) (str z))
+              (t/is (< (Math/abs (- (.getV p) (.getV q))) 1.0e-12)
+                    (str z)))))))))
+
+(t/deftest dateline-cut
+  (let [s2 s2-icosahedron-2
+        ;; rotated off the vertices on the dateline
+        rotated (mesh/triangle-mesh
+                 (mesh/cmplx s2)
+                 (into {}
+                       (map (fn [z]
+                              (let [^Point2S p ((mesh/embedding s2) z)]
+                                [z (s2/point (+ 0.1 (.getAzimuth p))
+                                             (.getPolar p))])))
+                       (cmplx/vertices (mesh/cmplx s2))))]
+    (check-dateline-cut s2 [:unchanged :split])
+    (check-dateline-cut rotated [:unchanged :lone-vertex :split])))
+
+;;------------------------------------------------------------------------------
+
+(defn- random-unit-vectors
+  "<code>n</code> random unit vectors, packed <code>x y z</code>."
+  ^doubles [^long n ^long seed]
+  (let [random (Random. seed)
+        xyz (double-array (* 3 n))]
+    (dotimes [i n]
+      (let [x (.nextGaussian random)
+            y (.nextGaussian random)
+            z (.nextGaussian random)
+            r (Math/sqrt (+ (* x x) (* y y) (* z z)))]
+        (aset xyz (* 3 i) (/ x r))
+        (aset xyz (+ 1 (* 3 i)) (/ y r))
+        (aset xyz (+ 2 (* 3 i)) (/ z r))))
+    xyz))
+
+(defn- faces-containing
+  "Brute force: indices of all the faces of <code>c</code> whose
+  spherical triangle contains the unit vector <code>p</code>."
+  [^IndexedSimplicialComplex2D c embedding ^Vector3D p]
+  (let [^ints faces (.faceIndices c)
+        corner (fn ^Vector3D [^long i]
+                 (.getVector ^Point2S (embedding (.vertex c (aget faces i)))))]
+    (set
+     (filter (fn [^long f]
+               (let [^Vector3D pa (corner (* 3 f))
+                     ^Vector3D pb (corner (+ 1 (* 3 f)))
+                     ^Vector3D pc (corner (+ 2 (* 3 f)))]
+                 (every? #(<= -1.0e-12 (.dot p ^Vector3D %))
+                         [(.cross pb pc) (.cross pc pa) (.cross pa pb)])))
+             (range (.nFaces c))))))
+
+(t/deftest face-locator
+  (let [s2 s2-icosahedron-2
+        embedding (mesh/embedding s2)
+        locator (mesh/face-locator s2)
+        c (.cmplx locator)
+        n 1000
+        xyz (random-unit-vectors n 20261018)
+        {:keys [^ints faces ^doubles barycentric]} (mesh/locate-all locator xyz)]
+    (t/testing "every vertex is located, with a barycentric coordinate 1"
+      (doseq [v (cmplx/vertices (mesh/cmplx s2))]
+        (let [{:keys [face barycentric]} (mesh/locate locator (embedding v))]
+          (t/is (some? face))
+          (t/is (< (Math/abs (- 1.0 (double (reduce max barycentric))))
+                   1.0e-9)))))
+    (t/testing "random points are in a face the brute force search finds"
+      (dotimes [i n]
+        (let [p (Vector3D/of (aget xyz (* 3 i))
+                             (aget xyz (+ 1 (* 3 i)))
+                             (aget xyz (+ 2 (* 3 i))))
+              ^FaceLocator$Location l (.locate locator ^Point2S (s2/point p))]
+          (t/is (contains? (faces-containing c embedding p) (.index l)))
+          (t/is (every? #(<= -1.0e-12 (double %)) [(.b0 l) (.b1 l) (.b2 l)]))
+          (t/is (< (Math/abs (- 1.0 (+ (.b0 l) (.b1 l) (.b2 l)))) 1.0e-12)))))
+    (t/testing "batch locate agrees with locating one point at a time"
+      (t/is (== n (alength faces)))
+      (t/is (zero? (.locate locator xyz (int-array n) (double-array (* 3 n))
+                            (int n))))
+      (dotimes [i n]
+        (let [b (double-array 3)
+              f (.locate locator
+                         (aget xyz (* 3 i))
+                         (aget xyz (+ 1 (* 3 i)))
+                         (aget xyz (+ 2 (* 3 i)))
+                         b
+                         (int 0))]
+          (t/is (== f (aget faces i)))
+          (dotimes [k 3]
+            (t/is (== (aget b k) (aget barycentric (+ k (* 3 i)))))))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest vertex-tree
+  (let [s2 s2-icosahedron-2
+        embedding (mesh/embedding s2)
+        ^IndexedCellComplex c (cmplx/indexed-complex-2d (mesh/cmplx s2))
+        nv (.nVertices c)
+        ^VertexTree tree (mesh/vertex-tree s2)
+        same (mesh/coincident-vertices tree 1.0e-9)
+        points (mapv #(.getVector ^Point2S (embedding (.vertex c (int %))))
+                     (range nv))
+        n 200
+        k 7
+        angle 0.2
+        xyz (random-unit-vectors n 20261019)
+        batch (int-array (* k n))]
+    (.nearest tree xyz (int n) (int k) batch)
+    (t/testing "each vertex is its own nearest neighbor"
+      (t/is (== 162 nv))
+      (dotimes [i nv]
+        (let [p (embedding (.vertex c i))
+              nearest (mesh/nearest-vertices tree p k)]
+          (t/is (== i (int (first nearest))))
+          (t/is (== k (count nearest)))
+          (t/is (= [i] (mesh/vertices-within tree p 1.0e-6)))
+          (t/is (== i (aget ^ints same i))))))
+    (t/testing "k nearest and radius queries agree with brute force"
+      (dotimes [q n]
+        (let [p (Vector3D/of (aget xyz (* 3 q))
+                             (aget xyz (+ 1 (* 3 q)))
+                             (aget xyz (+ 2 (* 3 q))))
+              d2 (mapv (fn [^Vector3D v]
+                         (let [d (.distance p v)] (* d d)))
+                       points)
+              by-distance (sort-by #(nth d2 %) (range nv))
+              nearest (mesh/nearest-vertices tree (s2/point p) k)]
+          ;; compare distances, in case of ties
+          (t/is (every? true?
+                        (map #(< (Math/abs (- (double (nth d2 %1))
+                                              (double (nth d2 %2))))
+                                 1.0e-12)
+                             (take k by-distance)
+                             nearest)))
+          (t/is (= nearest
+                   (vec (take k (drop (* k q) (seq batch))))))
+          (t/is (= (vec (filter #(<= (double (nth d2 %))
+                                     (VertexTree/chord2 angle))
+                                (range nv)))
+                   (mesh/vertices-within tree (s2/point p) angle))))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest mesh-metrics
+  (let [close? (fn [^double a ^double b] (< (Math/abs (- a b)) 1.0e-12))
+        aspect (fn [mesh]
+                 (:moments (:aspect-ratio
+                            (mesh/metrics-summary (mesh/metrics mesh)))))
+        s2 (cmplx/midpoint-subdivide-4 (icosahedron/s2-icosahedron))
+        summary (mesh/metrics-summary (mesh/metrics s2))
+        [n lo hi mean] (:moments (:area summary))]
+    (t/testing "level 1 areas"
+      (t/is (== 80 (double n)))
+      (t/is (< 0.0 (double lo) (double hi)))
+      (t/is (< (Math/abs (- (* 4 Math/PI) (* 80.0 (double mean)))) 1.0e-12))
+      (t/is (== 80 (reduce + (:histogram (:area summary))))))
+    (t/testing "equilateral base icosahedron"
+      (let [[n lo hi] (aspect (icosahedron/s2-icosahedron))]
+        (t/is (== 20 (double n)))
+        (t/is (close? 1.0 lo))
+        (t/is (close? 1.0 hi))))
+    ;; the central face of each subdivided face stays equilateral;
+    ;; the maxima are from the great arc edge lengths
+    (t/testing "level 1 and 2 aspect ratios"
+      (let [[_ lo hi] (aspect s2)]
+        (t/is (close? 1.0 lo))
+        (t/is (close? 1.018569203600353 hi)))
+      (let [[n lo hi] (aspect s2-icosahedron-2)]
+        (t/is (== 320 (double n)))
+        (t/is (close? 1.0 lo))
+        (t/is (close? 1.0282200666578556 hi))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest relaxation
+  (let [ico (icosahedron/s2-icosahedron)
+        s2 (cmplx/midpoint-subdivide-4 (cmplx/midpoint-subdivide-4 ico))
+        iterations (atom 0)
+        relaxed (mesh/relax s2
+                            :mode :area
+                            :iterations 50
+                            :pinned (cmplx/vertices (mesh/cmplx ico))
+                            :progress (fn [i _] (reset! iterations i) nil))
+        sd (fn [m] (nth (:moments (:area (mesh/metrics-summary
+                                          (mesh/metrics m))))
+                        4))]
+    (t/testing "runs every iteration, and evens out face areas"
+      (t/is (== 50 (long @iterations)))
+      (t/is (< (double (sd relaxed)) (double (sd s2)))))
+    (t/testing "pinned vertices don't move"
+      (doseq [v (cmplx/vertices (mesh/cmplx ico))]
+        (t/is (< (.distance ^Point2S ((mesh/embedding s2) v)
+                            ^Point2S ((mesh/embedding relaxed) v))
+                 1.0e-12))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest delaunay-flip
+  (let [s2 s2-icosahedron-2
+        random (Random. 1)
+        jitter (fn [^Point2S p]
+                 (Point2S/of (+ (.getAzimuth p) (* 0.05 (.nextGaussian random)))
+                             (+ (.getPolar p) (* 0.05 (.nextGaussian random)))))
+        ;; jitter in vertex id order, so the test is repeatable
+        embedding (into {} (map (fn [[v p]] [v (jitter p)]))
+                        (sort-by (fn [[^ZeroSimplex v _]] (.id v))
+                                 (mesh/embedding s2)))
+        jittered (mesh/triangle-mesh (mesh/cmplx s2) embedding)
+        ^TwoSimplex f (first (mesh/faces jittered))
+        constrained [[(.z0 f) (.z1 f)]]
+        flipped (mesh/delaunay-flip jittered :constrained constrained)
+        shared? (fn [[a b]]
+                  (some (fn [^TwoSimplex g]
+                          (let [vs #{(.z0 g) (.z1 g) (.z2 g)}]
+                            (and (vs a) (vs b))))
+                        (mesh/faces flipped)))]
+    (t/testing "flipping removes every non-Delaunay edge"
+      (t/is (< 0 (mesh/non-delaunay-edges jittered)))
+      (t/is (== 0 (mesh/non-delaunay-edges flipped))))
+    (t/testing "flipped mesh is valid, with the same number of faces"
+      (t/is (cmplx/valid? (mesh/cmplx flipped)))
+      (t/is (= (count (mesh/faces jittered)) (count (mesh/faces flipped)))))
+    (t/testing "constrained edges survive, and vertices don't move"
+      (t/is (every? shared? constrained))
+      (t/is (identical? (mesh/embedding jittered) (mesh/embedding flipped))))))
+
+;;------------------------------------------------------------------------------
+
+(defn- check-area
+  "Every face has positive area, and they sum to the sphere's."
+  [embedding faces]
+  (let [total (reduce
+               +
+               (map
+                (fn [f]
+                  (let [area (mesh/signed-area embedding f)]
+                    (t/is (pos? area))
+                    area))
+                faces))
+        precision (Precision/doubleEquivalenceOfEpsilon 1.0e-14)]
+    (t/is (.eq precision (* 4 Math/PI) total))))
+
+(t/deftest s2-delaunay
+  (let [random (Random. 2)
+        point (fn []
+                (s2/r3-to-s2
+                 (rn/vector (.nextGaussian random)
+                            (.nextGaussian random)
+                            (.nextGaussian random))))
+        points (repeatedly 2000 point)
+        whole (mesh/s2-delaunay points)
+        hemisphere (mesh/s2-delaunay
+                    (filter (fn [^Point2S p] (< (.getPolar p) (* 0.5 Math/PI)))
+                            points))
+        icosahedron (mesh/s2-delaunay
+                     (vals (mesh/embedding (icosahedron/s2-icosahedron))))]
+    (t/testing "points all over the sphere: a closed Delaunay mesh"
+      (t/is (cmplx/valid? (mesh/cmplx whole)))
+      (t/is (== (- (* 2 2000) 4) (count (mesh/faces whole))))
+      (t/is (empty? (cmplx/boundary-edges (mesh/cmplx whole))))
+      (t/is (== 0 (mesh/non-delaunay-edges whole)))
+      (check-area (mesh/embedding whole) (mesh/faces whole)))
+    (t/testing "points in a hemisphere: a Delaunay mesh with a boundary"
+      (t/is (cmplx/valid? (mesh/cmplx hemisphere)))
+      (t/is (seq (cmplx/boundary-edges (mesh/cmplx hemisphere))))
+      (t/is (== 0 (mesh/non-delaunay-edges hemisphere))))
+    (t/testing "icosahedron vertices: 20 faces"
+      (t/is (== 20 (count (mesh/faces icosahedron)))))))
+
+;;------------------------------------------------------------------------------
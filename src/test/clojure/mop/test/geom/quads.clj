@@ -0,0 +1,44 @@
+(set! *warn-on-reflection* true)
+(set! *unchecked-math* :warn-on-boxed)
+;;------------------------------------------------------------------------------
+
+(ns ^{:author "palisades dot lakes at gmail dot com"
+      :date   "2026-10-18"
+      :doc    "Tests for mop.geom.quads."}
+
+  mop.test.geom.quads
+
+  (:require [clojure.test :as t]
+            [mop.cmplx.complex :as cmplx]
+            [mop.geom.mesh :as mesh]
+            [mop.geom.quads :as quads])
+  (:import [org.apache.commons.geometry.spherical.twod Point2S]))
+
+;;------------------------------------------------------------------------------
+;; mvn -Dtest=mop.test.geom.quads clojure:test
+;;------------------------------------------------------------------------------
+
+(t/deftest quad-sphere
+  (let [subdivided (-> (quads/standard-quad-sphere)
+                       cmplx/midpoint-subdivide-4
+                       cmplx/midpoint-subdivide-4)
+        sphere (quads/quad-sphere 2)
+        gnomonic (quads/quad-sphere 2 :gnomonic)
+        points (vals (mesh/embedding subdivided))
+        close? (fn [^Point2S p]
+                 (> 1.0e-12
+                    (double
+                     (reduce min (map #(.distance p ^Point2S %) points)))))]
+    (t/testing "same complex as 2 midpoint subdivisions"
+      (t/is (== (* 6 16) (count (mesh/faces sphere))))
+      (t/is (== (count (cmplx/vertices (mesh/cmplx subdivided)))
+                (count (cmplx/vertices (mesh/cmplx sphere)))))
+      (t/is (== (* 6 16) (count (mesh/faces gnomonic))))
+      (t/is (apply distinct? (map str (cmplx/vertices (mesh/cmplx sphere))))))
+    (t/testing "same points as 2 midpoint subdivisions"
+      (t/is (every? close? (vals (mesh/embedding sphere)))))
+    (t/testing "levels are cached"
+      (t/is (identical? (mesh/cmplx sphere)
+                        (mesh/cmplx (quads/quad-sphere 2)))))))
+
+;;------------------------------------------------------------------------------
@@ -10,8 +10,11 @@
 
   (:require [clojure.math.combinatorics :as comb]
             [clojure.test :as t]
-            [mop.geom.s2 :as s2])
-  (:import [org.apache.commons.geometry.spherical.twod Point2S]))
+            [mop.geom.s2 :as s2]
+            [mop.geom.space :as space])
+  (:import [mop.java.geom S2Kernels]
+           [org.apache.commons.geometry.euclidean.threed Vector3D]
+           [org.apache.commons.geometry.spherical.twod Point2S]))
 
 (set! *unchecked-math* :warn-on-boxed)
 ;;------------------------------------------------------------------------------
@@ -73,4 +76,86 @@
         (t/is (== (/ Math/PI 2) (s2/polar p))))
       )))
 
-;;------------------------------------------------------------------------------
\ No newline at end of file
+;;------------------------------------------------------------------------------
+
+(t/deftest s2-batch-kernels
+  (t/testing
+   "Batch kernels agree with the per point functions."
+    (let [r (java.util.Random. 17)
+          point (fn [] (s2/point (* 2.0 Math/PI (.nextDouble r))
+                                 (Math/acos (- (* 2.0 (.nextDouble r)) 1.0))))
+          triangles (repeatedly 101 (fn [] [(point) (point) (point)]))
+          ^doubles areas (s2/signed-areas (s2/xyz (apply concat triangles)))
+          edges (repeatedly 101 (fn [] [(point) (point)]))
+          ^doubles crossings (s2/dateline-crossings (s2/xyz (apply concat edges)))]
+      (dorun
+       (map-indexed
+        (fn [i [a b c]]
+          (t/is (< (Math/abs (- (aget areas i) (double (s2/signed-area a b c))))
+                   1.0e-12)))
+        triangles))
+      (dorun
+       (map-indexed
+        (fn [i [a b]]
+          (let [^Point2S p (s2/dateline-crossing a b)]
+            (t/is (= (nil? p) (Double/isNaN (aget crossings (* 3 i)))))
+            (when p
+              (t/is (< (.distance p (s2/point
+                                     (Vector3D/of (aget crossings (* 3 i))
+                                                  (aget crossings (+ 1 (* 3 i)))
+                                                  (aget crossings (+ 2 (* 3 i))))))
+                       1.0e-12)))))
+        edges)))))
+
+;;------------------------------------------------------------------------------
+
+(defn- close? [^doubles x ^doubles y ^double tolerance]
+  (and (== (alength x) (alength y))
+       (every? (fn [^long i] (<= (Math/abs (- (aget x i) (aget y i)))
+                                 tolerance))
+               (range (alength x)))))
+
+;; 1003 isn't a multiple of any vector length, so the scalar tail runs
+;; too. The default build doesn't compile S2KernelsVector, so the public
+;; entry points are scalar throughout; mvn -Pvector runs this namespace
+;; both with and without jdk.incubator.vector.
+
+(t/deftest s2-batch-midpoints-and-conversion
+  (let [r (java.util.Random. 19)
+        point (fn [] (s2/point (* 2.0 Math/PI (.nextDouble r))
+                               (Math/acos (- (* 2.0 (.nextDouble r)) 1.0))))
+        n 1003
+        edges (vec (repeatedly n (fn [] [(point) (point)])))
+        ^doubles packed (s2/xyz (apply concat edges))
+        ^doubles mids (s2/midpoints packed)
+        points (mapv first edges)
+        ^doubles xyz (s2/xyz points)
+        ^doubles ap (double-array (* 2 n))
+        ^doubles xyz1 (double-array (* 3 n))]
+    (t/testing "midpoints agree with the 2 point midpoint"
+      (t/is (close? mids
+                    (s2/xyz (map (fn [[a b]] (space/midpoint a b)) edges))
+                    1.0e-12)))
+    (t/testing "r3ToS2 agrees with Point2S, and s2ToR3 inverts it"
+      (S2Kernels/r3ToS2 xyz ap (int n))
+      (t/is (close? ap
+                    (double-array
+                     (mapcat (fn [^Point2S p] [(.getAzimuth p) (.getPolar p)])
+                             points))
+                    1.0e-12))
+      (S2Kernels/s2ToR3 ap xyz1 (int n))
+      (t/is (close? xyz xyz1 1.0e-12)))
+    (t/testing "vector and scalar paths agree"
+      (let [triangles (s2/xyz (repeatedly (* 3 n) point))
+            areas (s2/signed-areas triangles)
+            scalar-areas (double-array n)
+            scalar-mids (double-array (* 3 n))
+            scalar-xyz (double-array (* 3 n))]
+        (S2Kernels/signedAreas triangles scalar-areas (int 0) (int n))
+        (S2Kernels/midpoints packed scalar-mids (int 0) (int n))
+        (S2Kernels/s2ToR3 ap scalar-xyz (int 0) (int n))
+        (t/is (close? areas scalar-areas 1.0e-13))
+        (t/is (close? mids scalar-mids 1.0e-15))
+        (t/is (close? xyz1 scalar-xyz 1.0e-14))))))
+
+;;------------------------------------------------------------------------------
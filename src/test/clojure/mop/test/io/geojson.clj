@@ -0,0 +1,92 @@
+(set! *warn-on-reflection* true)
+(set! *unchecked-math* :warn-on-boxed)
+;;------------------------------------------------------------------------------
+
+(ns ^{:author "palisades dot lakes at gmail dot com"
+      :date   "2026-10-18"
+      :doc    "Tests for mop.io.geojson."}
+
+  mop.test.io.geojson
+
+  (:require [clojure.test :as t]
+            [mop.commons.json :as json]
+            [mop.geom.icosahedron :as icosahedron]
+            [mop.geom.mesh :as mesh]
+            [mop.io.geojson :as geojson])
+  (:import [java.io File]
+           [mop.java.cmplx IndexedCellComplex]))
+
+;;------------------------------------------------------------------------------
+;; mvn -Dtest=mop.test.io.geojson clojure:test
+;;------------------------------------------------------------------------------
+
+(t/deftest write-geojson
+  (let [m (icosahedron/s2-icosphere 2)
+        file (File/createTempFile "icosphere" ".json")
+        _ (.deleteOnExit file)
+        expected (mapv #(geojson/triangle-coordinates % (mesh/embedding m))
+                       (mesh/faces m))
+        close? (fn [a b]
+                 (every? true?
+                         (map (fn [^double x ^double y]
+                                (<= (Math/abs (- x y)) 1.0e-6))
+                              (flatten a) (flatten b))))]
+    (t/testing "one Polygon Feature per face, in face order"
+      (geojson/write-geojson m file)
+      (let [features (get (json/read-json file) "features")]
+        (t/is (== (count expected) (count features)))
+        (t/is (close? expected
+                      (map #(get-in % ["geometry" "coordinates"]) features)))))
+    (t/testing "a single MultiPolygon, rounded to 3 decimal places"
+      (geojson/write-geojson m file :geometry :multipolygon :precision 3)
+      (let [features (get (json/read-json file) "features")
+            coordinates (get-in (first features)
+                                ["geometry" "coordinates"])]
+        (t/is (== 1 (count features)))
+        (t/is (== (count expected) (count coordinates)))
+        (t/is (every? (fn [^double x]
+                        (== x (/ (Math/round (* 1000.0 x)) 1000.0)))
+                      (flatten coordinates)))))))
+
+;;------------------------------------------------------------------------------
+
+(t/deftest write-topojson
+  (let [m (icosahedron/s2-icosphere 2)
+        file (File/createTempFile "icosphere" ".topojson")
+        _ (.deleteOnExit file)
+        _ (geojson/write-topojson m file :quantization 10000)
+        topology (json/read-json file)
+        [sx sy] (map double (get-in topology ["transform" "scale"]))
+        [tx ty] (map double (get-in topology ["transform" "translate"]))
+        point (fn [^long x ^long y]
+                [(+ (double tx) (* (double sx) x))
+                 (+ (double ty) (* (double sy) y))])
+        arcs (mapv (fn [[[x y] [dx dy]]]
+                     [(point x y)
+                      (point (+ (long x) (long dx)) (+ (long y) (long dy)))])
+                   (get topology "arcs"))
+        ring (fn [indices]
+               (let [points (mapv (fn [^long i]
+                                    (first (if (<= 0 i)
+                                             (nth arcs i)
+                                             (rseq (nth arcs (bit-not i))))))
+                                  indices)]
+                 (conj points (first points))))
+        geometries (get-in topology ["objects" "mesh" "geometries"])
+        expected (mapv #(geojson/triangle-coordinates % (mesh/embedding m))
+                       (mesh/faces m))]
+    (t/testing "one arc per edge, one geometry per face"
+      (t/is (== (.nEdges (.halfEdges ^IndexedCellComplex (mesh/cmplx m)))
+                (count arcs)))
+      (t/is (== (count expected) (count geometries))))
+    (t/testing "arc rings decode to the face coordinates, within a step"
+      (t/is (every? true?
+                    (map (fn [^double x ^double y]
+                           (<= (Math/abs (- x y))
+                               (max (double sx) (double sy))))
+                         (flatten expected)
+                         (flatten
+                          (map #(ring (first (get % "arcs")))
+                               geometries))))))))
+
+;;------------------------------------------------------------------------------
@@ -0,0 +1,117 @@
+(set! *warn-on-reflection* true)
+(set! *unchecked-math* :warn-on-boxed)
+;;------------------------------------------------------------------------------
+
+(ns ^{:author "palisades dot lakes at gmail dot com"
+      :date   "2026-10-18"
+      :doc    "Tests for mop.io.mesh."}
+
+  mop.test.io.mesh
+
+  (:require [clojure.test :as t]
+            [mop.cmplx.complex :as cmplx]
+            [mop.geom.icosahedron :as icosahedron]
+            [mop.geom.mesh :as mesh]
+            [mop.geom.quads :as quads]
+            [mop.geom.s2 :as s2]
+            [mop.io.mesh :as io])
+  (:import [java.io File]
+           [java.nio ByteBuffer ByteOrder]
+           [java.util List]
+           [mop.java.cmplx IndexedCellComplex]
+           [mop.java.geom.mesh MeshCodec MeshCodec$Encoded MeshFile]
+           [org.apache.commons.geometry.euclidean.threed Vector3D]
+           [org.apache.commons.geometry.spherical.twod Point2S]))
+
+;;------------------------------------------------------------------------------
+;; mvn -Dtest=mop.test.io.mesh clojure:test
+;;------------------------------------------------------------------------------
+
+(t/deftest mesh-file
+  (let [m (icosahedron/s2-icosphere 3)
+        attributed (mesh/attributed-mesh
+                    (mesh/embedding m)
+                    (mesh/vertex-attributes (mesh/cmplx m)
+                                            {"s2" (mesh/embedding m)}))
+        file (File/createTempFile "icosphere" ".mesh")
+        _ (.deleteOnExit file)
+        _ (io/write-mesh attributed file)
+        read (io/read-mesh file)
+        names (fn [m] (mapv str (cmplx/vertices (mesh/cmplx m))))]
+    (t/testing "vertex names and faces round trip"
+      (t/is (= (names m) (names read)))
+      (t/is (= (mapv str (mesh/faces m)) (mapv str (mesh/faces read)))))
+    (t/testing "embedding and attribute columns round trip"
+      (t/is (= (map (mesh/embedding m) (cmplx/vertices (mesh/cmplx m)))
+               (map (mesh/embedding read) (cmplx/vertices (mesh/cmplx read)))))
+      (t/is (= (seq (.doubles (.column (mesh/attributes attributed) "s2")))
+               (seq (.doubles (.column (mesh/attributes read) "s2"))))))
+    (t/testing "mapped face section holds 3 indices per face"
+      (with-open [^MeshFile f (io/mesh-file file)]
+        (t/is (== (* 3 (count (mesh/faces m)))
+                  (.remaining (.intBuffer f MeshFile/FACES))))))))
+
+;;------------------------------------------------------------------------------
+
+(defn- check-codec
+  "Encode and decode <code>m</code>, and check the decoded mesh has the
+  same faces, renumbered, and points within <code>tolerance</code>.
+  Return the number of chunks."
+  [m ^double tolerance distance]
+  (let [^IndexedCellComplex c (mesh/cmplx m)
+        ^MeshCodec$Encoded e (io/encode-mesh m :bits 20)
+        ^ints vertex-order (.vertexOrder e)
+        ^ints face-order (.faceOrder e)
+        decoded (io/decode-mesh (.bytes e))
+        ^IndexedCellComplex d (mesh/cmplx decoded)
+        ;; rotate so the minimum vertex comes first
+        canonical (fn [corners]
+                    (let [i (.indexOf ^List corners (apply min corners))]
+                      (vec (take (count corners)
+                                 (drop i (cycle corners))))))
+        corners (fn [^IndexedCellComplex c ^long f]
+                  (mapv #(.vertexIndex c (int f) (int %)) (range (.arity c))))]
+    (t/testing "same counts, in fewer than 4 bytes per face"
+      (t/is (== (.arity c) (.arity d)))
+      (t/is (== (.nVertices c) (.nVertices d)))
+      (t/is (== (.nFaces c) (.nFaces d)))
+      (t/is (< (alength ^bytes (.bytes e)) (* 4 (.nFaces c)))))
+    (t/testing "same faces, renumbered"
+      (t/is (every? (fn [^long f]
+                      (= (canonical (corners c (aget face-order f)))
+                         (canonical (mapv #(aget vertex-order (int %))
+                                          (corners d f)))))
+                    (range (.nFaces d)))))
+    (t/testing "points within the quantization error"
+      (t/is (every? (fn [^long v]
+                      (> tolerance
+                         (double
+                          (distance
+                           ((mesh/embedding m)
+                            (.vertex c (aget vertex-order (int v))))
+                           ((mesh/embedding decoded) (.vertex d (int v)))))))
+                    (range (.nVertices d)))))
+    ;; chunk count, from the header
+    (.getInt (.order (ByteBuffer/wrap (.bytes e)) ByteOrder/LITTLE_ENDIAN)
+             32)))
+
+(t/deftest mesh-codec
+  (let [s2-distance (fn [^Point2S p ^Point2S q] (.distance p q))
+        r3-distance (fn [^Vector3D p ^Vector3D q] (.distance p q))
+        ;; more faces than MeshCodec/CHUNK
+        icosphere (icosahedron/s2-icosphere 7)
+        r3 (mesh/triangle-mesh
+            (mesh/cmplx (icosahedron/s2-icosphere 3))
+            (update-vals (mesh/embedding (icosahedron/s2-icosphere 3))
+                         #(.multiply ^Vector3D (s2/s2-to-r3 %) 2.0)))]
+    (t/testing "several chunks of S2 triangles"
+      (t/is (< MeshCodec/CHUNK
+               (.nFaces ^IndexedCellComplex (mesh/cmplx icosphere))))
+      (t/is (< 1 (long (check-codec icosphere 1.0e-5 s2-distance)))))
+    (t/testing "S2 quads"
+      (t/is (== 1 (long (check-codec (quads/quad-sphere 4)
+                                     1.0e-5 s2-distance)))))
+    (t/testing "R3 triangles"
+      (t/is (== 1 (long (check-codec r3 1.0e-5 r3-distance)))))))
+
+;;------------------------------------------------------------------------------